@@ -0,0 +1,568 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.cofemine;
+
+import com.github.junrar.Archive;
+import com.github.junrar.exception.RarException;
+import com.github.junrar.exception.UnsupportedRarV5Exception;
+import com.github.junrar.rarfile.FileHeader;
+import kala.compress.archivers.zip.ZipArchiveEntry;
+import kala.compress.archivers.zip.ZipArchiveReader;
+import net.sf.sevenzipjbinding.ExtractAskMode;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IArchiveExtractCallback;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.SevenZipNativeInitializationException;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import org.jackhuang.hmcl.util.StringUtils;
+import org.jackhuang.hmcl.util.function.ExceptionalPredicate;
+import org.jackhuang.hmcl.util.io.CompressingUtils;
+import org.jackhuang.hmcl.util.io.FileUtils;
+import org.jackhuang.hmcl.util.io.IOUtils;
+import org.jackhuang.hmcl.util.io.Unzipper;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/**
+ * A downloaded CofeMine pack archive, whose entries are extracted next to their final location
+ * without unpacking the whole archive to a temporary directory first.
+ *
+ * <p>Zip archives are read with random access through {@link Unzipper}. RAR archives are read with junrar,
+ * or with 7-Zip-JBinding for RAR 5, which also reads 7z archives.
+ */
+abstract class CofeMineArchive implements Closeable {
+
+    private static final String STAGING_DIRECTORY_PREFIX = ".cofemine-extract-";
+
+    /**
+     * @param name the path of the entry in the archive, separated by {@code /}, ending with {@code /} for directories
+     * @param crc32 the CRC-32 of the content, or null if unknown
+     */
+    record Entry(String name, boolean directory, long size, @Nullable Long crc32) {
+    }
+
+    protected final List<Entry> entries = new ArrayList<>();
+
+    static CofeMineArchive open(Path archivePath) throws IOException {
+        if (!Files.isRegularFile(archivePath)) {
+            throw new IOException("Downloaded modpack archive not found: " + archivePath);
+        }
+        switch (CofeMineModpackService.detectArchiveType(archivePath)) {
+            case RAR:
+                try {
+                    return new RarArchive(archivePath);
+                } catch (UnsupportedRarV5Exception e) {
+                    return new SevenZipArchive(archivePath);
+                } catch (RarException e) {
+                    throw new IOException("Failed to read RAR archive", e);
+                }
+            case SEVEN_ZIP:
+                return new SevenZipArchive(archivePath);
+            default:
+                return new ZipArchive(archivePath);
+        }
+    }
+
+    static String normalizeName(String name) {
+        String normalized = name.replace('\\', '/');
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        return normalized;
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Finds the directory holding the pack: the only top-level directory that has a {@code mods}, {@code config},
+     * {@code versions} or {@code minecraft} directory, or the root of the archive if there is no such single directory.
+     *
+     * @return the prefix of the entries in that directory, empty or ending with {@code /}
+     */
+    String getContentPrefix() {
+        Map<String, Set<String>> subDirectories = new HashMap<>();
+        for (Entry entry : entries) {
+            String name = entry.name();
+            int first = name.indexOf('/');
+            if (first < 0) {
+                continue;
+            }
+            Set<String> children = subDirectories.computeIfAbsent(name.substring(0, first), key -> new HashSet<>());
+            int second = name.indexOf('/', first + 1);
+            if (second >= 0) {
+                children.add(name.substring(first + 1, second));
+            }
+        }
+
+        List<String> candidates = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> directory : subDirectories.entrySet()) {
+            Set<String> children = directory.getValue();
+            if (children.contains("mods") || children.contains("config")
+                    || children.contains("versions") || children.contains("minecraft")) {
+                candidates.add(directory.getKey());
+            }
+        }
+        return candidates.size() == 1 ? candidates.get(0) + "/" : "";
+    }
+
+    @Nullable Entry getEntry(String name) {
+        for (Entry entry : entries) {
+            if (entry.name().equals(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    abstract byte[] read(Entry entry) throws IOException;
+
+    /**
+     * Writes the accepted entries under {@code prefix} to {@code destDir}, replacing existing files.
+     *
+     * <p>The files are first written to a hidden staging directory in {@code destDir}, and checked against the CRC-32
+     * recorded in the archive. They are only moved into place once all of them have been written, so a failed or
+     * cancelled extraction leaves the existing files untouched. The staging directories left behind by an extraction
+     * that was killed are deleted the next time an archive is extracted to {@code destDir}.
+     *
+     * @param filter   decides whether to write the entry, and for directories, whether to write their contents
+     * @param progress called with the number of bytes written, possibly from several threads at once
+     */
+    final void extract(String prefix, Path destDir, ExceptionalPredicate<Entry, IOException> filter,
+                       LongConsumer progress) throws IOException {
+        Files.createDirectories(destDir);
+        deleteStagingDirectories(destDir);
+        Path stagingDir = Files.createTempDirectory(destDir, STAGING_DIRECTORY_PREFIX);
+        try {
+            extractTo(prefix, stagingDir, filter, progress);
+
+            List<Path> files;
+            try (Stream<Path> stream = Files.walk(stagingDir)) {
+                files = stream.toList();
+            }
+            for (Path file : files) {
+                Path target = destDir.resolve(stagingDir.relativize(file).toString());
+                if (Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } finally {
+            FileUtils.deleteDirectoryQuietly(stagingDir);
+        }
+    }
+
+    /**
+     * Deletes the staging directories of earlier extractions to {@code destDir}.
+     * They are kept in {@code destDir} rather than in the temporary directory so that the files can be moved into place.
+     */
+    private static void deleteStagingDirectories(Path destDir) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(destDir, STAGING_DIRECTORY_PREFIX + "*")) {
+            for (Path leftover : stream) {
+                if (Files.isDirectory(leftover, LinkOption.NOFOLLOW_LINKS)) {
+                    LOG.info("Deleting leftover staging directory " + leftover);
+                    FileUtils.deleteDirectoryQuietly(leftover);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the accepted entries under {@code prefix} to the empty {@code stagingDir}, checking their CRC-32.
+     */
+    abstract void extractTo(String prefix, Path stagingDir, ExceptionalPredicate<Entry, IOException> filter,
+                            LongConsumer progress) throws IOException;
+
+    /**
+     * Resolves the destination of an entry under {@code prefix}, or returns null if it is outside of {@code destDir}.
+     */
+    static @Nullable Path resolve(String prefix, Path destDir, Entry entry) {
+        if (!entry.name().startsWith(prefix)) {
+            return null;
+        }
+        String relativePath = entry.name().substring(prefix.length());
+        if (relativePath.isEmpty()) {
+            return null;
+        }
+        Path output = destDir.resolve(relativePath).normalize();
+        return output.startsWith(destDir) && !output.equals(destDir) ? output : null;
+    }
+
+    /**
+     * Checks the filter for the entry and all the directories containing it below {@code prefix}.
+     */
+    static boolean accept(String prefix, Entry entry, ExceptionalPredicate<Entry, IOException> filter) throws IOException {
+        String name = entry.name();
+        for (int i = name.indexOf('/', prefix.length()); i >= 0 && i < name.length() - 1; i = name.indexOf('/', i + 1)) {
+            if (!filter.test(new Entry(name.substring(0, i + 1), true, 0, null))) {
+                return false;
+            }
+        }
+        return filter.test(entry);
+    }
+
+    static OutputStream newOutputStream(Path output, CRC32 crc32, LongConsumer progress) throws IOException {
+        Files.createDirectories(output.getParent());
+        return new FilterOutputStream(Files.newOutputStream(output, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                crc32.update(b);
+                progress.accept(1);
+            }
+
+            @Override
+            public void write(byte @NotNull [] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                crc32.update(b, off, len);
+                progress.accept(len);
+            }
+        };
+    }
+
+    static void verify(Entry entry, CRC32 crc32) throws IOException {
+        if (entry.crc32() != null && entry.crc32() != crc32.getValue()) {
+            throw new ZipException("CRC-32 mismatch of " + entry.name());
+        }
+    }
+
+    private static final class ZipArchive extends CofeMineArchive {
+        private final Path archivePath;
+        private final ZipArchiveReader reader;
+        private final Map<String, ZipArchiveEntry> zipEntries = new HashMap<>();
+
+        ZipArchive(Path archivePath) throws IOException {
+            this.archivePath = archivePath;
+            this.reader = CompressingUtils.openZipFile(archivePath);
+            for (ZipArchiveEntry zipEntry : reader.getEntries()) {
+                String name = normalizeName(zipEntry.getName());
+                boolean directory = zipEntry.isDirectory() || name.endsWith("/");
+                zipEntries.putIfAbsent(name, zipEntry);
+                entries.add(new Entry(name, directory, directory ? 0 : zipEntry.getSize(),
+                        directory || zipEntry.getCrc() < 0 ? null : zipEntry.getCrc()));
+            }
+        }
+
+        @Override
+        byte[] read(Entry entry) throws IOException {
+            ZipArchiveEntry zipEntry = zipEntries.get(entry.name());
+            if (zipEntry == null) {
+                throw new IOException("No such entry: " + entry.name());
+            }
+            try (InputStream in = reader.getInputStream(zipEntry)) {
+                return in.readAllBytes();
+            }
+        }
+
+        @Override
+        void extractTo(String prefix, Path stagingDir, ExceptionalPredicate<Entry, IOException> filter,
+                       LongConsumer progress) throws IOException {
+            Map<String, Entry> byName = new HashMap<>();
+            for (Entry entry : entries) {
+                byName.putIfAbsent(entry.name(), entry);
+            }
+
+            new Unzipper(archivePath, stagingDir)
+                    .setSubDirectory(prefix.isEmpty() ? "/" : "/" + prefix.substring(0, prefix.length() - 1))
+                    .setVerifyChecksums(true)
+                    .setProgressListener(progress)
+                    .setEntryFilter((zipEntry, isDirectory, destFile, entryPath) -> {
+                        if (entryPath.isEmpty()) {
+                            return true;
+                        }
+                        String name = normalizeName(prefix + entryPath) + (isDirectory ? "/" : "");
+                        Entry entry = byName.get(name);
+                        if (entry == null) {
+                            if (!isDirectory) {
+                                return false;
+                            }
+                            entry = new Entry(name, true, 0, null);
+                        }
+                        return filter.test(entry);
+                    })
+                    .unzip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class RarArchive extends CofeMineArchive {
+        private final Archive archive;
+        private final Map<Entry, FileHeader> headers = new IdentityHashMap<>();
+
+        RarArchive(Path archivePath) throws IOException, RarException {
+            this.archive = new Archive(archivePath.toFile());
+            try {
+                for (FileHeader header : archive.getFileHeaders()) {
+                    String name = header.getFileNameW();
+                    if (StringUtils.isBlank(name)) {
+                        name = header.getFileNameString();
+                    }
+                    if (StringUtils.isBlank(name)) {
+                        continue;
+                    }
+                    name = normalizeName(name);
+                    boolean directory = header.isDirectory();
+                    if (directory && !name.endsWith("/")) {
+                        name += "/";
+                    }
+                    Entry entry = new Entry(name, directory, directory ? 0 : header.getFullUnpackSize(),
+                            directory ? null : Integer.toUnsignedLong(header.getFileCRC()));
+                    entries.add(entry);
+                    headers.put(entry, header);
+                }
+            } catch (Throwable e) {
+                IOUtils.closeQuietly(archive, e);
+                throw e;
+            }
+        }
+
+        @Override
+        byte[] read(Entry entry) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                archive.extractFile(headers.get(entry), out);
+            } catch (RarException e) {
+                throw new IOException("Failed to read " + entry.name(), e);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        void extractTo(String prefix, Path stagingDir, ExceptionalPredicate<Entry, IOException> filter,
+                       LongConsumer progress) throws IOException {
+            boolean solid = archive.getMainHeader() != null && archive.getMainHeader().isSolid();
+            for (Entry entry : entries) {
+                Path output = resolve(prefix, stagingDir, entry);
+                boolean accepted = output != null && accept(prefix, entry, filter);
+                if (entry.directory()) {
+                    if (accepted) {
+                        Files.createDirectories(output);
+                    }
+                    continue;
+                }
+
+                try {
+                    if (accepted) {
+                        CRC32 crc32 = new CRC32();
+                        try (OutputStream out = newOutputStream(output, crc32, progress)) {
+                            archive.extractFile(headers.get(entry), out);
+                        }
+                        verify(entry, crc32);
+                    } else if (solid) {
+                        // Entries of solid archives depend on the ones before them
+                        archive.extractFile(headers.get(entry), OutputStream.nullOutputStream());
+                    }
+                } catch (RarException e) {
+                    throw new IOException("Failed to unpack " + entry.name() + " from RAR archive", e);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            archive.close();
+        }
+    }
+
+    private static final class SevenZipArchive extends CofeMineArchive {
+        private final RandomAccessFile file;
+        private final IInArchive archive;
+        private final Map<Entry, Integer> indices = new IdentityHashMap<>();
+
+        SevenZipArchive(Path archivePath) throws IOException {
+            try {
+                SevenZip.initSevenZipFromPlatformJAR();
+            } catch (SevenZipNativeInitializationException e) {
+                throw new IOException("Failed to initialize 7zip native library", e);
+            }
+
+            this.file = new RandomAccessFile(archivePath.toFile(), "r");
+            try {
+                this.archive = SevenZip.openInArchive(null, new RandomAccessFileInStream(file));
+                int items = archive.getNumberOfItems();
+                for (int i = 0; i < items; i++) {
+                    Object path = archive.getProperty(i, PropID.PATH);
+                    if (path == null || StringUtils.isBlank(path.toString()) || "null".equals(path.toString())) {
+                        continue;
+                    }
+                    String name = normalizeName(path.toString());
+                    boolean directory = Boolean.TRUE.equals(archive.getProperty(i, PropID.IS_FOLDER));
+                    if (directory && !name.endsWith("/")) {
+                        name += "/";
+                    }
+                    Object size = archive.getProperty(i, PropID.SIZE);
+                    Object crc = archive.getProperty(i, PropID.CRC);
+                    Entry entry = new Entry(name, directory,
+                            !directory && size instanceof Number number ? number.longValue() : 0,
+                            !directory && crc instanceof Number number ? Integer.toUnsignedLong(number.intValue()) : null);
+                    entries.add(entry);
+                    indices.put(entry, i);
+                }
+            } catch (SevenZipException e) {
+                IOUtils.closeQuietly(file, e);
+                throw new IOException("Failed to read archive", e);
+            } catch (Throwable e) {
+                IOUtils.closeQuietly(file, e);
+                throw e;
+            }
+        }
+
+        @Override
+        byte[] read(Entry entry) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                ExtractOperationResult result = archive.extractSlow(indices.get(entry), data -> {
+                    out.write(data, 0, data.length);
+                    return data.length;
+                });
+                if (result != ExtractOperationResult.OK) {
+                    throw new IOException("Failed to read " + entry.name() + ": " + result);
+                }
+            } catch (SevenZipException e) {
+                throw new IOException("Failed to read " + entry.name(), e);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        void extractTo(String prefix, Path stagingDir, ExceptionalPredicate<Entry, IOException> filter,
+                       LongConsumer progress) throws IOException {
+            Map<Integer, Path> outputs = new HashMap<>();
+            Map<Integer, Entry> selectedEntries = new HashMap<>();
+            for (Entry entry : entries) {
+                Path output = resolve(prefix, stagingDir, entry);
+                if (output == null || !accept(prefix, entry, filter)) {
+                    continue;
+                }
+                if (entry.directory()) {
+                    Files.createDirectories(output);
+                } else {
+                    outputs.put(indices.get(entry), output);
+                    selectedEntries.put(indices.get(entry), entry);
+                }
+            }
+
+            int[] selected = outputs.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            try {
+                archive.extract(selected, false, new IArchiveExtractCallback() {
+                    private OutputStream currentStream;
+                    private Entry currentEntry;
+                    private CRC32 currentCrc32;
+
+                    @Override
+                    public ISequentialOutStream getStream(int index, ExtractAskMode extractAskMode) throws SevenZipException {
+                        Path output = outputs.get(index);
+                        if (extractAskMode != ExtractAskMode.EXTRACT || output == null) {
+                            return null;
+                        }
+                        try {
+                            currentEntry = selectedEntries.get(index);
+                            currentCrc32 = new CRC32();
+                            currentStream = newOutputStream(output, currentCrc32, progress);
+                        } catch (IOException e) {
+                            throw new SevenZipException("Failed to open output file", e);
+                        }
+                        return data -> {
+                            try {
+                                currentStream.write(data);
+                            } catch (IOException e) {
+                                throw new SevenZipException("Failed to write output", e);
+                            }
+                            return data.length;
+                        };
+                    }
+
+                    @Override
+                    public void prepareOperation(ExtractAskMode extractAskMode) {
+                    }
+
+                    @Override
+                    public void setOperationResult(ExtractOperationResult extractOperationResult) throws SevenZipException {
+                        if (currentStream != null) {
+                            try {
+                                currentStream.close();
+                                if (extractOperationResult == ExtractOperationResult.OK) {
+                                    verify(currentEntry, currentCrc32);
+                                }
+                            } catch (IOException e) {
+                                throw new SevenZipException("Failed to write " + currentEntry.name(), e);
+                            } finally {
+                                currentStream = null;
+                            }
+                        }
+                        if (extractOperationResult != ExtractOperationResult.OK) {
+                            throw new SevenZipException("Extraction failed: " + extractOperationResult);
+                        }
+                    }
+
+                    @Override
+                    public void setCompleted(long completeValue) {
+                    }
+
+                    @Override
+                    public void setTotal(long total) {
+                    }
+                });
+            } catch (SevenZipException e) {
+                throw new IOException("Failed to unpack archive", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                archive.close();
+            } catch (SevenZipException e) {
+                LOG.warning("Failed to close 7zip archive", e);
+            } finally {
+                file.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.cofemine;
+
+import org.jackhuang.hmcl.task.Task;
+import org.jackhuang.hmcl.util.StringUtils;
+import org.jackhuang.hmcl.util.platform.OperatingSystem;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Updates the allowed top-level directories of an installed CofeMine pack, touching only the files that have changed.
+ *
+ * <p>The files of the new version are listed with their sizes and checksums, either from the file list published
+ * in the manifest, or from the entries of the archive. Installed files with the same content are left alone, only
+ * the changed entries are extracted from the archive and moved into the target directory once all of them have been
+ * written and checked, and the download is skipped entirely when the published file list matches the installed files.
+ * Entries without checksums are always written.
+ */
+final class CofeMineDeltaSync {
+    private final Path targetDir;
+    private final Set<String> allowedTopLevel;
+    private final Map<String, String> publishedSha256 = new HashMap<>();
+    private final @Nullable List<CofeMineModpackManifest.FileEntry> publishedFiles;
+    private final boolean caseInsensitive = OperatingSystem.CURRENT_OS == OperatingSystem.WINDOWS;
+    private final CofeMineFileIndex index;
+
+    /** The files of the new version by their paths relative to the content root. */
+    private final Map<String, RemoteFile> remoteFiles = new LinkedHashMap<>();
+    /** The allowed top-level directories present in the new version, lower-cased. */
+    private final Set<String> activeTopLevel = new HashSet<>();
+
+    CofeMineDeltaSync(Path targetDir, @Nullable CofeMineModpackManifest manifest) {
+        this.targetDir = targetDir;
+        this.allowedTopLevel = getAllowedTopLevel(manifest);
+        this.publishedFiles = manifest != null ? manifest.files() : null;
+        if (publishedFiles != null) {
+            for (CofeMineModpackManifest.FileEntry file : publishedFiles) {
+                if (file != null && StringUtils.isNotBlank(file.path()) && StringUtils.isNotBlank(file.sha256())) {
+                    publishedSha256.put(normalizePath(file.path()), file.sha256());
+                }
+            }
+        }
+        this.index = CofeMineFileIndex.load(targetDir);
+    }
+
+    private static Set<String> getAllowedTopLevel(@Nullable CofeMineModpackManifest manifest) {
+        Set<String> allowedTopLevel = new HashSet<>();
+        if (manifest != null && manifest.directories() != null && !manifest.directories().isEmpty()) {
+            for (String entry : manifest.directories()) {
+                if (StringUtils.isBlank(entry)) {
+                    continue;
+                }
+                String normalized = normalizePath(entry);
+                if (normalized.endsWith("/")) {
+                    normalized = normalized.substring(0, normalized.length() - 1);
+                }
+                if (!normalized.isBlank()) {
+                    String top = normalized.split("/")[0];
+                    allowedTopLevel.add(top.toLowerCase(Locale.ROOT));
+                }
+            }
+        } else {
+            for (String entry : CofeMineModpackService.DEFAULT_UPDATE_DIRS) {
+                allowedTopLevel.add(entry.toLowerCase(Locale.ROOT));
+            }
+        }
+        return allowedTopLevel;
+    }
+
+    private static String normalizePath(String path) {
+        String normalized = path.replace('\\', '/');
+        while (normalized.startsWith("/")) {
+            normalized = normalized.substring(1);
+        }
+        return normalized;
+    }
+
+    private static String getTopLevel(String relativePath) {
+        int index = relativePath.indexOf('/');
+        return (index < 0 ? relativePath : relativePath.substring(0, index)).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Whether the file of the pack is synchronized, that is, it is in an allowed top-level directory.
+     */
+    private boolean isSynchronized(String relativePath) {
+        if (relativePath.indexOf('/') < 0) {
+            return false;
+        }
+        String topLevel = getTopLevel(relativePath);
+        return !CofeMineModpackService.PROTECTED_TOP_LEVEL.contains(topLevel) && allowedTopLevel.contains(topLevel);
+    }
+
+    private void addRemoteFile(String relativePath, long size, @Nullable Long crc32) {
+        if (isSynchronized(relativePath)) {
+            remoteFiles.put(relativePath, new RemoteFile(size, crc32, publishedSha256.get(relativePath)));
+            activeTopLevel.add(getTopLevel(relativePath));
+        }
+    }
+
+    private boolean isInstalled(String relativePath) throws IOException {
+        RemoteFile file = remoteFiles.get(relativePath);
+        return file != null && index.matches(relativePath, file.size(), file.crc32(), file.sha256());
+    }
+
+    /**
+     * Checks the installed files against the file list published in the manifest.
+     *
+     * @return true if all the published files are installed, so the archive does not have to be downloaded
+     */
+    boolean isUpToDate() throws IOException {
+        if (publishedFiles == null || publishedFiles.isEmpty()) {
+            return false;
+        }
+
+        remoteFiles.clear();
+        activeTopLevel.clear();
+        for (CofeMineModpackManifest.FileEntry file : publishedFiles) {
+            if (file == null || StringUtils.isBlank(file.path()) || StringUtils.isBlank(file.sha256())) {
+                return false;
+            }
+            addRemoteFile(normalizePath(file.path()), file.size(), null);
+        }
+
+        for (String relativePath : remoteFiles.keySet()) {
+            if (!isInstalled(relativePath)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String normalizeKey(String relativePath) {
+        return caseInsensitive ? relativePath.toLowerCase(Locale.ROOT) : relativePath;
+    }
+
+    /**
+     * Creates the task bringing the installed files to the new version.
+     *
+     * @param archivePath the downloaded archive, or null if {@link #isUpToDate()} holds
+     */
+    Task<Void> createSyncTask(@Nullable Path archivePath) {
+        return new SyncTask(archivePath);
+    }
+
+    private final class SyncTask extends Task<Void> {
+        private final @Nullable Path archivePath;
+
+        SyncTask(@Nullable Path archivePath) {
+            this.archivePath = archivePath;
+        }
+
+        @Override
+        public void execute() throws Exception {
+            if (archivePath != null) {
+                extractChangedFiles(archivePath);
+            }
+
+            Set<String> keys = new HashSet<>();
+            for (String relativePath : remoteFiles.keySet()) {
+                keys.add(normalizeKey(relativePath));
+            }
+
+            // Remove the files that are no longer in the pack, and the directories left empty
+            for (String topLevel : activeTopLevel) {
+                Path root = findTopLevel(topLevel);
+                if (root == null) {
+                    continue;
+                }
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                        String relativePath = normalizePath(targetDir.relativize(file).toString());
+                        if (!keys.contains(normalizeKey(relativePath))) {
+                            Files.deleteIfExists(file);
+                            index.remove(relativePath);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                        if (exc != null) {
+                            throw exc;
+                        }
+                        try (var stream = Files.list(dir)) {
+                            if (stream.findAny().isEmpty()) {
+                                Files.deleteIfExists(dir);
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+
+            index.save();
+            updateProgress(1, 1);
+        }
+
+        /**
+         * Lists the files of the new version in the archive, and writes the ones that are not installed yet
+         * straight to the target directory.
+         */
+        private void extractChangedFiles(Path archivePath) throws IOException {
+            remoteFiles.clear();
+            activeTopLevel.clear();
+
+            try (CofeMineArchive archive = CofeMineArchive.open(archivePath)) {
+                String prefix = archive.getContentPrefix();
+                for (CofeMineArchive.Entry entry : archive.getEntries()) {
+                    if (!entry.name().startsWith(prefix)) {
+                        continue;
+                    }
+                    String relativePath = entry.name().substring(prefix.length());
+                    if (entry.directory()) {
+                        if (!relativePath.isEmpty() && isSynchronized(relativePath)) {
+                            activeTopLevel.add(getTopLevel(relativePath));
+                        }
+                    } else {
+                        addRemoteFile(relativePath, entry.size(), entry.crc32());
+                    }
+                }
+
+                Set<String> changedFiles = new HashSet<>();
+                long total = 0;
+                for (Map.Entry<String, RemoteFile> remoteFile : remoteFiles.entrySet()) {
+                    if (!isInstalled(remoteFile.getKey())) {
+                        changedFiles.add(remoteFile.getKey());
+                        total += remoteFile.getValue().size();
+                    }
+                }
+
+                long totalBytes = total;
+                AtomicLong written = new AtomicLong();
+                archive.extract(prefix, targetDir, entry -> {
+                    String relativePath = entry.name().substring(prefix.length());
+                    return entry.directory() ? isSynchronized(relativePath) : changedFiles.contains(relativePath);
+                }, bytes -> updateProgress(written.addAndGet(bytes), totalBytes));
+
+                // The written files have been checked against the CRC-32 in the archive, but not against the published
+                // SHA-256, which is computed and compared by the next check instead
+                for (String relativePath : changedFiles) {
+                    index.put(relativePath, remoteFiles.get(relativePath).crc32(), null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the installed top-level directory, whose name may differ in case.
+     */
+    private @Nullable Path findTopLevel(String topLevel) throws IOException {
+        Path exact = targetDir.resolve(topLevel);
+        if (Files.isDirectory(exact, LinkOption.NOFOLLOW_LINKS)) {
+            return exact;
+        }
+        if (!Files.isDirectory(targetDir)) {
+            return null;
+        }
+        try (var stream = Files.list(targetDir)) {
+            return stream.filter(path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)
+                            && path.getFileName().toString().toLowerCase(Locale.ROOT).equals(topLevel))
+                    .findFirst().orElse(null);
+        }
+    }
+
+    private record RemoteFile(long size, @Nullable Long crc32, @Nullable String sha256) {
+    }
+}
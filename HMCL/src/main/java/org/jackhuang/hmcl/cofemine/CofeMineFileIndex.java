@@ -0,0 +1,154 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.cofemine;
+
+import com.google.gson.JsonParseException;
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.jackhuang.hmcl.util.gson.JsonUtils;
+import org.jackhuang.hmcl.util.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/**
+ * Remembers the size, modification time and checksums of the files synchronized from a CofeMine pack,
+ * stored in {@code .cofemine/files.json} of the game directory.
+ *
+ * <p>A file whose size and modification time have not changed since it was recorded is compared by the
+ * recorded checksums, so unchanged files are recognized without reading them again.
+ */
+final class CofeMineFileIndex {
+    static final String INDEX_FILE = "files.json";
+
+    private final Path targetDir;
+    private final Path indexFile;
+    private final Map<String, Entry> entries;
+    private boolean dirty;
+
+    private CofeMineFileIndex(Path targetDir, Map<String, Entry> entries) {
+        this.targetDir = targetDir;
+        this.indexFile = targetDir.resolve(CofeMineModpackService.MARKER_DIR).resolve(INDEX_FILE);
+        this.entries = entries;
+    }
+
+    static CofeMineFileIndex load(Path targetDir) {
+        Path indexFile = targetDir.resolve(CofeMineModpackService.MARKER_DIR).resolve(INDEX_FILE);
+        Map<String, Entry> entries = null;
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                entries = JsonUtils.fromJsonFile(indexFile, JsonUtils.mapTypeOf(String.class, Entry.class));
+            } catch (IOException | JsonParseException e) {
+                LOG.warning("Failed to read CofeMine file index: " + indexFile, e);
+            }
+        }
+        return new CofeMineFileIndex(targetDir, entries != null ? new HashMap<>(entries) : new HashMap<>());
+    }
+
+    /**
+     * Checks whether the installed file has the given content.
+     *
+     * @param relativePath the path of the file relative to the game directory, separated by {@code /}
+     * @param crc32        the expected CRC-32, or null if unknown
+     * @param sha256       the expected SHA-256, or null if unknown
+     * @return false if the file is missing or different, or if neither checksum is known
+     */
+    boolean matches(String relativePath, long size, @Nullable Long crc32, @Nullable String sha256) throws IOException {
+        if (crc32 == null && sha256 == null) {
+            return false;
+        }
+
+        Path file = targetDir.resolve(relativePath);
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attributes.size() != size) {
+            return false;
+        }
+
+        long modified = attributes.lastModifiedTime().toMillis();
+        Entry entry = entries.get(relativePath);
+        if (entry == null || entry.size() != size || entry.modified() != modified) {
+            entry = new Entry(size, modified, null, null);
+        }
+        if (sha256 != null && entry.sha256() == null) {
+            entry = new Entry(size, modified, entry.crc32(), DigestUtils.digestToString("SHA-256", file));
+        } else if (sha256 == null && entry.crc32() == null) {
+            entry = new Entry(size, modified, computeCrc32(file), entry.sha256());
+        }
+        if (!entry.equals(entries.put(relativePath, entry))) {
+            dirty = true;
+        }
+
+        return sha256 != null
+                ? sha256.toLowerCase(Locale.ROOT).equals(entry.sha256())
+                : Objects.equals(crc32, entry.crc32());
+    }
+
+    /**
+     * Records a file that has just been written with the given content.
+     */
+    void put(String relativePath, @Nullable Long crc32, @Nullable String sha256) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(targetDir.resolve(relativePath), BasicFileAttributes.class);
+        entries.put(relativePath, new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                crc32, sha256 != null ? sha256.toLowerCase(Locale.ROOT) : null));
+        dirty = true;
+    }
+
+    void remove(String relativePath) {
+        if (entries.remove(relativePath) != null) {
+            dirty = true;
+        }
+    }
+
+    void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        entries.keySet().removeIf(relativePath -> !Files.isRegularFile(targetDir.resolve(relativePath)));
+        Files.createDirectories(indexFile.getParent());
+        FileUtils.saveSafely(indexFile, JsonUtils.UGLY_GSON.toJson(entries));
+        dirty = false;
+    }
+
+    static long computeCrc32(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private record Entry(long size, long modified, @Nullable Long crc32, @Nullable String sha256) {
+    }
+}
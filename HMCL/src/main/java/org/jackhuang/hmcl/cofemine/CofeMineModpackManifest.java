@@ -25,6 +25,13 @@ public record CofeMineModpackManifest(
         @Nullable String version,
         @Nullable String updatedAt,
         @Nullable String sha256,
-        @Nullable List<String> directories
+        @Nullable List<String> directories,
+        @Nullable List<FileEntry> files
 ) {
+    /**
+     * A file of the pack, with its path relative to the content root of the archive.
+     * Publishing the files lets updates skip the download when nothing has changed.
+     */
+    public record FileEntry(String path, long size, @Nullable String sha256) {
+    }
 }
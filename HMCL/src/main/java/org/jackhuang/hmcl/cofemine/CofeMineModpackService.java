@@ -17,23 +17,9 @@
  */
 package org.jackhuang.hmcl.cofemine;
 
-import com.github.junrar.Archive;
-import com.github.junrar.exception.RarException;
-import com.github.junrar.exception.UnsupportedRarV5Exception;
-import com.github.junrar.rarfile.FileHeader;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
-import net.sf.sevenzipjbinding.ExtractAskMode;
-import net.sf.sevenzipjbinding.ExtractOperationResult;
-import net.sf.sevenzipjbinding.IArchiveExtractCallback;
-import net.sf.sevenzipjbinding.IInArchive;
-import net.sf.sevenzipjbinding.ISequentialOutStream;
-import net.sf.sevenzipjbinding.PropID;
-import net.sf.sevenzipjbinding.SevenZip;
-import net.sf.sevenzipjbinding.SevenZipException;
-import net.sf.sevenzipjbinding.SevenZipNativeInitializationException;
-import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
 import org.jackhuang.hmcl.download.DefaultDependencyManager;
 import org.jackhuang.hmcl.download.DownloadProvider;
 import org.jackhuang.hmcl.download.GameBuilder;
@@ -49,26 +35,21 @@ import org.jackhuang.hmcl.util.StringUtils;
 import org.jackhuang.hmcl.util.gson.JsonUtils;
 import org.jackhuang.hmcl.util.io.FileUtils;
 import org.jackhuang.hmcl.util.io.HttpRequest;
-import org.jackhuang.hmcl.util.io.Unzipper;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.RandomAccessFile;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.jackhuang.hmcl.util.logging.Logger.LOG;
 
@@ -82,7 +63,7 @@ public final class CofeMineModpackService {
             ".cofemine/modpack.json"
     );
 
-    private static final List<String> DEFAULT_UPDATE_DIRS = List.of(
+    static final List<String> DEFAULT_UPDATE_DIRS = List.of(
             "mods",
             "config",
             "kubejs",
@@ -94,7 +75,7 @@ public final class CofeMineModpackService {
             "scripts"
     );
 
-    private static final Set<String> PROTECTED_TOP_LEVEL = Set.of(
+    static final Set<String> PROTECTED_TOP_LEVEL = Set.of(
             "saves",
             "screenshots",
             "logs",
@@ -164,7 +145,6 @@ public final class CofeMineModpackService {
         Path workDir = Files.createTempDirectory("cofemine-modpack");
         String archiveName = resolveArchiveName(zipUrl);
         Path archivePath = workDir.resolve(archiveName);
-        Path extractDir = workDir.resolve("extract");
 
         FileDownloadTask.IntegrityCheck integrityCheck = manifest != null && StringUtils.isNotBlank(manifest.sha256())
                 ? new FileDownloadTask.IntegrityCheck("SHA-256", manifest.sha256())
@@ -182,167 +162,39 @@ public final class CofeMineModpackService {
             return task;
         });
 
-        Task<Void> unpackTask = Task.runAsync("CofeMine Unpack", Schedulers.io(), () -> unpackArchive(archivePath, extractDir));
-
-        Task<InstallContext> prepareTask = Task.supplyAsync("CofeMine Prepare", Schedulers.io(), () -> {
-            Path contentRoot = resolveContentRoot(extractDir);
-            ResolvedInstallPlan resolved = null;
-            if (mode == Mode.INSTALL) {
-                CofeMineModpackDescriptor descriptor = readEmbeddedDescriptor(contentRoot, extractDir);
-                resolved = resolveInstallPlan(profile, plan, contentRoot, descriptor);
-            }
-            return new InstallContext(contentRoot, resolved);
-        });
-
         Task<Void> markerTask = Task.runAsync("CofeMine Marker", Schedulers.io(), () -> {
             writeMarker(targetDir, manifest, zipUrl, manifestUrl);
         });
 
-        Task<Void> sequence = downloadTask
-                .thenComposeAsync(unpackTask)
-                .thenComposeAsync(prepareTask)
-                .thenComposeAsync(context -> {
-                    Task<Void> syncTask = new Task<Void>() {
-                        @Override
-                        public void execute() throws Exception {
-                            Path contentRoot = context.contentRoot();
-                            if (mode == Mode.INSTALL) {
-                                FileUtils.copyDirectory(contentRoot, targetDir);
-                            } else {
-                                syncUpdateWithProgress(contentRoot, targetDir, manifest);
-                            }
-                        }
-
-                        private void syncUpdateWithProgress(Path sourceRoot, Path targetDir, @Nullable CofeMineModpackManifest manifest) throws IOException {
-                            Set<String> allowedTopLevel = new HashSet<>();
-                            if (manifest != null && manifest.directories() != null && !manifest.directories().isEmpty()) {
-                                for (String entry : manifest.directories()) {
-                                    if (StringUtils.isBlank(entry)) {
-                                        continue;
-                                    }
-                                    String normalized = entry.replace('\\', '/');
-                                    if (normalized.startsWith("/")) {
-                                        normalized = normalized.substring(1);
-                                    }
-                                    if (normalized.endsWith("/")) {
-                                        normalized = normalized.substring(0, normalized.length() - 1);
-                                    }
-                                    if (!normalized.isBlank()) {
-                                        String top = normalized.split("/")[0];
-                                        allowedTopLevel.add(top.toLowerCase(Locale.ROOT));
-                                    }
-                                }
-                            } else {
-                                for (String entry : DEFAULT_UPDATE_DIRS) {
-                                    allowedTopLevel.add(entry.toLowerCase(Locale.ROOT));
-                                }
-                            }
-
-                            boolean caseInsensitive = org.jackhuang.hmcl.util.platform.OperatingSystem.CURRENT_OS
-                                    == org.jackhuang.hmcl.util.platform.OperatingSystem.WINDOWS;
-                            Set<String> activeTopLevel = new HashSet<>();
-                            for (String entry : allowedTopLevel) {
-                                if (Files.isDirectory(sourceRoot.resolve(entry))) {
-                                    activeTopLevel.add(entry);
-                                }
-                            }
-
-                            Set<String> sourceFiles = new HashSet<>();
-                            List<Path> files = new ArrayList<>();
-                            try (var stream = Files.walk(sourceRoot)) {
-                                stream.filter(Files::isRegularFile).forEach(files::add);
-                            }
-
-                            long total = files.size();
-                            long current = 0;
-
-                            for (Path file : files) {
-                                current++;
-                                updateProgress(current, total);
-
-                                Path relative = sourceRoot.relativize(file);
-                                if (relative.getNameCount() == 0) {
-                                    continue;
-                                }
-                                String topLevel = relative.getName(0).toString().toLowerCase(Locale.ROOT);
-                                if (PROTECTED_TOP_LEVEL.contains(topLevel)) {
-                                    continue;
-                                }
-                                if (!allowedTopLevel.contains(topLevel)) {
-                                    continue;
-                                }
-                                if (!activeTopLevel.contains(topLevel)) {
-                                    continue;
-                                }
-                                if ("options.txt".equalsIgnoreCase(relative.toString().replace('\\', '/'))) {
-                                    continue;
-                                }
-
-                                sourceFiles.add(normalizeRelative(relative, caseInsensitive));
-                                Path target = targetDir.resolve(relative.toString());
-                                Files.createDirectories(target.getParent());
-                                Files.copy(file, target, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                            }
-
-                            if (!activeTopLevel.isEmpty()) {
-                                List<Path> targetFiles = new ArrayList<>();
-                                try (var stream = Files.walk(targetDir)) {
-                                    stream.filter(Files::isRegularFile).forEach(targetFiles::add);
-                                }
-
-                                for (Path file : targetFiles) {
-                                    Path relative = targetDir.relativize(file);
-                                    if (relative.getNameCount() == 0) {
-                                        continue;
-                                    }
-                                    String topLevel = relative.getName(0).toString().toLowerCase(Locale.ROOT);
-                                    if (PROTECTED_TOP_LEVEL.contains(topLevel)) {
-                                        continue;
-                                    }
-                                    if (!activeTopLevel.contains(topLevel)) {
-                                        continue;
-                                    }
-                                    String normalized = normalizeRelative(relative, caseInsensitive);
-                                    if (!sourceFiles.contains(normalized)) {
-                                        Files.deleteIfExists(file);
-                                    }
-                                }
-
-                                List<Path> targetDirs = new ArrayList<>();
-                                try (var stream = Files.walk(targetDir)) {
-                                    stream.filter(Files::isDirectory).forEach(targetDirs::add);
-                                }
-                                targetDirs.sort(Comparator.comparingInt(Path::getNameCount).reversed());
-                                for (Path dir : targetDirs) {
-                                    Path relative = targetDir.relativize(dir);
-                                    if (relative.getNameCount() == 0) {
-                                        continue;
-                                    }
-                                    String topLevel = relative.getName(0).toString().toLowerCase(Locale.ROOT);
-                                    if (PROTECTED_TOP_LEVEL.contains(topLevel)) {
-                                        continue;
-                                    }
-                                    if (!activeTopLevel.contains(topLevel)) {
-                                        continue;
-                                    }
-                                    try (var stream = Files.list(dir)) {
-                                        if (stream.findAny().isEmpty()) {
-                                            Files.deleteIfExists(dir);
-                                        }
-                                    }
-                                }
-                            }
-
-                            updateProgress(total == 0 ? 1 : total, total == 0 ? 1 : total);
-                        }
-                    }.setExecutor(Schedulers.io()).setName("CofeMine Sync");
-
-                    if (mode == Mode.INSTALL) {
+        Task<Void> sequence;
+        if (mode == Mode.UPDATE) {
+            CofeMineDeltaSync deltaSync = new CofeMineDeltaSync(targetDir, manifest);
+
+            sequence = Task.supplyAsync("CofeMine Check", Schedulers.io(), deltaSync::isUpToDate)
+                    .thenComposeAsync(upToDate -> upToDate
+                            ? deltaSync.createSyncTask(null).setExecutor(Schedulers.io()).setName("CofeMine Sync")
+                            : downloadTask.thenComposeAsync(deltaSync.createSyncTask(archivePath)
+                                    .setExecutor(Schedulers.io()).setName("CofeMine Sync")))
+                    .thenComposeAsync(markerTask);
+        } else {
+            Task<InstallContext> prepareTask = Task.supplyAsync("CofeMine Prepare", Schedulers.io(), () -> {
+                try (CofeMineArchive archive = CofeMineArchive.open(archivePath)) {
+                    String contentPrefix = archive.getContentPrefix();
+                    CofeMineModpackDescriptor descriptor = readEmbeddedDescriptor(archive, contentPrefix);
+                    ResolvedInstallPlan resolved = resolveInstallPlan(profile, plan, descriptor);
+                    return new InstallContext(contentPrefix, resolved);
+                }
+            });
+
+            sequence = downloadTask
+                    .thenComposeAsync(prepareTask)
+                    .thenComposeAsync(context -> {
+                        Task<Void> syncTask = new ExtractTask(archivePath, context.contentPrefix(), targetDir)
+                                .setExecutor(Schedulers.io()).setName("CofeMine Sync");
                         Task<Void> installTask = createGameInstallTask(profile, context.plan());
                         return installTask.thenComposeAsync(syncTask).thenComposeAsync(markerTask);
-                    }
-                    return syncTask.thenComposeAsync(markerTask);
-                });
+                    });
+        }
         return sequence.whenComplete(Schedulers.io(), exception -> FileUtils.deleteDirectoryQuietly(workDir));
     }
 
@@ -387,21 +239,7 @@ public final class CofeMineModpackService {
         return lower.contains("disk.yandex.") || lower.contains("yadi.sk");
     }
 
-    private static void unpackArchive(Path archivePath, Path extractDir) throws IOException {
-        if (!Files.isRegularFile(archivePath)) {
-            throw new IOException("Downloaded modpack archive not found: " + archivePath);
-        }
-        ArchiveType type = detectArchiveType(archivePath);
-        if (type == ArchiveType.RAR) {
-            unpackRar(archivePath, extractDir);
-        } else {
-            new Unzipper(archivePath, extractDir)
-                    .setReplaceExistentFile(true)
-                    .unzip();
-        }
-    }
-
-    private static ArchiveType detectArchiveType(Path archivePath) throws IOException {
+    static ArchiveType detectArchiveType(Path archivePath) throws IOException {
         try (InputStream in = Files.newInputStream(archivePath)) {
             byte[] header = in.readNBytes(8);
             if (header.length >= 4
@@ -413,174 +251,13 @@ public final class CofeMineModpackService {
                     && header[4] == 0x1A && header[5] == 0x07) {
                 return ArchiveType.RAR;
             }
-        }
-        return ArchiveType.UNKNOWN;
-    }
-
-    private static void unpackRar(Path archivePath, Path extractDir) throws IOException {
-        try (Archive archive = new Archive(archivePath.toFile())) {
-            for (FileHeader header : archive.getFileHeaders()) {
-                String name = header.getFileNameW();
-                if (StringUtils.isBlank(name)) {
-                    name = header.getFileNameString();
-                }
-                if (StringUtils.isBlank(name)) {
-                    continue;
-                }
-                name = name.replace('\\', '/');
-                Path output = extractDir.resolve(name).normalize();
-                if (!output.startsWith(extractDir)) {
-                    continue;
-                }
-                if (header.isDirectory()) {
-                    Files.createDirectories(output);
-                    continue;
-                }
-                Files.createDirectories(output.getParent());
-                try (OutputStream out = Files.newOutputStream(output)) {
-                    archive.extractFile(header, out);
-                }
+            if (header.length >= 6
+                    && header[0] == '7' && header[1] == 'z' && header[2] == (byte) 0xBC && header[3] == (byte) 0xAF
+                    && header[4] == 0x27 && header[5] == 0x1C) {
+                return ArchiveType.SEVEN_ZIP;
             }
-        } catch (UnsupportedRarV5Exception e) {
-            unpackRarWithSevenZip(archivePath, extractDir);
-        } catch (RarException e) {
-            throw new IOException("Failed to unpack RAR archive", e);
-        }
-    }
-
-    private static void unpackRarWithSevenZip(Path archivePath, Path extractDir) throws IOException {
-        try {
-            SevenZip.initSevenZipFromPlatformJAR();
-        } catch (SevenZipNativeInitializationException e) {
-            throw new IOException("Failed to initialize 7zip native library", e);
         }
-
-        final IInArchive[] archiveRef = new IInArchive[1];
-        try (RandomAccessFile raf = new RandomAccessFile(archivePath.toFile(), "r")) {
-            archiveRef[0] = SevenZip.openInArchive(null, new RandomAccessFileInStream(raf));
-            int items = archiveRef[0].getNumberOfItems();
-            int[] indices = new int[items];
-            for (int i = 0; i < items; i++) {
-                indices[i] = i;
-            }
-            archiveRef[0].extract(indices, false, new IArchiveExtractCallback() {
-                private OutputStream currentStream;
-
-                @Override
-                public ISequentialOutStream getStream(int index, ExtractAskMode extractAskMode) throws SevenZipException {
-                    if (extractAskMode != ExtractAskMode.EXTRACT) {
-                        return null;
-                    }
-
-                    Object isFolderValue = archiveRef[0].getProperty(index, PropID.IS_FOLDER);
-                    boolean isFolder = Boolean.TRUE.equals(isFolderValue);
-                    Object pathValue = archiveRef[0].getProperty(index, PropID.PATH);
-                    if (pathValue == null) {
-                        return null;
-                    }
-                    String path = pathValue.toString();
-                    if (StringUtils.isBlank(path) || "null".equals(path)) {
-                        return null;
-                    }
-                    path = path.replace('\\', '/');
-                    Path output = extractDir.resolve(path).normalize();
-                    if (!output.startsWith(extractDir)) {
-                        return null;
-                    }
-                    if (isFolder) {
-                        try {
-                            Files.createDirectories(output);
-                        } catch (IOException e) {
-                            throw new SevenZipException("Failed to create directory", e);
-                        }
-                        return null;
-                    }
-                    try {
-                        Files.createDirectories(output.getParent());
-                        currentStream = Files.newOutputStream(output);
-                    } catch (IOException e) {
-                        throw new SevenZipException("Failed to open output file", e);
-                    }
-
-                    return data -> {
-                        try {
-                            currentStream.write(data);
-                        } catch (IOException e) {
-                            throw new SevenZipException("Failed to write output", e);
-                        }
-                        return data.length;
-                    };
-                }
-
-                @Override
-                public void prepareOperation(ExtractAskMode extractAskMode) {
-                }
-
-                @Override
-                public void setOperationResult(ExtractOperationResult extractOperationResult) throws SevenZipException {
-                    if (currentStream != null) {
-                        try {
-                            currentStream.close();
-                        } catch (IOException e) {
-                            throw new SevenZipException("Failed to close output file", e);
-                        } finally {
-                            currentStream = null;
-                        }
-                    }
-                    if (extractOperationResult != ExtractOperationResult.OK) {
-                        throw new SevenZipException("Extraction failed: " + extractOperationResult);
-                    }
-                }
-
-                @Override
-                public void setCompleted(long completeValue) {
-                }
-
-                @Override
-                public void setTotal(long total) {
-                }
-            });
-        } catch (SevenZipException e) {
-            throw new IOException("Failed to unpack RAR archive", e);
-        } finally {
-            if (archiveRef[0] != null) {
-                try {
-                    archiveRef[0].close();
-                } catch (SevenZipException e) {
-                    LOG.warning("Failed to close 7zip archive", e);
-                }
-            }
-        }
-    }
-
-    private static Path resolveContentRoot(Path extractDir) throws IOException {
-        try (var stream = Files.list(extractDir)) {
-            List<Path> children = stream.toList();
-            if (children.size() == 1 && Files.isDirectory(children.get(0))) {
-                Path candidate = children.get(0);
-                if (looksLikeModpackRoot(candidate)) {
-                    return candidate;
-                }
-            }
-
-            List<Path> candidates = new ArrayList<>();
-            for (Path child : children) {
-                if (Files.isDirectory(child) && looksLikeModpackRoot(child)) {
-                    candidates.add(child);
-                }
-            }
-            if (candidates.size() == 1) {
-                return candidates.get(0);
-            }
-        }
-        return extractDir;
-    }
-
-    private static boolean looksLikeModpackRoot(Path candidate) {
-        return Files.isDirectory(candidate.resolve("mods"))
-                || Files.isDirectory(candidate.resolve("config"))
-                || Files.isDirectory(candidate.resolve("versions"))
-                || Files.isDirectory(candidate.resolve("minecraft"));
+        return ArchiveType.UNKNOWN;
     }
 
     private static void writeMarker(Path targetDir, @Nullable CofeMineModpackManifest manifest, String zipUrl, String manifestUrl) throws IOException {
@@ -605,16 +282,11 @@ public final class CofeMineModpackService {
         return DEFAULT_MODPACK_ZIP_URL.equals(normalized);
     }
 
-    private static ResolvedInstallPlan resolveInstallPlan(Profile profile, @Nullable CofeMineInstallPlan plan, Path contentRoot,
+    private static ResolvedInstallPlan resolveInstallPlan(Profile profile, @Nullable CofeMineInstallPlan plan,
                                                           @Nullable CofeMineModpackDescriptor descriptor) throws IOException {
         String manualName = plan != null ? plan.versionName() : null;
         String manualGameVersion = plan != null ? plan.gameVersion() : null;
         List<RemoteVersion> manualLoaders = plan != null && plan.loaderVersions() != null ? plan.loaderVersions() : List.of();
-        boolean preferArchive = plan != null && plan.preferArchiveDescriptor();
-
-        if (preferArchive && descriptor == null) {
-            descriptor = readEmbeddedDescriptor(contentRoot);
-        }
 
         String gameVersion = manualGameVersion;
         String versionName = manualName;
@@ -668,39 +340,29 @@ public final class CofeMineModpackService {
                 .thenRunAsync(Schedulers.javafx(), () -> profile.setSelectedVersion(plan.versionName()));
     }
 
-    private static @Nullable CofeMineModpackDescriptor readEmbeddedDescriptor(Path contentRoot) {
-        for (String name : EMBEDDED_DESCRIPTOR_FILES) {
-            Path file = contentRoot.resolve(name);
-            if (!Files.isRegularFile(file)) {
-                continue;
-            }
-            try {
-                String json = Files.readString(file, StandardCharsets.UTF_8);
-                return JsonUtils.fromNonNullJson(json, CofeMineModpackDescriptor.class);
-            } catch (IOException | JsonParseException e) {
-                LOG.warning("Failed to read CofeMine modpack descriptor: " + file, e);
-                return null;
+    /**
+     * Reads the descriptor embedded in the directory of the archive holding the pack, or else at the root of the archive.
+     */
+    private static @Nullable CofeMineModpackDescriptor readEmbeddedDescriptor(CofeMineArchive archive, String contentPrefix) {
+        List<String> prefixes = contentPrefix.isEmpty() ? List.of("") : List.of(contentPrefix, "");
+        for (String prefix : prefixes) {
+            for (String name : EMBEDDED_DESCRIPTOR_FILES) {
+                CofeMineArchive.Entry entry = archive.getEntry(prefix + name);
+                if (entry == null || entry.directory()) {
+                    continue;
+                }
+                try {
+                    String json = new String(archive.read(entry), StandardCharsets.UTF_8);
+                    return JsonUtils.fromNonNullJson(json, CofeMineModpackDescriptor.class);
+                } catch (IOException | JsonParseException e) {
+                    LOG.warning("Failed to read CofeMine modpack descriptor: " + entry.name(), e);
+                    return null;
+                }
             }
         }
         return null;
     }
 
-    private static @Nullable CofeMineModpackDescriptor readEmbeddedDescriptor(Path contentRoot, Path extractDir) {
-        CofeMineModpackDescriptor descriptor = readEmbeddedDescriptor(contentRoot);
-        if (descriptor != null) {
-            return descriptor;
-        }
-        if (!contentRoot.equals(extractDir)) {
-            return readEmbeddedDescriptor(extractDir);
-        }
-        return null;
-    }
-
-    private static String normalizeRelative(Path relative, boolean caseInsensitive) {
-        String normalized = relative.toString().replace('\\', '/');
-        return caseInsensitive ? normalized.toLowerCase(Locale.ROOT) : normalized;
-    }
-
     private static String normalizeVersionName(Profile profile, @Nullable String name) {
         String base = StringUtils.isBlank(name) ? PROFILE_NAME : name.trim();
         base = base.replaceAll("[^A-Za-z0-9._-]", "-");
@@ -739,14 +401,48 @@ public final class CofeMineModpackService {
         }
     }
 
+    /**
+     * Writes all the files of the pack from the archive straight to the target directory.
+     */
+    private static final class ExtractTask extends Task<Void> {
+        private final Path archivePath;
+        private final String contentPrefix;
+        private final Path targetDir;
+
+        ExtractTask(Path archivePath, String contentPrefix, Path targetDir) {
+            this.archivePath = archivePath;
+            this.contentPrefix = contentPrefix;
+            this.targetDir = targetDir;
+        }
+
+        @Override
+        public void execute() throws Exception {
+            try (CofeMineArchive archive = CofeMineArchive.open(archivePath)) {
+                long total = 0;
+                for (CofeMineArchive.Entry entry : archive.getEntries()) {
+                    if (!entry.directory() && entry.name().startsWith(contentPrefix)) {
+                        total += entry.size();
+                    }
+                }
+
+                long totalBytes = total;
+                AtomicLong written = new AtomicLong();
+                archive.extract(contentPrefix, targetDir, entry -> true,
+                        bytes -> updateProgress(written.addAndGet(bytes), totalBytes));
+            }
+            updateProgress(1, 1);
+        }
+    }
+
     private enum Mode {
         INSTALL,
         UPDATE
     }
 
-    private enum ArchiveType {
+    enum ArchiveType {
         ZIP,
         RAR,
+        SEVEN_ZIP,
         UNKNOWN
     }
 
@@ -760,7 +456,7 @@ public final class CofeMineModpackService {
     }
 
     private record InstallContext(
-            Path contentRoot,
+            String contentPrefix,
             @Nullable ResolvedInstallPlan plan
     ) {
     }
@@ -857,43 +857,59 @@ public final class LauncherHelper {
 
         @Override
         public void onLog(String log, boolean isErrorStream) {
-            if (isErrorStream)
-                System.err.println(log);
-            else
-                System.out.println(log);
+            onLogs(Collections.singletonList(log), isErrorStream);
+        }
 
-            log = StringUtils.parseEscapeSequence(log);
-            if (forbiddenAccessToken != null)
-                log = log.replace(forbiddenAccessToken, "<access token>");
+        @Override
+        public void onLogs(List<String> lines, boolean isErrorStream) {
+            StringBuilder output = new StringBuilder();
+            for (String log : lines) {
+                output.append(log).append(System.lineSeparator());
+            }
+            (isErrorStream ? System.err : System.out).print(output);
 
-            Log4jLevel level = isErrorStream && !log.startsWith("[authlib-injector]") ? Log4jLevel.ERROR : null;
-            if (showLogs) {
-                if (level == null)
+            List<Log> batch = new ArrayList<>(lines.size());
+            boolean foundLwjgl = false;
+            for (String log : lines) {
+                log = StringUtils.parseEscapeSequence(log);
+                if (forbiddenAccessToken != null)
+                    log = log.replace(forbiddenAccessToken, "<access token>");
+
+                Log4jLevel level = isErrorStream && !log.startsWith("[authlib-injector]") ? Log4jLevel.ERROR : null;
+                if (showLogs && level == null)
                     level = Lang.requireNonNullElse(Log4jLevel.guessLevel(log), Log4jLevel.INFO);
-                logBuffer.add(new Log(log, level));
+                batch.add(new Log(log, level));
+
+                if (!lwjgl && !foundLwjgl)
+                    foundLwjgl = !detectWindow
+                            || StringUtils.containsIgnoreCase(log, "lwjgl version")
+                            || StringUtils.containsIgnoreCase(log, "lwjgl openal");
+            }
+
+            if (showLogs) {
+                logBuffer.addAll(batch);
             } else {
                 lock.lock();
                 try {
-                    logs.addLast(new Log(log, level));
-                    if (logs.size() > Log.getLogLines())
-                        logs.removeFirst();
+                    for (Log log : batch) {
+                        logs.addLast(log);
+                        if (logs.size() > Log.getLogLines())
+                            logs.removeFirst();
+                    }
                 } finally {
                     lock.unlock();
                 }
             }
 
-            if (!lwjgl) {
-                String lowerCaseLog = log.toLowerCase(Locale.ROOT);
-                if (!detectWindow || lowerCaseLog.contains("lwjgl version") || lowerCaseLog.contains("lwjgl openal")) {
-                    lock.lock();
-                    try {
-                        if (!lwjgl) {
-                            lwjgl = true;
-                            finishLaunch();
-                        }
-                    } finally {
-                        lock.unlock();
+            if (foundLwjgl) {
+                lock.lock();
+                try {
+                    if (!lwjgl) {
+                        lwjgl = true;
+                        finishLaunch();
                     }
+                } finally {
+                    lock.unlock();
                 }
             }
         }
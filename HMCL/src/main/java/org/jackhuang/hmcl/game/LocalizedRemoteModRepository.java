@@ -114,6 +114,11 @@ public abstract class LocalizedRemoteModRepository implements RemoteModRepositor
         return getBackedRemoteModRepository().getRemoteVersionByLocalFile(localModFile, file);
     }
 
+    @Override
+    public Map<Path, RemoteMod.Version> getRemoteVersionsByLocalFiles(Collection<Path> files) throws IOException {
+        return getBackedRemoteModRepository().getRemoteVersionsByLocalFiles(files);
+    }
+
     @Override
     public RemoteMod getModById(String id) throws IOException {
         return getBackedRemoteModRepository().getModById(id);
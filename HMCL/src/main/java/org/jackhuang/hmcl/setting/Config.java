@@ -36,6 +36,7 @@ import org.jackhuang.hmcl.auth.authlibinjector.AuthlibInjectorServer;
 import org.jackhuang.hmcl.java.JavaRuntime;
 import org.jackhuang.hmcl.theme.ThemeColor;
 import org.jackhuang.hmcl.ui.FXUtils;
+import org.jackhuang.hmcl.util.CacheRepository;
 import org.jackhuang.hmcl.util.gson.*;
 import org.jackhuang.hmcl.util.i18n.SupportedLocale;
 import org.jetbrains.annotations.Nullable;
@@ -259,6 +260,53 @@ public final class Config extends ObservableSetting {
         this.commonDirectory.set(commonDirectory);
     }
 
+    /// The maximum size of the download cache in GiB, or 0 for no limit.
+    @SerializedName("cacheSizeLimit")
+    private final IntegerProperty cacheSizeLimit = new SimpleIntegerProperty(0);
+
+    public IntegerProperty cacheSizeLimitProperty() {
+        return cacheSizeLimit;
+    }
+
+    public int getCacheSizeLimit() {
+        return cacheSizeLimit.get();
+    }
+
+    public void setCacheSizeLimit(int cacheSizeLimit) {
+        this.cacheSizeLimit.set(cacheSizeLimit);
+    }
+
+    /// Whether cached files are hard-linked into game directories instead of being copied.
+    @SerializedName("cacheLinkFiles")
+    private final BooleanProperty cacheLinkFiles = new SimpleBooleanProperty(false);
+
+    public BooleanProperty cacheLinkFilesProperty() {
+        return cacheLinkFiles;
+    }
+
+    public boolean isCacheLinkFiles() {
+        return cacheLinkFiles.get();
+    }
+
+    public void setCacheLinkFiles(boolean cacheLinkFiles) {
+        this.cacheLinkFiles.set(cacheLinkFiles);
+    }
+
+    @SerializedName("cacheEvictionPolicy")
+    private final ObjectProperty<CacheRepository.EvictionPolicy> cacheEvictionPolicy = new RawPreservingObjectProperty<>(CacheRepository.EvictionPolicy.LRU);
+
+    public ObjectProperty<CacheRepository.EvictionPolicy> cacheEvictionPolicyProperty() {
+        return cacheEvictionPolicy;
+    }
+
+    public CacheRepository.EvictionPolicy getCacheEvictionPolicy() {
+        return cacheEvictionPolicy.get();
+    }
+
+    public void setCacheEvictionPolicy(CacheRepository.EvictionPolicy cacheEvictionPolicy) {
+        this.cacheEvictionPolicy.set(cacheEvictionPolicy);
+    }
+
     @SerializedName("logLines")
     private final ObjectProperty<Integer> logLines = new SimpleObjectProperty<>();
 
@@ -17,11 +17,13 @@
  */
 package org.jackhuang.hmcl.setting;
 
+import javafx.beans.InvalidationListener;
 import javafx.beans.binding.Bindings;
 import org.jackhuang.hmcl.Metadata;
 import org.jackhuang.hmcl.game.HMCLCacheRepository;
 import org.jackhuang.hmcl.ui.animation.AnimationUtils;
 import org.jackhuang.hmcl.util.CacheRepository;
+import org.jackhuang.hmcl.util.DataSizeUnit;
 import org.jackhuang.hmcl.util.io.FileUtils;
 
 import static org.jackhuang.hmcl.setting.ConfigHolder.config;
@@ -60,6 +62,20 @@ public final class Settings {
                 return getDefaultCommonDirectory();
             }
         }, config().commonDirectoryProperty(), config().commonDirTypeProperty()));
+
+        InvalidationListener cacheLimitListener = observable -> {
+            CacheRepository.EvictionPolicy policy = config().getCacheEvictionPolicy();
+            HMCLCacheRepository.REPOSITORY.setEvictionPolicy(policy != null ? policy : CacheRepository.EvictionPolicy.LRU);
+            HMCLCacheRepository.REPOSITORY.setSizeLimit(DataSizeUnit.GIGABYTES.convertToBytes(Math.max(0, config().getCacheSizeLimit())));
+        };
+        config().cacheSizeLimitProperty().addListener(cacheLimitListener);
+        config().cacheEvictionPolicyProperty().addListener(cacheLimitListener);
+        cacheLimitListener.invalidated(null);
+
+        HMCLCacheRepository.REPOSITORY.setLinkFiles(config().isCacheLinkFiles()
+                || "true".equalsIgnoreCase(System.getProperty("hmcl.cache.link")));
+        config().cacheLinkFilesProperty().addListener((observable, oldValue, newValue) ->
+                HMCLCacheRepository.REPOSITORY.setLinkFiles(newValue));
     }
 
     public static String getDefaultCommonDirectory() {
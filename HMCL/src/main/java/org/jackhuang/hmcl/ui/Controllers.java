@@ -41,6 +41,7 @@ import javafx.stage.StageStyle;
 import javafx.util.Duration;
 import org.jackhuang.hmcl.Launcher;
 import org.jackhuang.hmcl.Metadata;
+import org.jackhuang.hmcl.game.HMCLCacheRepository;
 import org.jackhuang.hmcl.game.LauncherHelper;
 import org.jackhuang.hmcl.game.ModpackHelper;
 import org.jackhuang.hmcl.java.JavaManager;
@@ -220,6 +221,7 @@ public final class Controllers {
             config().setWidth(stageWidth.get());
             stageWidth = null;
         }
+        HMCLCacheRepository.REPOSITORY.saveIndex();
     }
 
     public static void initialize(Stage stage) {
@@ -0,0 +1,254 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.ui;
+
+import javafx.collections.ObservableListBase;
+import org.jackhuang.hmcl.game.Log;
+import org.jackhuang.hmcl.util.CircularArrayList;
+import org.jackhuang.hmcl.util.Log4jLevel;
+
+import java.util.*;
+
+/// The logs shown in [LogWindow], filtered by level.
+///
+/// Every log gets an increasing sequence number. The model keeps the sequence numbers of the visible logs,
+/// and of the logs of each level, in primitive arrays. Toggling a level merges these arrays instead of filtering all logs,
+/// and trimming the oldest logs only touches the removed ones. The list itself never copies the logs,
+/// so the list view only materializes the cells on screen.
+///
+/// All methods must be called on the JavaFX application thread.
+final class LogListModel extends ObservableListBase<Log> {
+
+    private final CircularArrayList<Log> logs;
+    private final Map<Log4jLevel, LongDeque> levelIndices = new EnumMap<>(Log4jLevel.class);
+    private final EnumSet<Log4jLevel> shownLevels = EnumSet.allOf(Log4jLevel.class);
+    private LongDeque visible = new LongDeque(16);
+
+    /// The sequence number of the first log in [#logs].
+    private long firstSequence = 0;
+
+    LogListModel(CircularArrayList<Log> logs) {
+        this.logs = logs;
+        for (Log4jLevel level : Log4jLevel.values()) {
+            levelIndices.put(level, new LongDeque(16));
+        }
+
+        for (int i = 0; i < logs.size(); i++) {
+            levelIndices.get(logs.get(i).getLevel()).addLast(i);
+            visible.addLast(i);
+        }
+    }
+
+    @Override
+    public Log get(int index) {
+        Objects.checkIndex(index, visible.size());
+        return getBySequence(visible.get(index));
+    }
+
+    @Override
+    public int size() {
+        return visible.size();
+    }
+
+    private Log getBySequence(long sequence) {
+        return logs.get((int) (sequence - firstSequence));
+    }
+
+    public void addLogs(List<Log> newLogs) {
+        int from = visible.size();
+        for (Log log : newLogs) {
+            long sequence = firstSequence + logs.size();
+            logs.addLast(log);
+
+            Log4jLevel level = log.getLevel();
+            levelIndices.get(level).addLast(sequence);
+            if (shownLevels.contains(level))
+                visible.addLast(sequence);
+        }
+
+        if (visible.size() > from) {
+            beginChange();
+            nextAdd(from, visible.size());
+            endChange();
+        }
+    }
+
+    /// Removes the oldest logs until at most `maxSize` logs are kept.
+    ///
+    /// @return the removed logs
+    public List<Log> trim(int maxSize) {
+        int count = logs.size() - maxSize;
+        if (count <= 0)
+            return Collections.emptyList();
+
+        long newFirstSequence = firstSequence + count;
+        List<Log> removedVisible = new ArrayList<>();
+        while (!visible.isEmpty() && visible.getFirst() < newFirstSequence) {
+            removedVisible.add(getBySequence(visible.getFirst()));
+            visible.removeFirst();
+        }
+        for (LongDeque index : levelIndices.values()) {
+            while (!index.isEmpty() && index.getFirst() < newFirstSequence) {
+                index.removeFirst();
+            }
+        }
+
+        List<Log> removed = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            removed.add(logs.removeFirst());
+        }
+        firstSequence = newFirstSequence;
+
+        if (!removedVisible.isEmpty()) {
+            beginChange();
+            nextRemove(0, removedVisible);
+            endChange();
+        }
+        return removed;
+    }
+
+    public void setLevelShown(Log4jLevel level, boolean shown) {
+        if (shown ? !shownLevels.add(level) : !shownLevels.remove(level))
+            return;
+
+        LongDeque index = levelIndices.get(level);
+        if (index.isEmpty())
+            return;
+
+        LongDeque oldVisible = visible;
+        List<Log> removed = new AbstractList<>() {
+            @Override
+            public Log get(int i) {
+                return getBySequence(oldVisible.get(i));
+            }
+
+            @Override
+            public int size() {
+                return oldVisible.size();
+            }
+        };
+
+        visible = shown ? LongDeque.union(oldVisible, index) : LongDeque.difference(oldVisible, index);
+
+        beginChange();
+        nextReplace(0, visible.size(), removed);
+        endChange();
+    }
+
+    @Override
+    public void clear() {
+        List<Log> removed = new ArrayList<>(this);
+
+        firstSequence += logs.size();
+        logs.clear();
+        for (LongDeque index : levelIndices.values()) {
+            index.clear();
+        }
+        visible = new LongDeque(16);
+
+        if (!removed.isEmpty()) {
+            beginChange();
+            nextRemove(0, removed);
+            endChange();
+        }
+    }
+
+    /// A growable ring of increasing sequence numbers.
+    private static final class LongDeque {
+        private long[] elements;
+        private int head = 0;
+        private int size = 0;
+
+        LongDeque(int minCapacity) {
+            elements = new long[Math.max(16, Integer.highestOneBit(Math.max(1, minCapacity) - 1) << 1)];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long get(int index) {
+            return elements[(head + index) & (elements.length - 1)];
+        }
+
+        long getFirst() {
+            return elements[head];
+        }
+
+        void removeFirst() {
+            head = (head + 1) & (elements.length - 1);
+            size--;
+        }
+
+        void addLast(long value) {
+            if (size == elements.length) {
+                long[] newElements = new long[elements.length * 2];
+                for (int i = 0; i < size; i++) {
+                    newElements[i] = get(i);
+                }
+                elements = newElements;
+                head = 0;
+            }
+            elements[(head + size) & (elements.length - 1)] = value;
+            size++;
+        }
+
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+
+        static LongDeque union(LongDeque a, LongDeque b) {
+            LongDeque result = new LongDeque(a.size + b.size);
+            int i = 0, j = 0;
+            while (i < a.size && j < b.size) {
+                long x = a.get(i), y = b.get(j);
+                if (x < y) {
+                    result.addLast(x);
+                    i++;
+                } else if (x > y) {
+                    result.addLast(y);
+                    j++;
+                } else {
+                    result.addLast(x);
+                    i++;
+                    j++;
+                }
+            }
+            for (; i < a.size; i++) result.addLast(a.get(i));
+            for (; j < b.size; j++) result.addLast(b.get(j));
+            return result;
+        }
+
+        static LongDeque difference(LongDeque a, LongDeque b) {
+            LongDeque result = new LongDeque(a.size);
+            int j = 0;
+            for (int i = 0; i < a.size; i++) {
+                long x = a.get(i);
+                while (j < b.size && b.get(j) < x) j++;
+                if (j >= b.size || b.get(j) != x)
+                    result.addLast(x);
+            }
+            return result;
+        }
+    }
+}
@@ -21,13 +21,12 @@ import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXCheckBox;
 import com.jfoenix.controls.JFXComboBox;
 import com.jfoenix.controls.JFXListView;
+import com.jfoenix.controls.JFXTextField;
 import com.sun.jna.Pointer;
 import javafx.application.Platform;
 import javafx.beans.InvalidationListener;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.*;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.css.PseudoClass;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
@@ -59,6 +58,7 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.jackhuang.hmcl.setting.ConfigHolder.config;
@@ -73,7 +73,15 @@ public final class LogWindow extends Stage {
 
     private static final Log4jLevel[] LEVELS = {Log4jLevel.FATAL, Log4jLevel.ERROR, Log4jLevel.WARN, Log4jLevel.INFO, Log4jLevel.DEBUG};
 
+    /// Number of logs searched between two updates of the highlighted hits.
+    private static final int SEARCH_CHUNK_SIZE = 4096;
+
     private final CircularArrayList<Log> logs;
+    private final LogListModel model;
+    private final Set<Log> searchHits = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+    private String searchQuery = "";
+    private int searchCursor = -1;
     private final Map<Log4jLevel, SimpleIntegerProperty> levelCountMap = new EnumMap<>(Log4jLevel.class);
     private final Map<Log4jLevel, SimpleBooleanProperty> levelShownMap = new EnumMap<>(Log4jLevel.class);
 
@@ -123,66 +131,94 @@ public final class LogWindow extends Stage {
 
     public LogWindow(ManagedProcess gameProcess, CircularArrayList<Log> logs) {
         this.logs = logs;
+        this.model = new LogListModel(logs);
         this.impl = new LogWindowImpl();
         setScene(new Scene(impl, 800, 480));
         StyleSheets.init(getScene());
         setTitle(i18n("logwindow.title"));
         FXUtils.setIcon(this);
 
-        for (SimpleBooleanProperty property : levelShownMap.values()) {
-            property.addListener(o -> shakeLogs());
-        }
+        levelShownMap.forEach((level, property) -> property.addListener((o, oldValue, shown) -> {
+            model.setLevelShown(level, shown);
+            autoScroll();
+        }));
 
         this.gameProcess = gameProcess;
     }
 
     public void logLine(Log log) {
-        Log4jLevel level = log.getLevel();
-        logs.add(log);
-        if (levelShownMap.get(level).get())
-            impl.listView.getItems().add(log);
-
-        SimpleIntegerProperty property = levelCountMap.get(log.getLevel());
-        property.set(property.get() + 1);
-        checkLogCount();
-        autoScroll();
+        logLines(Collections.singletonList(log));
     }
 
     public void logLines(List<Log> logs) {
         for (Log log : logs) {
-            Log4jLevel level = log.getLevel();
-            this.logs.add(log);
-            if (levelShownMap.get(level).get())
-                impl.listView.getItems().add(log);
-
             SimpleIntegerProperty property = levelCountMap.get(log.getLevel());
             property.set(property.get() + 1);
+
+            if (!searchQuery.isEmpty() && StringUtils.containsIgnoreCase(log.getLog(), searchQuery))
+                searchHits.add(log);
         }
+        model.addLogs(logs);
         checkLogCount();
         autoScroll();
     }
 
-    private void shakeLogs() {
-        impl.listView.getItems().setAll(logs.stream().filter(log -> levelShownMap.get(log.getLevel()).get()).collect(Collectors.toList()));
-        autoScroll();
+    private void checkLogCount() {
+        List<Log> removed = model.trim(Log.getLogLines());
+        if (!searchHits.isEmpty()) {
+            for (Log log : removed) {
+                searchHits.remove(log);
+            }
+        }
     }
 
-    private void checkLogCount() {
-        int nRemove = logs.size() - Log.getLogLines();
-        if (nRemove <= 0)
+    /// Searches the logs in a background thread, highlighting the hits chunk by chunk as they are found.
+    private void search(String query) {
+        int generation = searchGeneration.incrementAndGet();
+        searchQuery = query == null ? "" : query;
+        searchCursor = -1;
+        searchHits.clear();
+        impl.listView.refresh();
+
+        if (searchQuery.isEmpty())
             return;
 
-        ObservableList<Log> items = impl.listView.getItems();
-        int itemsSize = items.size();
-        int count = 0;
+        String currentQuery = searchQuery;
+        List<Log> snapshot = new ArrayList<>(logs);
+        thread(() -> {
+            for (int from = 0; from < snapshot.size(); from += SEARCH_CHUNK_SIZE) {
+                if (searchGeneration.get() != generation)
+                    return;
 
-        for (int i = 0; i < nRemove; i++) {
-            Log removedLog = logs.removeFirst();
-            if (itemsSize > count && items.get(count) == removedLog)
-                count++;
-        }
+                List<Log> hits = new ArrayList<>();
+                for (Log log : snapshot.subList(from, Math.min(snapshot.size(), from + SEARCH_CHUNK_SIZE))) {
+                    if (StringUtils.containsIgnoreCase(log.getLog(), currentQuery))
+                        hits.add(log);
+                }
+
+                if (!hits.isEmpty()) {
+                    Platform.runLater(() -> {
+                        if (searchGeneration.get() == generation) {
+                            searchHits.addAll(hits);
+                            impl.listView.refresh();
+                        }
+                    });
+                }
+            }
+        }, "Log Search", true);
+    }
 
-        items.remove(0, count);
+    /// Scrolls to the next visible hit of the search.
+    private void nextSearchHit() {
+        int size = model.size();
+        for (int i = 1; i <= size; i++) {
+            int index = (searchCursor + i) % size;
+            if (searchHits.contains(model.get(index))) {
+                searchCursor = index;
+                impl.listView.scrollTo(index);
+                return;
+            }
+        }
     }
 
     private void autoScroll() {
@@ -203,14 +239,14 @@ public final class LogWindow extends Stage {
             getStyleClass().add("log-window");
 
             listView.getProperties().put("no-smooth-scrolling", true);
-            listView.setItems(FXCollections.observableList(new CircularArrayList<>(logs.size())));
+            listView.setItems(model);
 
             for (int i = 0; i < LEVELS.length; i++) {
                 buttonText[i] = new SimpleStringProperty();
                 showLevel[i] = new SimpleBooleanProperty(true);
             }
 
-            cboLines.getItems().setAll(500, 2000, 5000, 10000);
+            cboLines.getItems().setAll(500, 2000, 5000, 10000, 50000, 100000);
             cboLines.setValue(Log.getLogLines());
             cboLines.getSelectionModel().selectedItemProperty().addListener((a, b, newValue) -> config().setLogLines(newValue));
 
@@ -225,8 +261,21 @@ public final class LogWindow extends Stage {
         }
 
         private void onClear() {
-            impl.listView.getItems().clear();
-            logs.clear();
+            model.clear();
+            searchHits.clear();
+            searchCursor = -1;
+        }
+
+        private void search(String query) {
+            LogWindow.this.search(query);
+        }
+
+        private void nextSearchHit() {
+            LogWindow.this.nextSearchHit();
+        }
+
+        private boolean isSearchHit(Log log) {
+            return !searchHits.isEmpty() && searchHits.contains(log);
         }
 
         private void onExportLogs() {
@@ -289,6 +338,7 @@ public final class LogWindow extends Stage {
         private static final PseudoClass DEBUG = PseudoClass.getPseudoClass("debug");
         private static final PseudoClass TRACE = PseudoClass.getPseudoClass("trace");
         private static final PseudoClass SELECTED = PseudoClass.getPseudoClass("selected");
+        private static final PseudoClass SEARCH_HIT = PseudoClass.getPseudoClass("search-hit");
 
         private final Set<ListCell<Log>> selected = new HashSet<>();
 
@@ -316,6 +366,15 @@ public final class LogWindow extends Stage {
                     borderPane.setLeft(hBox);
                 }
 
+                {
+                    JFXTextField searchField = new JFXTextField();
+                    searchField.setPromptText(i18n("search"));
+                    searchField.setOnAction(e -> getSkinnable().nextSearchHit());
+                    FXUtils.onChange(searchField.textProperty(), text -> getSkinnable().search(text));
+                    BorderPane.setMargin(searchField, new Insets(0, 8, 0, 8));
+                    borderPane.setCenter(searchField);
+                }
+
                 {
                     HBox hBox = new HBox(3);
                     for (int i = 0; i < LEVELS.length; i++) {
@@ -394,6 +453,7 @@ public final class LogWindow extends Stage {
                         pseudoClassStateChanged(DEBUG, !empty && item.getLevel() == Log4jLevel.DEBUG);
                         pseudoClassStateChanged(TRACE, !empty && item.getLevel() == Log4jLevel.TRACE);
                         pseudoClassStateChanged(SELECTED, !empty && item.isSelected());
+                        pseudoClassStateChanged(SEARCH_HIT, !empty && getSkinnable().isSearchHit(item));
 
                         if (empty) {
                             setText(null);
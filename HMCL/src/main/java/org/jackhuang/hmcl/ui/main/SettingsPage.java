@@ -36,8 +36,11 @@ import javafx.scene.control.ToggleGroup;
 import javafx.scene.layout.*;
 import javafx.scene.text.TextAlignment;
 import org.jackhuang.hmcl.Metadata;
+import org.jackhuang.hmcl.game.HMCLCacheRepository;
 import org.jackhuang.hmcl.setting.EnumCommonDirectory;
 import org.jackhuang.hmcl.setting.Settings;
+import org.jackhuang.hmcl.task.Schedulers;
+import org.jackhuang.hmcl.task.Task;
 import org.jackhuang.hmcl.ui.Controllers;
 import org.jackhuang.hmcl.ui.FXUtils;
 import org.jackhuang.hmcl.ui.SVG;
@@ -50,6 +53,8 @@ import org.jackhuang.hmcl.upgrade.RemoteVersion;
 import org.jackhuang.hmcl.upgrade.UpdateChannel;
 import org.jackhuang.hmcl.upgrade.UpdateChecker;
 import org.jackhuang.hmcl.upgrade.UpdateHandler;
+import org.jackhuang.hmcl.util.CacheRepository;
+import org.jackhuang.hmcl.util.DataSizeUnit;
 import org.jackhuang.hmcl.util.StringUtils;
 import org.jackhuang.hmcl.util.i18n.I18n;
 import org.jackhuang.hmcl.util.i18n.SupportedLocale;
@@ -66,6 +71,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
@@ -290,8 +296,41 @@ public final class SettingsPage extends ScrollPane {
                                         .orElse(i18n("launcher.cache_directory.disabled")),
                                 config().commonDirectoryProperty(), config().commonDirTypeProperty()));
 
+                BorderPane sizeLimitPane = new BorderPane();
+                sizeLimitPane.setLeft(new Label(i18n("launcher.cache_directory.size_limit")));
+                JFXTextField sizeLimitField = new JFXTextField();
+                sizeLimitField.setPromptText("0");
+                FXUtils.setLimitWidth(sizeLimitField, 120);
+                FXUtils.bindInt(sizeLimitField, config().cacheSizeLimitProperty());
+                sizeLimitPane.setRight(sizeLimitField);
+                BorderPane.setAlignment(sizeLimitField, Pos.CENTER_RIGHT);
+
+                BorderPane evictionPolicyPane = new BorderPane();
+                evictionPolicyPane.setLeft(new Label(i18n("launcher.cache_directory.eviction_policy")));
+                JFXComboBox<CacheRepository.EvictionPolicy> cboEvictionPolicy = new JFXComboBox<>();
+                cboEvictionPolicy.setConverter(stringConverter(policy ->
+                        i18n("launcher.cache_directory.eviction_policy." + policy.name().toLowerCase(Locale.ROOT))));
+                cboEvictionPolicy.getItems().setAll(CacheRepository.EvictionPolicy.values());
+                selectedItemPropertyFor(cboEvictionPolicy).bindBidirectional(config().cacheEvictionPolicyProperty());
+                FXUtils.setLimitWidth(cboEvictionPolicy, 300);
+                evictionPolicyPane.setRight(cboEvictionPolicy);
+                BorderPane.setAlignment(cboEvictionPolicy, Pos.CENTER_RIGHT);
+
+                OptionToggleButton linkFilesPane = new OptionToggleButton();
+                linkFilesPane.setTitle(i18n("launcher.cache_directory.link_files"));
+                linkFilesPane.setSubtitle(i18n("launcher.cache_directory.link_files.subtitle"));
+                linkFilesPane.selectedProperty().bindBidirectional(config().cacheLinkFilesProperty());
+
+                Label statisticsLabel = new Label();
+                statisticsLabel.getStyleClass().add("subtitle");
+                fileCommonLocationSublist.getContent().addAll(sizeLimitPane, evictionPolicyPane, linkFilesPane, statisticsLabel);
+                updateCacheStatistics(statisticsLabel);
+
                 JFXButton cleanButton = FXUtils.newBorderButton(i18n("launcher.cache_directory.clean"));
-                cleanButton.setOnAction(e -> clearCacheDirectory());
+                cleanButton.setOnAction(e -> {
+                    clearCacheDirectory();
+                    updateCacheStatistics(statisticsLabel);
+                });
                 fileCommonLocationSublist.setHeaderRight(cleanButton);
 
                 settingsPane.getContent().add(fileCommonLocationSublist);
@@ -496,6 +535,18 @@ public final class SettingsPage extends ScrollPane {
         FXUtils.openLink(Metadata.SITE_URL);
     }
 
+    private static void updateCacheStatistics(Label label) {
+        label.setText(i18n("launcher.cache_directory.statistics.loading"));
+        Task.supplyAsync(Schedulers.io(), HMCLCacheRepository.REPOSITORY::getStatistics)
+                .whenComplete(Schedulers.javafx(), statistics -> label.setText(i18n("launcher.cache_directory.statistics",
+                        DataSizeUnit.format(statistics.totalSize()),
+                        statistics.fileCount(),
+                        DataSizeUnit.format(statistics.linkedSize()))), exception -> {
+                    LOG.warning("Failed to calculate cache statistics", exception);
+                    label.setText("");
+                }).start();
+    }
+
     private void clearCacheDirectory() {
         String commonDirectory = Settings.instance().getCommonDirectory();
         if (commonDirectory != null) {
@@ -19,34 +19,47 @@ package org.jackhuang.hmcl.ui.versions;
 
 import org.jackhuang.hmcl.mod.LocalModFile;
 import org.jackhuang.hmcl.mod.RemoteMod;
+import org.jackhuang.hmcl.mod.RemoteModRepository;
+import org.jackhuang.hmcl.mod.modrinth.ModrinthRemoteModRepository;
 import org.jackhuang.hmcl.task.Task;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class ModCheckUpdatesTask extends Task<List<LocalModFile.ModUpdate>> {
     private final String gameVersion;
     private final Collection<LocalModFile> mods;
-    private final Collection<Collection<Task<LocalModFile.ModUpdate>>> dependents;
+    private final List<Task<List<LocalModFile.ModUpdate>>> dependents = new ArrayList<>();
 
     public ModCheckUpdatesTask(String gameVersion, Collection<LocalModFile> mods) {
         this.gameVersion = gameVersion;
         this.mods = mods;
 
-        dependents = mods.stream()
-                .map(mod ->
-                        Arrays.stream(RemoteMod.Type.values())
-                                .map(type ->
-                                        Task.supplyAsync(() -> mod.checkUpdates(gameVersion, type.getRemoteModRepository()))
-                                                .setSignificance(TaskSignificance.MAJOR)
-                                                .setName(String.format("%s (%s)", mod.getFileName(), type.name())).withCounter("update.checking")
-                                )
-                                .collect(Collectors.toList())
-                )
-                .collect(Collectors.toList());
+        for (RemoteMod.Type type : RemoteMod.Type.values()) {
+            RemoteModRepository repository = type.getRemoteModRepository();
+            if (repository instanceof ModrinthRemoteModRepository modrinth) {
+                // Modrinth resolves the whole mod set with a few bulk requests
+                dependents.add(Task.supplyAsync(() -> modrinth.checkUpdates(gameVersion, mods))
+                        .setSignificance(TaskSignificance.MAJOR)
+                        .setName(type.name()).withCounter("update.checking"));
+            } else {
+                // The current versions of all the mods are resolved with one bulk lookup,
+                // then only the versions of the mods known by the repository are listed
+                dependents.add(Task.supplyAsync(() -> {
+                            List<LocalModFile.ModUpdate> updates = new ArrayList<>();
+                            for (Map.Entry<LocalModFile, RemoteMod.Version> entry : repository.getRemoteVersionsByLocalModFiles(mods).entrySet()) {
+                                LocalModFile.ModUpdate update = entry.getKey().checkUpdates(gameVersion, repository, entry.getValue());
+                                if (update != null)
+                                    updates.add(update);
+                            }
+                            return updates;
+                        })
+                        .setSignificance(TaskSignificance.MAJOR)
+                        .setName(type.name()).withCounter("update.checking"));
+            }
+        }
 
         setStage("update.checking");
-        getProperties().put("total", dependents.size() * RemoteMod.Type.values().length);
+        getProperties().put("total", dependents.size());
     }
 
     @Override
@@ -61,7 +74,7 @@ public class ModCheckUpdatesTask extends Task<List<LocalModFile.ModUpdate>> {
 
     @Override
     public Collection<? extends Task<?>> getDependents() {
-        return dependents.stream().flatMap(Collection::stream).collect(Collectors.toList());
+        return dependents;
     }
 
     @Override
@@ -71,15 +84,26 @@ public class ModCheckUpdatesTask extends Task<List<LocalModFile.ModUpdate>> {
 
     @Override
     public void execute() throws Exception {
-        setResult(dependents.stream()
-                .map(tasks -> tasks.stream()
-                        .filter(task -> task.getResult() != null)
-                        .map(Task::getResult)
-                        .filter(modUpdate -> !modUpdate.getCandidates().isEmpty())
-                        .max(Comparator.comparing((LocalModFile.ModUpdate modUpdate) -> modUpdate.getCandidates().get(0).getDatePublished()))
-                        .orElse(null)
-                )
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList()));
+        Map<LocalModFile, LocalModFile.ModUpdate> updates = new HashMap<>();
+        for (Task<List<LocalModFile.ModUpdate>> task : dependents) {
+            if (task.getResult() == null)
+                continue;
+
+            for (LocalModFile.ModUpdate modUpdate : task.getResult()) {
+                if (modUpdate.getCandidates().isEmpty())
+                    continue;
+
+                updates.merge(modUpdate.getLocalMod(), modUpdate, (a, b) ->
+                        a.getCandidates().get(0).getDatePublished().compareTo(b.getCandidates().get(0).getDatePublished()) >= 0 ? a : b);
+            }
+        }
+
+        List<LocalModFile.ModUpdate> result = new ArrayList<>();
+        for (LocalModFile mod : mods) {
+            LocalModFile.ModUpdate modUpdate = updates.remove(mod);
+            if (modUpdate != null)
+                result.add(modUpdate);
+        }
+        setResult(result);
     }
 }
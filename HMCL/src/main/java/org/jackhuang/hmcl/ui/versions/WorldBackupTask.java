@@ -19,16 +19,14 @@ package org.jackhuang.hmcl.ui.versions;
 
 import org.jackhuang.hmcl.game.World;
 import org.jackhuang.hmcl.task.Task;
+import org.jackhuang.hmcl.util.io.Zipper;
 
-import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.channels.FileChannel;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * @author Glavo
@@ -52,36 +50,23 @@ public final class WorldBackupTask extends Task<Path> {
             String time = LocalDateTime.now().format(WorldBackupsPage.TIME_FORMATTER);
             String baseName = time + "_" + world.getFileName();
             Path backupFile = null;
-            OutputStream outputStream = null;
 
             int count;
             for (count = 0; count < 256; count++) {
                 try {
-                    backupFile = backupsDir.resolve(baseName + (count == 0 ? "" : " " + count) + ".zip").toAbsolutePath();
-                    outputStream = Files.newOutputStream(backupFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+                    backupFile = Files.createFile(backupsDir.resolve(baseName + (count == 0 ? "" : " " + count) + ".zip").toAbsolutePath());
                     break;
                 } catch (FileAlreadyExistsException ignored) {
+                    backupFile = null;
                 }
             }
 
-            if (outputStream == null)
+            if (backupFile == null)
                 throw new IOException("Too many attempts");
 
-            try (ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(outputStream))) {
-                String rootName = world.getFileName();
-                Path rootDir = this.world.getFile();
-                Files.walkFileTree(this.world.getFile(), new SimpleFileVisitor<Path>() {
-                    @Override
-                    public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
-                        if (path.endsWith("session.lock")) {
-                            return FileVisitResult.CONTINUE;
-                        }
-                        zipOutputStream.putNextEntry(new ZipEntry(rootName + "/" + rootDir.relativize(path).toString().replace('\\', '/')));
-                        Files.copy(path, zipOutputStream);
-                        zipOutputStream.closeEntry();
-                        return FileVisitResult.CONTINUE;
-                    }
-                });
+            try (Zipper zipper = new Zipper(backupFile)) {
+                zipper.putDirectory(world.getFile(), world.getFileName(),
+                        path -> !path.equals("session.lock") && !path.endsWith("/session.lock"));
             }
 
             setResult(backupFile);
@@ -0,0 +1,309 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.cofemine;
+
+import net.sf.sevenzipjbinding.IOutCreateArchive7z;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutItem7z;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.SevenZipNativeInitializationException;
+import net.sf.sevenzipjbinding.impl.OutItemFactory;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class CofeMineArchiveTest {
+
+    @TempDir
+    private Path dir;
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long crc32(byte[] data) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        return crc32.getValue();
+    }
+
+    private Path createZip(Map<String, byte[]> entries) throws IOException {
+        Path zip = dir.resolve("pack.zip");
+        try (OutputStream out = Files.newOutputStream(zip);
+             ZipOutputStream zos = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                ZipEntry zipEntry = new ZipEntry(entry.getKey());
+                if (entry.getValue() != null) {
+                    // Stored, so that the content can be corrupted in place
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(entry.getValue().length);
+                    zipEntry.setCrc(crc32(entry.getValue()));
+                }
+                zos.putNextEntry(zipEntry);
+                if (entry.getValue() != null)
+                    zos.write(entry.getValue());
+                zos.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    /// Writes a RAR 4 archive with the files stored without compression.
+    private Path createRar(Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{0x52, 0x61, 0x72, 0x21, 0x1A, 0x07, 0x00});
+        writeRarBlock(out, ByteBuffer.allocate(11).order(ByteOrder.LITTLE_ENDIAN)
+                .put((byte) 0x73).putShort((short) 0).putShort((short) 13).putShort((short) 0).putInt(0).array());
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            byte[] name = entry.getKey().replace('/', '\\').getBytes(StandardCharsets.US_ASCII);
+            byte[] data = entry.getValue();
+            writeRarBlock(out, ByteBuffer.allocate(30 + name.length).order(ByteOrder.LITTLE_ENDIAN)
+                    .put((byte) 0x74)
+                    .putShort((short) 0x8000)
+                    .putShort((short) (32 + name.length))
+                    .putInt(data.length)
+                    .putInt(data.length)
+                    .put((byte) 2) // Windows
+                    .putInt((int) crc32(data))
+                    .putInt(0x21000000) // 1996-08-00 00:00:00 in DOS time
+                    .put((byte) 20)
+                    .put((byte) 0x30) // Stored
+                    .putShort((short) name.length)
+                    .putInt(0x20)
+                    .put(name)
+                    .array());
+            out.writeBytes(data);
+        }
+        out.writeBytes(new byte[]{(byte) 0xC4, 0x3D, 0x7B, 0x00, 0x40, 0x07, 0x00});
+
+        Path rar = dir.resolve("pack.rar");
+        Files.write(rar, out.toByteArray());
+        return rar;
+    }
+
+    private static void writeRarBlock(ByteArrayOutputStream out, byte[] block) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(block);
+        int crc = (int) crc32.getValue();
+        out.write(crc);
+        out.write(crc >> 8);
+        out.writeBytes(block);
+    }
+
+    private Path createSevenZip(Map<String, byte[]> entries) throws IOException {
+        List<Map.Entry<String, byte[]>> items = new ArrayList<>(entries.entrySet());
+        ByteArrayStream out = new ByteArrayStream(1024 * 1024);
+        IOutCreateArchive7z archive = SevenZip.openOutArchive7z();
+        try {
+            archive.setLevel(0);
+            archive.createArchive(out, items.size(), new IOutCreateCallback<>() {
+                @Override
+                public void setOperationResult(boolean operationResultOk) {
+                }
+
+                @Override
+                public IOutItem7z getItemInformation(int index, OutItemFactory<IOutItem7z> outItemFactory) {
+                    IOutItem7z item = outItemFactory.createOutItem();
+                    item.setPropertyPath(items.get(index).getKey());
+                    item.setDataSize((long) items.get(index).getValue().length);
+                    return item;
+                }
+
+                @Override
+                public ISequentialInStream getStream(int index) {
+                    return new ByteArrayStream(items.get(index).getValue(), true);
+                }
+
+                @Override
+                public void setTotal(long total) {
+                }
+
+                @Override
+                public void setCompleted(long complete) {
+                }
+            });
+        } finally {
+            archive.close();
+        }
+
+        Path sevenZip = dir.resolve("pack.7z");
+        try (OutputStream output = Files.newOutputStream(sevenZip)) {
+            out.writeToOutputStream(output, true);
+        }
+        return sevenZip;
+    }
+
+    private static Map<String, byte[]> packEntries() {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("Pack/mods/a.jar", bytes("mod a"));
+        entries.put("Pack/config/b.toml", bytes("config b"));
+        entries.put("Pack/config/skipped/c.toml", bytes("config c"));
+        entries.put("Pack/cofemine-pack.json", bytes("{}"));
+        entries.put("readme.txt", bytes("readme"));
+        return entries;
+    }
+
+    private static void assertExtracted(CofeMineArchive archive, Path dest) throws IOException {
+        assertEquals("Pack/", archive.getContentPrefix());
+        assertArrayEquals(bytes("{}"), archive.read(Objects.requireNonNull(archive.getEntry("Pack/cofemine-pack.json"))));
+
+        AtomicLong progress = new AtomicLong();
+        archive.extract("Pack/", dest, entry -> !entry.name().equals("Pack/config/skipped/"), progress::addAndGet);
+
+        assertEquals("mod a", Files.readString(dest.resolve("mods/a.jar")));
+        assertEquals("config b", Files.readString(dest.resolve("config/b.toml")));
+        assertFalse(Files.exists(dest.resolve("config/skipped/c.toml")));
+        assertFalse(Files.exists(dest.resolve("readme.txt")));
+        assertEquals("mod a".length() + "config b".length() + "{}".length(), progress.get());
+        assertNoStagingDirectory(dest);
+    }
+
+    private static void assertNoStagingDirectory(Path dest) throws IOException {
+        try (Stream<Path> stream = Files.list(dest)) {
+            assertTrue(stream.noneMatch(path -> path.getFileName().toString().startsWith(".cofemine-extract-")));
+        }
+    }
+
+    @Test
+    public void testZip() throws IOException {
+        Path dest = dir.resolve("dest");
+        Files.createDirectories(dest.resolve("mods"));
+        Files.writeString(dest.resolve("mods/a.jar"), "old mod a");
+        try (CofeMineArchive archive = CofeMineArchive.open(createZip(packEntries()))) {
+            CofeMineArchive.Entry entry = Objects.requireNonNull(archive.getEntry("Pack/mods/a.jar"));
+            assertEquals(crc32(bytes("mod a")), entry.crc32());
+            assertExtracted(archive, dest);
+        }
+    }
+
+    @Test
+    public void testRar() throws IOException {
+        Path dest = dir.resolve("dest");
+        try (CofeMineArchive archive = CofeMineArchive.open(createRar(packEntries()))) {
+            assertEquals(crc32(bytes("mod a")), Objects.requireNonNull(archive.getEntry("Pack/mods/a.jar")).crc32());
+            assertExtracted(archive, dest);
+        }
+    }
+
+    @Test
+    public void testSevenZip() throws IOException {
+        try {
+            SevenZip.initSevenZipFromPlatformJAR();
+        } catch (SevenZipNativeInitializationException e) {
+            assumeTrue(false, "7-Zip-JBinding is not available on this platform");
+        }
+
+        Path dest = dir.resolve("dest");
+        try (CofeMineArchive archive = CofeMineArchive.open(createSevenZip(packEntries()))) {
+            assertEquals(crc32(bytes("mod a")), Objects.requireNonNull(archive.getEntry("Pack/mods/a.jar")).crc32());
+            assertExtracted(archive, dest);
+        }
+    }
+
+    @Test
+    public void testContentPrefix() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("mods/a.jar", bytes("a"));
+        entries.put("Pack/config/b.toml", bytes("b"));
+        entries.put("Other/mods/c.jar", bytes("c"));
+        try (CofeMineArchive archive = CofeMineArchive.open(createZip(entries))) {
+            // Two candidate directories, so the root of the archive is used
+            assertEquals("", archive.getContentPrefix());
+        }
+    }
+
+    @Test
+    public void testChecksumMismatchKeepsExistingFiles() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("mods/a.jar", bytes("new mod a"));
+        entries.put("mods/b.jar", bytes("new mod b"));
+        Path zip = createZip(entries);
+
+        byte[] data = Files.readAllBytes(zip);
+        int index = new String(data, StandardCharsets.ISO_8859_1).indexOf("new mod b");
+        data[index] = 'N';
+        Files.write(zip, data);
+
+        Path dest = dir.resolve("dest");
+        Files.createDirectories(dest.resolve("mods"));
+        Files.writeString(dest.resolve("mods/a.jar"), "old mod a");
+        Files.writeString(dest.resolve("mods/b.jar"), "old mod b");
+
+        try (CofeMineArchive archive = CofeMineArchive.open(zip)) {
+            assertThrows(ZipException.class, () -> archive.extract("", dest, entry -> true, bytes -> {
+            }));
+        }
+        assertEquals("old mod a", Files.readString(dest.resolve("mods/a.jar")));
+        assertEquals("old mod b", Files.readString(dest.resolve("mods/b.jar")));
+        assertNoStagingDirectory(dest);
+    }
+
+    @Test
+    public void testFailedFilterKeepsExistingFiles() throws IOException {
+        Path dest = dir.resolve("dest");
+        Files.createDirectories(dest.resolve("mods"));
+        Files.writeString(dest.resolve("mods/a.jar"), "old mod a");
+
+        try (CofeMineArchive archive = CofeMineArchive.open(createZip(packEntries()))) {
+            assertThrows(IOException.class, () -> archive.extract("Pack/", dest, entry -> {
+                if (entry.name().startsWith("Pack/config/")) {
+                    throw new IOException("Cancelled");
+                }
+                return true;
+            }, bytes -> {
+            }));
+        }
+        assertEquals("old mod a", Files.readString(dest.resolve("mods/a.jar")));
+        assertFalse(Files.exists(dest.resolve("cofemine-pack.json")));
+        assertNoStagingDirectory(dest);
+    }
+
+    @Test
+    public void testDeleteLeftoverStagingDirectory() throws IOException {
+        Path dest = dir.resolve("dest");
+        // Left behind by an extraction that was killed
+        Path leftover = Files.createDirectories(dest.resolve(".cofemine-extract-123/mods"));
+        Files.writeString(leftover.resolve("a.jar"), "partial mod a");
+
+        try (CofeMineArchive archive = CofeMineArchive.open(createZip(packEntries()))) {
+            assertExtracted(archive, dest);
+        }
+        assertNoStagingDirectory(dest);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.cofemine;
+
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/// The sync task reports its progress on the JavaFX application thread.
+@EnabledIf("org.jackhuang.hmcl.JavaFXLauncher#isStarted")
+public class CofeMineDeltaSyncTest {
+
+    /// A modification time that no file written by the sync has, to tell whether a file has been written again.
+    private static final FileTime OLD = FileTime.fromMillis(1_000_000_000L);
+
+    @TempDir
+    private Path dir;
+
+    private Path createPack(String name, Map<String, String> files) throws IOException {
+        Path zip = dir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(zip);
+             ZipOutputStream zos = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zos.putNextEntry(new ZipEntry("Pack/" + file.getKey()));
+                zos.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static String sha256(String content) {
+        return HexFormat.of().formatHex(DigestUtils.digest("SHA-256", content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Path sync(Path game, Path pack) throws Exception {
+        new CofeMineDeltaSync(game, null).createSyncTask(pack).run();
+        return game;
+    }
+
+    @Test
+    public void testSkipUpToDateFiles() throws Exception {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("mods/a.jar", "mod a");
+        files.put("config/b.toml", "config b");
+        Path pack = createPack("pack.zip", files);
+        Path game = sync(dir.resolve("game"), pack);
+        assertEquals("mod a", Files.readString(game.resolve("mods/a.jar")));
+        assertEquals("config b", Files.readString(game.resolve("config/b.toml")));
+
+        Files.setLastModifiedTime(game.resolve("mods/a.jar"), OLD);
+        Files.setLastModifiedTime(game.resolve("config/b.toml"), OLD);
+        sync(game, pack);
+        assertEquals(OLD, Files.getLastModifiedTime(game.resolve("mods/a.jar")), "Unchanged files should not be written");
+        assertEquals(OLD, Files.getLastModifiedTime(game.resolve("config/b.toml")), "Unchanged files should not be written");
+    }
+
+    @Test
+    public void testReplaceChangedFiles() throws Exception {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("mods/a.jar", "mod a");
+        files.put("config/b.toml", "config b");
+        Path game = sync(dir.resolve("game"), createPack("v1.zip", files));
+        Files.setLastModifiedTime(game.resolve("config/b.toml"), OLD);
+
+        // Same size, different CRC-32
+        files.put("mods/a.jar", "mod A");
+        sync(game, createPack("v2.zip", files));
+        assertEquals("mod A", Files.readString(game.resolve("mods/a.jar")));
+        assertEquals(OLD, Files.getLastModifiedTime(game.resolve("config/b.toml")));
+
+        // A file changed by the user is restored
+        Files.writeString(game.resolve("config/b.toml"), "config B");
+        sync(game, createPack("v2.zip", files));
+        assertEquals("config b", Files.readString(game.resolve("config/b.toml")));
+    }
+
+    @Test
+    public void testPublishedFiles() throws Exception {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("mods/a.jar", "mod a");
+        files.put("config/b.toml", "config b");
+        Path game = sync(dir.resolve("game"), createPack("pack.zip", files));
+
+        CofeMineModpackManifest manifest = new CofeMineModpackManifest("1", null, null, null, List.of(
+                new CofeMineModpackManifest.FileEntry("mods/a.jar", 5, sha256("mod a")),
+                new CofeMineModpackManifest.FileEntry("config/b.toml", 8, sha256("config b"))));
+        assertTrue(new CofeMineDeltaSync(game, manifest).isUpToDate());
+
+        CofeMineModpackManifest changed = new CofeMineModpackManifest("2", null, null, null, List.of(
+                new CofeMineModpackManifest.FileEntry("mods/a.jar", 5, sha256("mod A")),
+                new CofeMineModpackManifest.FileEntry("config/b.toml", 8, sha256("config b"))));
+        assertFalse(new CofeMineDeltaSync(game, changed).isUpToDate(), "A changed SHA-256 should require an update");
+
+        // The SHA-256 computed above is remembered, so the file is not read again while it is unchanged
+        Files.writeString(game.resolve("config/b.toml"), "config B");
+        Files.setLastModifiedTime(game.resolve("config/b.toml"), OLD);
+        assertFalse(new CofeMineDeltaSync(game, manifest).isUpToDate());
+    }
+
+    @Test
+    public void testRemoveFilesNoLongerInPack() throws Exception {
+        Map<String, String> files = new LinkedHashMap<>();
+        files.put("mods/a.jar", "mod a");
+        files.put("mods/old/b.jar", "mod b");
+        files.put("config/c.toml", "config c");
+        Path game = sync(dir.resolve("game"), createPack("v1.zip", files));
+
+        Files.createDirectories(game.resolve("saves/world"));
+        Files.writeString(game.resolve("saves/world/level.dat"), "level");
+        Files.createDirectories(game.resolve("resourcepacks"));
+        Files.writeString(game.resolve("resourcepacks/user.zip"), "resource pack");
+        Files.writeString(game.resolve("options.txt"), "options");
+
+        files.remove("mods/old/b.jar");
+        files.remove("config/c.toml");
+        files.put("config/d.toml", "config d");
+        sync(game, createPack("v2.zip", files));
+
+        assertEquals("mod a", Files.readString(game.resolve("mods/a.jar")));
+        assertFalse(Files.exists(game.resolve("mods/old")), "Files removed from the pack should be deleted");
+        assertFalse(Files.exists(game.resolve("config/c.toml")), "Files removed from the pack should be deleted");
+        assertEquals("config d", Files.readString(game.resolve("config/d.toml")));
+
+        assertEquals("level", Files.readString(game.resolve("saves/world/level.dat")));
+        assertEquals("resource pack", Files.readString(game.resolve("resourcepacks/user.zip")));
+        assertEquals("options", Files.readString(game.resolve("options.txt")));
+    }
+}
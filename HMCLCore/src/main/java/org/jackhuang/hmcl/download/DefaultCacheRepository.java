@@ -36,15 +36,22 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
-import java.util.stream.Collectors;
 
 import static org.jackhuang.hmcl.util.logging.Logger.LOG;
 
 public class DefaultCacheRepository extends CacheRepository {
     private Path librariesDir;
     private Path indexFile;
-    private Index index = null;
+    /// The cached libraries by name. A library may have been cached with multiple hashes.
+    private Map<String, List<LibraryIndex>> libraries = new HashMap<>();
+    /// The cached libraries by the lower case hash, which is the name of the cached file.
+    private Map<String, LibraryIndex> librariesByHash = new HashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
 
     public DefaultCacheRepository() {
         this(OperatingSystem.getWorkingDirectory("minecraft"));
@@ -56,6 +63,10 @@ public class DefaultCacheRepository extends CacheRepository {
 
     @Override
     public void changeDirectory(Path commonDir) {
+        // The pending changes belong to the index of the old directory
+        if (indexFile != null)
+            saveIndex();
+
         super.changeDirectory(commonDir);
 
         librariesDir = commonDir.resolve("libraries");
@@ -63,22 +74,64 @@ public class DefaultCacheRepository extends CacheRepository {
 
         lock.writeLock().lock();
         try {
+            libraries = new HashMap<>();
+            librariesByHash = new HashMap<>();
+            dirty.set(false);
             if (Files.isRegularFile(indexFile)) {
-                index = JsonUtils.fromJsonFile(indexFile, Index.class);
+                Index index = JsonUtils.fromJsonFile(indexFile, Index.class);
                 if (index == null) {
                     throw new JsonParseException("Index file is empty or invalid");
                 }
-            } else {
-                index = new Index();
+                for (LibraryIndex libIndex : index.getLibraries()) {
+                    addLibraryIndex(libIndex);
+                    if (libIndex.getSize() > 0)
+                        super.setVerifiedFingerprint(getFile(SHA1, libIndex.getHash()), new FileFingerprint(libIndex.getSize(), libIndex.getLastModified()));
+                }
             }
         } catch (Exception e) {
             LOG.warning("Unable to read index file", e);
-            index = new Index();
+            libraries = new HashMap<>();
+            librariesByHash = new HashMap<>();
         } finally {
             lock.writeLock().unlock();
         }
     }
 
+    /// Must be called while holding the write lock.
+    /// @return `false` if the library has already been indexed with the same hash and type
+    private boolean addLibraryIndex(LibraryIndex libIndex) {
+        List<LibraryIndex> list = libraries.computeIfAbsent(libIndex.getName(), name -> new ArrayList<>(1));
+        if (list.contains(libIndex))
+            return false;
+        list.add(libIndex);
+        librariesByHash.putIfAbsent(libIndex.getHash().toLowerCase(Locale.ROOT), libIndex);
+        return true;
+    }
+
+    /// Saves the fingerprint in the index as well if the file is an indexed library,
+    /// so that libraries verified by hashing them, such as the ones indexed by older versions, are not hashed again.
+    @Override
+    protected void setVerifiedFingerprint(Path file, FileFingerprint fingerprint) {
+        if (fingerprint.equals(getVerifiedFingerprint(file))) {
+            return;
+        }
+        super.setVerifiedFingerprint(file, fingerprint);
+
+        boolean indexed;
+        lock.readLock().lock();
+        try {
+            LibraryIndex libIndex = librariesByHash.get(FileUtils.getName(file));
+            indexed = libIndex != null && getFile(SHA1, libIndex.getHash()).equals(file);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!indexed)
+            return;
+
+        dirty.set(true);
+        saveIndexLater();
+    }
+
     /**
      * Try to cache the library given.
      * This library will be cached only if it is verified.
@@ -90,7 +143,7 @@ public class DefaultCacheRepository extends CacheRepository {
     public void tryCacheLibrary(Library library, Path jar) {
         lock.readLock().lock();
         try {
-            if (index.getLibraries().stream().anyMatch(it -> library.getName().equals(it.getName())))
+            if (libraries.containsKey(library.getName()))
                 return;
         } finally {
             lock.readLock().unlock();
@@ -127,27 +180,28 @@ public class DefaultCacheRepository extends CacheRepository {
         if (fileExists(SHA1, hash))
             return Optional.of(getFile(SHA1, hash));
 
+        List<LibraryIndex> candidates;
         Lock readLock = lock.readLock();
         readLock.lock();
-
         try {
-            // check if this library is from Forge
-            List<LibraryIndex> libraries = index.getLibraries().stream()
-                    .filter(it -> it.getName().equals(library.getName()))
-                    .collect(Collectors.toList());
-            for (LibraryIndex libIndex : libraries) {
-                if (fileExists(SHA1, libIndex.getHash())) {
-                    Path file = getFile(SHA1, libIndex.getHash());
-                    if (libIndex.getType().equalsIgnoreCase(LibraryIndex.TYPE_FORGE)) {
-                        if (LibraryDownloadTask.checksumValid(file, library.getChecksums()))
-                            return Optional.of(file);
-                    }
-                }
-            }
+            candidates = List.copyOf(libraries.getOrDefault(library.getName(), List.of()));
         } finally {
             readLock.unlock();
         }
 
+        // check if this library is from Forge
+        for (LibraryIndex libIndex : candidates) {
+            if (libIndex.getType().equalsIgnoreCase(LibraryIndex.TYPE_FORGE) && fileExists(SHA1, libIndex.getHash())) {
+                Path file = getFile(SHA1, libIndex.getHash());
+                List<String> checksums = library.getChecksums();
+                // The hash of a Forge library in the index is the SHA-1 of the whole file, so it can be checked without reading the file
+                if (checksums == null || checksums.isEmpty()
+                        || checksums.stream().anyMatch(libIndex.getHash()::equalsIgnoreCase)
+                        || LibraryDownloadTask.checksumValid(file, checksums))
+                    return Optional.of(file);
+            }
+        }
+
         // check old common directory
         Path jar = librariesDir.resolve(info.getPath());
         if (Files.exists(jar)) {
@@ -185,23 +239,48 @@ public class DefaultCacheRepository extends CacheRepository {
             hash = DigestUtils.digestToString(SHA1, path);
 
         Path cache = getFile(SHA1, hash);
-        FileUtils.copyFile(path, cache);
+        materialize(path, cache);
+        setVerifiedFingerprint(cache, FileFingerprint.of(cache));
 
         Lock writeLock = lock.writeLock();
         writeLock.lock();
         try {
             LibraryIndex libIndex = new LibraryIndex(library.getName(), hash, forge ? LibraryIndex.TYPE_FORGE : LibraryIndex.TYPE_JAR);
-            index.getLibraries().add(libIndex);
-            saveIndex();
+            if (addLibraryIndex(libIndex))
+                dirty.set(true);
         } finally {
             writeLock.unlock();
         }
+        saveIndexLater();
 
         return cache;
     }
 
-    private void saveIndex() {
-        if (indexFile == null || index == null) return;
+    /// Saves the index if it has been changed.
+    ///
+    /// The fingerprints of the cached files are saved as well, so that they are not hashed again after restarting.
+    public void saveIndex() {
+        if (!dirty.getAndSet(false))
+            return;
+
+        Path indexFile;
+        Index index;
+        lock.readLock().lock();
+        try {
+            indexFile = this.indexFile;
+            Set<LibraryIndex> entries = new LinkedHashSet<>();
+            for (List<LibraryIndex> list : libraries.values()) {
+                for (LibraryIndex libIndex : list) {
+                    FileFingerprint fingerprint = getVerifiedFingerprint(getFile(SHA1, libIndex.getHash()));
+                    entries.add(fingerprint != null ? libIndex.withFingerprint(fingerprint) : libIndex);
+                }
+            }
+            index = new Index(entries);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (indexFile == null) return;
         try {
             Files.createDirectories(indexFile.getParent());
             FileUtils.saveSafely(indexFile, outputStream -> {
@@ -214,6 +293,16 @@ public class DefaultCacheRepository extends CacheRepository {
         }
     }
 
+    /// Saves the index shortly, so that the libraries cached by an installation are written at once.
+    private void saveIndexLater() {
+        if (saveScheduled.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                saveScheduled.set(false);
+                saveIndex();
+            }, CompletableFuture.delayedExecutor(2, TimeUnit.SECONDS));
+        }
+    }
+
     /// ```json
     /// {
     ///     "libraries": {
@@ -254,15 +343,28 @@ public class DefaultCacheRepository extends CacheRepository {
         private final String name;
         private final String hash;
         private final String type;
+        /// The size of the cached file when it was last verified, or 0 if unknown.
+        private final long size;
+        private final long lastModified;
 
         public LibraryIndex() {
             this("", "", "");
         }
 
         public LibraryIndex(String name, String hash, String type) {
+            this(name, hash, type, 0, 0);
+        }
+
+        public LibraryIndex(String name, String hash, String type, long size, long lastModified) {
             this.name = name;
             this.hash = hash;
             this.type = type;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public LibraryIndex withFingerprint(FileFingerprint fingerprint) {
+            return new LibraryIndex(name, hash, type, fingerprint.size(), fingerprint.lastModified());
         }
 
         @NotNull
@@ -280,6 +382,14 @@ public class DefaultCacheRepository extends CacheRepository {
             return type;
         }
 
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
         @Override
         public void validate() throws JsonParseException, TolerableValidationException {
             if (name == null || hash == null || type == null)
@@ -50,11 +50,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.FileSystem;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.zip.ZipException;
@@ -117,6 +119,17 @@ public class ForgeNewInstallTask extends Task<Version> {
                 return;
             }
 
+            ForgeProcessorCache processorCache = new ForgeProcessorCache(dependencyManager.getCacheRepository());
+            if (processorCache.restoreDeclared(outputs)) {
+                try {
+                    verifyOutputs(outputs);
+                    LOG.info("Restored outputs of processor " + processor.getJar() + " from cache");
+                    return;
+                } catch (IOException e) {
+                    LOG.warning("Cached outputs of processor " + processor.getJar() + " are invalid", e);
+                }
+            }
+
             Path jar = gameRepository.getArtifactFile(version, processor.getJar());
             if (!Files.isRegularFile(jar))
                 throw new FileNotFoundException("Game processor file not found, should be downloaded in preprocess");
@@ -129,13 +142,6 @@ public class ForgeNewInstallTask extends Task<Version> {
             if (StringUtils.isBlank(mainClass))
                 throw new Exception("Game processor jar does not have main class " + jar);
 
-            List<String> command = new ArrayList<>();
-            command.add(JavaRuntime.getDefault().getBinary().toString());
-            command.add("-Dsun.net.client.defaultConnectTimeout=" + NetworkUtils.TIME_OUT);
-            command.add("-Dsun.net.client.defaultReadTimeout=" + NetworkUtils.TIME_OUT);
-            command.add("-Djava.net.useSystemProxies=true");
-            command.add("-cp");
-
             List<String> classpath = new ArrayList<>(processor.getClasspath().size() + 1);
             for (Artifact artifact : processor.getClasspath()) {
                 Path file = gameRepository.getArtifactFile(version, artifact);
@@ -144,9 +150,6 @@ public class ForgeNewInstallTask extends Task<Version> {
                 classpath.add(file.toString());
             }
             classpath.add(jar.toString());
-            command.add(String.join(File.pathSeparator, classpath));
-
-            command.add(mainClass);
 
             List<String> args = new ArrayList<>(processor.getArgs().size());
             for (String arg : processor.getArgs()) {
@@ -156,6 +159,43 @@ public class ForgeNewInstallTask extends Task<Version> {
                 args.add(parsed);
             }
 
+            ForgeProcessorCache.Key cacheKey = processorCache.getKey(classpath, mainClass, args, outputs.keySet());
+            if (cacheKey != null && processorCache.restore(cacheKey, args)) {
+                try {
+                    verifyOutputs(outputs);
+                    LOG.info("Restored outputs of processor " + processor.getJar() + " from cache, key " + cacheKey.key());
+                    return;
+                } catch (IOException e) {
+                    LOG.warning("Cached outputs of processor " + processor.getJar() + " are invalid", e);
+                }
+            }
+
+            run(classpath, mainClass, args, outputs);
+
+            processorCache.storeDeclared(outputs);
+            if (cacheKey != null)
+                processorCache.store(cacheKey, args);
+        }
+
+        private void run(List<String> classpath, String mainClass, List<String> args, Map<String, String> outputs) throws Exception {
+            LOG.info("Executing processor " + processor.getJar().toString() + ", arguments: " + new CommandBuilder().addAll(args).toString());
+            if (ForgeProcessorRunner.run(classpath, mainClass, args, PROCESS_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                try {
+                    verifyOutputs(outputs);
+                    return;
+                } catch (IOException e) {
+                    LOG.warning("Processor " + processor.getJar().toString() + " produced invalid outputs in the worker", e);
+                }
+            }
+
+            List<String> command = new ArrayList<>();
+            command.add(JavaRuntime.getDefault().getBinary().toString());
+            command.add("-Dsun.net.client.defaultConnectTimeout=" + NetworkUtils.TIME_OUT);
+            command.add("-Dsun.net.client.defaultReadTimeout=" + NetworkUtils.TIME_OUT);
+            command.add("-Djava.net.useSystemProxies=true");
+            command.add("-cp");
+            command.add(String.join(File.pathSeparator, classpath));
+            command.add(mainClass);
             command.addAll(args);
 
             LOG.info("Executing external processor " + processor.getJar().toString() + ", command line: " + new CommandBuilder().addAll(command).toString());
@@ -163,6 +203,10 @@ public class ForgeNewInstallTask extends Task<Version> {
             if (exitCode != 0)
                 throw new IOException("Game processor exited abnormally with code " + exitCode);
 
+            verifyOutputs(outputs);
+        }
+
+        private void verifyOutputs(Map<String, String> outputs) throws IOException {
             for (Map.Entry<String, String> entry : outputs.entrySet()) {
                 Path artifact = Paths.get(entry.getKey());
                 if (!Files.isRegularFile(artifact))
@@ -363,6 +407,78 @@ public class ForgeNewInstallTask extends Task<Version> {
                 });
     }
 
+    /// Returns the files that the processor may read or write, or null if they are unknown.
+    ///
+    /// The files that no processor writes, namely the installer, the Minecraft jar, and the files extracted from the installer,
+    /// are left out, so that the processors reading them can run concurrently.
+    private Set<Path> getProcessorFiles(Processor processor, Map<String, String> vars) {
+        Set<Path> readOnly = new HashSet<>();
+        readOnly.add(Path.of(vars.get("INSTALLER")).normalize());
+        readOnly.add(Path.of(vars.get("MINECRAFT_JAR")).normalize());
+        Path extracted = tempDir.toAbsolutePath().normalize();
+
+        Set<Path> files = new HashSet<>();
+        List<String> literals = new ArrayList<>(processor.getArgs());
+        literals.addAll(processor.getOutputs().keySet());
+        for (String literal : literals) {
+            String value;
+            try {
+                value = parseLiteral(literal, vars);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (value == null)
+                return null;
+
+            Path path;
+            try {
+                path = Path.of(value);
+            } catch (InvalidPathException e) {
+                continue;
+            }
+            if (!path.isAbsolute())
+                continue;
+
+            path = path.normalize();
+            if (!readOnly.contains(path) && !path.startsWith(extracted))
+                files.add(path);
+        }
+        return files.isEmpty() ? null : files;
+    }
+
+    /// Groups the processors into stages that run one after another, where the processors in a stage run concurrently.
+    ///
+    /// A processor is placed after every earlier processor that uses any of its files,
+    /// so processors that depend on each other keep their order.
+    ///
+    /// @param getFiles returns the files that the processor may read or write, or null if they are unknown
+    static List<List<Processor>> planProcessorStages(List<Processor> processors, Function<Processor, Set<Path>> getFiles) {
+        List<List<Processor>> stages = new ArrayList<>();
+        List<Set<Path>> files = new ArrayList<>(processors.size());
+        int[] stageOf = new int[processors.size()];
+
+        for (int i = 0; i < processors.size(); i++) {
+            Set<Path> current = getFiles.apply(processors.get(i));
+            files.add(current);
+
+            int stage = 0;
+            for (int j = 0; j < i; j++) {
+                Set<Path> previous = files.get(j);
+                if (current == null || previous == null || !Collections.disjoint(current, previous))
+                    stage = Math.max(stage, stageOf[j] + 1);
+            }
+            stageOf[i] = stage;
+
+            if (stage == stages.size())
+                stages.add(new ArrayList<>());
+            stages.get(stage).add(processors.get(i));
+        }
+
+        if (stages.size() < processors.size())
+            LOG.info("Running " + processors.size() + " processors in " + stages.size() + " stages");
+        return stages;
+    }
+
     private Task<?> createProcessorTask(Processor processor, Map<String, String> vars) {
         Task<?> task = patchDownloadMojangMappingsTask(processor, vars);
         if (task == null) {
@@ -406,8 +522,10 @@ public class ForgeNewInstallTask extends Task<Version> {
         updateProgress(0, processors.size());
 
         Task<?> processorsTask = Task.runSequentially(
-                processors.stream()
-                        .map(processor -> createProcessorTask(processor, vars))
+                planProcessorStages(processors, processor -> getProcessorFiles(processor, vars)).stream()
+                        .map(stage -> stage.size() == 1
+                                ? createProcessorTask(stage.get(0), vars)
+                                : Task.allOf(stage.stream().map(processor -> createProcessorTask(processor, vars)).toList()))
                         .toArray(Task<?>[]::new));
 
         dependencies.add(
@@ -0,0 +1,242 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download.forge;
+
+import org.jackhuang.hmcl.util.CacheRepository;
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.jackhuang.hmcl.util.gson.JsonUtils;
+import org.jackhuang.hmcl.util.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/// Remembers the outputs of Forge installer processors, so that a processor run with the same inputs is skipped.
+///
+/// A run is identified by a key computed from the processor jar and its classpath, the main class, and the arguments,
+/// where the files read by the processor are replaced by the hashes of their content and the files written by it
+/// by placeholders. So the key does not depend on where the game directory is. The outputs themselves are kept in
+/// the content store of the cache repository, and the entry of a key only lists their hashes.
+///
+/// An argument is taken as an input if it is an existing file, and as an output if it is a declared output or an
+/// absolute path that does not exist yet. Runs with directories in their arguments are not remembered.
+///
+/// Restored outputs are always copied out of the content store, as later processors may patch them in place.
+final class ForgeProcessorCache {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String ALGORITHM = "SHA-1";
+
+    /// The digests of the files hashed in this session, which are reused while the size and modification time
+    /// of the file are unchanged, since most processors of an installation share the same libraries and inputs.
+    private static final Map<Path, Digest> DIGESTS = new ConcurrentHashMap<>();
+
+    private final CacheRepository repository;
+
+    ForgeProcessorCache(CacheRepository repository) {
+        this.repository = repository;
+    }
+
+    private Path getEntryFile(String key) {
+        return repository.getCacheDirectory().resolve("forge_processors").resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+
+    private static String digest(Path file) throws IOException {
+        file = file.toAbsolutePath().normalize();
+        CacheRepository.FileFingerprint fingerprint = CacheRepository.FileFingerprint.of(file);
+        Digest digest = DIGESTS.get(file);
+        if (digest != null && digest.fingerprint().equals(fingerprint))
+            return digest.sha1();
+
+        String sha1 = DigestUtils.digestToString(ALGORITHM, file);
+        // The file may have been changed while it was hashed
+        if (fingerprint.equals(CacheRepository.FileFingerprint.of(file)))
+            DIGESTS.put(file, new Digest(fingerprint, sha1));
+        return sha1;
+    }
+
+    private static @Nullable Path toAbsolutePath(String arg) {
+        try {
+            Path path = Path.of(arg);
+            return path.isAbsolute() ? path.normalize() : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /// Computes the key of the run, and finds its outputs among the arguments.
+    ///
+    /// @param declaredOutputs the declared outputs of the processor, which must not exist
+    /// @return the key, or null if the run cannot be remembered
+    @Nullable Key getKey(List<String> classpath, String mainClass, List<String> args, Set<String> declaredOutputs) throws IOException {
+        if (repository.getCacheDirectory() == null)
+            return null;
+
+        Set<Path> declared = new HashSet<>();
+        for (String output : declaredOutputs) {
+            Path path = toAbsolutePath(output);
+            if (path == null)
+                return null;
+            declared.add(path);
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(FORMAT_VERSION).append('\n').append(mainClass).append('\n');
+        for (String entry : classpath) {
+            builder.append("classpath:").append(digest(Path.of(entry))).append('\n');
+        }
+
+        List<Integer> outputs = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            Path path = toAbsolutePath(arg);
+            if (path == null) {
+                builder.append("arg:").append(arg);
+            } else if (declared.remove(path) || !Files.exists(path)) {
+                builder.append("output");
+                outputs.add(i);
+            } else if (Files.isRegularFile(path)) {
+                builder.append("input:").append(digest(path));
+            } else {
+                return null;
+            }
+            builder.append('\n');
+        }
+
+        // Outputs that are not passed in the arguments cannot be restored
+        if (!declared.isEmpty() || outputs.isEmpty())
+            return null;
+
+        String key = DigestUtils.digestToString(ALGORITHM, builder.toString().getBytes(StandardCharsets.UTF_8));
+        return new Key(key, outputs);
+    }
+
+    /// Restores the outputs of the run from the cache.
+    ///
+    /// @return whether all the outputs have been restored
+    boolean restore(Key key, List<String> args) {
+        Path entryFile = getEntryFile(key.key());
+        if (!Files.isRegularFile(entryFile))
+            return false;
+
+        try {
+            Entry entry = JsonUtils.fromJsonFile(entryFile, Entry.class);
+            if (entry == null || entry.outputs() == null)
+                return false;
+
+            Map<Path, Path> files = new LinkedHashMap<>();
+            for (Output output : entry.outputs()) {
+                if (output.arg() < 0 || output.arg() >= args.size() || output.sha1() == null)
+                    return false;
+                Optional<Path> cached = repository.checkExistentFile(null, ALGORITHM, output.sha1());
+                if (cached.isEmpty())
+                    return false;
+                files.put(Path.of(args.get(output.arg())), cached.get());
+            }
+
+            for (Map.Entry<Path, Path> file : files.entrySet()) {
+                FileUtils.copyFile(file.getValue(), file.getKey().toAbsolutePath());
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOG.warning("Unable to restore processor outputs from " + entryFile, e);
+            return false;
+        }
+    }
+
+    /// Restores the declared outputs of a processor from the content store by their expected hashes.
+    ///
+    /// @param outputs the paths of the declared outputs and their SHA-1 checksums
+    /// @return whether all the outputs have been restored
+    boolean restoreDeclared(Map<String, String> outputs) {
+        if (outputs.isEmpty() || repository.getCacheDirectory() == null)
+            return false;
+
+        Map<Path, Path> files = new LinkedHashMap<>();
+        for (Map.Entry<String, String> output : outputs.entrySet()) {
+            Optional<Path> cached = repository.checkExistentFile(null, ALGORITHM, output.getValue().toLowerCase(Locale.ROOT));
+            if (cached.isEmpty())
+                return false;
+            files.put(Path.of(output.getKey()), cached.get());
+        }
+
+        try {
+            for (Map.Entry<Path, Path> file : files.entrySet()) {
+                FileUtils.copyFile(file.getValue(), file.getKey().toAbsolutePath());
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.warning("Unable to restore processor outputs", e);
+            return false;
+        }
+    }
+
+    /// Adds the declared outputs of a processor to the content store, after they have been verified.
+    void storeDeclared(Map<String, String> outputs) {
+        for (Map.Entry<String, String> output : outputs.entrySet()) {
+            try {
+                repository.tryCacheFile(Path.of(output.getKey()), ALGORITHM, output.getValue().toLowerCase(Locale.ROOT));
+            } catch (IOException e) {
+                LOG.warning("Unable to cache processor output " + output.getKey(), e);
+            }
+        }
+    }
+
+    /// Remembers the outputs of the run, after it has finished successfully.
+    void store(Key key, List<String> args) {
+        try {
+            List<Output> outputs = new ArrayList<>();
+            for (int arg : key.outputs()) {
+                Path file = Path.of(args.get(arg));
+                // Some processors only write some of the outputs they are given
+                if (!Files.isRegularFile(file))
+                    continue;
+
+                String sha1 = DigestUtils.digestToString(ALGORITHM, file);
+                repository.tryCacheFile(file, ALGORITHM, sha1);
+                outputs.add(new Output(arg, sha1));
+            }
+
+            Path entryFile = getEntryFile(key.key());
+            Files.createDirectories(entryFile.getParent());
+            FileUtils.saveSafely(entryFile, JsonUtils.UGLY_GSON.toJson(new Entry(outputs)));
+        } catch (IOException | RuntimeException e) {
+            LOG.warning("Unable to cache processor outputs", e);
+        }
+    }
+
+    /// @param outputs the indices of the arguments that are outputs
+    record Key(String key, List<Integer> outputs) {
+    }
+
+    private record Entry(List<Output> outputs) {
+    }
+
+    private record Output(int arg, String sha1) {
+    }
+
+    private record Digest(CacheRepository.FileFingerprint fingerprint, String sha1) {
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download.forge;
+
+import org.jackhuang.hmcl.java.JavaRuntime;
+import org.jackhuang.hmcl.util.Lang;
+import org.jackhuang.hmcl.util.io.NetworkUtils;
+import org.jackhuang.hmcl.util.platform.ManagedProcess;
+import org.jackhuang.hmcl.util.platform.SystemUtils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/// Runs the processors of Forge installers in a long-lived worker JVM, see [ForgeProcessorWorker].
+///
+/// This saves the startup and the JIT warm-up of a JVM for each processor. Any failure in the worker, including the
+/// worker exiting, is reported as `false`, so that the caller can run the processor in an external process instead.
+///
+/// The worker is started when it is first needed, and stopped after it has been idle for a while.
+/// Set `hmcl.installer.in_process` to `false` to always use external processes.
+final class ForgeProcessorRunner {
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("hmcl.installer.in_process"));
+    private static final long IDLE_TIMEOUT_SECONDS = 60;
+
+    private static Worker worker;
+    private static boolean unavailable;
+
+    private ForgeProcessorRunner() {
+    }
+
+    /// Runs the processor in the worker.
+    ///
+    /// @return whether the processor has finished successfully, false if it should be run in an external process
+    static boolean run(List<String> classpath, String mainClass, List<String> args, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!ENABLED)
+            return false;
+
+        Worker worker = getWorker();
+        if (worker == null)
+            return false;
+
+        CompletableFuture<Result> future;
+        try {
+            future = worker.submit(classpath, mainClass, args);
+        } catch (IOException e) {
+            LOG.warning("Unable to send processor " + mainClass + " to the worker", e);
+            worker.kill();
+            return false;
+        }
+
+        try {
+            Result result = future.get(timeout, unit);
+            if (result.status() == ForgeProcessorWorker.STATUS_SUCCESS)
+                return true;
+
+            if (result.status() == ForgeProcessorWorker.STATUS_EXITED)
+                LOG.warning("Processor " + mainClass + " exited with code " + result.message() + " in the worker");
+            else
+                LOG.warning("Processor " + mainClass + " failed in the worker: " + result.message());
+            return false;
+        } catch (ExecutionException e) {
+            LOG.warning("Processor worker stopped while running " + mainClass, e.getCause());
+            return false;
+        } catch (TimeoutException e) {
+            // The processor cannot be stopped alone, so the whole worker is stopped
+            LOG.warning("Processor " + mainClass + " timed out in the worker");
+            worker.kill();
+            return false;
+        } catch (InterruptedException e) {
+            worker.kill();
+            throw e;
+        }
+    }
+
+    private static synchronized Worker getWorker() {
+        if (worker != null && !worker.dead)
+            return worker;
+        if (unavailable)
+            return null;
+
+        try {
+            worker = new Worker();
+            return worker;
+        } catch (IOException e) {
+            LOG.warning("Unable to start processor worker, processors will be run in external processes", e);
+            unavailable = true;
+            worker = null;
+            return null;
+        }
+    }
+
+    private static Path getWorkerClasspath() throws IOException {
+        CodeSource codeSource = ForgeProcessorWorker.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null)
+            throw new IOException("Unable to locate " + ForgeProcessorWorker.class.getName());
+
+        try {
+            Path path = Path.of(codeSource.getLocation().toURI());
+            if (!Files.exists(path))
+                throw new IOException("Unable to locate " + ForgeProcessorWorker.class.getName() + ": " + path);
+            return path;
+        } catch (Exception e) {
+            throw new IOException("Unable to locate " + ForgeProcessorWorker.class.getName(), e);
+        }
+    }
+
+    private record Result(int status, String message) {
+    }
+
+    private static final class Worker {
+        private final Process process;
+        private final DataOutputStream output;
+        private final Map<Integer, CompletableFuture<Result>> pending = new ConcurrentHashMap<>();
+        private final AtomicInteger nextId = new AtomicInteger();
+        private volatile boolean dead;
+        private volatile long idleSince = System.nanoTime();
+
+        Worker() throws IOException {
+            List<String> command = new ArrayList<>();
+            JavaRuntime java = JavaRuntime.getDefault();
+            command.add(java.getBinary().toString());
+            command.add("-Dsun.net.client.defaultConnectTimeout=" + NetworkUtils.TIME_OUT);
+            command.add("-Dsun.net.client.defaultReadTimeout=" + NetworkUtils.TIME_OUT);
+            command.add("-Djava.net.useSystemProxies=true");
+            // The worker intercepts System.exit with a security manager, which can no longer be enabled since Java 24
+            if (java.getParsedVersion() < 24)
+                command.add("-Djava.security.manager=allow");
+            command.add("-cp");
+            command.add(getWorkerClasspath().toString());
+            command.add(ForgeProcessorWorker.class.getName());
+
+            ManagedProcess managedProcess = new ManagedProcess(new ProcessBuilder(command));
+            managedProcess.pumpErrorStream(SystemUtils::onLogLine);
+            this.process = managedProcess.getProcess();
+            this.output = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+
+            DataInputStream input = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            boolean exitIntercepted;
+            try {
+                exitIntercepted = input.readBoolean();
+            } catch (IOException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            LOG.info("Started processor worker" + (exitIntercepted ? "" : ", System.exit of processors is not intercepted"));
+
+            Lang.thread(() -> readResults(input), "ForgeProcessorWorker", true);
+        }
+
+        CompletableFuture<Result> submit(List<String> classpath, String mainClass, List<String> args) throws IOException {
+            int id = nextId.incrementAndGet();
+            CompletableFuture<Result> future = new CompletableFuture<>();
+            pending.put(id, future);
+
+            synchronized (output) {
+                output.writeInt(id);
+                output.writeUTF(mainClass);
+                output.writeInt(classpath.size());
+                for (String entry : classpath)
+                    output.writeUTF(entry);
+                output.writeInt(args.size());
+                for (String arg : args)
+                    output.writeUTF(arg);
+                output.flush();
+            }
+
+            if (dead && pending.remove(id) != null)
+                future.completeExceptionally(new IOException("Processor worker has stopped"));
+            return future;
+        }
+
+        private void readResults(DataInputStream input) {
+            try {
+                while (true) {
+                    int id = input.readInt();
+                    int status = input.readInt();
+                    String message = input.readUTF();
+
+                    CompletableFuture<Result> future = pending.remove(id);
+                    if (future != null)
+                        future.complete(new Result(status, message));
+
+                    if (pending.isEmpty()) {
+                        idleSince = System.nanoTime();
+                        CompletableFuture.runAsync(this::stopIfIdle,
+                                CompletableFuture.delayedExecutor(IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                    }
+                }
+            } catch (IOException e) {
+                stopped();
+            }
+        }
+
+        private void stopIfIdle() {
+            synchronized (ForgeProcessorRunner.class) {
+                if (dead || !pending.isEmpty()
+                        || System.nanoTime() - idleSince < TimeUnit.SECONDS.toNanos(IDLE_TIMEOUT_SECONDS))
+                    return;
+                if (worker == this)
+                    worker = null;
+            }
+
+            // The worker exits when its standard input is closed
+            try {
+                synchronized (output) {
+                    output.close();
+                }
+            } catch (IOException e) {
+                kill();
+            }
+        }
+
+        void kill() {
+            process.destroyForcibly();
+            stopped();
+        }
+
+        private void stopped() {
+            dead = true;
+            synchronized (ForgeProcessorRunner.class) {
+                if (worker == this)
+                    worker = null;
+            }
+
+            IOException exception = new IOException("Processor worker has stopped");
+            pending.values().removeIf(future -> {
+                future.completeExceptionally(exception);
+                return true;
+            });
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download.forge;
+
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+
+/// The main class of the worker JVM that runs the processors of Forge installers, started by [ForgeProcessorRunner].
+///
+/// The worker reads requests from the standard input, runs each of them on its own thread with the processor in an
+/// isolated class loader, and writes the results to the standard output. The output of the processors is redirected
+/// to the standard error. The worker exits when the standard input is closed.
+///
+/// A processor calling `System.exit` is reported as finished with the exit code, as long as a security manager can be
+/// installed (Java 23 or earlier). Otherwise the worker exits, and the launcher runs the processors that were running
+/// in it again in external processes.
+///
+/// This class runs outside the launcher, so it must only depend on the Java SE API.
+public final class ForgeProcessorWorker {
+
+    static final int STATUS_SUCCESS = 0;
+    /// The processor threw an exception or could not be started, the message describes it.
+    static final int STATUS_FAILED = -1;
+    /// The processor called `System.exit` with a non-zero status, the message is the status.
+    static final int STATUS_EXITED = -2;
+
+    /// Whether the current thread belongs to a processor, including the threads started by processors.
+    private static final InheritableThreadLocal<Boolean> PROCESSOR_THREAD = new InheritableThreadLocal<>() {
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+    };
+
+    private ForgeProcessorWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(System.err);
+
+        boolean exitIntercepted = interceptExit();
+        synchronized (output) {
+            output.writeBoolean(exitIntercepted);
+            output.flush();
+        }
+
+        while (true) {
+            int id;
+            try {
+                id = input.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+
+            String mainClass = input.readUTF();
+            URL[] classpath = new URL[input.readInt()];
+            for (int i = 0; i < classpath.length; i++)
+                classpath[i] = Path.of(input.readUTF()).toUri().toURL();
+            String[] processorArgs = new String[input.readInt()];
+            for (int i = 0; i < processorArgs.length; i++)
+                processorArgs[i] = input.readUTF();
+
+            Thread thread = new Thread(() -> {
+                PROCESSOR_THREAD.set(true);
+                int status;
+                String message;
+                try {
+                    run(classpath, mainClass, processorArgs);
+                    status = STATUS_SUCCESS;
+                    message = "";
+                } catch (ExitException e) {
+                    status = e.status == 0 ? STATUS_SUCCESS : STATUS_EXITED;
+                    message = String.valueOf(e.status);
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                    status = STATUS_FAILED;
+                    message = e.toString();
+                }
+
+                synchronized (output) {
+                    try {
+                        output.writeInt(id);
+                        output.writeInt(status);
+                        output.writeUTF(message.length() > 8192 ? message.substring(0, 8192) : message);
+                        output.flush();
+                    } catch (IOException e) {
+                        Runtime.getRuntime().halt(1);
+                    }
+                }
+            }, "Processor-" + id);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        Runtime.getRuntime().halt(0);
+    }
+
+    private static void run(URL[] classpath, String mainClass, String[] args) throws Throwable {
+        Thread thread = Thread.currentThread();
+        try (URLClassLoader classLoader = new URLClassLoader(classpath, ClassLoader.getPlatformClassLoader())) {
+            thread.setContextClassLoader(classLoader);
+
+            Method main = Class.forName(mainClass, true, classLoader).getMethod("main", String[].class);
+            if (!Modifier.isStatic(main.getModifiers()))
+                throw new NoSuchMethodException(mainClass + ".main is not static");
+            main.invoke(null, (Object) args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            throw cause != null ? cause : e;
+        } finally {
+            thread.setContextClassLoader(null);
+        }
+    }
+
+    @SuppressWarnings("removal")
+    private static boolean interceptExit() {
+        try {
+            System.setSecurityManager(new SecurityManager() {
+                @Override
+                public void checkExit(int status) {
+                    if (PROCESSOR_THREAD.get())
+                        throw new ExitException(status);
+                }
+
+                @Override
+                public void checkPermission(java.security.Permission perm) {
+                }
+
+                @Override
+                public void checkPermission(java.security.Permission perm, Object context) {
+                }
+            });
+            return true;
+        } catch (UnsupportedOperationException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static final class ExitException extends SecurityException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ExitException(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download.game;
+
+import com.google.gson.reflect.TypeToken;
+import org.jackhuang.hmcl.util.gson.JsonUtils;
+import org.jackhuang.hmcl.util.io.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/// Remembers asset objects whose SHA-1 has already been verified.
+///
+/// Asset objects are content-addressed, so an object whose size and modification time
+/// have not changed since the last successful verification does not need to be hashed again.
+final class AssetVerificationLedger {
+
+    private static final TypeToken<Map<String, Entry>> TYPE = JsonUtils.mapTypeOf(String.class, Entry.class);
+
+    private final Path ledgerFile;
+    private final Path baseDirectory;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty = false;
+
+    AssetVerificationLedger(Path assetDirectory) {
+        this.baseDirectory = assetDirectory;
+        this.ledgerFile = assetDirectory.resolve("indexes").resolve("verified.json");
+
+        if (Files.isRegularFile(ledgerFile)) {
+            try {
+                Map<String, Entry> map = JsonUtils.fromJsonFile(ledgerFile, TYPE);
+                if (map != null)
+                    map.forEach((key, value) -> {
+                        if (key != null && value != null)
+                            entries.put(key, value);
+                    });
+            } catch (Exception e) {
+                LOG.warning("Unable to read asset verification ledger " + ledgerFile, e);
+            }
+        }
+    }
+
+    private String keyOf(Path file) {
+        return baseDirectory.relativize(file).toString().replace('\\', '/');
+    }
+
+    /// @return whether the file is known to be valid with the current size and modification time
+    boolean isVerified(Path file, BasicFileAttributes attributes) {
+        Entry entry = entries.get(keyOf(file));
+        return entry != null
+                && entry.size == attributes.size()
+                && entry.lastModified == attributes.lastModifiedTime().toMillis();
+    }
+
+    void markVerified(Path file, BasicFileAttributes attributes) {
+        Entry newEntry = new Entry(attributes.size(), attributes.lastModifiedTime().toMillis());
+        if (!newEntry.equals(entries.put(keyOf(file), newEntry)))
+            dirty = true;
+    }
+
+    void invalidate(Path file) {
+        if (entries.remove(keyOf(file)) != null)
+            dirty = true;
+    }
+
+    void save() {
+        if (!dirty)
+            return;
+
+        try {
+            Files.createDirectories(ledgerFile.getParent());
+            FileUtils.saveSafely(ledgerFile, JsonUtils.UGLY_GSON.toJson(entries, TYPE.getType()));
+            dirty = false;
+        } catch (IOException e) {
+            LOG.warning("Unable to save asset verification ledger " + ledgerFile, e);
+        }
+    }
+
+    private record Entry(long size, long lastModified) {
+    }
+}
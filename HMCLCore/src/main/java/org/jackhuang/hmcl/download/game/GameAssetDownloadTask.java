@@ -26,15 +26,20 @@ import org.jackhuang.hmcl.game.Version;
 import org.jackhuang.hmcl.task.FileDownloadTask;
 import org.jackhuang.hmcl.task.Task;
 import org.jackhuang.hmcl.util.CacheRepository;
+import org.jackhuang.hmcl.util.Lang;
 import org.jackhuang.hmcl.util.gson.JsonUtils;
 
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.jackhuang.hmcl.util.logging.Logger.LOG;
 
@@ -88,34 +93,46 @@ public final class GameAssetDownloadTask extends Task<Void> {
             throw new GameAssetIndexDownloadTask.GameAssetIndexMalformedException();
         }
 
-        int progress = 0;
-        for (AssetObject assetObject : index.getObjects().values()) {
-            if (isCancelled())
-                throw new InterruptedException();
+        List<AssetObject> objects = new ArrayList<>(index.getObjects().values());
+        AssetVerificationLedger ledger = integrityCheck
+                ? new AssetVerificationLedger(dependencyManager.getGameRepository().getAssetDirectory(version.getId(), assetIndexInfo.getId()))
+                : null;
 
-            Path file = dependencyManager.getGameRepository().getAssetObject(version.getId(), assetIndexInfo.getId(), assetObject);
-            boolean download = !Files.isRegularFile(file);
-            try {
-                if (!download && integrityCheck && !assetObject.validateChecksum(file, true))
-                    download = true;
-            } catch (IOException e) {
-                LOG.warning("Unable to calc hash value of file " + file, e);
-            }
-            if (download) {
-                List<URI> uris = dependencyManager.getDownloadProvider().getAssetObjectCandidates(assetObject.getLocation());
-
-                var task = new FileDownloadTask(uris, file, new FileDownloadTask.IntegrityCheck("SHA-1", assetObject.getHash()));
-                task.setName(assetObject.getHash());
-                task.setCandidate(dependencyManager.getCacheRepository().getCommonDirectory()
-                        .resolve("assets").resolve("objects").resolve(assetObject.getLocation()));
-                task.setCacheRepository(dependencyManager.getCacheRepository());
-                task.setCaching(true);
-                dependencies.add(task.withCounter("hmcl.install.assets"));
-            } else {
-                dependencyManager.getCacheRepository().tryCacheFile(file, CacheRepository.SHA1, assetObject.getHash());
+        // Checking thousands of objects one by one is dominated by file system latency,
+        // so the checks are spread over a bounded pool, while the results are consumed in index order.
+        ExecutorService executor = Executors.newFixedThreadPool(VERIFIER_THREADS, Lang.counterThreadFactory("AssetVerifier", true));
+        try {
+            List<Future<Boolean>> results = new ArrayList<>(objects.size());
+            for (AssetObject assetObject : objects) {
+                Path file = dependencyManager.getGameRepository().getAssetObject(version.getId(), assetIndexInfo.getId(), assetObject);
+                results.add(executor.submit(() -> !isCancelled() && checkAssetObject(assetObject, file, ledger)));
             }
 
-            updateProgress(++progress, index.getObjects().size());
+            int progress = 0;
+            for (int i = 0; i < objects.size(); i++) {
+                if (isCancelled())
+                    throw new InterruptedException();
+
+                if (results.get(i).get()) {
+                    AssetObject assetObject = objects.get(i);
+                    Path file = dependencyManager.getGameRepository().getAssetObject(version.getId(), assetIndexInfo.getId(), assetObject);
+                    List<URI> uris = dependencyManager.getDownloadProvider().getAssetObjectCandidates(assetObject.getLocation());
+
+                    var task = new FileDownloadTask(uris, file, new FileDownloadTask.IntegrityCheck("SHA-1", assetObject.getHash()));
+                    task.setName(assetObject.getHash());
+                    task.setCandidate(dependencyManager.getCacheRepository().getCommonDirectory()
+                            .resolve("assets").resolve("objects").resolve(assetObject.getLocation()));
+                    task.setCacheRepository(dependencyManager.getCacheRepository());
+                    task.setCaching(true);
+                    dependencies.add(task.withCounter("hmcl.install.assets"));
+                }
+
+                updateProgress(++progress, objects.size());
+            }
+        } finally {
+            executor.shutdownNow();
+            if (ledger != null)
+                ledger.save();
         }
 
         if (!dependencies.isEmpty()) {
@@ -124,6 +141,44 @@ public final class GameAssetDownloadTask extends Task<Void> {
         }
     }
 
+    /**
+     * Check whether the asset object should be downloaded.
+     * This method is called concurrently from the verifier threads.
+     *
+     * @return true if the asset object is missing or corrupted
+     */
+    private boolean checkAssetObject(AssetObject assetObject, Path file, AssetVerificationLedger ledger) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return true;
+        }
+        if (!attributes.isRegularFile())
+            return true;
+
+        if (ledger != null && !ledger.isVerified(file, attributes)) {
+            try {
+                if (!assetObject.validateChecksum(file, true)) {
+                    ledger.invalidate(file);
+                    return true;
+                }
+                ledger.markVerified(file, attributes);
+            } catch (IOException e) {
+                LOG.warning("Unable to calc hash value of file " + file, e);
+            }
+        }
+
+        try {
+            dependencyManager.getCacheRepository().tryCacheFile(file, CacheRepository.SHA1, assetObject.getHash());
+        } catch (IOException e) {
+            LOG.warning("Unable to cache asset object " + file, e);
+        }
+        return false;
+    }
+
+    private static final int VERIFIER_THREADS = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+
     public static final boolean DOWNLOAD_INDEX_FORCIBLY = true;
     public static final boolean DOWNLOAD_INDEX_IF_NECESSARY = false;
 }
@@ -104,7 +104,7 @@ public class LibraryDownloadTask extends Task<Void> {
         Optional<Path> libPath = cacheRepository.getLibrary(originalLibrary);
         if (libPath.isPresent()) {
             try {
-                FileUtils.copyFile(libPath.get(), jar);
+                cacheRepository.materialize(libPath.get(), jar);
                 cached = true;
                 return;
             } catch (IOException e) {
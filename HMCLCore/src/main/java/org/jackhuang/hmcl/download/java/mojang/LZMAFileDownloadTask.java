@@ -0,0 +1,262 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download.java.mojang;
+
+import org.jackhuang.hmcl.download.ArtifactMalformedException;
+import org.jackhuang.hmcl.task.FetchTask;
+import org.jackhuang.hmcl.task.Schedulers;
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.jackhuang.hmcl.util.io.ChecksumMismatchException;
+import org.jackhuang.hmcl.util.io.IOUtils;
+import org.jetbrains.annotations.Nullable;
+import org.tukaani.xz.LZMAInputStream;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/// Downloads an LZMA compressed file and decompresses it while it is being downloaded.
+///
+/// The compressed content is verified as it arrives and never written to disk, the decompressed content is written to
+/// a temporary file next to the destination, which replaces the destination only when both checks pass.
+final class LZMAFileDownloadTask extends FetchTask<Void> {
+
+    private final Path file;
+    private final String sha1;
+    private final @Nullable String decompressedSha1;
+
+    /// @param sha1             the SHA-1 checksum of the compressed content
+    /// @param decompressedSha1 the SHA-1 checksum of the decompressed content, or null if it is not to be checked
+    LZMAFileDownloadTask(List<URI> uris, Path file, String sha1, @Nullable String decompressedSha1) {
+        super(uris);
+        this.file = file;
+        this.sha1 = sha1;
+        this.decompressedSha1 = decompressedSha1;
+
+        setName(file.getFileName().toString());
+    }
+
+    @Override
+    protected EnumCheckETag shouldCheckETag() {
+        return EnumCheckETag.NOT_CHECK_E_TAG;
+    }
+
+    @Override
+    protected void useCachedResult(Path cachedFile) throws IOException {
+        try (InputStream input = Files.newInputStream(cachedFile)) {
+            Path temp = createTempFile();
+            try {
+                String actual = decompress(input, temp);
+                complete(temp, null, actual);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private Path createTempFile() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        return Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    }
+
+    /// Decompresses the input into the file.
+    ///
+    /// @return the SHA-1 checksum of the decompressed content
+    private static String decompress(InputStream input, Path target) throws IOException {
+        MessageDigest digest = DigestUtils.getDigest("SHA-1");
+        InputStream compressed = new BufferedInputStream(input);
+        try (LZMAInputStream lzma = new LZMAInputStream(compressed);
+             OutputStream output = Files.newOutputStream(target)) {
+            byte[] buffer = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
+            int n;
+            while ((n = lzma.read(buffer)) >= 0) {
+                digest.update(buffer, 0, n);
+                output.write(buffer, 0, n);
+            }
+
+            // Consume anything after the end marker, so that the downloader is never blocked
+            compressed.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /// Verifies the checksums, and moves the decompressed file to its destination.
+    ///
+    /// @param actualSha1 the SHA-1 checksum of the compressed content, or null if it has been verified
+    private void complete(Path temp, @Nullable String actualSha1, String actualDecompressedSha1) throws IOException {
+        if (actualSha1 != null && !sha1.equalsIgnoreCase(actualSha1))
+            throw new ChecksumMismatchException("SHA-1", sha1, actualSha1);
+        if (decompressedSha1 != null && !decompressedSha1.equalsIgnoreCase(actualDecompressedSha1))
+            throw new ChecksumMismatchException("SHA-1", decompressedSha1, actualDecompressedSha1);
+
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    protected Context getContext(HttpResponse<?> response, boolean checkETag, String bmclapiHash) throws IOException {
+        Path temp = createTempFile();
+        MessageDigest digest = DigestUtils.getDigest("SHA-1");
+        Pipe pipe = new Pipe();
+        Future<String> decompressor;
+        try {
+            decompressor = Schedulers.io().submit(() -> decompress(pipe, temp));
+        } catch (RejectedExecutionException e) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Unable to decompress " + file, e);
+        }
+
+        return new Context() {
+            @Override
+            public void write(byte[] buffer, int offset, int len) throws IOException {
+                digest.update(buffer, offset, len);
+                pipe.send(Arrays.copyOfRange(buffer, offset, offset + len), decompressor);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    if (!isSuccess()) {
+                        pipe.abort();
+                        try {
+                            decompressor.get();
+                        } catch (ExecutionException | CancellationException ignored) {
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return;
+                    }
+
+                    pipe.finish(decompressor);
+                    String actualSha1 = HexFormat.of().formatHex(digest.digest());
+                    String actualDecompressedSha1;
+                    try {
+                        actualDecompressedSha1 = decompressor.get();
+                    } catch (ExecutionException e) {
+                        // A corrupted download is reported as a checksum mismatch, which is retried
+                        if (!sha1.equalsIgnoreCase(actualSha1))
+                            throw new ChecksumMismatchException("SHA-1", sha1, actualSha1);
+                        throw new ArtifactMalformedException("File " + file + " is malformed", e.getCause());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+
+                    complete(temp, actualSha1, actualDecompressedSha1);
+                } finally {
+                    try {
+                        Files.deleteIfExists(temp);
+                    } catch (IOException e) {
+                        LOG.warning("Failed to delete temporary file: " + temp, e);
+                    }
+                }
+            }
+        };
+    }
+
+    /// Passes the downloaded chunks from the downloading thread to the decompressing thread.
+    private static final class Pipe extends InputStream {
+        private static final int CAPACITY = 16;
+
+        private static final byte[] END = new byte[0];
+        private static final byte[] ABORTED = new byte[0];
+
+        private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(CAPACITY);
+        private byte[] current;
+        private int position;
+        private boolean ended;
+
+        private void put(byte[] chunk, Future<?> consumer) throws IOException {
+            try {
+                while (!queue.offer(chunk, 1, TimeUnit.SECONDS)) {
+                    if (consumer.isDone())
+                        throw new IOException("Decompression stopped before the download is finished");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        void send(byte[] chunk, Future<?> consumer) throws IOException {
+            if (consumer.isDone())
+                throw new IOException("Decompression stopped before the download is finished");
+            put(chunk, consumer);
+        }
+
+        void finish(Future<?> consumer) throws IOException {
+            if (!consumer.isDone())
+                put(END, consumer);
+        }
+
+        /// Makes the consumer fail as soon as possible. Only called by the producer.
+        void abort() {
+            queue.clear();
+            queue.offer(ABORTED);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+
+            while (current == null || position == current.length) {
+                if (ended)
+                    return -1;
+
+                byte[] next;
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+
+                if (next == ABORTED)
+                    throw new IOException("Download aborted");
+                if (next == END) {
+                    ended = true;
+                    return -1;
+                }
+                current = next;
+                position = 0;
+            }
+
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
@@ -17,7 +17,6 @@
  */
 package org.jackhuang.hmcl.download.java.mojang;
 
-import org.jackhuang.hmcl.download.ArtifactMalformedException;
 import org.jackhuang.hmcl.download.DownloadProvider;
 import org.jackhuang.hmcl.game.DownloadInfo;
 import org.jackhuang.hmcl.game.GameJavaVersion;
@@ -29,13 +28,11 @@ import org.jackhuang.hmcl.util.gson.JsonUtils;
 import org.jackhuang.hmcl.util.io.ChecksumMismatchException;
 import org.jackhuang.hmcl.util.io.FileUtils;
 import org.jackhuang.hmcl.util.platform.UnsupportedPlatformException;
-import org.tukaani.xz.LZMAInputStream;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 
@@ -101,28 +98,15 @@ public final class MojangJavaDownloadTask extends Task<MojangJavaDownloadTask.Re
 
                 if (file.getDownloads().containsKey("lzma")) {
                     DownloadInfo download = file.getDownloads().get("lzma");
-                    Path tempFile = target.resolve(entry.getKey() + ".lzma");
-                    var task = new FileDownloadTask(downloadProvider.injectURLWithCandidates(download.getUrl()), tempFile, new FileDownloadTask.IntegrityCheck("SHA-1", download.getSha1()));
+                    DownloadInfo raw = file.getDownloads().get("raw");
+                    var task = new LZMAFileDownloadTask(downloadProvider.injectURLWithCandidates(download.getUrl()), dest,
+                            download.getSha1(), raw != null ? raw.getSha1() : null);
                     task.setName(entry.getKey());
-                    dependencies.add(task.thenRunAsync(() -> {
-                        Path decompressed = target.resolve(entry.getKey() + ".tmp");
-                        try (LZMAInputStream input = new LZMAInputStream(Files.newInputStream(tempFile))) {
-                            Files.copy(input, decompressed, StandardCopyOption.REPLACE_EXISTING);
-                        } catch (IOException e) {
-                            throw new ArtifactMalformedException("File " + entry.getKey() + " is malformed", e);
-                        }
-
-                        try {
-                            Files.deleteIfExists(tempFile);
-                        } catch (IOException e) {
-                            LOG.warning("Failed to delete temporary file: " + tempFile, e);
-                        }
-
-                        Files.move(decompressed, dest, StandardCopyOption.REPLACE_EXISTING);
-                        if (file.isExecutable()) {
-                            FileUtils.setExecutable(dest);
-                        }
-                    }));
+                    if (file.isExecutable()) {
+                        dependencies.add(task.thenRunAsync(() -> FileUtils.setExecutable(dest)));
+                    } else {
+                        dependencies.add(task);
+                    }
                 } else if (file.getDownloads().containsKey("raw")) {
                     DownloadInfo download = file.getDownloads().get("raw");
                     var task = new FileDownloadTask(downloadProvider.injectURLWithCandidates(download.getUrl()), dest, new FileDownloadTask.IntegrityCheck("SHA-1", download.getSha1()));
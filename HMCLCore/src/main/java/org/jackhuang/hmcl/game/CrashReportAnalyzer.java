@@ -18,6 +18,7 @@
 package org.jackhuang.hmcl.game;
 
 import org.intellij.lang.annotations.Language;
+import org.jackhuang.hmcl.util.AhoCorasick;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
@@ -150,10 +151,12 @@ public final class CrashReportAnalyzer {
 
         private final Pattern pattern;
         private final String[] groupNames;
+        private final @Nullable List<String> prefixes;
 
         Rule(@Language("RegExp") String pattern, String... groupNames) {
             this.pattern = Pattern.compile(pattern);
             this.groupNames = groupNames;
+            this.prefixes = extractPrefixes(pattern);
         }
 
         public Pattern getPattern() {
@@ -209,17 +212,176 @@ public final class CrashReportAnalyzer {
         }
     }
 
+    /**
+     * Literals every match of some rule starts with, scanned for in a single pass before any rule runs.
+     */
+    private static final class Prefilter {
+        static final AhoCorasick AUTOMATON;
+
+        /**
+         * The indices of the literals of each rule in {@link #AUTOMATON}, or null if the rule must always run.
+         */
+        static final int[][] RULE_PREFIXES;
+
+        static {
+            Rule[] rules = Rule.values();
+            LinkedHashMap<String, Integer> literals = new LinkedHashMap<>();
+            RULE_PREFIXES = new int[rules.length][];
+            for (Rule rule : rules) {
+                if (rule.prefixes != null) {
+                    RULE_PREFIXES[rule.ordinal()] = rule.prefixes.stream()
+                            .mapToInt(prefix -> literals.computeIfAbsent(prefix, key -> literals.size()))
+                            .toArray();
+                }
+            }
+            AUTOMATON = new AhoCorasick(literals.keySet());
+        }
+    }
+
     public static Set<Result> analyze(String log) {
+        // Most rules do not match a given log, and running nearly a hundred regexes over a large log is slow.
+        // A match of a rule must start with one of its prefixes, so a rule is skipped if none of them occurs,
+        // and otherwise starts searching from the first occurrence, which yields the same match as searching from the beginning.
+        int[] occurrences = Prefilter.AUTOMATON.findFirstOccurrences(log);
+
         Set<Result> results = new HashSet<>();
         for (Rule rule : Rule.values()) {
+            int from = 0;
+            int[] prefixes = Prefilter.RULE_PREFIXES[rule.ordinal()];
+            if (prefixes != null) {
+                from = -1;
+                for (int prefix : prefixes) {
+                    int occurrence = occurrences[prefix];
+                    if (occurrence >= 0 && (from < 0 || occurrence < from))
+                        from = occurrence;
+                }
+                if (from < 0)
+                    continue;
+            }
+
             Matcher matcher = rule.pattern.matcher(log);
-            if (matcher.find()) {
+            if (matcher.find(from)) {
                 results.add(new Result(rule, log, matcher));
             }
         }
         return results;
     }
 
+    /**
+     * Extracts literals such that every match of the regex starts with one of them.
+     *
+     * @return the literals, or null if they cannot be determined
+     */
+    static @Nullable List<String> extractPrefixes(String regex) {
+        List<String> result = new ArrayList<>();
+        return extractAlternationPrefixes(regex, 0, regex.length(), result) ? result : null;
+    }
+
+    private static boolean extractAlternationPrefixes(String regex, int begin, int end, List<String> result) {
+        int branchBegin = begin;
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = begin; i < end; i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                if (c == ']')
+                    inClass = false;
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                if (!extractBranchPrefix(regex, branchBegin, i, result))
+                    return false;
+                branchBegin = i + 1;
+            }
+        }
+        return extractBranchPrefix(regex, branchBegin, end, result);
+    }
+
+    private static boolean extractBranchPrefix(String regex, int begin, int end, List<String> result) {
+        if (begin < end && regex.charAt(begin) == '(') {
+            int close = findClosingParenthesis(regex, begin, end);
+            if (close < 0 || close + 1 < end && isOptionalQuantifier(regex.charAt(close + 1)))
+                return false;
+
+            int contentBegin = begin + 1;
+            if (regex.startsWith("?:", contentBegin)) {
+                contentBegin += 2;
+            } else if (regex.startsWith("?<", contentBegin) && !regex.startsWith("?<=", contentBegin) && !regex.startsWith("?<!", contentBegin)) {
+                contentBegin = regex.indexOf('>', contentBegin) + 1;
+            } else if (regex.startsWith("?", contentBegin)) {
+                // Lookaround or flags
+                return false;
+            }
+            return extractAlternationPrefixes(regex, contentBegin, close, result);
+        }
+
+        StringBuilder literal = new StringBuilder();
+        int i = begin;
+        while (i < end) {
+            char c = regex.charAt(i);
+            int next;
+            if (c == '\\') {
+                if (i + 1 >= end || Character.isLetterOrDigit(regex.charAt(i + 1)))
+                    break; // Character classes, anchors and control characters
+                c = regex.charAt(i + 1);
+                next = i + 2;
+            } else if ("^$.|?*+()[]{}".indexOf(c) >= 0) {
+                break;
+            } else {
+                next = i + 1;
+            }
+
+            if (next < end) {
+                char quantifier = regex.charAt(next);
+                if (isOptionalQuantifier(quantifier))
+                    break;
+                if (quantifier == '+') {
+                    literal.append(c);
+                    break;
+                }
+            }
+
+            literal.append(c);
+            i = next;
+        }
+
+        if (literal.isEmpty())
+            return false;
+        result.add(literal.toString());
+        return true;
+    }
+
+    private static boolean isOptionalQuantifier(char c) {
+        return c == '?' || c == '*' || c == '{';
+    }
+
+    private static int findClosingParenthesis(String regex, int open, int end) {
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = open; i < end; i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                if (c == ']')
+                    inClass = false;
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     private static final Pattern CRASH_REPORT_LOCATION_PATTERN = Pattern.compile("#@!@# Game crashed! Crash report saved to: #@!@# (?<location>.*)");
 
     @Nullable
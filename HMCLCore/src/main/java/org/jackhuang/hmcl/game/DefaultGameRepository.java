@@ -37,6 +37,7 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
@@ -53,6 +54,7 @@ public class DefaultGameRepository implements GameRepository {
     private Path baseDirectory;
     protected Map<String, Version> versions;
     private final ConcurrentHashMap<Path, Optional<String>> gameVersions = new ConcurrentHashMap<>();
+    private volatile VersionMetadataIndex metadataIndex;
 
     public DefaultGameRepository(Path baseDirectory) {
         this.baseDirectory = baseDirectory;
@@ -136,14 +138,49 @@ public class DefaultGameRepository implements GameRepository {
         // this function, which is accepted because GameVersion::minecraftVersion should
         // be consistent.
         return gameVersions.computeIfAbsent(getVersionJar(version), versionJar -> {
+            VersionMetadataIndex index = getMetadataIndex();
+            BasicFileAttributes attributes = readAttributes(versionJar);
+            if (attributes != null) {
+                String cached = index.getGameVersion(versionJar, attributes.size(), attributes.lastModifiedTime().toMillis());
+                if (cached != null)
+                    return Optional.of(cached);
+            }
+
             Optional<String> gameVersion = GameVersion.minecraftVersion(versionJar);
             if (gameVersion.isEmpty()) {
                 LOG.warning("Cannot find out game version of " + version.getId() + ", primary jar: " + versionJar.toString() + ", jar exists: " + Files.exists(versionJar));
+            } else if (attributes != null) {
+                index.putGameVersion(versionJar, attributes.size(), attributes.lastModifiedTime().toMillis(), gameVersion.get());
+                index.saveLater();
             }
             return gameVersion;
         });
     }
 
+    private VersionMetadataIndex getMetadataIndex() {
+        Path versionsDir = getBaseDirectory().resolve("versions");
+        VersionMetadataIndex index = metadataIndex;
+        if (index == null || !index.getVersionsDirectory().equals(versionsDir)) {
+            synchronized (this) {
+                index = metadataIndex;
+                if (index == null || !index.getVersionsDirectory().equals(versionsDir)) {
+                    index = new VersionMetadataIndex(versionsDir);
+                    metadataIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    @Nullable
+    private static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     @Override
     public Path getNativeDirectory(String id, Platform platform) {
         return getVersionRoot(id).resolve("natives-" + platform);
@@ -291,10 +328,20 @@ public class DefaultGameRepository implements GameRepository {
 
         Path versionsDir = getBaseDirectory().resolve("versions");
         if (Files.isDirectory(versionsDir)) {
+            VersionMetadataIndex index = getMetadataIndex();
+            Set<String> ids = ConcurrentHashMap.newKeySet();
             try (Stream<Path> stream = Files.list(versionsDir)) {
                 stream.parallel().filter(Files::isDirectory).flatMap(dir -> {
                     String id = FileUtils.getName(dir);
                     Path json = dir.resolve(id + ".json");
+                    ids.add(id);
+
+                    BasicFileAttributes attributes = readAttributes(json);
+                    if (attributes != null && attributes.isRegularFile()) {
+                        Version cached = index.getVersion(id, attributes.size(), attributes.lastModifiedTime().toMillis());
+                        if (cached != null && id.equals(cached.getId()))
+                            return Stream.of(cached);
+                    }
 
                     // If user renamed the json file by mistake or created the json file in a wrong name,
                     // we will find the only json and rename it to correct name.
@@ -327,7 +374,10 @@ public class DefaultGameRepository implements GameRepository {
 
                     Version version;
                     try {
+                        attributes = readAttributes(json);
                         version = readVersionJson(json);
+                        if (attributes != null && id.equals(version.getId()))
+                            index.putVersion(id, attributes.size(), attributes.lastModifiedTime().toMillis(), version);
                     } catch (Exception e) {
                         LOG.warning("Malformed version json " + id, e);
                         // JsonSyntaxException or IOException or NullPointerException(!!)
@@ -374,6 +424,9 @@ public class DefaultGameRepository implements GameRepository {
 
                     return Stream.of(version);
                 }).forEachOrdered(provider::addVersion);
+
+                index.retainAll(ids);
+                index.save();
             } catch (IOException e) {
                 LOG.warning("Failed to load versions from " + versionsDir, e);
             }
@@ -0,0 +1,209 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.game;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import org.jackhuang.hmcl.util.gson.JsonUtils;
+import org.jackhuang.hmcl.util.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/// A persistent index of the parsed version jsons and the detected game versions of a game repository.
+///
+/// Version entries are keyed by version id and game version entries by the path of the jar relative to the versions directory.
+/// Both are only reused while the size and modification time of the file are unchanged.
+/// Versions loaded from the index are deserialized lazily, the first time they are requested.
+///
+/// This class is thread-safe.
+final class VersionMetadataIndex {
+
+    static final String FILE_NAME = "hmclversions.json";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path versionsDirectory;
+    private final Path indexFile;
+    private final Map<String, VersionEntry> versions = new ConcurrentHashMap<>();
+    private final Map<String, JarEntry> jars = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    VersionMetadataIndex(Path versionsDirectory) {
+        this.versionsDirectory = versionsDirectory;
+        this.indexFile = versionsDirectory.resolve(FILE_NAME);
+
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                IndexFile file = JsonUtils.fromJsonFile(indexFile, IndexFile.class);
+                if (file != null && file.version == FORMAT_VERSION) {
+                    if (file.versions != null)
+                        file.versions.forEach((key, value) -> {
+                            if (key != null && value != null && value.json != null)
+                                versions.put(key, value);
+                        });
+                    if (file.jars != null)
+                        file.jars.forEach((key, value) -> {
+                            if (key != null && value != null && value.gameVersion() != null)
+                                jars.put(key, value);
+                        });
+                } else {
+                    dirty.set(true);
+                }
+            } catch (Exception e) {
+                LOG.warning("Unable to read version metadata index " + indexFile, e);
+                dirty.set(true);
+            }
+        }
+    }
+
+    Path getVersionsDirectory() {
+        return versionsDirectory;
+    }
+
+    /// @return the version, or null if the version json is new or has been changed since it was indexed
+    @Nullable
+    Version getVersion(String id, long size, long lastModified) {
+        VersionEntry entry = versions.get(id);
+        if (entry == null || entry.size != size || entry.lastModified != lastModified)
+            return null;
+
+        try {
+            return entry.getVersion();
+        } catch (JsonParseException e) {
+            LOG.warning("Malformed version " + id + " in version metadata index", e);
+            if (versions.remove(id, entry))
+                dirty.set(true);
+            return null;
+        }
+    }
+
+    void putVersion(String id, long size, long lastModified, Version version) {
+        versions.put(id, new VersionEntry(size, lastModified, version));
+        dirty.set(true);
+    }
+
+    /// @return the game version, or null if the jar is new or has been changed since it was indexed
+    @Nullable
+    String getGameVersion(Path jar, long size, long lastModified) {
+        JarEntry entry = jars.get(getJarKey(jar));
+        return entry != null && entry.size() == size && entry.lastModified() == lastModified ? entry.gameVersion() : null;
+    }
+
+    void putGameVersion(Path jar, long size, long lastModified, String gameVersion) {
+        JarEntry entry = new JarEntry(size, lastModified, gameVersion);
+        if (!entry.equals(jars.put(getJarKey(jar), entry)))
+            dirty.set(true);
+    }
+
+    /// Removes the entries of the versions whose folders no longer exist.
+    void retainAll(Set<String> ids) {
+        boolean changed = versions.keySet().retainAll(ids);
+        changed |= jars.keySet().removeIf(key -> {
+            int slash = key.indexOf('/');
+            return slash < 0 || !ids.contains(key.substring(0, slash));
+        });
+        if (changed)
+            dirty.set(true);
+    }
+
+    private String getJarKey(Path jar) {
+        if (jar.startsWith(versionsDirectory))
+            return versionsDirectory.relativize(jar).toString().replace('\\', '/');
+        else
+            return jar.toAbsolutePath().normalize().toString();
+    }
+
+    /// Saves the index if it has been changed. If the index cannot be written, it stays dirty, so that the next call writes it again.
+    synchronized void save() {
+        // Cleared before taking the snapshot, so that the changes made while writing are saved next time
+        if (!dirty.getAndSet(false))
+            return;
+
+        try {
+            Map<String, VersionEntry> versionEntries = new TreeMap<>();
+            versions.forEach((id, entry) -> {
+                entry.getJson();
+                versionEntries.put(id, entry);
+            });
+            IndexFile file = new IndexFile(FORMAT_VERSION, versionEntries, new TreeMap<>(jars));
+
+            Files.createDirectories(indexFile.getParent());
+            FileUtils.saveSafely(indexFile, JsonUtils.UGLY_GSON.toJson(file));
+        } catch (IOException | RuntimeException e) {
+            dirty.set(true);
+            LOG.warning("Unable to save version metadata index " + indexFile, e);
+        }
+    }
+
+    /// Saves the index shortly, so that the game versions detected by a burst of lookups are written at once.
+    void saveLater() {
+        if (saveScheduled.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                saveScheduled.set(false);
+                save();
+            }, CompletableFuture.delayedExecutor(2, TimeUnit.SECONDS));
+        }
+    }
+
+    private record IndexFile(int version, Map<String, VersionEntry> versions, Map<String, JarEntry> jars) {
+    }
+
+    private static final class VersionEntry {
+        private final long size;
+        private final long lastModified;
+        private JsonElement json;
+
+        private transient Version version;
+
+        VersionEntry(long size, long lastModified, Version version) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.version = version;
+        }
+
+        synchronized Version getVersion() throws JsonParseException {
+            if (version == null) {
+                Version parsed = JsonUtils.GSON.fromJson(json, Version.class);
+                if (parsed == null)
+                    throw new JsonParseException("Empty version json");
+                version = parsed;
+            }
+            return version;
+        }
+
+        synchronized JsonElement getJson() {
+            if (json == null)
+                json = JsonUtils.GSON.toJsonTree(version);
+            return json;
+        }
+    }
+
+    private record JarEntry(long size, long lastModified, String gameVersion) {
+    }
+}
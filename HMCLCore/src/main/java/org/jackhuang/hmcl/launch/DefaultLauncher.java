@@ -49,6 +49,11 @@ import static org.jackhuang.hmcl.util.logging.Logger.LOG;
  */
 public class DefaultLauncher extends Launcher {
 
+    /**
+     * Set -Dhmcl.natives.store=false to extract natives into the version folder on every launch.
+     */
+    private static final boolean USE_NATIVES_STORE = !"false".equalsIgnoreCase(System.getProperty("hmcl.natives.store"));
+
     private final LibraryAnalyzer analyzer;
 
     public DefaultLauncher(GameRepository repository, Version version, AuthInfo authInfo, LaunchOptions options) {
@@ -393,32 +398,69 @@ public class DefaultLauncher extends Launcher {
 
     public void decompressNatives(Path destination) throws NotDecompressingNativesException {
         try {
-            FileUtils.cleanDirectoryQuietly(destination);
-            for (Library library : version.getLibraries())
-                if (library.isNative())
-                    new Unzipper(repository.getLibraryFile(version, library), destination)
-                            .setFilter((zipEntry, isDirectory, destFile, path) -> {
-                                if (!isDirectory && Files.isRegularFile(destFile) && Files.size(destFile) == Files.size(zipEntry))
-                                    return false;
-                                String ext = FileUtils.getExtension(destFile);
-                                if (ext.equals("sha1") || ext.equals("git"))
-                                    return false;
-
-                                if (options.isUseNativeGLFW() && FileUtils.getName(destFile).toLowerCase(Locale.ROOT).contains("glfw")) {
-                                    return false;
-                                }
-                                if (options.isUseNativeOpenAL() && FileUtils.getName(destFile).toLowerCase(Locale.ROOT).contains("openal")) {
-                                    return false;
-                                }
-
-                                return library.getExtract().shouldExtract(path);
-                            })
-                            .setReplaceExistentFile(false).unzip();
+            if (!USE_NATIVES_STORE) {
+                FileUtils.cleanDirectoryQuietly(destination);
+                for (Library library : version.getLibraries())
+                    if (library.isNative())
+                        new Unzipper(repository.getLibraryFile(version, library), destination)
+                                .setEntryFilter(nativesFilter(library, true))
+                                .setReplaceExistentFile(false).unzip();
+                return;
+            }
+
+            NativesStore store = new NativesStore(getNativesStoreDirectory());
+            String extractTags = "glfw=" + options.isUseNativeGLFW() + ";openal=" + options.isUseNativeOpenAL();
+
+            List<String> keys = new ArrayList<>();
+            for (Library library : version.getLibraries()) {
+                if (library.isNative()) {
+                    Path jar = repository.getLibraryFile(version, library);
+                    String key = NativesStore.computeKey(jar, extractTags + ";exclude=" + library.getExtract().getExclude());
+                    store.getOrExtract(key, jar, nativesFilter(library, false));
+                    keys.add(key);
+                }
+            }
+
+            if (!store.isUpToDate(destination, keys)) {
+                store.populate(destination, keys);
+                // The entries previously used by this version may not be used by any other version
+                try {
+                    store.prune(System.currentTimeMillis());
+                } catch (IOException e) {
+                    LOG.warning("Unable to prune natives store " + store.getStoreDirectory(), e);
+                }
+            }
         } catch (IOException e) {
             throw new NotDecompressingNativesException(e);
         }
     }
 
+    private Unzipper.EntryFilter nativesFilter(Library library, boolean skipExistent) {
+        return (zipEntry, isDirectory, destFile, path) -> {
+            if (skipExistent && !isDirectory && Files.isRegularFile(destFile) && Files.size(destFile) == zipEntry.getSize())
+                return false;
+            String ext = FileUtils.getExtension(destFile);
+            if (ext.equals("sha1") || ext.equals("git"))
+                return false;
+
+            if (options.isUseNativeGLFW() && FileUtils.getName(destFile).toLowerCase(Locale.ROOT).contains("glfw")) {
+                return false;
+            }
+            if (options.isUseNativeOpenAL() && FileUtils.getName(destFile).toLowerCase(Locale.ROOT).contains("openal")) {
+                return false;
+            }
+
+            return library.getExtract().shouldExtract(path);
+        };
+    }
+
+    /**
+     * The directory holding the extracted natives shared by all versions in this repository.
+     */
+    protected Path getNativesStoreDirectory() {
+        return repository.getLibrariesDirectory(version).toAbsolutePath().resolveSibling("natives");
+    }
+
     private boolean isUsingLog4j() {
         return GameVersionNumber.compare(repository.getGameVersion(version).orElse("1.7"), "1.7") >= 0;
     }
@@ -770,14 +812,14 @@ public class DefaultLauncher extends Launcher {
 
     private void startMonitors(ManagedProcess managedProcess, ProcessListener processListener, Charset encoding, boolean isDaemon) {
         processListener.setProcess(managedProcess);
-        Thread stdout = Lang.thread(new StreamPump(managedProcess.getProcess().getInputStream(), it -> {
-            processListener.onLog(it, false);
-            managedProcess.addLine(it);
+        Thread stdout = Lang.thread(StreamPump.batched(managedProcess.getProcess().getInputStream(), lines -> {
+            processListener.onLogs(lines, false);
+            managedProcess.addLines(lines);
         }, encoding), "stdout-pump", isDaemon);
         managedProcess.addRelatedThread(stdout);
-        Thread stderr = Lang.thread(new StreamPump(managedProcess.getProcess().getErrorStream(), it -> {
-            processListener.onLog(it, true);
-            managedProcess.addLine(it);
+        Thread stderr = Lang.thread(StreamPump.batched(managedProcess.getProcess().getErrorStream(), lines -> {
+            processListener.onLogs(lines, true);
+            managedProcess.addLines(lines);
         }, encoding), "stderr-pump", isDaemon);
         managedProcess.addRelatedThread(stderr);
         managedProcess.addRelatedThread(Lang.thread(new ExitWaiter(managedProcess, Arrays.asList(stdout, stderr), (exitCode, exitType) -> {
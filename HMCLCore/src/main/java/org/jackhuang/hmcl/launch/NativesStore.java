@@ -0,0 +1,277 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.launch;
+
+import com.google.gson.reflect.TypeToken;
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.jackhuang.hmcl.util.gson.JsonUtils;
+import org.jackhuang.hmcl.util.io.FileUtils;
+import org.jackhuang.hmcl.util.io.Unzipper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/// A store of extracted native libraries.
+///
+/// Each native jar is extracted once into `<store>/<xx>/<key>`, where the key is derived from the SHA-1 of the jar
+/// and the rules used to extract it, so that versions sharing the same native jars share the entries.
+/// The natives directory of a version is then populated with copies of the files in the store,
+/// so that the game cannot modify the store, and is only rebuilt when the set of keys changes.
+///
+/// Every populated natives directory is recorded in `<store>/refs`, and [#prune(long)] deletes the entries
+/// that no natives directory uses any more.
+public final class NativesStore {
+
+    /// Name of the file in the natives directory that records the keys it has been populated from.
+    private static final String MANIFEST_FILE_NAME = ".hmcl-natives.json";
+    private static final TypeToken<List<String>> MANIFEST_TYPE = JsonUtils.listTypeOf(String.class);
+    private static final String REFS_DIRECTORY_NAME = "refs";
+
+    /// Entries and references changed more recently are never pruned, as a launch may be about to use them.
+    static final long PRUNE_GRACE_PERIOD = TimeUnit.HOURS.toMillis(1);
+
+    /// The SHA-1 of the native jars hashed by this process, so that a jar is only hashed again when it is replaced.
+    private static final Map<Path, JarHash> JAR_HASHES = new ConcurrentHashMap<>();
+
+    private record JarHash(long size, long lastModified, String sha1) {
+    }
+
+    private final Path storeDirectory;
+
+    public NativesStore(Path storeDirectory) {
+        this.storeDirectory = Objects.requireNonNull(storeDirectory);
+    }
+
+    public Path getStoreDirectory() {
+        return storeDirectory;
+    }
+
+    /// Computes the store key for a native jar.
+    ///
+    /// @param nativeJar   the native jar
+    /// @param extractTags a description of the rules used to filter the entries of the jar,
+    ///                    jars extracted with different rules never share an entry
+    public static String computeKey(Path nativeJar, String extractTags) throws IOException {
+        return DigestUtils.digestToString("SHA-1", (hashJar(nativeJar) + "\n" + extractTags).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hashJar(Path nativeJar) throws IOException {
+        Path path = nativeJar.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        JarHash hash = JAR_HASHES.get(path);
+        if (hash == null || hash.size() != size || hash.lastModified() != lastModified) {
+            hash = new JarHash(size, lastModified, DigestUtils.digestToString("SHA-1", path));
+            JAR_HASHES.put(path, hash);
+        }
+        return hash.sha1();
+    }
+
+    private Path getEntryDirectory(String key) {
+        return storeDirectory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    /// Returns the store entry for the given key, extracting the jar into the store if necessary.
+    public Path getOrExtract(String key, Path nativeJar, Unzipper.EntryFilter filter) throws IOException {
+        Path entryDir = getEntryDirectory(key);
+        if (Files.isDirectory(entryDir)) {
+            // Keeps the entry from being pruned before the natives directory using it is recorded
+            Files.setLastModifiedTime(entryDir, FileTime.fromMillis(System.currentTimeMillis()));
+            return entryDir;
+        }
+
+        Files.createDirectories(entryDir.getParent());
+        Path tempDir = Files.createTempDirectory(entryDir.getParent(), key + ".");
+        try {
+            new Unzipper(nativeJar, tempDir)
+                    .setEntryFilter(filter)
+                    .setReplaceExistentFile(false)
+                    .unzip();
+
+            try {
+                Files.move(tempDir, entryDir, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                // Another launcher process has extracted the same jar concurrently
+                FileUtils.deleteDirectoryQuietly(tempDir);
+            }
+        } catch (IOException | RuntimeException e) {
+            FileUtils.deleteDirectoryQuietly(tempDir);
+            throw e;
+        }
+        return entryDir;
+    }
+
+    /// Returns true if the natives directory has already been populated from exactly these keys
+    /// and none of the files has been removed.
+    public boolean isUpToDate(Path destination, List<String> keys) {
+        Path manifestFile = destination.resolve(MANIFEST_FILE_NAME);
+        if (!Files.isRegularFile(manifestFile))
+            return false;
+
+        try {
+            List<String> recorded = JsonUtils.fromJsonFile(manifestFile, MANIFEST_TYPE);
+            if (!keys.equals(recorded))
+                return false;
+
+            for (String key : keys) {
+                Path entryDir = getEntryDirectory(key);
+                if (!Files.isDirectory(entryDir))
+                    return false;
+
+                try (Stream<Path> stream = Files.walk(entryDir)) {
+                    if (!stream.filter(Files::isRegularFile)
+                            .allMatch(file -> Files.exists(destination.resolve(entryDir.relativize(file).toString()))))
+                        return false;
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            LOG.warning("Unable to read natives manifest " + manifestFile, e);
+            return false;
+        }
+    }
+
+    /// Rebuilds the natives directory from the given store entries.
+    ///
+    /// Like extracting the jars in order without replacing existent files, the first entry providing a file wins.
+    public void populate(Path destination, List<String> keys) throws IOException {
+        // Recorded first, so that the entries are not pruned while they are being copied
+        Path refFile = getRefFile(destination);
+        Files.createDirectories(refFile.getParent());
+        JsonUtils.writeToJsonFile(refFile, new Reference(destination.toAbsolutePath().normalize().toString(), new ArrayList<>(keys)));
+
+        FileUtils.cleanDirectory(destination);
+
+        for (String key : keys) {
+            Path entryDir = getEntryDirectory(key);
+            Files.walkFileTree(entryDir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    Files.createDirectories(destination.resolve(entryDir.relativize(dir).toString()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Path target = destination.resolve(entryDir.relativize(file).toString());
+                    if (!Files.exists(target, LinkOption.NOFOLLOW_LINKS))
+                        Files.copy(file, target, StandardCopyOption.COPY_ATTRIBUTES);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+
+        JsonUtils.writeToJsonFile(destination.resolve(MANIFEST_FILE_NAME), new ArrayList<>(keys));
+    }
+
+    private Path getRefFile(Path destination) throws IOException {
+        String name = DigestUtils.digestToString("SHA-1", destination.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+        return storeDirectory.resolve(REFS_DIRECTORY_NAME).resolve(name + ".json");
+    }
+
+    /// Deletes the entries that are not used by any natives directory recorded in the store.
+    ///
+    /// A natives directory stops using its entries when it is deleted, or when it is populated from other entries.
+    ///
+    /// @param now the milliseconds since the epoch
+    /// @return the number of entries deleted
+    public int prune(long now) throws IOException {
+        Path refsDirectory = storeDirectory.resolve(REFS_DIRECTORY_NAME);
+        Set<String> usedKeys = new HashSet<>();
+        if (Files.isDirectory(refsDirectory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(refsDirectory, "*.json")) {
+                for (Path refFile : stream) {
+                    Reference reference = readReference(refFile);
+                    if (reference != null && (isRecent(refFile, now) || isPopulatedFrom(Paths.get(reference.destination), reference.keys))) {
+                        usedKeys.addAll(reference.keys);
+                    } else {
+                        Files.deleteIfExists(refFile);
+                    }
+                }
+            }
+        }
+
+        int pruned = 0;
+        try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(storeDirectory,
+                path -> FileUtils.getName(path).length() == 2 && Files.isDirectory(path))) {
+            for (Path prefix : prefixes) {
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(prefix)) {
+                    for (Path entryDir : entries) {
+                        // Temporary directories of extractions that have not completed are pruned as well
+                        if (!usedKeys.contains(FileUtils.getName(entryDir)) && !isRecent(entryDir, now)) {
+                            FileUtils.deleteDirectory(entryDir);
+                            pruned++;
+                        }
+                    }
+                }
+            }
+        } catch (NoSuchFileException ignored) {
+        }
+
+        if (pruned > 0)
+            LOG.info("Pruned " + pruned + " unused natives from " + storeDirectory);
+        return pruned;
+    }
+
+    private static Reference readReference(Path refFile) {
+        try {
+            Reference reference = JsonUtils.fromJsonFile(refFile, Reference.class);
+            return reference != null && reference.destination != null && reference.keys != null ? reference : null;
+        } catch (Exception e) {
+            LOG.warning("Unable to read natives reference " + refFile, e);
+            return null;
+        }
+    }
+
+    private static boolean isRecent(Path file, long now) throws IOException {
+        return now - Files.getLastModifiedTime(file).toMillis() < PRUNE_GRACE_PERIOD;
+    }
+
+    private static boolean isPopulatedFrom(Path destination, List<String> keys) {
+        Path manifestFile = destination.resolve(MANIFEST_FILE_NAME);
+        if (!Files.isRegularFile(manifestFile))
+            return false;
+        try {
+            return keys.equals(JsonUtils.fromJsonFile(manifestFile, MANIFEST_TYPE));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /// A natives directory and the keys of the entries it has been populated from.
+    private static final class Reference {
+        private final String destination;
+        private final List<String> keys;
+
+        Reference(String destination, List<String> keys) {
+            this.destination = destination;
+            this.keys = keys;
+        }
+    }
+}
@@ -19,6 +19,8 @@ package org.jackhuang.hmcl.launch;
 
 import org.jackhuang.hmcl.util.platform.ManagedProcess;
 
+import java.util.List;
+
 /**
  *
  * @author huangyuhui
@@ -41,6 +43,20 @@ public interface ProcessListener {
      */
     void onLog(String log, boolean isErrorStream);
 
+    /**
+     * Called when receiving a batch of logs from stdout/stderr.
+     * Listeners handling many logs may override this method to process a batch at once.
+     *
+     * Does not guarantee that this method is thread safe.
+     *
+     * @param logs the logs, in order
+     */
+    default void onLogs(List<String> logs, boolean isErrorStream) {
+        for (String log : logs) {
+            onLog(log, isErrorStream);
+        }
+    }
+
     /**
      * Called when the game process stops.
      *
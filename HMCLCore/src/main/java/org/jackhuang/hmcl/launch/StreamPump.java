@@ -23,19 +23,33 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Consumer;
 
 import static org.jackhuang.hmcl.util.logging.Logger.LOG;
 
 /**
  * Pump the given input stream.
+ * <p>
+ * For charsets encoding line terminators like ASCII, the stream is read in raw byte chunks and split into lines
+ * without going through a {@link java.io.Reader}, and the lines of each chunk are delivered as one batch.
  *
  * @author huangyuhui
  */
 public final class StreamPump implements Runnable {
 
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    /**
+     * Lines longer than this are split, so that a stream without line terminators cannot exhaust the memory.
+     */
+    private static final int MAX_LINE_BYTES = 1024 * 1024;
+
     private final InputStream inputStream;
-    private final Consumer<String> callback;
+    private final Consumer<List<String>> callback;
     private final Charset charset;
 
     public StreamPump(InputStream inputStream) {
@@ -43,19 +57,43 @@ public final class StreamPump implements Runnable {
     }
 
     public StreamPump(InputStream inputStream, Consumer<String> callback) {
-        this.inputStream = inputStream;
-        this.callback = callback;
-        this.charset = StandardCharsets.UTF_8;
+        this(inputStream, callback, StandardCharsets.UTF_8);
     }
 
     public StreamPump(InputStream inputStream, Consumer<String> callback, Charset charset) {
+        this(inputStream, charset, lines -> lines.forEach(callback));
+    }
+
+    private StreamPump(InputStream inputStream, Charset charset, Consumer<List<String>> callback) {
         this.inputStream = inputStream;
         this.callback = callback;
         this.charset = charset;
     }
 
+    /**
+     * Creates a pump delivering lines in batches, each batch holding the lines read at once from the stream.
+     */
+    public static StreamPump batched(InputStream inputStream, Consumer<List<String>> callback, Charset charset) {
+        return new StreamPump(inputStream, charset, callback);
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        return charset.canEncode() && Arrays.equals("\r\n".getBytes(charset), new byte[]{'\r', '\n'});
+    }
+
     @Override
     public void run() {
+        try {
+            if (isAsciiCompatible(charset))
+                pumpBytes();
+            else
+                pumpChars();
+        } catch (IOException e) {
+            LOG.error("An error occurred when reading stream", e);
+        }
+    }
+
+    private void pumpChars() throws IOException {
         try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream, charset))) {
             String line;
             while ((line = bufferedReader.readLine()) != null) {
@@ -64,10 +102,64 @@ public final class StreamPump implements Runnable {
                     break;
                 }
 
-                callback.accept(line);
+                callback.accept(Collections.singletonList(line));
             }
-        } catch (IOException e) {
-            LOG.error("An error occurred when reading stream", e);
+        }
+    }
+
+    private void pumpBytes() throws IOException {
+        try (InputStream inputStream = this.inputStream) {
+            byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+            int lineStart = 0;
+            int end = 0;
+            boolean skipLF = false;
+
+            int n;
+            while ((n = inputStream.read(buffer, end, buffer.length - end)) >= 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                List<String> lines = new ArrayList<>();
+                for (int i = end, limit = end + n; i < limit; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n' || b == '\r') {
+                        if (b == '\n' && skipLF) {
+                            // The second half of "\r\n"
+                            lineStart = i + 1;
+                        } else {
+                            lines.add(new String(buffer, lineStart, i - lineStart, charset));
+                            lineStart = i + 1;
+                        }
+                        skipLF = b == '\r';
+                    } else {
+                        skipLF = false;
+                    }
+                }
+                end += n;
+
+                if (lineStart > 0) {
+                    System.arraycopy(buffer, lineStart, buffer, 0, end - lineStart);
+                    end -= lineStart;
+                    lineStart = 0;
+                }
+
+                if (end == buffer.length) {
+                    if (buffer.length < MAX_LINE_BYTES) {
+                        buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_LINE_BYTES));
+                    } else {
+                        lines.add(new String(buffer, 0, end, charset));
+                        end = 0;
+                    }
+                }
+
+                if (!lines.isEmpty())
+                    callback.accept(lines);
+            }
+
+            if (end > 0)
+                callback.accept(Collections.singletonList(new String(buffer, 0, end, charset)));
         }
     }
 
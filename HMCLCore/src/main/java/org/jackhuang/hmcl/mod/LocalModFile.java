@@ -19,6 +19,8 @@ package org.jackhuang.hmcl.mod;
 
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import org.jackhuang.hmcl.mod.curse.CurseForgeRemoteModRepository;
+import org.jackhuang.hmcl.util.DigestUtils;
 import org.jackhuang.hmcl.util.io.FileUtils;
 
 import java.io.IOException;
@@ -46,6 +48,8 @@ public final class LocalModFile implements Comparable<LocalModFile> {
     private final String fileName;
     private final String logoPath;
     private final BooleanProperty activeProperty;
+    private volatile String sha1;
+    private volatile Long fingerprint;
 
     public LocalModFile(ModManager modManager, LocalMod mod, Path file, String name, Description description) {
         this(modManager, mod, file, name, description, "", "", "", "", "");
@@ -138,6 +142,31 @@ public final class LocalModFile implements Comparable<LocalModFile> {
         return logoPath;
     }
 
+    /**
+     * @return the SHA-1 of the file, taken from the mod metadata index if it is known
+     */
+    public String getSha1() throws IOException {
+        String sha1 = this.sha1;
+        if (sha1 == null)
+            this.sha1 = sha1 = DigestUtils.digestToString("SHA-1", file);
+        return sha1;
+    }
+
+    /**
+     * @return the CurseForge fingerprint of the file, taken from the mod metadata index if it is known
+     */
+    public long getCurseForgeFingerprint() throws IOException {
+        Long fingerprint = this.fingerprint;
+        if (fingerprint == null)
+            this.fingerprint = fingerprint = CurseForgeRemoteModRepository.computeFingerprint(file);
+        return fingerprint;
+    }
+
+    void setHashes(String sha1, Long fingerprint) {
+        this.sha1 = sha1;
+        this.fingerprint = fingerprint;
+    }
+
     public BooleanProperty activeProperty() {
         return activeProperty;
     }
@@ -177,14 +206,22 @@ public final class LocalModFile implements Comparable<LocalModFile> {
     public ModUpdate checkUpdates(String gameVersion, RemoteModRepository repository) throws IOException {
         Optional<RemoteMod.Version> currentVersion = repository.getRemoteVersionByLocalFile(this, file);
         if (!currentVersion.isPresent()) return null;
-        List<RemoteMod.Version> remoteVersions = repository.getRemoteVersionsById(currentVersion.get().getModid())
+        return checkUpdates(gameVersion, repository, currentVersion.get());
+    }
+
+    /**
+     * @param currentVersion the remote version of this file, which has been resolved beforehand, for example in bulk
+     * @return the newer compatible versions, from the newest, or null if there is none
+     */
+    public ModUpdate checkUpdates(String gameVersion, RemoteModRepository repository, RemoteMod.Version currentVersion) throws IOException {
+        List<RemoteMod.Version> remoteVersions = repository.getRemoteVersionsById(currentVersion.getModid())
                 .filter(version -> version.getGameVersions().contains(gameVersion))
                 .filter(version -> version.getLoaders().contains(getModLoaderType()))
-                .filter(version -> version.getDatePublished().compareTo(currentVersion.get().getDatePublished()) > 0)
+                .filter(version -> version.getDatePublished().compareTo(currentVersion.getDatePublished()) > 0)
                 .sorted(Comparator.comparing(RemoteMod.Version::getDatePublished).reversed())
                 .collect(Collectors.toList());
         if (remoteVersions.isEmpty()) return null;
-        return new ModUpdate(this, currentVersion.get(), remoteVersions);
+        return new ModUpdate(this, currentVersion, remoteVersions);
     }
 
     @Override
@@ -242,6 +279,16 @@ public final class LocalModFile implements Comparable<LocalModFile> {
             return parts;
         }
 
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Description that && Objects.equals(parts, that.parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(parts);
+        }
+
         @Override
         public String toString() {
             StringBuilder builder = new StringBuilder();
@@ -271,6 +318,16 @@ public final class LocalModFile implements Comparable<LocalModFile> {
             public String getColor() {
                 return color;
             }
+
+            @Override
+            public boolean equals(Object obj) {
+                return obj instanceof Part that && Objects.equals(text, that.text) && Objects.equals(color, that.color);
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(text, color);
+            }
         }
     }
 }
@@ -20,7 +20,10 @@ package org.jackhuang.hmcl.mod;
 import com.google.gson.JsonParseException;
 import org.jackhuang.hmcl.download.LibraryAnalyzer;
 import org.jackhuang.hmcl.game.GameRepository;
+import org.jackhuang.hmcl.mod.curse.CurseForgeRemoteModRepository;
 import org.jackhuang.hmcl.mod.modinfo.*;
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.jackhuang.hmcl.util.Lang;
 import org.jackhuang.hmcl.util.Pair;
 import org.jackhuang.hmcl.util.StringUtils;
 import org.jackhuang.hmcl.util.io.CompressingUtils;
@@ -30,8 +33,14 @@ import org.jackhuang.hmcl.util.versioning.VersionNumber;
 import org.jetbrains.annotations.Unmodifiable;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.jackhuang.hmcl.util.Pair.pair;
 import static org.jackhuang.hmcl.util.logging.Logger.LOG;
@@ -62,6 +71,10 @@ public final class ModManager {
         READERS = map;
     }
 
+    private static final int READER_THREADS = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+    /// Mod files up to this size are read into memory once to compute both of their hashes.
+    private static final long MAX_HASHED_IN_MEMORY = 64L * 1024 * 1024;
+
     private final GameRepository repository;
     private final String id;
     private final TreeSet<LocalModFile> localModFiles = new TreeSet<>();
@@ -100,17 +113,28 @@ public final class ModManager {
         return localMods.containsKey(pair(modId, modLoaderType));
     }
 
-    private void addModInfo(Path file) {
-        String fileName = StringUtils.removeSuffix(FileUtils.getName(file), DISABLED_EXTENSION, OLD_EXTENSION);
-        String extension = fileName.substring(fileName.lastIndexOf(".") + 1);
+    private Path getIndexFile() {
+        return repository.getVersionRoot(id).resolve(ModMetadataIndex.FILE_NAME);
+    }
 
-        List<Pair<ModMetadataReader, ModLoaderType>> readersMap = READERS.get(extension);
-        if (readersMap == null) {
-            // Is not a mod file.
-            return;
-        }
+    private String getIndexKey(Path file) {
+        return getModsDirectory().toAbsolutePath().normalize()
+                .relativize(file.toAbsolutePath().normalize())
+                .toString().replace('\\', '/');
+    }
+
+    private static String getExtension(Path file) {
+        String fileName = getModName(file);
+        return fileName.substring(fileName.lastIndexOf(".") + 1);
+    }
 
-        Set<ModLoaderType> modLoaderTypes = analyzer.getModLoaders();
+    /// Reads the metadata and the hashes of a mod file.
+    ///
+    /// The readers register the mods they find in the mod manager passed to them,
+    /// so a private one is used here, which makes this method safe to call concurrently.
+    private ModMetadataIndex.Entry readModFile(Path file, BasicFileAttributes attributes, Set<ModLoaderType> modLoaderTypes) {
+        String extension = getExtension(file);
+        List<Pair<ModMetadataReader, ModLoaderType>> readersMap = READERS.get(extension);
 
         var supportedReaders = new ArrayList<ModMetadataReader>();
         var unsupportedReaders = new ArrayList<ModMetadataReader>();
@@ -123,13 +147,14 @@ public final class ModManager {
             }
         }
 
+        ModManager modManager = new ModManager(repository, id);
         LocalModFile modInfo = null;
 
         List<Exception> exceptions = new ArrayList<>();
         try (ZipFileTree tree = CompressingUtils.openZipTree(file)) {
             for (ModMetadataReader reader : supportedReaders) {
                 try {
-                    modInfo = reader.fromFile(this, file, tree);
+                    modInfo = reader.fromFile(modManager, file, tree);
                     break;
                 } catch (Exception e) {
                     exceptions.add(e);
@@ -139,7 +164,7 @@ public final class ModManager {
             if (modInfo == null) {
                 for (ModMetadataReader reader : unsupportedReaders) {
                     try {
-                        modInfo = reader.fromFile(this, file, tree);
+                        modInfo = reader.fromFile(modManager, file, tree);
                         break;
                     } catch (Exception ignored) {
                     }
@@ -158,25 +183,128 @@ public final class ModManager {
 
             String fileNameWithoutExtension = FileUtils.getNameWithoutExtension(file);
 
-            modInfo = new LocalModFile(this,
-                    getLocalMod(fileNameWithoutExtension, ModLoaderType.UNKNOWN),
+            modInfo = new LocalModFile(modManager,
+                    modManager.getLocalMod(fileNameWithoutExtension, ModLoaderType.UNKNOWN),
                     file,
                     fileNameWithoutExtension,
                     new LocalModFile.Description("litemod".equals(extension) ? "LiteLoader Mod" : "")
             );
         }
 
+        String sha1 = null;
+        Long fingerprint = null;
+        try {
+            if (attributes.size() <= MAX_HASHED_IN_MEMORY) {
+                // Read the file once for both hashes, as the fingerprint would otherwise read it twice more
+                byte[] content = Files.readAllBytes(file);
+                sha1 = HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content));
+                fingerprint = CurseForgeRemoteModRepository.computeFingerprint(content);
+            } else {
+                sha1 = DigestUtils.digestToString("SHA-1", file);
+                fingerprint = CurseForgeRemoteModRepository.computeFingerprint(file);
+            }
+        } catch (IOException e) {
+            LOG.warning("Failed to hash mod file " + file, e);
+        }
+
+        return new ModMetadataIndex.Entry(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                modInfo.getId(), modInfo.getModLoaderType(),
+                modInfo.getName(), modInfo.getDescription(),
+                modInfo.getAuthors(), modInfo.getVersion(), modInfo.getGameVersion(), modInfo.getUrl(), modInfo.getLogoPath(),
+                sha1, fingerprint);
+    }
+
+    private void addModInfo(Path file, ModMetadataIndex.Entry entry) {
+        LocalModFile modInfo = new LocalModFile(this,
+                getLocalMod(entry.modId(), entry.modLoaderType()),
+                file,
+                entry.name(),
+                entry.description() != null ? entry.description() : new LocalModFile.Description(""),
+                entry.authors(), entry.version(), entry.gameVersion(), entry.url(), entry.logoPath());
+        modInfo.setHashes(entry.sha1(), entry.fingerprint());
+
         if (!modInfo.isOld()) {
             localModFiles.add(modInfo);
         }
     }
 
+    /// Adds the given files, reusing the metadata index for the unchanged files
+    /// and reading the new or changed files concurrently.
+    private void addModInfos(List<Path> files, boolean prune) throws IOException {
+        files = files.stream().filter(file -> READERS.containsKey(getExtension(file))).toList();
+
+        ModMetadataIndex index = new ModMetadataIndex(getIndexFile(), analyzer.getModLoaders());
+        ModMetadataIndex.Entry[] entries = new ModMetadataIndex.Entry[files.size()];
+        BasicFileAttributes[] attributes = new BasicFileAttributes[files.size()];
+        List<Integer> pending = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            try {
+                attributes[i] = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                LOG.warning("Failed to read attributes of mod file " + file, e);
+                continue;
+            }
+
+            String key = getIndexKey(file);
+            keys.add(key);
+            entries[i] = index.get(key, attributes[i].size(), attributes[i].lastModifiedTime().toMillis());
+            if (entries[i] == null)
+                pending.add(i);
+        }
+
+        try {
+            if (pending.size() == 1) {
+                int i = pending.get(0);
+                entries[i] = readModFile(files.get(i), attributes[i], analyzer.getModLoaders());
+            } else if (!pending.isEmpty()) {
+                ExecutorService executor = Executors.newFixedThreadPool(Math.min(READER_THREADS, pending.size()),
+                        Lang.counterThreadFactory("ModMetadataReader", true));
+                try {
+                    List<Future<ModMetadataIndex.Entry>> results = new ArrayList<>(pending.size());
+                    for (int i : pending) {
+                        Path file = files.get(i);
+                        BasicFileAttributes fileAttributes = attributes[i];
+                        results.add(executor.submit(() -> readModFile(file, fileAttributes, analyzer.getModLoaders())));
+                    }
+
+                    for (int j = 0; j < pending.size(); j++) {
+                        entries[pending.get(j)] = results.get(j).get();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading mod metadata");
+                } catch (ExecutionException e) {
+                    throw new IOException("Failed to read mod metadata", e.getCause());
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+
+            for (int i : pending) {
+                index.put(getIndexKey(files.get(i)), entries[i]);
+            }
+        } finally {
+            if (prune)
+                index.retainAll(keys);
+            index.save();
+        }
+
+        for (int i = 0; i < files.size(); i++) {
+            if (entries[i] != null)
+                addModInfo(files.get(i), entries[i]);
+        }
+    }
+
     public void refreshMods() throws IOException {
         localModFiles.clear();
         localMods.clear();
 
         analyzer = LibraryAnalyzer.analyze(getRepository().getResolvedPreservingPatchesVersion(id), null);
 
+        List<Path> files = new ArrayList<>();
         if (Files.isDirectory(getModsDirectory())) {
             try (DirectoryStream<Path> modsDirectoryStream = Files.newDirectoryStream(getModsDirectory())) {
                 for (Path subitem : modsDirectoryStream) {
@@ -184,15 +312,16 @@ public final class ModManager {
                         // If the folder name is game version, forge will search mod in this subdirectory
                         try (DirectoryStream<Path> subitemDirectoryStream = Files.newDirectoryStream(subitem)) {
                             for (Path subsubitem : subitemDirectoryStream) {
-                                addModInfo(subsubitem);
+                                files.add(subsubitem);
                             }
                         }
                     } else {
-                        addModInfo(subitem);
+                        files.add(subitem);
                     }
                 }
             }
         }
+        addModInfos(files, true);
         loaded = true;
     }
 
@@ -215,7 +344,7 @@ public final class ModManager {
         Path newFile = modsDirectory.resolve(file.getFileName());
         FileUtils.copyFile(file, newFile);
 
-        addModInfo(newFile);
+        addModInfos(List.of(newFile), false);
     }
 
     public void removeMods(LocalModFile... localModFiles) throws IOException {
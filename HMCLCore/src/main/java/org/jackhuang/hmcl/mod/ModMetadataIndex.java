@@ -0,0 +1,116 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.mod;
+
+import org.jackhuang.hmcl.util.gson.JsonUtils;
+import org.jackhuang.hmcl.util.io.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/// A persistent index of the parsed metadata of the mod files of an instance.
+///
+/// Entries are keyed by the path of the mod file relative to the mods directory,
+/// and are only reused while the size and modification time of the file are unchanged.
+/// The whole index is discarded when the mod loaders of the instance change, since they decide which metadata reader wins.
+final class ModMetadataIndex {
+
+    static final String FILE_NAME = "hmclmods.json";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path indexFile;
+    private final Set<ModLoaderType> modLoaders;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean dirty = false;
+
+    ModMetadataIndex(Path indexFile, Set<ModLoaderType> modLoaders) {
+        this.indexFile = indexFile;
+        this.modLoaders = EnumSet.noneOf(ModLoaderType.class);
+        this.modLoaders.addAll(modLoaders);
+
+        if (Files.isRegularFile(indexFile)) {
+            try {
+                IndexFile file = JsonUtils.fromJsonFile(indexFile, IndexFile.class);
+                if (file != null && file.version == FORMAT_VERSION
+                        && file.modLoaders != null && this.modLoaders.equals(new HashSet<>(file.modLoaders))
+                        && file.entries != null) {
+                    file.entries.forEach((key, value) -> {
+                        if (key != null && value != null && value.modId() != null && value.modLoaderType() != null)
+                            entries.put(key, value);
+                    });
+                } else {
+                    dirty = true;
+                }
+            } catch (Exception e) {
+                LOG.warning("Unable to read mod metadata index " + indexFile, e);
+                dirty = true;
+            }
+        }
+    }
+
+    /// @return the entry of the file, or null if the file is new or has been changed since it was indexed
+    Entry get(String key, long size, long lastModified) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.size() == size && entry.lastModified() == lastModified ? entry : null;
+    }
+
+    void put(String key, Entry entry) {
+        if (!entry.equals(entries.put(key, entry)))
+            dirty = true;
+    }
+
+    /// Removes the entries of the files that no longer exist.
+    void retainAll(Set<String> keys) {
+        if (entries.keySet().retainAll(keys))
+            dirty = true;
+    }
+
+    void save() {
+        if (!dirty)
+            return;
+
+        try {
+            Files.createDirectories(indexFile.getParent());
+            IndexFile file = new IndexFile(FORMAT_VERSION, new ArrayList<>(modLoaders), new TreeMap<>(entries));
+            FileUtils.saveSafely(indexFile, JsonUtils.UGLY_GSON.toJson(file));
+            dirty = false;
+        } catch (IOException e) {
+            LOG.warning("Unable to save mod metadata index " + indexFile, e);
+        }
+    }
+
+    private record IndexFile(int version, List<ModLoaderType> modLoaders, Map<String, Entry> entries) {
+    }
+
+    /// The parsed fields of a [LocalModFile], together with the hashes of the file,
+    /// which the bulk lookups of Modrinth and CurseForge use.
+    ///
+    /// @param sha1        the SHA-1 of the file, or null if it could not be computed
+    /// @param fingerprint the CurseForge fingerprint of the file, or null if it could not be computed
+    record Entry(long size, long lastModified,
+                 String modId, ModLoaderType modLoaderType,
+                 String name, LocalModFile.Description description,
+                 String authors, String version, String gameVersion, String url, String logoPath,
+                 String sha1, Long fingerprint) {
+    }
+}
@@ -22,7 +22,10 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -90,6 +93,39 @@ public interface RemoteModRepository {
 
     Optional<RemoteMod.Version> getRemoteVersionByLocalFile(LocalModFile localModFile, Path file) throws IOException;
 
+    /**
+     * Resolve the remote versions of many local files at once.
+     * Repositories supporting bulk lookups should override this method to avoid one request per file.
+     *
+     * @param files the local files
+     * @return the remote version of each file that is known by this repository
+     */
+    default Map<Path, RemoteMod.Version> getRemoteVersionsByLocalFiles(Collection<Path> files) throws IOException {
+        Map<Path, RemoteMod.Version> result = new LinkedHashMap<>();
+        for (Path file : files) {
+            getRemoteVersionByLocalFile(null, file).ifPresent(version -> result.put(file, version));
+        }
+        return result;
+    }
+
+    /**
+     * Resolve the remote versions of many local mod files at once.
+     * Repositories should override this method to use the hashes of the mod files kept in the mod metadata index.
+     *
+     * @param mods the local mod files
+     * @return the remote version of each mod file that is known by this repository
+     */
+    default Map<LocalModFile, RemoteMod.Version> getRemoteVersionsByLocalModFiles(Collection<LocalModFile> mods) throws IOException {
+        Map<Path, LocalModFile> modsByFile = new LinkedHashMap<>();
+        for (LocalModFile mod : mods) {
+            modsByFile.put(mod.getFile(), mod);
+        }
+
+        Map<LocalModFile, RemoteMod.Version> result = new LinkedHashMap<>();
+        getRemoteVersionsByLocalFiles(modsByFile.keySet()).forEach((file, version) -> result.put(modsByFile.get(file), version));
+        return result;
+    }
+
     RemoteMod getModById(String id) throws IOException;
 
     RemoteMod.File getModFile(String modId, String fileId) throws IOException;
@@ -26,11 +26,11 @@ import org.jackhuang.hmcl.util.MurmurHash2;
 import org.jackhuang.hmcl.util.Pair;
 import org.jackhuang.hmcl.util.StringUtils;
 import org.jackhuang.hmcl.util.io.HttpRequest;
+import org.jackhuang.hmcl.util.io.IOUtils;
 import org.jackhuang.hmcl.util.io.JarUtils;
 import org.jackhuang.hmcl.util.io.NetworkUtils;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -49,6 +49,11 @@ public final class CurseForgeRemoteModRepository implements RemoteModRepository
 
     private static final int WORD_PERFECT_MATCH_WEIGHT = 5;
 
+    /**
+     * Maximum number of fingerprints resolved by a single request.
+     */
+    private static final int FINGERPRINT_BATCH_SIZE = Math.max(1, Integer.getInteger("hmcl.curseforge.fingerprint.batch_size", 500));
+
     private static <R extends HttpRequest> R withApiKey(R request) {
         if (request.getUrl().startsWith(PREFIX) && !apiKey.isEmpty()) {
             request.header("X-API-KEY", apiKey);
@@ -157,36 +162,146 @@ public final class CurseForgeRemoteModRepository implements RemoteModRepository
         }).sorted(Comparator.comparingInt(Pair::getValue)).map(Pair::getKey), response.getData().stream().map(CurseAddon::toMod), calculateTotalPages(response, pageSize));
     }
 
-    @Override
-    public Optional<RemoteMod.Version> getRemoteVersionByLocalFile(LocalModFile localModFile, Path file) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    /**
+     * Compute the CurseForge fingerprint of a file, which is the MurmurHash2 of the file with all whitespace bytes removed.
+     * <p>
+     * The file is read twice, since MurmurHash2 needs the length of the filtered data before hashing it.
+     */
+    public static long computeFingerprint(Path file) throws IOException {
+        byte[] buf = new byte[IOUtils.DEFAULT_BUFFER_SIZE * 8];
+
+        long length = 0;
+        try (InputStream stream = Files.newInputStream(file)) {
+            int len;
+            while ((len = stream.read(buf, 0, buf.length)) != -1) {
+                for (int i = 0; i < len; i++) {
+                    if (!isFingerprintWhitespace(buf[i]))
+                        length++;
+                }
+            }
+        }
+
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("File is too large: " + file);
+
+        MurmurHash2.Hash32 hash = new MurmurHash2.Hash32((int) length, 1);
         try (InputStream stream = Files.newInputStream(file)) {
-            byte[] buf = new byte[1024];
             int len;
             while ((len = stream.read(buf, 0, buf.length)) != -1) {
+                // Compact the non-whitespace bytes in place
+                int n = 0;
                 for (int i = 0; i < len; i++) {
                     byte b = buf[i];
-                    if (b != 0x9 && b != 0xa && b != 0xd && b != 0x20) {
-                        baos.write(b);
-                    }
+                    if (!isFingerprintWhitespace(b))
+                        buf[n++] = b;
                 }
+                hash.update(buf, 0, n);
             }
         }
 
-        long hash = Integer.toUnsignedLong(MurmurHash2.hash32(baos.toByteArray(), baos.size(), 1));
-        if (hash == 811513880) { // Workaround for https://github.com/HMCL-dev/HMCL/issues/4597
-            return Optional.empty();
+        try {
+            return Integer.toUnsignedLong(hash.finish());
+        } catch (IllegalStateException e) {
+            throw new IOException("File " + file + " was modified while computing the fingerprint", e);
+        }
+    }
+
+    /**
+     * Compute the CurseForge fingerprint of the content of a file that has been read into memory.
+     */
+    public static long computeFingerprint(byte[] content) {
+        int length = 0;
+        for (byte b : content) {
+            if (!isFingerprintWhitespace(b))
+                length++;
+        }
+
+        MurmurHash2.Hash32 hash = new MurmurHash2.Hash32(length, 1);
+        for (byte b : content) {
+            if (!isFingerprintWhitespace(b))
+                hash.update(b);
         }
+        return Integer.toUnsignedLong(hash.finish());
+    }
+
+    private static boolean isFingerprintWhitespace(byte b) {
+        return b == 0x9 || b == 0xa || b == 0xd || b == 0x20;
+    }
 
-        Response<FingerprintMatchesResult> response = withApiKey(HttpRequest.POST(PREFIX + "/v1/fingerprints/432"))
-                .json(mapOf(pair("fingerprints", Collections.singletonList(hash))))
-                .getJson(Response.typeOf(FingerprintMatchesResult.class));
+    @Override
+    public Optional<RemoteMod.Version> getRemoteVersionByLocalFile(LocalModFile localModFile, Path file) throws IOException {
+        return Optional.ofNullable(getRemoteVersionsByLocalFiles(Collections.singletonList(file)).get(file));
+    }
+
+    @Override
+    public Map<Path, RemoteMod.Version> getRemoteVersionsByLocalFiles(Collection<Path> files) throws IOException {
+        return getRemoteVersionsByLocalFiles(files, FINGERPRINT_BATCH_SIZE);
+    }
+
+    /**
+     * Resolve local files by their fingerprints.
+     *
+     * @param files     the local files
+     * @param batchSize the maximum number of fingerprints sent in one request
+     */
+    public Map<Path, RemoteMod.Version> getRemoteVersionsByLocalFiles(Collection<Path> files, int batchSize) throws IOException {
+        Map<Path, Long> fingerprints = new LinkedHashMap<>();
+        for (Path file : files) {
+            fingerprints.put(file, computeFingerprint(file));
+        }
+        return getRemoteVersionsByFingerprints(fingerprints, batchSize);
+    }
 
-        if (response.getData().getExactMatches() == null || response.getData().getExactMatches().isEmpty()) {
-            return Optional.empty();
+    /**
+     * Resolve local mod files by the fingerprints kept in the mod metadata index, so that the files are not read again.
+     */
+    @Override
+    public Map<LocalModFile, RemoteMod.Version> getRemoteVersionsByLocalModFiles(Collection<LocalModFile> mods) throws IOException {
+        Map<LocalModFile, Long> fingerprints = new LinkedHashMap<>();
+        for (LocalModFile mod : mods) {
+            fingerprints.put(mod, mod.getCurseForgeFingerprint());
         }
+        return getRemoteVersionsByFingerprints(fingerprints, FINGERPRINT_BATCH_SIZE);
+    }
+
+    private <K> Map<K, RemoteMod.Version> getRemoteVersionsByFingerprints(Map<K, Long> fingerprints, int batchSize) throws IOException {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("batchSize must be positive");
+
+        Map<Long, List<K>> filesByFingerprint = new LinkedHashMap<>();
+        fingerprints.forEach((file, hash) -> {
+            if (hash == 811513880) { // Workaround for https://github.com/HMCL-dev/HMCL/issues/4597
+                return;
+            }
+            filesByFingerprint.computeIfAbsent(hash, key -> new ArrayList<>(1)).add(file);
+        });
+
+        Map<K, RemoteMod.Version> result = new LinkedHashMap<>();
+        List<Long> distinctFingerprints = new ArrayList<>(filesByFingerprint.keySet());
+        for (int from = 0; from < distinctFingerprints.size(); from += batchSize) {
+            List<Long> batch = distinctFingerprints.subList(from, Math.min(distinctFingerprints.size(), from + batchSize));
+
+            Response<FingerprintMatchesResult> response = withApiKey(HttpRequest.POST(PREFIX + "/v1/fingerprints/432"))
+                    .json(mapOf(pair("fingerprints", batch)))
+                    .getJson(Response.typeOf(FingerprintMatchesResult.class));
+
+            if (response.getData().getExactMatches() == null)
+                continue;
 
-        return Optional.of(response.getData().getExactMatches().get(0).getFile().toVersion());
+            for (FingerprintMatch match : response.getData().getExactMatches()) {
+                if (match.getFile() == null)
+                    continue;
+
+                List<K> matchedFiles = filesByFingerprint.get(match.getFile().getFileFingerprint());
+                if (matchedFiles != null) {
+                    RemoteMod.Version version = match.getFile().toVersion();
+                    for (K file : matchedFiles) {
+                        result.putIfAbsent(file, version);
+                    }
+                }
+            }
+        }
+        return result;
     }
 
     @Override
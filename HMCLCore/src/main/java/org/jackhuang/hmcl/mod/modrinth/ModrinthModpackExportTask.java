@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Stream;
 
 import org.jackhuang.hmcl.download.LibraryAnalyzer;
 import org.jackhuang.hmcl.game.DefaultGameRepository;
@@ -16,7 +17,6 @@ import org.jackhuang.hmcl.task.Task;
 import org.jackhuang.hmcl.util.DigestUtils;
 import org.jackhuang.hmcl.util.gson.JsonUtils;
 import org.jackhuang.hmcl.util.io.Zipper;
-import org.jackhuang.hmcl.mod.LocalModFile;
 import org.jackhuang.hmcl.mod.RemoteMod;
 import org.jackhuang.hmcl.mod.curse.CurseForgeRemoteModRepository;
 
@@ -46,7 +46,9 @@ public class ModrinthModpackExportTask extends Task<Void> {
         });
     }
 
-    private ModrinthManifest.File tryGetRemoteFile(Path file, String relativePath) throws IOException {
+    private ModrinthManifest.File tryGetRemoteFile(Path file, String relativePath,
+                                                   Map<Path, RemoteMod.Version> modrinthVersions,
+                                                   Map<Path, RemoteMod.Version> curseForgeVersions) throws IOException {
         if (info.isNoCreateRemoteFiles()) {
             return null;
         }
@@ -56,23 +58,8 @@ public class ModrinthModpackExportTask extends Task<Void> {
             relativePath = repository.getModManager(version).enableMod(Paths.get(relativePath)).toString();
         }
 
-        LocalModFile localModFile = null;
-        Optional<RemoteMod.Version> modrinthVersion = Optional.empty();
-        Optional<RemoteMod.Version> curseForgeVersion = Optional.empty();
-
-        try {
-            modrinthVersion = ModrinthRemoteModRepository.MODS.getRemoteVersionByLocalFile(localModFile, file);
-        } catch (IOException e) {
-            LOG.warning("Failed to get remote file from Modrinth for: " + file, e);
-        }
-
-        if (!info.isSkipCurseForgeRemoteFiles() && CurseForgeRemoteModRepository.isAvailable()) {
-            try {
-                curseForgeVersion = CurseForgeRemoteModRepository.MODS.getRemoteVersionByLocalFile(localModFile, file);
-            } catch (IOException e) {
-                LOG.warning("Failed to get remote file from CurseForge for: " + file, e);
-            }
-        }
+        Optional<RemoteMod.Version> modrinthVersion = Optional.ofNullable(modrinthVersions.get(file));
+        Optional<RemoteMod.Version> curseForgeVersion = Optional.ofNullable(curseForgeVersions.get(file));
 
         if (modrinthVersion.isEmpty() && curseForgeVersion.isEmpty()) {
             return null;
@@ -118,29 +105,52 @@ public class ModrinthModpackExportTask extends Task<Void> {
             List<ModrinthManifest.File> files = new ArrayList<>();
             Set<String> filesInManifest = new HashSet<>();
 
+            Map<Path, String> candidates = new LinkedHashMap<>();
             String[] resourceDirs = {"resourcepacks", "shaderpacks", "mods"};
             for (String dir : resourceDirs) {
                 Path dirPath = runDirectory.resolve(dir);
                 if (Files.exists(dirPath)) {
-                    Files.walk(dirPath)
-                            .filter(Files::isRegularFile)
-                            .forEach(file -> {
-                                try {
-                                    String relativePath = runDirectory.relativize(file).normalize().toString().replace(File.separatorChar, '/');
-
-                                    if (!info.getWhitelist().contains(relativePath)) {
-                                        return;
-                                    }
-
-                                    ModrinthManifest.File fileEntry = tryGetRemoteFile(file, relativePath);
-                                    if (fileEntry != null) {
-                                        files.add(fileEntry);
-                                        filesInManifest.add(relativePath);
-                                    }
-                                } catch (IOException e) {
-                                    LOG.warning("Failed to process file: " + file, e);
-                                }
-                            });
+                    try (Stream<Path> stream = Files.walk(dirPath)) {
+                        stream.filter(Files::isRegularFile).forEach(file -> {
+                            String relativePath = runDirectory.relativize(file).normalize().toString().replace(File.separatorChar, '/');
+                            if (info.getWhitelist().contains(relativePath)) {
+                                candidates.put(file, relativePath);
+                            }
+                        });
+                    }
+                }
+            }
+
+            // Resolve all files with bulk requests rather than a few requests per file
+            Map<Path, RemoteMod.Version> modrinthVersions = Map.of();
+            Map<Path, RemoteMod.Version> curseForgeVersions = Map.of();
+            if (!info.isNoCreateRemoteFiles() && !candidates.isEmpty()) {
+                try {
+                    modrinthVersions = ModrinthRemoteModRepository.MODS.getRemoteVersionsByLocalFiles(candidates.keySet());
+                } catch (IOException e) {
+                    LOG.warning("Failed to get remote files from Modrinth", e);
+                }
+
+                if (!info.isSkipCurseForgeRemoteFiles() && CurseForgeRemoteModRepository.isAvailable()) {
+                    try {
+                        curseForgeVersions = CurseForgeRemoteModRepository.MODS.getRemoteVersionsByLocalFiles(candidates.keySet());
+                    } catch (IOException e) {
+                        LOG.warning("Failed to get remote files from CurseForge", e);
+                    }
+                }
+            }
+
+            for (Map.Entry<Path, String> entry : candidates.entrySet()) {
+                Path file = entry.getKey();
+                String relativePath = entry.getValue();
+                try {
+                    ModrinthManifest.File fileEntry = tryGetRemoteFile(file, relativePath, modrinthVersions, curseForgeVersions);
+                    if (fileEntry != null) {
+                        files.add(fileEntry);
+                        filesInManifest.add(relativePath);
+                    }
+                } catch (IOException e) {
+                    LOG.warning("Failed to process file: " + file, e);
                 }
             }
 
@@ -42,6 +42,7 @@ import java.util.stream.Stream;
 import static org.jackhuang.hmcl.util.Lang.mapOf;
 import static org.jackhuang.hmcl.util.Pair.pair;
 import static org.jackhuang.hmcl.util.gson.JsonUtils.listTypeOf;
+import static org.jackhuang.hmcl.util.gson.JsonUtils.mapTypeOf;
 
 public final class ModrinthRemoteModRepository implements RemoteModRepository {
     public static final ModrinthRemoteModRepository MODS = new ModrinthRemoteModRepository("mod");
@@ -51,10 +52,24 @@ public final class ModrinthRemoteModRepository implements RemoteModRepository {
 
     private static final String PREFIX = "https://api.modrinth.com";
 
+    /**
+     * Maximum number of hashes sent in one bulk request.
+     */
+    private static final int HASH_BATCH_SIZE = 500;
+
     private final String projectType;
+    private final String apiRoot;
 
     private ModrinthRemoteModRepository(String projectType) {
+        this(projectType, PREFIX);
+    }
+
+    /**
+     * @param apiRoot the root of the Modrinth API, only changed by tests
+     */
+    ModrinthRemoteModRepository(String projectType, String apiRoot) {
         this.projectType = projectType;
+        this.apiRoot = apiRoot;
     }
 
     @Override
@@ -96,7 +111,7 @@ public final class ModrinthRemoteModRepository implements RemoteModRepository {
                 pair("limit", Integer.toString(pageSize)),
                 pair("index", convertSortType(sort))
         );
-        Response<ProjectSearchResult> response = HttpRequest.GET(downloadProvider.injectURL(NetworkUtils.withQuery(PREFIX + "/v2/search", query)))
+        Response<ProjectSearchResult> response = HttpRequest.GET(downloadProvider.injectURL(NetworkUtils.withQuery(apiRoot + "/v2/search", query)))
                 .getJson(Response.typeOf(ProjectSearchResult.class));
         return new SearchResult(response.getHits().stream().map(ProjectSearchResult::toMod), (int) Math.ceil((double) response.totalHits / pageSize));
     }
@@ -106,7 +121,7 @@ public final class ModrinthRemoteModRepository implements RemoteModRepository {
         String sha1 = DigestUtils.digestToString("SHA-1", file);
 
         try {
-            ProjectVersion mod = HttpRequest.GET(PREFIX + "/v2/version_file/" + sha1,
+            ProjectVersion mod = HttpRequest.GET(apiRoot + "/v2/version_file/" + sha1,
                             pair("algorithm", "sha1"))
                     .getJson(ProjectVersion.class);
             return mod.toVersion();
@@ -121,10 +136,169 @@ public final class ModrinthRemoteModRepository implements RemoteModRepository {
         }
     }
 
+    @Override
+    public Map<Path, RemoteMod.Version> getRemoteVersionsByLocalFiles(Collection<Path> files) throws IOException {
+        Map<String, List<Path>> filesByHash = new LinkedHashMap<>();
+        for (Path file : files) {
+            try {
+                filesByHash.computeIfAbsent(DigestUtils.digestToString("SHA-1", file), key -> new ArrayList<>(1)).add(file);
+            } catch (NoSuchFileException ignored) {
+            }
+        }
+
+        Map<Path, RemoteMod.Version> result = new LinkedHashMap<>();
+        getVersionsByHashes(filesByHash.keySet()).forEach((hash, version) ->
+                version.toVersion().ifPresent(remoteVersion -> {
+                    for (Path file : filesByHash.get(hash)) {
+                        result.put(file, remoteVersion);
+                    }
+                }));
+        return result;
+    }
+
+    /**
+     * Resolve local mod files by the SHA-1 kept in the mod metadata index, so that the files are not read again.
+     */
+    @Override
+    public Map<LocalModFile, RemoteMod.Version> getRemoteVersionsByLocalModFiles(Collection<LocalModFile> mods) throws IOException {
+        Map<String, List<LocalModFile>> modsByHash = new LinkedHashMap<>();
+        for (LocalModFile mod : mods) {
+            try {
+                modsByHash.computeIfAbsent(mod.getSha1(), key -> new ArrayList<>(1)).add(mod);
+            } catch (NoSuchFileException ignored) {
+            }
+        }
+
+        Map<LocalModFile, RemoteMod.Version> result = new LinkedHashMap<>();
+        getVersionsByHashes(modsByHash.keySet()).forEach((hash, version) ->
+                version.toVersion().ifPresent(remoteVersion -> {
+                    for (LocalModFile mod : modsByHash.get(hash)) {
+                        result.put(mod, remoteVersion);
+                    }
+                }));
+        return result;
+    }
+
+    /**
+     * Check updates of many mods with a few bulk requests, instead of several requests per mod.
+     * <p>
+     * The current versions are resolved by {@code POST /v2/version_files},
+     * then the latest compatible versions by {@code POST /v2/version_files/update}, one request per mod loader.
+     * Only the projects of the mods that have a newer version are then listed to collect all the newer compatible versions.
+     *
+     * @return the mods that have a newer compatible version
+     */
+    public List<LocalModFile.ModUpdate> checkUpdates(String gameVersion, Collection<LocalModFile> mods) throws IOException {
+        Map<String, List<LocalModFile>> modsByHash = new LinkedHashMap<>();
+        for (LocalModFile mod : mods) {
+            try {
+                modsByHash.computeIfAbsent(mod.getSha1(), key -> new ArrayList<>(1)).add(mod);
+            } catch (NoSuchFileException ignored) {
+            }
+        }
+
+        Map<String, ProjectVersion> currentVersions = getVersionsByHashes(modsByHash.keySet());
+
+        Map<String, Set<String>> hashesByLoader = new LinkedHashMap<>();
+        currentVersions.forEach((hash, version) -> {
+            for (LocalModFile mod : modsByHash.get(hash)) {
+                String loader = toLoaderName(mod.getModLoaderType());
+                if (loader != null)
+                    hashesByLoader.computeIfAbsent(loader, key -> new LinkedHashSet<>()).add(hash);
+            }
+        });
+
+        List<LocalModFile.ModUpdate> updates = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : hashesByLoader.entrySet()) {
+            String loader = entry.getKey();
+            Map<String, ProjectVersion> latestVersions = getLatestVersionsByHashes(entry.getValue(), loader, gameVersion);
+
+            for (Map.Entry<String, ProjectVersion> latestEntry : latestVersions.entrySet()) {
+                String hash = latestEntry.getKey();
+                ProjectVersion current = currentVersions.get(hash);
+                if (current == null || latestEntry.getValue() == null)
+                    continue;
+
+                Optional<RemoteMod.Version> currentVersion = current.toVersion();
+                Optional<RemoteMod.Version> latestVersion = latestEntry.getValue().toVersion();
+                if (currentVersion.isEmpty() || latestVersion.isEmpty()
+                        || !latestVersion.get().getGameVersions().contains(gameVersion)
+                        || latestVersion.get().getDatePublished().compareTo(currentVersion.get().getDatePublished()) <= 0)
+                    continue;
+
+                for (LocalModFile mod : modsByHash.get(hash)) {
+                    if (loader.equals(toLoaderName(mod.getModLoaderType()))
+                            && latestVersion.get().getLoaders().contains(mod.getModLoaderType())) {
+                        LocalModFile.ModUpdate update = mod.checkUpdates(gameVersion, this, currentVersion.get());
+                        if (update != null)
+                            updates.add(update);
+                    }
+                }
+            }
+        }
+        return updates;
+    }
+
+    private Map<String, ProjectVersion> getVersionsByHashes(Collection<String> hashes) throws IOException {
+        Map<String, ProjectVersion> result = new HashMap<>();
+        for (List<String> batch : partition(hashes)) {
+            Map<String, ProjectVersion> response = HttpRequest.POST(apiRoot + "/v2/version_files")
+                    .json(mapOf(
+                            pair("hashes", batch),
+                            pair("algorithm", "sha1")))
+                    .getJson(mapTypeOf(String.class, ProjectVersion.class));
+            if (response != null)
+                result.putAll(response);
+        }
+        return result;
+    }
+
+    private Map<String, ProjectVersion> getLatestVersionsByHashes(Collection<String> hashes, String loader, String gameVersion) throws IOException {
+        Map<String, ProjectVersion> result = new HashMap<>();
+        for (List<String> batch : partition(hashes)) {
+            Map<String, ProjectVersion> response = HttpRequest.POST(apiRoot + "/v2/version_files/update")
+                    .json(mapOf(
+                            pair("hashes", batch),
+                            pair("algorithm", "sha1"),
+                            pair("loaders", Collections.singletonList(loader)),
+                            pair("game_versions", Collections.singletonList(gameVersion))))
+                    .getJson(mapTypeOf(String.class, ProjectVersion.class));
+            if (response != null)
+                result.putAll(response);
+        }
+        return result;
+    }
+
+    private static List<List<String>> partition(Collection<String> hashes) {
+        List<String> list = new ArrayList<>(hashes);
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += HASH_BATCH_SIZE) {
+            batches.add(list.subList(from, Math.min(list.size(), from + HASH_BATCH_SIZE)));
+        }
+        return batches;
+    }
+
+    private static @Nullable String toLoaderName(ModLoaderType modLoaderType) {
+        switch (modLoaderType) {
+            case FORGE:
+                return "forge";
+            case NEO_FORGED:
+                return "neoforge";
+            case FABRIC:
+                return "fabric";
+            case QUILT:
+                return "quilt";
+            case LITE_LOADER:
+                return "liteloader";
+            default:
+                return null;
+        }
+    }
+
     @Override
     public RemoteMod getModById(String id) throws IOException {
         id = StringUtils.removePrefix(id, "local-");
-        Project project = HttpRequest.GET(PREFIX + "/v2/project/" + id).getJson(Project.class);
+        Project project = HttpRequest.GET(apiRoot + "/v2/project/" + id).getJson(Project.class);
         return project.toMod();
     }
 
@@ -136,13 +310,13 @@ public final class ModrinthRemoteModRepository implements RemoteModRepository {
     @Override
     public Stream<RemoteMod.Version> getRemoteVersionsById(String id) throws IOException {
         id = StringUtils.removePrefix(id, "local-");
-        List<ProjectVersion> versions = HttpRequest.GET(PREFIX + "/v2/project/" + id + "/version")
+        List<ProjectVersion> versions = HttpRequest.GET(apiRoot + "/v2/project/" + id + "/version")
                 .getJson(listTypeOf(ProjectVersion.class));
         return versions.stream().map(ProjectVersion::toVersion).flatMap(Lang::toStream);
     }
 
     public List<Category> getCategoriesImpl() throws IOException {
-        List<Category> categories = HttpRequest.GET(PREFIX + "/v2/tag/category").getJson(listTypeOf(Category.class));
+        List<Category> categories = HttpRequest.GET(apiRoot + "/v2/tag/category").getJson(listTypeOf(Category.class));
         return categories.stream().filter(category -> category.getProjectType().equals(projectType)).collect(Collectors.toList());
     }
 
@@ -17,6 +17,7 @@
  */
 package org.jackhuang.hmcl.task;
 
+import org.jackhuang.hmcl.download.ArtifactMalformedException;
 import org.jackhuang.hmcl.event.Event;
 import org.jackhuang.hmcl.event.EventBus;
 import org.jackhuang.hmcl.event.EventManager;
@@ -35,13 +36,16 @@ import java.net.URLConnection;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.FileSystemException;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
 
 import static org.jackhuang.hmcl.util.Lang.threadPool;
 import static org.jackhuang.hmcl.util.logging.Logger.LOG;
@@ -58,6 +62,7 @@ public abstract class FetchTask<T> extends Task<T> {
     protected final List<URI> uris;
     protected int retry = DEFAULT_RETRY;
     protected CacheRepository repository = CacheRepository.getInstance();
+    private MirrorScoreboard scoreboard = MirrorScoreboard.getInstance();
 
     public FetchTask(@NotNull List<@NotNull URI> uris) {
         Objects.requireNonNull(uris);
@@ -81,6 +86,10 @@ public abstract class FetchTask<T> extends Task<T> {
         this.repository = repository;
     }
 
+    void setMirrorScoreboard(MirrorScoreboard scoreboard) {
+        this.scoreboard = Objects.requireNonNull(scoreboard);
+    }
+
     protected void beforeDownload(URI uri) throws IOException {
     }
 
@@ -94,6 +103,55 @@ public abstract class FetchTask<T> extends Task<T> {
 
     protected abstract Context getContext(@Nullable HttpResponse<?> response, boolean checkETag, String bmclapiHash) throws IOException;
 
+    /// Returns a context that continues the partial content returned by [#getPartialContent(URI)].
+    ///
+    /// @param offset the number of bytes already downloaded, the response only contains the content after it;
+    ///               0 if the download starts over
+    protected Context getContext(HttpResponse<?> response, boolean checkETag, String bmclapiHash, long offset) throws IOException {
+        if (offset != 0)
+            throw new IllegalStateException("Partial content is not supported by " + getClass().getName());
+        return getContext(response, checkETag, bmclapiHash);
+    }
+
+    /// Returns the content of the file that has been downloaded from the URI by a previous attempt,
+    /// so that the download can be continued with a range request.
+    ///
+    /// @return the partial content, or null if the download must start over
+    protected @Nullable PartialContent getPartialContent(URI uri) {
+        return null;
+    }
+
+    /// Discards the partial content, called when the server is unable to continue it.
+    protected void discardPartialContent() {
+    }
+
+    /// @param length    the number of bytes downloaded
+    /// @param validator the strong ETag or the Last-Modified date of the content, sent as `If-Range`
+    protected record PartialContent(long length, String validator) {
+        public PartialContent {
+            if (length <= 0)
+                throw new IllegalArgumentException("Length must be positive: " + length);
+            Objects.requireNonNull(validator);
+        }
+    }
+
+    /// Returns the strong validator of the response that can be used as `If-Range`, or null if there is none.
+    protected static @Nullable String getRangeValidator(HttpResponse<?> response) {
+        String eTag = response.headers().firstValue("etag").orElse(null);
+        if (eTag != null && !eTag.startsWith("W/"))
+            return eTag;
+        return response.headers().firstValue("last-modified").orElse(null);
+    }
+
+    /// Returns a context that accepts the content of the response in arbitrary order,
+    /// so that the file can be downloaded as several byte ranges at the same time.
+    ///
+    /// @param contentLength the length of the whole content
+    /// @return the context, or null if the content must be downloaded in order
+    protected @Nullable SegmentedContext getSegmentedContext(HttpResponse<?> response, boolean checkETag, String bmclapiHash, long contentLength) throws IOException {
+        return null;
+    }
+
     @Override
     public void execute() throws Exception {
         boolean checkETag;
@@ -110,13 +168,14 @@ public abstract class FetchTask<T> extends Task<T> {
 
         ArrayList<DownloadException> exceptions = null;
 
-        if (SEMAPHORE != null)
-            SEMAPHORE.acquire();
+        SEMAPHORE.acquire();
         try {
-            for (URI uri : uris) {
+            List<URI> candidates = scoreboard.rank(uris);
+            for (int i = 0; i < candidates.size(); i++) {
+                URI uri = candidates.get(i);
                 try {
                     if (NetworkUtils.isHttpUri(uri))
-                        downloadHttp(uri, checkETag);
+                        downloadHttp(uri, checkETag, i < candidates.size() - 1);
                     else
                         downloadNotHttp(uri);
                     return;
@@ -129,8 +188,7 @@ public abstract class FetchTask<T> extends Task<T> {
         } catch (InterruptedException ignored) {
             // Cancelled
         } finally {
-            if (SEMAPHORE != null)
-                SEMAPHORE.release();
+            SEMAPHORE.release();
         }
 
         if (exceptions != null) {
@@ -142,20 +200,50 @@ public abstract class FetchTask<T> extends Task<T> {
         }
     }
 
-    private void download(Context context,
+    /// @return the number of bytes read from the response body
+    /// @param offset        the number of bytes of the content downloaded before, which the input stream does not contain
+    /// @param contentLength the number of bytes of the input stream, or -1 if unknown
+    private long download(Context context,
                           InputStream inputStream,
+                          long offset,
                           long contentLength,
                           ContentEncoding contentEncoding) throws IOException, InterruptedException {
+        try (Closeable ignored = () -> closeContext(context);
+             var counter = new CounterInputStream(inputStream);
+             var input = contentEncoding.wrap(counter)) {
+            transfer(input, counter, Long.MAX_VALUE, context::write, delta -> {
+                if (contentLength >= 0) {
+                    // Update progress information per second
+                    updateProgress(offset + counter.downloaded, offset + contentLength);
+                }
+            });
+
+            if (contentLength >= 0 && counter.downloaded != contentLength)
+                throw new IOException("Unexpected file size: " + counter.downloaded + ", expected: " + contentLength);
+
+            context.withResult(true);
+            return counter.downloaded;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Sink {
+        void write(byte[] buffer, int offset, int len) throws IOException;
+    }
+
+    /// Copies at most `limit` bytes from the input to the sink, aborting the transfer if no data arrives for a while.
+    ///
+    /// @param counter    counts the bytes received from the network, which may differ from the bytes of `input` when it is compressed
+    /// @param onProgress receives the number of bytes received from the network since the last call
+    private void transfer(InputStream input, CounterInputStream counter, long limit, Sink sink, LongConsumer onProgress)
+            throws IOException, InterruptedException {
         long stallTimeoutMillis = Long.getLong("hmcl.download.stall_timeout", 120000L);
         AtomicLong lastProgressAt = new AtomicLong(System.nanoTime());
         AtomicBoolean stalled = new AtomicBoolean(false);
-        AtomicReference<InputStream> streamRef = new AtomicReference<>();
+        AtomicReference<InputStream> streamRef = new AtomicReference<>(input);
         TimerTask stallTask = null;
 
-        try (var ignored = context;
-             var counter = new CounterInputStream(inputStream);
-             var input = contentEncoding.wrap(counter)) {
-            streamRef.set(input);
+        try {
             if (stallTimeoutMillis > 0) {
                 long interval = Math.max(1000L, stallTimeoutMillis / 2);
                 stallTask = new TimerTask() {
@@ -175,38 +263,36 @@ public abstract class FetchTask<T> extends Task<T> {
                 timer.scheduleAtFixedRate(stallTask, interval, interval);
             }
 
-            long lastDownloaded = 0L;
+            long lastDownloaded = counter.downloaded;
+            long remaining = limit;
             byte[] buffer = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
-            while (true) {
-                if (isCancelled()) break;
+            while (remaining > 0) {
+                if (isCancelled() || Thread.currentThread().isInterrupted()) break;
 
-                int len = input.read(buffer);
+                int len = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
                 if (len == -1) break;
 
-                context.write(buffer, 0, len);
+                try {
+                    sink.write(buffer, 0, len);
+                } catch (IOException e) {
+                    throw new LocalIOException(e);
+                }
                 if (len > 0) {
+                    remaining -= len;
                     lastProgressAt.set(System.nanoTime());
                     stalled.set(false);
                 }
 
-                if (contentLength >= 0) {
-                    // Update progress information per second
-                    updateProgress(counter.downloaded, contentLength);
-                }
-
-                updateDownloadSpeed(counter.downloaded - lastDownloaded);
+                long delta = counter.downloaded - lastDownloaded;
                 lastDownloaded = counter.downloaded;
+                updateDownloadSpeed(delta);
+                onProgress.accept(delta);
             }
 
-            if (isCancelled())
+            if (isCancelled() || Thread.currentThread().isInterrupted())
                 throw new InterruptedException();
 
             updateDownloadSpeed(counter.downloaded - lastDownloaded);
-
-            if (contentLength >= 0 && counter.downloaded != contentLength)
-                throw new IOException("Unexpected file size: " + counter.downloaded + ", expected: " + contentLength);
-
-            context.withResult(true);
         } finally {
             streamRef.set(null);
             if (stallTask != null) {
@@ -215,7 +301,167 @@ public abstract class FetchTask<T> extends Task<T> {
         }
     }
 
-    private void downloadHttp(URI uri, boolean checkETag) throws DownloadException, InterruptedException {
+    private static boolean acceptsRanges(HttpResponse<?> response) {
+        return response.statusCode() == HttpURLConnection.HTTP_OK
+                && response.headers().allValues("accept-ranges").stream().anyMatch(value -> value.equalsIgnoreCase("bytes"));
+    }
+
+    /// Downloads the file as several byte ranges fetched concurrently.
+    ///
+    /// The first range is read from the body of `response`, and the other ranges are requested from `uri`,
+    /// which should be the final location after redirects.
+    /// Only as many extra connections are opened as the global download concurrency allows at the moment.
+    ///
+    /// @param validator the validator of `response`, sent as `If-Range` so that all the ranges belong to the same content
+    /// @return the number of bytes downloaded
+    private long downloadSegmented(SegmentedContext context, URI uri, HttpResponse<InputStream> response, String validator, long contentLength)
+            throws IOException, InterruptedException {
+        int maxSegments = (int) Math.max(1, Math.min(SEGMENT_COUNT, contentLength / MIN_SEGMENT_SIZE));
+        int extraSegments = 0;
+        while (extraSegments < maxSegments - 1 && SEMAPHORE.tryAcquire())
+            extraSegments++;
+
+        int segments = extraSegments + 1;
+        long segmentSize = (contentLength + segments - 1) / segments;
+        AtomicLong downloaded = new AtomicLong();
+        LongConsumer onProgress = delta -> updateProgress(Math.min(downloaded.addAndGet(delta), contentLength), contentLength);
+        // The end of the bytes written by each segment so far
+        AtomicLongArray positions = new AtomicLongArray(segments);
+        List<Future<?>> futures = new ArrayList<>(extraSegments);
+        AtomicBoolean contentChanged = new AtomicBoolean();
+
+        try (Closeable ignored = () -> closeContext(context)) {
+            try {
+                for (int i = 1; i < segments; i++) {
+                    int segment = i;
+                    long start = i * segmentSize;
+                    long end = Math.min(contentLength, start + segmentSize);
+                    positions.set(i, start);
+                    futures.add(SEGMENT_EXECUTOR.submit(() -> {
+                        try {
+                            downloadRange(context, uri, validator, start, end, onProgress, position -> positions.set(segment, position));
+                        } catch (ContentChangedException e) {
+                            contentChanged.set(true);
+                            throw e;
+                        }
+                        return null;
+                    }));
+                }
+
+                try (var counter = new CounterInputStream(response.body())) {
+                    transfer(counter, counter, segmentSize, (buffer, offset, len) -> {
+                        long position = positions.get(0);
+                        context.write(position, buffer, offset, len);
+                        positions.set(0, position + len);
+                    }, onProgress);
+                    if (positions.get(0) != Math.min(segmentSize, contentLength))
+                        throw new IOException("Unexpected size of the first segment: " + positions.get(0));
+                }
+
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        if (cause instanceof IOException ioException)
+                            throw ioException;
+                        else if (cause instanceof InterruptedException interruptedException)
+                            throw interruptedException;
+                        else
+                            throw new IOException("Failed to download segment of " + uri, cause);
+                    }
+                }
+
+                context.withResult(true);
+                return downloaded.get();
+            } finally {
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+
+                if (!context.isSuccess()) {
+                    // The bytes before the first unfinished segment can be continued by a later attempt,
+                    // unless the content has changed in the meantime
+                    long completed = positions.get(0);
+                    for (int i = 1; i < segments && completed == i * segmentSize; i++) {
+                        completed = positions.get(i);
+                    }
+                    context.setCompletedLength(contentChanged.get() ? 0 : completed);
+                }
+            }
+        } finally {
+            if (extraSegments > 0)
+                SEMAPHORE.release(extraSegments);
+        }
+    }
+
+    /// Downloads the bytes in `[start, end)`, resuming from the last received byte when the connection breaks.
+    ///
+    /// @param validator the validator of the content, sent as `If-Range`
+    /// @param onWritten receives the end of the bytes written so far
+    /// @throws ContentChangedException if the server sends another version of the content, which is not retried
+    private void downloadRange(SegmentedContext context, URI uri, String validator, long start, long end, LongConsumer onProgress, LongConsumer onWritten)
+            throws IOException, InterruptedException {
+        long[] position = {start};
+        IOException exception = null;
+        for (int retryTime = 0; retryTime < SEGMENT_RETRY && position[0] < end; retryTime++) {
+            if (isCancelled() || Thread.currentThread().isInterrupted())
+                throw new InterruptedException();
+
+            try {
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .timeout(Duration.ofMillis(DOWNLOAD_REQUEST_TIMEOUT))
+                        .header("User-Agent", Holder.USER_AGENT)
+                        .header("Range", "bytes=" + position[0] + "-" + (end - 1))
+                        .header("If-Range", validator)
+                        .build();
+                HttpResponse<InputStream> response = Holder.HTTP_CLIENT.send(request, BODY_HANDLER);
+                if (response.statusCode() == HttpURLConnection.HTTP_OK) {
+                    // The server ignores If-Range and sends the whole content when it no longer matches
+                    IOUtils.closeQuietly(response.body());
+                    throw new ContentChangedException(uri);
+                }
+                if (response.statusCode() != HttpURLConnection.HTTP_PARTIAL) {
+                    IOUtils.closeQuietly(response.body());
+                    throw new ResponseCodeException(uri, response.statusCode());
+                }
+                String responseValidator = getRangeValidator(response);
+                if (responseValidator != null && !responseValidator.equals(validator)) {
+                    IOUtils.closeQuietly(response.body());
+                    throw new ContentChangedException(uri);
+                }
+
+                String contentRange = response.headers().firstValue("content-range").orElse("");
+                if (!contentRange.startsWith("bytes " + position[0] + "-")) {
+                    IOUtils.closeQuietly(response.body());
+                    throw new IOException("Unexpected content range '" + contentRange + "', expected bytes " + position[0] + "-" + (end - 1));
+                }
+
+                try (var counter = new CounterInputStream(response.body())) {
+                    transfer(counter, counter, end - position[0], (buffer, offset, len) -> {
+                        context.write(position[0], buffer, offset, len);
+                        position[0] += len;
+                        onWritten.accept(position[0]);
+                    }, onProgress);
+                }
+            } catch (ContentChangedException | LocalIOException e) {
+                throw e;
+            } catch (IOException e) {
+                LOG.warning("Failed to download bytes " + position[0] + "-" + (end - 1) + " of " + uri + ", repeat times: " + retryTime, e);
+                if (exception == null)
+                    exception = e;
+                else
+                    exception.addSuppressed(e);
+            }
+        }
+
+        if (position[0] < end)
+            throw exception != null ? exception : new IOException("Unexpected end of segment at " + position[0] + ", expected " + end);
+    }
+
+    /// @param hasFallback whether there are other candidates after this one, so that retries can be given up early
+    ///                    when the scoreboard demotes the host of this candidate
+    private void downloadHttp(URI uri, boolean checkETag, boolean hasFallback) throws DownloadException, InterruptedException {
         if (checkETag) {
             // Handle cache
             try {
@@ -246,11 +492,21 @@ public abstract class FetchTask<T> extends Task<T> {
 
                 URI currentURI = uri;
 
+                PartialContent partialContent = getPartialContent(uri);
+
                 LinkedHashMap<String, String> headers = new LinkedHashMap<>();
-                headers.put("accept-encoding", "gzip");
-                if (useCachedResult && checkETag)
-                    headers.putAll(repository.injectConnection(uri));
+                if (partialContent != null) {
+                    // Byte ranges of a compressed response refer to the compressed content, so resume without compression
+                    headers.put("accept-encoding", "identity");
+                    headers.put("range", "bytes=" + partialContent.length() + "-");
+                    headers.put("if-range", partialContent.validator());
+                } else {
+                    headers.put("accept-encoding", "gzip");
+                    if (useCachedResult && checkETag)
+                        headers.putAll(repository.injectConnection(uri));
+                }
 
+                long requestStart = System.nanoTime();
                 do {
                     HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(currentURI)
                             .timeout(Duration.ofMillis(DOWNLOAD_REQUEST_TIMEOUT))
@@ -312,6 +568,11 @@ public abstract class FetchTask<T> extends Task<T> {
                         retryLimit++;
                         continue;
                     }
+                } else if (partialContent != null && responseCode == 416) {
+                    LOG.info("Unable to resume " + NetworkUtils.dropQuery(uri) + ", downloading it again");
+                    discardPartialContent();
+                    retryLimit++;
+                    continue;
                 } else if (responseCode / 100 == 4) {
                     throw new FileNotFoundException(uri.toString());
                 } else if (responseCode / 100 != 2) {
@@ -321,10 +582,41 @@ public abstract class FetchTask<T> extends Task<T> {
                 long contentLength = response.headers().firstValueAsLong("content-length").orElse(-1L);
                 var contentEncoding = ContentEncoding.fromResponse(response);
 
-                download(getContext(response, checkETag, bmclapiHash),
+                long offset = 0;
+                if (partialContent != null && responseCode == HttpURLConnection.HTTP_PARTIAL) {
+                    String contentRange = response.headers().firstValue("content-range").orElse("");
+                    if (!contentRange.startsWith("bytes " + partialContent.length() + "-")) {
+                        IOUtils.closeQuietly(response.body());
+                        discardPartialContent();
+                        throw new IOException("Unexpected content range '" + contentRange + "', expected bytes " + partialContent.length() + "-");
+                    }
+                    offset = partialContent.length();
+                    LOG.info("Resuming " + NetworkUtils.dropQuery(uri) + " from byte " + offset);
+                }
+
+                long transferStart = System.nanoTime();
+                SegmentedContext segmentedContext = null;
+                String rangeValidator = getRangeValidator(response);
+                Context context = null;
+                try {
+                    if (offset == 0 && SEGMENT_COUNT > 1 && contentLength >= SEGMENT_THRESHOLD && rangeValidator != null
+                            && contentEncoding == ContentEncoding.IDENTITY && acceptsRanges(response))
+                        segmentedContext = getSegmentedContext(response, checkETag, bmclapiHash, contentLength);
+                    else
+                        context = getContext(response, checkETag, bmclapiHash, offset);
+                } catch (IOException e) {
+                    IOUtils.closeQuietly(response.body());
+                    throw new LocalIOException(e);
+                }
+
+                long bytes = segmentedContext != null
+                        ? downloadSegmented(segmentedContext, currentURI, response, rangeValidator, contentLength)
+                        : download(context,
                         response.body(),
+                        offset,
                         contentLength,
                         contentEncoding);
+                scoreboard.recordSuccess(uri, transferStart - requestStart, bytes, System.nanoTime() - transferStart);
                 return;
             } catch (InterruptedException e) {
                 throw e;
@@ -335,9 +627,19 @@ public abstract class FetchTask<T> extends Task<T> {
                 if (exceptions == null)
                     exceptions = new ArrayList<>();
 
-                exceptions.add(ex);
+                Exception failure = ex instanceof LocalIOException ? (IOException) ex.getCause() : ex;
+                exceptions.add(failure);
+
+                LOG.warning("Failed to download " + uri + ", repeat times: " + retryTime + (redirects == null ? "" : ", redirects: " + redirects), failure);
+
+                if (!isMirrorFailure(ex))
+                    continue;
 
-                LOG.warning("Failed to download " + uri + ", repeat times: " + retryTime + (redirects == null ? "" : ", redirects: " + redirects), ex);
+                scoreboard.recordFailure(uri);
+                if (hasFallback && scoreboard.isDemoted(uri)) {
+                    LOG.info("Giving up " + NetworkUtils.dropQuery(uri) + " early, trying the next mirror");
+                    break;
+                }
             }
         }
 
@@ -358,6 +660,7 @@ public abstract class FetchTask<T> extends Task<T> {
                 URLConnection conn = NetworkUtils.createConnection(uri);
                 download(getContext(),
                         conn.getInputStream(),
+                        0,
                         conn.getContentLengthLong(),
                         ContentEncoding.fromConnection(conn));
                 return;
@@ -379,6 +682,25 @@ public abstract class FetchTask<T> extends Task<T> {
         throw toDownloadException(uri, null, exceptions);
     }
 
+    /// Returns whether the exception is caused by the mirror or the network, such as a timeout or an error response code,
+    /// rather than by the local disk, a checksum mismatch, or a cancellation, which do not count against the mirror.
+    static boolean isMirrorFailure(Exception ex) {
+        return ex instanceof IOException
+                && !(ex instanceof LocalIOException)
+                && !(ex instanceof ContentChangedException)
+                && !(ex instanceof ArtifactMalformedException)
+                && !(ex instanceof FileSystemException);
+    }
+
+    /// Closes the context, which moves the downloaded file to its destination when the download succeeds.
+    private static void closeContext(Closeable context) throws LocalIOException {
+        try {
+            context.close();
+        } catch (IOException e) {
+            throw new LocalIOException(e);
+        }
+    }
+
     private static DownloadException toDownloadException(URI uri, @Nullable Exception last, @Nullable ArrayList<Exception> exceptions) {
         if (exceptions == null || exceptions.isEmpty()) {
             return new DownloadException(uri, last != null
@@ -478,6 +800,49 @@ public abstract class FetchTask<T> extends Task<T> {
         }
     }
 
+    /// Thrown when a range request returns another version of the content than the first response.
+    private static final class ContentChangedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ContentChangedException(URI uri) {
+            super("The content of " + uri + " has changed during the download");
+        }
+    }
+
+    /// Wraps an error of reading or writing the local files of the download, which says nothing about the mirror.
+    private static final class LocalIOException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LocalIOException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    protected static abstract class SegmentedContext implements Closeable {
+        private boolean success;
+        private long completedLength;
+
+        /// Writes the bytes at the given position of the content. It may be called from several threads at the same time.
+        public abstract void write(long position, byte[] buffer, int offset, int len) throws IOException;
+
+        public void withResult(boolean success) {
+            this.success = success;
+        }
+
+        protected boolean isSuccess() {
+            return success;
+        }
+
+        /// Sets the length of the leading bytes that have been written completely, when the download fails.
+        public void setCompletedLength(long completedLength) {
+            this.completedLength = completedLength;
+        }
+
+        protected long getCompletedLength() {
+            return completedLength;
+        }
+    }
+
     protected enum EnumCheckETag {
         CHECK_E_TAG,
         NOT_CHECK_E_TAG,
@@ -495,19 +860,29 @@ public abstract class FetchTask<T> extends Task<T> {
     private static int downloadExecutorConcurrency = DEFAULT_CONCURRENCY;
 
     // For Java 21 or later, DOWNLOAD_EXECUTOR dispatches tasks to virtual threads, and concurrency is controlled by SEMAPHORE.
-    // For versions earlier than Java 21, DOWNLOAD_EXECUTOR is a ThreadPoolExecutor, SEMAPHORE is null, and concurrency is controlled by the thread pool size.
+    // For versions earlier than Java 21, DOWNLOAD_EXECUTOR is a ThreadPoolExecutor of the same size as SEMAPHORE.
+    // In both cases, each download and each extra segment of a segmented download holds a permit of SEMAPHORE,
+    // so that the number of connections never exceeds the download concurrency.
 
     private static final ExecutorService DOWNLOAD_EXECUTOR;
-    private static final @Nullable Semaphore SEMAPHORE;
+    private static final Semaphore SEMAPHORE = new Semaphore(DEFAULT_CONCURRENCY);
+    private static final ExecutorService SEGMENT_EXECUTOR;
+
+    /// Files at least this large are downloaded as several byte ranges when the server supports it.
+    private static final long SEGMENT_THRESHOLD = Long.getLong("hmcl.download.segment_threshold", 16L * 1024 * 1024);
+    /// The maximum number of byte ranges a file is split into. Segmented downloads are disabled if it is not greater than 1.
+    private static final int SEGMENT_COUNT = Integer.getInteger("hmcl.download.segments", 4);
+    private static final long MIN_SEGMENT_SIZE = 4L * 1024 * 1024;
+    private static final int SEGMENT_RETRY = 3;
 
     static {
         ExecutorService executorService = Schedulers.newVirtualThreadPerTaskExecutor("Download");
         if (executorService != null) {
             DOWNLOAD_EXECUTOR = executorService;
-            SEMAPHORE = new Semaphore(DEFAULT_CONCURRENCY);
+            SEGMENT_EXECUTOR = executorService;
         } else {
             DOWNLOAD_EXECUTOR = threadPool("Download", true, downloadExecutorConcurrency, 10, TimeUnit.SECONDS);
-            SEMAPHORE = null;
+            SEGMENT_EXECUTOR = threadPool("DownloadSegment", true, DEFAULT_CONCURRENCY, 10, TimeUnit.SECONDS);
         }
     }
 
@@ -521,24 +896,24 @@ public abstract class FetchTask<T> extends Task<T> {
             return;
 
         downloadExecutorConcurrency = concurrency;
-        if (SEMAPHORE != null) {
-            if (change > 0) {
-                SEMAPHORE.release(change);
-            } else {
-                int permits = -change;
-                if (!SEMAPHORE.tryAcquire(permits)) {
-                    Schedulers.io().execute(() -> {
-                        try {
-                            for (int i = 0; i < permits; i++) {
-                                SEMAPHORE.acquire();
-                            }
-                        } catch (InterruptedException e) {
-                            throw new AssertionError("Unreachable", e);
+        if (change > 0) {
+            SEMAPHORE.release(change);
+        } else {
+            int permits = -change;
+            if (!SEMAPHORE.tryAcquire(permits)) {
+                Schedulers.io().execute(() -> {
+                    try {
+                        for (int i = 0; i < permits; i++) {
+                            SEMAPHORE.acquire();
                         }
-                    });
-                }
+                    } catch (InterruptedException e) {
+                        throw new AssertionError("Unreachable", e);
+                    }
+                });
             }
-        } else {
+        }
+
+        if (DOWNLOAD_EXECUTOR instanceof ThreadPoolExecutor) {
             var downloadExecutor = (ThreadPoolExecutor) DOWNLOAD_EXECUTOR;
 
             if (downloadExecutor.getMaximumPoolSize() <= concurrency) {
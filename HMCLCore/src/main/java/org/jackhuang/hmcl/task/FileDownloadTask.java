@@ -17,22 +17,34 @@
  */
 package org.jackhuang.hmcl.task;
 
+import com.google.gson.JsonParseException;
 import org.jackhuang.hmcl.util.DigestUtils;
+import org.jackhuang.hmcl.util.StringUtils;
+import org.jackhuang.hmcl.util.gson.JsonUtils;
 import org.jackhuang.hmcl.util.io.ChecksumMismatchException;
 import org.jackhuang.hmcl.util.io.CompressingUtils;
 import org.jackhuang.hmcl.util.io.FileUtils;
+import org.jackhuang.hmcl.util.io.IOUtils;
 import org.jackhuang.hmcl.util.io.NetworkUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Objects.requireNonNull;
 import static org.jackhuang.hmcl.util.logging.Logger.LOG;
@@ -78,6 +90,19 @@ public class FileDownloadTask extends FetchTask<Void> {
     private Path candidate;
     private final ArrayList<IntegrityCheckHandler> integrityCheckHandlers = new ArrayList<>();
 
+    /// Partial downloads shorter than this are not kept for resuming.
+    private static final long MIN_PARTIAL_LENGTH = 1024 * 1024;
+    /// The partial files being written, so that two tasks downloading to the same file do not write the same partial file.
+    private static final Set<Path> ACTIVE_PART_FILES = ConcurrentHashMap.newKeySet();
+    /// Partial files that have not been continued for this long are deleted.
+    private static final long STALE_PARTIAL_AGE = TimeUnit.DAYS.toMillis(7);
+    /// The directories of partial files whose stale files have been deleted in this session.
+    private static final Set<Path> CLEANED_PARTIAL_DIRECTORIES = ConcurrentHashMap.newKeySet();
+
+    private boolean partFileClaimed;
+    private Path partFile;
+    private volatile URI downloadingURI;
+
     /**
      * @param uri  the URI of remote file.
      * @param path the location that download to.
@@ -161,7 +186,7 @@ public class FileDownloadTask extends FetchTask<Void> {
             Optional<Path> cache = repository.checkExistentFile(candidate, integrityCheck.getAlgorithm(), integrityCheck.getChecksum());
             if (cache.isPresent()) {
                 try {
-                    FileUtils.copyFile(cache.get(), file);
+                    repository.materialize(cache.get(), file);
                     LOG.trace("Successfully verified file " + file + " from " + uris.get(0));
                     return EnumCheckETag.CACHED;
                 } catch (IOException e) {
@@ -174,36 +199,188 @@ public class FileDownloadTask extends FetchTask<Void> {
         }
     }
 
+    @Override
+    public void execute() throws Exception {
+        try {
+            super.execute();
+        } finally {
+            if (partFile != null)
+                ACTIVE_PART_FILES.remove(partFile);
+        }
+    }
+
     @Override
     protected void beforeDownload(URI uri) {
         LOG.trace("Downloading " + uri + " to " + file);
+        this.downloadingURI = uri;
     }
 
     @Override
     protected void useCachedResult(Path cache) throws IOException {
-        FileUtils.copyFile(cache, file);
+        repository.materialize(cache, file);
+        discardPartialContent();
+    }
+
+    /// Returns the file that the content is downloaded to before it is complete, or null if another task is downloading to the same file.
+    ///
+    /// Partial files are kept in the `partial` directory of the cache, named after the hash of the destination,
+    /// so that they never show up next to the destination, for example as broken mods in the `mods` directory.
+    private Path getPartFile() {
+        if (!partFileClaimed) {
+            partFileClaimed = true;
+            Path cacheDirectory = repository.getCacheDirectory();
+            if (cacheDirectory == null)
+                return null;
+
+            Path directory = cacheDirectory.toAbsolutePath().resolve("partial");
+            if (CLEANED_PARTIAL_DIRECTORIES.add(directory))
+                deleteStalePartFiles(directory);
+
+            String key = HexFormat.of().formatHex(DigestUtils.digest("SHA-1",
+                    file.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8)));
+            Path path = directory.resolve(key + ".part");
+            if (ACTIVE_PART_FILES.add(path))
+                partFile = path;
+        }
+        return partFile;
+    }
+
+    /// Deletes the partial files of downloads that have been abandoned.
+    private static void deleteStalePartFiles(Path directory) {
+        if (!Files.isDirectory(directory))
+            return;
+
+        long staleBefore = System.currentTimeMillis() - STALE_PARTIAL_AGE;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path) && Files.getLastModifiedTime(path).toMillis() < staleBefore) {
+                    LOG.info("Deleting stale partial download " + path);
+                    deleteTempFile(path);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warning("Unable to clean partial downloads in " + directory, e);
+        }
+    }
+
+    private static Path getSidecarFile(Path partFile) {
+        return partFile.resolveSibling(partFile.getFileName() + ".json");
+    }
+
+    @Override
+    protected PartialContent getPartialContent(URI uri) {
+        Path part = getPartFile();
+        if (part == null)
+            return null;
+
+        Path sidecar = getSidecarFile(part);
+        if (!Files.isRegularFile(part) || !Files.isRegularFile(sidecar))
+            return null;
+
+        try {
+            PartialDownload info = JsonUtils.fromJsonFile(sidecar, PartialDownload.class);
+            if (info == null || !uri.toString().equals(info.url()) || StringUtils.isBlank(info.validator()))
+                return null;
+
+            long size = Files.size(part);
+            long length = info.length() >= 0 ? Math.min(info.length(), size) : size;
+            return length > 0 ? new PartialContent(length, info.validator()) : null;
+        } catch (IOException | JsonParseException e) {
+            LOG.warning("Unable to read partial download " + sidecar, e);
+            return null;
+        }
+    }
+
+    @Override
+    protected void discardPartialContent() {
+        Path part = getPartFile();
+        if (part != null) {
+            deleteTempFile(getSidecarFile(part));
+            deleteTempFile(part);
+        }
+    }
+
+    /// Records how to continue the partial file, or removes the record if the response cannot be continued.
+    ///
+    /// @param length the number of leading bytes of the partial file that are complete, or -1 for the whole file
+    /// @return whether the partial file can be continued
+    private boolean writeSidecar(Path part, HttpResponse<?> response, long length) {
+        Path sidecar = getSidecarFile(part);
+        String validator = getRangeValidator(response);
+        URI uri = downloadingURI;
+        if (validator == null || uri == null) {
+            deleteTempFile(sidecar);
+            return false;
+        }
+
+        try {
+            FileUtils.saveSafely(sidecar, JsonUtils.UGLY_GSON.toJson(new PartialDownload(uri.toString(), validator, length)));
+            return true;
+        } catch (IOException e) {
+            LOG.warning("Unable to save partial download " + sidecar, e);
+            return false;
+        }
+    }
+
+    private IntegrityCheck getIntegrityCheck(String bmclapiHash) {
+        if (integrityCheck != null)
+            return integrityCheck;
+        else if (bmclapiHash != null && DigestUtils.isSha1Digest(bmclapiHash))
+            return new IntegrityCheck("SHA-1", bmclapiHash);
+        else
+            return null;
     }
 
     @Override
     protected Context getContext(HttpResponse<?> response, boolean checkETag, String bmclapiHash) throws IOException {
-        Path temp = Files.createTempFile(null, null);
-
-        String algorithm;
-        String checksum;
-        if (integrityCheck != null) {
-            algorithm = integrityCheck.getAlgorithm();
-            checksum = integrityCheck.getChecksum();
-        } else if (bmclapiHash != null && DigestUtils.isSha1Digest(bmclapiHash)) {
-            algorithm = "SHA-1";
-            checksum = bmclapiHash;
+        return getContext(response, checkETag, bmclapiHash, 0);
+    }
+
+    @Override
+    protected Context getContext(HttpResponse<?> response, boolean checkETag, String bmclapiHash, long offset) throws IOException {
+        Path part = response != null ? getPartFile() : null;
+        Path temp;
+        if (part != null) {
+            Files.createDirectories(part.getParent());
+            temp = part;
         } else {
-            algorithm = null;
-            checksum = null;
+            temp = Files.createTempFile(null, null);
         }
 
-        MessageDigest digest = algorithm != null ? DigestUtils.getDigest(algorithm) : null;
+        IntegrityCheck check = getIntegrityCheck(bmclapiHash);
+        MessageDigest digest = check != null ? DigestUtils.getDigest(check.getAlgorithm()) : null;
+
+        OutputStream fileOutput;
+        boolean resumable;
+        if (offset > 0) {
+            if (part == null)
+                throw new IllegalStateException("No partial file to continue");
+
+            // Bring the digest up to date with the bytes downloaded before
+            if (digest != null) {
+                try (InputStream input = Files.newInputStream(part)) {
+                    byte[] buffer = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
+                    long remaining = offset;
+                    while (remaining > 0) {
+                        int n = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (n < 0)
+                            throw new IOException("Partial file " + part + " is shorter than " + offset + " bytes");
+                        digest.update(buffer, 0, n);
+                        remaining -= n;
+                    }
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                channel.truncate(offset);
+            }
+            fileOutput = Files.newOutputStream(part, StandardOpenOption.APPEND);
+            resumable = true;
+        } else {
+            fileOutput = Files.newOutputStream(temp);
+            resumable = part != null && writeSidecar(part, response, -1);
+        }
 
-        OutputStream fileOutput = Files.newOutputStream(temp);
         return new Context() {
             @Override
             public void write(byte[] buffer, int offset, int len) throws IOException {
@@ -223,49 +400,132 @@ public class FileDownloadTask extends FetchTask<Void> {
                 }
 
                 if (!isSuccess()) {
-                    try {
-                        Files.deleteIfExists(temp);
-                    } catch (IOException e) {
-                        LOG.warning("Failed to delete file: " + temp, e);
+                    if (!resumable || Files.size(temp) < MIN_PARTIAL_LENGTH) {
+                        if (part != null)
+                            deleteTempFile(getSidecarFile(part));
+                        deleteTempFile(temp);
                     }
                     return;
                 }
 
-                for (IntegrityCheckHandler handler : integrityCheckHandlers) {
-                    handler.checkIntegrity(temp, file);
-                }
+                if (part != null)
+                    deleteTempFile(getSidecarFile(part));
+                complete(temp, check, () -> HexFormat.of().formatHex(digest.digest()), response, checkETag);
+            }
+        };
+    }
 
-                Files.createDirectories(file.toAbsolutePath().getParent());
+    @Override
+    protected SegmentedContext getSegmentedContext(HttpResponse<?> response, boolean checkETag, String bmclapiHash, long contentLength) throws IOException {
+        Path part = getPartFile();
+        Path temp;
+        if (part != null) {
+            Files.createDirectories(part.getParent());
+            // The segments leave holes in the file until they finish, so the file cannot be continued before the record is written again
+            deleteTempFile(getSidecarFile(part));
+            Files.deleteIfExists(part);
+            temp = Files.createFile(part);
+        } else {
+            temp = Files.createTempFile(null, null);
+        }
 
-                try {
-                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
-                } catch (Exception e) {
-                    throw new IOException("Unable to move temp file from " + temp + " to " + file, e);
-                }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+            // Preallocate the file, so that the segments can be written at their positions
+            channel.write(ByteBuffer.allocate(1), contentLength - 1);
+        } catch (IOException e) {
+            deleteTempFile(temp);
+            throw e;
+        }
 
-                // Integrity check
-                if (checksum != null) {
-                    String actualChecksum = HexFormat.of().formatHex(digest.digest());
-                    if (!checksum.equalsIgnoreCase(actualChecksum)) {
-                        throw new ChecksumMismatchException(algorithm, checksum, actualChecksum);
-                    }
+        IntegrityCheck check = getIntegrityCheck(bmclapiHash);
+        return new SegmentedContext() {
+            @Override
+            public void write(long position, byte[] buffer, int offset, int len) throws IOException {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, offset, len);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
                 }
+            }
 
-                if (caching && algorithm != null) {
-                    try {
-                        repository.cacheFile(file, algorithm, checksum);
-                    } catch (IOException e) {
-                        LOG.warning("Failed to cache file", e);
-                    }
+            @Override
+            public void close() throws IOException {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    LOG.warning("Failed to close file: " + temp, e);
                 }
 
-                if (checkETag) {
-                    repository.cacheRemoteFile(response, file);
+                if (!isSuccess()) {
+                    if (part == null || getCompletedLength() < MIN_PARTIAL_LENGTH || !writeSidecar(part, response, getCompletedLength()))
+                        deleteTempFile(temp);
+                    return;
                 }
+
+                // The segments arrive out of order, so the checksum can only be computed over the assembled file
+                complete(temp, check, () -> DigestUtils.digestToString(check.getAlgorithm(), file), response, checkETag);
             }
         };
     }
 
+    private static void deleteTempFile(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            LOG.warning("Failed to delete file: " + temp, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChecksumSupplier {
+        String get() throws IOException;
+    }
+
+    /// Moves the downloaded temporary file to its destination, then verifies and caches it.
+    private void complete(Path temp, IntegrityCheck check, ChecksumSupplier actualChecksum,
+                          HttpResponse<?> response, boolean checkETag) throws IOException {
+        for (IntegrityCheckHandler handler : integrityCheckHandlers) {
+            handler.checkIntegrity(temp, file);
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            throw new IOException("Unable to move temp file from " + temp + " to " + file, e);
+        }
+
+        // Integrity check
+        if (check != null) {
+            String actual = actualChecksum.get();
+            if (!check.getChecksum().equalsIgnoreCase(actual)) {
+                throw new ChecksumMismatchException(check.getAlgorithm(), check.getChecksum(), actual);
+            }
+        }
+
+        if (caching && check != null) {
+            try {
+                repository.cacheFile(file, check.getAlgorithm(), check.getChecksum());
+            } catch (IOException e) {
+                LOG.warning("Failed to cache file", e);
+            }
+        }
+
+        if (checkETag) {
+            repository.cacheRemoteFile(response, file);
+        }
+    }
+
+    /// The record kept next to a partial file, describing how to continue it.
+    ///
+    /// @param url       the URL the partial file was downloaded from
+    /// @param validator the strong ETag or the Last-Modified date of the content
+    /// @param length    the number of leading bytes of the partial file that are complete, or -1 for the whole file
+    private record PartialDownload(String url, String validator, long length) {
+    }
+
     public interface IntegrityCheckHandler {
         /**
          * Check whether the file is corrupted or not.
@@ -0,0 +1,223 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.task;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/// Records the recent performance of each download host, and ranks the candidate URIs of a download by it.
+///
+/// For every host, the time to first byte, the throughput and the failure rate are tracked as sums that decay
+/// with a half-life of [#HALF_LIFE_NANOS], so that the ranking follows how mirrors behave over the day.
+/// Candidates are ordered by the expected time of downloading a typical file, quantized to powers of two,
+/// so the configured order is kept unless a mirror is clearly better or worse than another.
+/// A host that fails [#DEMOTE_THRESHOLD] times in a row is moved behind all others for a while.
+///
+/// This class is thread-safe.
+public final class MirrorScoreboard {
+
+    private static final MirrorScoreboard INSTANCE = new MirrorScoreboard(System::nanoTime);
+
+    public static MirrorScoreboard getInstance() {
+        return INSTANCE;
+    }
+
+    static final long HALF_LIFE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    static final int DEMOTE_THRESHOLD = 3;
+    private static final long MIN_DEMOTION_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long MAX_DEMOTION_NANOS = TimeUnit.MINUTES.toNanos(15);
+
+    /// The size of the typical file used to weigh time to first byte against throughput.
+    private static final double TYPICAL_FILE_SIZE = 1024 * 1024;
+    /// The minimum weight of successful samples before a host is ranked by its score.
+    private static final double MIN_SAMPLES = 2;
+
+    private final LongSupplier clock;
+    private final Map<String, HostStats> hosts = new ConcurrentHashMap<>();
+
+    MirrorScoreboard(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    private static String getHostKey(URI uri) {
+        return uri.getAuthority();
+    }
+
+    private HostStats getStats(URI uri) {
+        String key = getHostKey(uri);
+        return key == null ? null : hosts.computeIfAbsent(key, HostStats::new);
+    }
+
+    /// Records a successful download.
+    ///
+    /// @param timeToFirstByte the nanoseconds between sending the request and receiving the response headers
+    /// @param bytes           the number of bytes of the body
+    /// @param transferTime    the nanoseconds spent on reading the body
+    public void recordSuccess(URI uri, long timeToFirstByte, long bytes, long transferTime) {
+        HostStats stats = getStats(uri);
+        if (stats != null)
+            stats.recordSuccess(clock.getAsLong(), timeToFirstByte, bytes, transferTime);
+    }
+
+    /// Records a failed attempt, including a connection error, a server error or a stalled transfer.
+    public void recordFailure(URI uri) {
+        HostStats stats = getStats(uri);
+        if (stats != null)
+            stats.recordFailure(clock.getAsLong());
+    }
+
+    public boolean isDemoted(URI uri) {
+        String key = getHostKey(uri);
+        HostStats stats = key == null ? null : hosts.get(key);
+        return stats != null && stats.isDemoted(clock.getAsLong());
+    }
+
+    /// Returns the candidates ordered from the most to the least promising.
+    public List<URI> rank(List<URI> candidates) {
+        if (candidates.size() <= 1)
+            return candidates;
+
+        long now = clock.getAsLong();
+        int n = candidates.size();
+        boolean[] demoted = new boolean[n];
+        int[] buckets = new int[n];
+        boolean[] known = new boolean[n];
+        int bestBucket = Integer.MAX_VALUE;
+        boolean changed = false;
+
+        for (int i = 0; i < n; i++) {
+            String key = getHostKey(candidates.get(i));
+            HostStats stats = key == null ? null : hosts.get(key);
+            if (stats == null)
+                continue;
+
+            if (stats.isDemoted(now)) {
+                demoted[i] = true;
+                changed = true;
+                continue;
+            }
+
+            double score = stats.getScore(now);
+            if (!Double.isNaN(score)) {
+                known[i] = true;
+                buckets[i] = Math.getExponent(Math.max(score, Double.MIN_NORMAL));
+                bestBucket = Math.min(bestBucket, buckets[i]);
+                changed = true;
+            }
+        }
+
+        if (!changed)
+            return candidates;
+
+        // Hosts without enough samples are assumed to be as good as the best one, so they still get tried.
+        for (int i = 0; i < n; i++) {
+            if (!known[i])
+                buckets[i] = bestBucket == Integer.MAX_VALUE ? 0 : bestBucket;
+        }
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> demoted[i] ? 1 : 0).thenComparingInt(i -> buckets[i]));
+
+        List<URI> result = new ArrayList<>(n);
+        for (Integer i : order) {
+            result.add(candidates.get(i));
+        }
+        return result;
+    }
+
+    private static final class HostStats {
+        private final String host;
+
+        private long lastUpdate = Long.MIN_VALUE;
+        private double successes;
+        private double failures;
+        private double timeToFirstByte;
+        private double bytes;
+        private double transferTime;
+
+        private int consecutiveFailures;
+        private int demotions;
+        private long demotedUntil;
+
+        HostStats(String host) {
+            this.host = host;
+        }
+
+        private void decay(long now) {
+            if (lastUpdate == Long.MIN_VALUE) {
+                lastUpdate = now;
+            } else if (now - lastUpdate > 0) {
+                double factor = Math.pow(0.5, (double) (now - lastUpdate) / HALF_LIFE_NANOS);
+                successes *= factor;
+                failures *= factor;
+                timeToFirstByte *= factor;
+                bytes *= factor;
+                transferTime *= factor;
+                lastUpdate = now;
+            }
+        }
+
+        synchronized void recordSuccess(long now, long timeToFirstByte, long bytes, long transferTime) {
+            decay(now);
+            this.successes++;
+            this.timeToFirstByte += Math.max(0, timeToFirstByte);
+            this.bytes += Math.max(0, bytes);
+            this.transferTime += Math.max(0, transferTime);
+            this.consecutiveFailures = 0;
+            this.demotions = 0;
+        }
+
+        synchronized void recordFailure(long now) {
+            decay(now);
+            failures++;
+            consecutiveFailures++;
+            if (consecutiveFailures >= DEMOTE_THRESHOLD && !isDemoted(now)) {
+                long duration = Math.min(MAX_DEMOTION_NANOS, MIN_DEMOTION_NANOS << Math.min(demotions, 10));
+                demotions++;
+                demotedUntil = now + duration;
+                consecutiveFailures = 0;
+                LOG.info("Demoting download host " + host + " for " + TimeUnit.NANOSECONDS.toSeconds(duration) + "s after repeated failures");
+            }
+        }
+
+        synchronized boolean isDemoted(long now) {
+            return demotions > 0 && now - demotedUntil < 0;
+        }
+
+        /// @return the expected nanoseconds of downloading a typical file, or NaN if there are not enough samples
+        synchronized double getScore(long now) {
+            decay(now);
+            if (successes < MIN_SAMPLES)
+                return Double.NaN;
+
+            double averageTimeToFirstByte = timeToFirstByte / successes;
+            double throughput = transferTime > 0 ? bytes / transferTime : Double.POSITIVE_INFINITY;
+            double expectedTime = averageTimeToFirstByte + TYPICAL_FILE_SIZE / throughput;
+            double successRate = successes / (successes + failures);
+            return expectedTime / Math.max(successRate, 0.05);
+        }
+    }
+}
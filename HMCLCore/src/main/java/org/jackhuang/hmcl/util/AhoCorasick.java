@@ -0,0 +1,183 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util;
+
+import java.util.*;
+
+/// An [Aho-Corasick](https://en.wikipedia.org/wiki/Aho%E2%80%93Corasick_algorithm) automaton,
+/// which finds occurrences of many literal strings in a single pass over the text.
+///
+/// The automaton is compiled into a dense transition table over the characters that occur in the patterns,
+/// so scanning costs one table lookup per character of the text. Instances are immutable and thread-safe.
+public final class AhoCorasick {
+
+    private final List<String> patterns;
+
+    /// Maps a character to its column in the transition table, 0 for characters not occurring in any pattern.
+    /// ASCII characters are looked up directly, and other characters by binary search in `nonAsciiChars`,
+    /// whose columns are at the same indices in `nonAsciiClasses`.
+    private final int[] asciiClasses = new int[128];
+    private final char[] nonAsciiChars;
+    private final int[] nonAsciiClasses;
+    private final int classCount;
+
+    /// `transitions[state * classCount + class]` is the next state.
+    private final int[] transitions;
+
+    /// The indices of the patterns ending at each state, including those reached by suffix links.
+    private final int[][] outputs;
+
+    public AhoCorasick(Collection<String> patterns) {
+        this.patterns = List.copyOf(patterns);
+
+        TreeMap<Character, Integer> nonAscii = new TreeMap<>();
+        int classes = 1;
+        for (String pattern : this.patterns) {
+            if (pattern.isEmpty())
+                throw new IllegalArgumentException("Empty pattern");
+
+            for (int i = 0; i < pattern.length(); i++) {
+                char ch = pattern.charAt(i);
+                if (ch < 128) {
+                    if (asciiClasses[ch] == 0)
+                        asciiClasses[ch] = classes++;
+                } else if (!nonAscii.containsKey(ch)) {
+                    nonAscii.put(ch, classes++);
+                }
+            }
+        }
+        this.classCount = classes;
+
+        this.nonAsciiChars = new char[nonAscii.size()];
+        this.nonAsciiClasses = new int[nonAscii.size()];
+        int n = 0;
+        for (Map.Entry<Character, Integer> entry : nonAscii.entrySet()) {
+            nonAsciiChars[n] = entry.getKey();
+            nonAsciiClasses[n] = entry.getValue();
+            n++;
+        }
+
+        // Build the trie
+        List<int[]> gotos = new ArrayList<>();
+        List<List<Integer>> ownOutputs = new ArrayList<>();
+        gotos.add(newRow(classes));
+        ownOutputs.add(new ArrayList<>(0));
+        for (int index = 0; index < this.patterns.size(); index++) {
+            String pattern = this.patterns.get(index);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int cls = classOf(pattern.charAt(i));
+                int next = gotos.get(state)[cls];
+                if (next < 0) {
+                    next = gotos.size();
+                    gotos.add(newRow(classes));
+                    ownOutputs.add(new ArrayList<>(0));
+                    gotos.get(state)[cls] = next;
+                }
+                state = next;
+            }
+            ownOutputs.get(state).add(index);
+        }
+
+        // Compute suffix links in breadth-first order and turn the trie into a complete automaton
+        int states = gotos.size();
+        int[] fail = new int[states];
+        this.transitions = new int[states * classes];
+        this.outputs = new int[states][];
+
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        int[] root = gotos.get(0);
+        for (int cls = 0; cls < classes; cls++) {
+            int next = root[cls];
+            if (next < 0) {
+                transitions[cls] = 0;
+            } else {
+                transitions[cls] = next;
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        outputs[0] = new int[0];
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+
+            List<Integer> own = ownOutputs.get(state);
+            int[] inherited = outputs[fail[state]];
+            int[] out = new int[own.size() + inherited.length];
+            for (int i = 0; i < own.size(); i++) {
+                out[i] = own.get(i);
+            }
+            System.arraycopy(inherited, 0, out, own.size(), inherited.length);
+            outputs[state] = out;
+
+            int[] row = gotos.get(state);
+            for (int cls = 0; cls < classes; cls++) {
+                int next = row[cls];
+                if (next < 0) {
+                    transitions[state * classes + cls] = transitions[fail[state] * classes + cls];
+                } else {
+                    transitions[state * classes + cls] = next;
+                    fail[next] = transitions[fail[state] * classes + cls];
+                    queue.add(next);
+                }
+            }
+        }
+    }
+
+    private static int[] newRow(int classes) {
+        int[] row = new int[classes];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private int classOf(char ch) {
+        if (ch < 128)
+            return asciiClasses[ch];
+        int index = Arrays.binarySearch(nonAsciiChars, ch);
+        return index >= 0 ? nonAsciiClasses[index] : 0;
+    }
+
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    /// Scans the text once and finds where each pattern occurs first.
+    ///
+    /// The scan stops as soon as every pattern has been found.
+    ///
+    /// @return an array indexed like [#getPatterns()], holding the index of the first occurrence of each pattern,
+    ///         or -1 if the pattern does not occur in the text
+    public int[] findFirstOccurrences(CharSequence text) {
+        int[] result = new int[patterns.size()];
+        Arrays.fill(result, -1);
+        int remaining = patterns.size();
+
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length && remaining > 0; i++) {
+            state = transitions[state * classCount + classOf(text.charAt(i))];
+            for (int pattern : outputs[state]) {
+                if (result[pattern] < 0) {
+                    result[pattern] = i - patterns.get(pattern).length() + 1;
+                    remaining--;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util;
+
+import org.jackhuang.hmcl.util.gson.JsonUtils;
+import org.jackhuang.hmcl.util.io.FileUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/// The last access time and the number of accesses of the files in the content store of a cache repository.
+///
+/// Accesses are only recorded in memory, and written to the index file in batches.
+/// Before writing, the entries written by other processes in the meantime are merged by keeping the latest access time
+/// and the largest count, so the index is approximate but never loses a file that is in use.
+///
+/// This class is thread-safe.
+final class CacheAccessIndex {
+
+    static final String FILE_NAME = "access.json";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path cacheDirectory;
+    private final Path indexFile;
+    private final Map<String, Access> entries = new ConcurrentHashMap<>();
+    /// The entries removed since the index was last saved, which must not be merged back from the index file.
+    private final Set<String> removed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    CacheAccessIndex(Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        this.indexFile = cacheDirectory.resolve(FILE_NAME);
+        entries.putAll(read());
+    }
+
+    private Map<String, Access> read() {
+        if (!Files.isRegularFile(indexFile))
+            return Map.of();
+        try {
+            IndexFile file = JsonUtils.fromJsonFile(indexFile, IndexFile.class);
+            if (file != null && file.version() == FORMAT_VERSION && file.files() != null) {
+                Map<String, Access> result = new TreeMap<>(file.files());
+                result.values().removeIf(access -> access == null);
+                return result;
+            }
+        } catch (Exception e) {
+            LOG.warning("Unable to read cache access index " + indexFile, e);
+        }
+        return Map.of();
+    }
+
+    private String getKey(Path file) {
+        return cacheDirectory.relativize(file).toString().replace('\\', '/');
+    }
+
+    void recordAccess(Path file) {
+        String key = getKey(file);
+        entries.merge(key, new Access(System.currentTimeMillis(), 1),
+                (old, access) -> new Access(Math.max(old.lastAccess(), access.lastAccess()), old.hits() + 1));
+        removed.remove(key);
+        dirty.set(true);
+        saveLater();
+    }
+
+    /// @return the accesses of the file, or null if it has not been accessed since it was added
+    @Nullable
+    Access get(Path file) {
+        return entries.get(getKey(file));
+    }
+
+    void remove(Path file) {
+        String key = getKey(file);
+        entries.remove(key);
+        removed.add(key);
+        dirty.set(true);
+    }
+
+    synchronized void save() {
+        if (!dirty.getAndSet(false))
+            return;
+
+        read().forEach((key, access) -> {
+            if (!removed.contains(key))
+                entries.merge(key, access, (current, other) -> new Access(
+                        Math.max(current.lastAccess(), other.lastAccess()),
+                        Math.max(current.hits(), other.hits())));
+        });
+        removed.clear();
+
+        try {
+            Files.createDirectories(cacheDirectory);
+            FileUtils.saveSafely(indexFile, JsonUtils.UGLY_GSON.toJson(new IndexFile(FORMAT_VERSION, new TreeMap<>(entries))));
+        } catch (IOException | RuntimeException e) {
+            LOG.warning("Unable to save cache access index " + indexFile, e);
+        }
+    }
+
+    /// Saves the index shortly, so that the accesses of a whole installation are written at once.
+    void saveLater() {
+        if (saveScheduled.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                saveScheduled.set(false);
+                save();
+            }, CompletableFuture.delayedExecutor(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /// @param lastAccess the milliseconds since the epoch of the latest access
+    /// @param hits       the number of accesses
+    record Access(long lastAccess, int hits) {
+    }
+
+    private record IndexFile(int version, Map<String, Access> files) {
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util;
+
+import org.jackhuang.hmcl.util.CacheRepository.CacheStatistics;
+import org.jackhuang.hmcl.util.CacheRepository.EvictionPolicy;
+import org.jackhuang.hmcl.util.io.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/// Scans the content store of a cache repository, and selects the files to evict to keep it within a size budget.
+///
+/// Only the content store (the `<algorithm>/<xx>/<hash>` files) is considered. Files that are hard-linked into
+/// game directories are never evicted: deleting them would free no space, and would only make the next installation
+/// of the same file download it again.
+///
+/// Where the number of links of a file cannot be determined, nothing is evicted while the repository links files,
+/// since any file may then be linked. Otherwise the file cannot be linked, and is evicted like any other file.
+final class CacheEvictor {
+
+    private static final Pattern ALGORITHM_DIRECTORY = Pattern.compile("(SHA-\\d+|MD5)", Pattern.CASE_INSENSITIVE);
+
+    /// Files accessed or added more recently are never evicted, as a running download may be about to use them.
+    static final long GRACE_PERIOD = TimeUnit.MINUTES.toMillis(10);
+
+    private CacheEvictor() {
+    }
+
+    /// @param lastAccess the milliseconds since the epoch of the latest access, or of the last modification if never accessed
+    /// @param links      the number of hard links to the file, or -1 if it cannot be determined
+    record CachedFile(Path path, long size, long lastAccess, int hits, int links) {
+        /// @return whether the file is known to be hard-linked elsewhere
+        boolean linked() {
+            return links > 1;
+        }
+    }
+
+    /// Lists the files in the content store.
+    static List<CachedFile> scan(Path cacheDirectory, CacheAccessIndex accessIndex) throws IOException {
+        List<CachedFile> result = new ArrayList<>();
+        if (!Files.isDirectory(cacheDirectory))
+            return result;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory,
+                path -> ALGORITHM_DIRECTORY.matcher(FileUtils.getName(path)).matches() && Files.isDirectory(path))) {
+            for (Path algorithmDirectory : stream) {
+                Files.walkFileTree(algorithmDirectory, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        // Hidden files are temporary files of the cache repository that are being written
+                        if (attrs.isRegularFile() && !FileUtils.getName(file).startsWith(".")) {
+                            int links = FileUtils.getLinkCount(file);
+                            long lastAccess = attrs.lastModifiedTime().toMillis();
+                            int hits = 0;
+                            CacheAccessIndex.Access access = accessIndex.get(file);
+                            if (access != null) {
+                                lastAccess = Math.max(lastAccess, access.lastAccess());
+                                hits = access.hits();
+                            }
+                            result.add(new CachedFile(file, attrs.size(), lastAccess, hits, links));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+        }
+        return result;
+    }
+
+    static CacheStatistics getStatistics(List<CachedFile> files) {
+        int fileCount = 0, linkedFileCount = 0;
+        long totalSize = 0, linkedSize = 0;
+        for (CachedFile file : files) {
+            fileCount++;
+            totalSize += file.size();
+            if (file.linked()) {
+                linkedFileCount++;
+                linkedSize += file.size();
+            }
+        }
+        return new CacheStatistics(fileCount, totalSize, linkedFileCount, linkedSize);
+    }
+
+    /// Selects the files to evict so that the files that are not linked take at most `sizeLimit` bytes.
+    ///
+    /// Linked files do not count towards the limit, as their space is shared with the game directories.
+    ///
+    /// @param linkFiles whether the repository links files into game directories
+    static List<CachedFile> selectVictims(List<CachedFile> files, long sizeLimit, EvictionPolicy policy, boolean linkFiles, long now) {
+        long size = 0;
+        List<CachedFile> candidates = new ArrayList<>();
+        for (CachedFile file : files) {
+            if (file.links() < 0 && linkFiles)
+                return List.of();
+            if (file.linked())
+                continue;
+            size += file.size();
+            if (now - file.lastAccess() >= GRACE_PERIOD)
+                candidates.add(file);
+        }
+        if (size <= sizeLimit)
+            return List.of();
+
+        Comparator<CachedFile> comparator = switch (policy) {
+            case LRU -> Comparator.comparingLong(CachedFile::lastAccess);
+            case LFU -> Comparator.comparingInt(CachedFile::hits).thenComparingLong(CachedFile::lastAccess);
+        };
+        candidates.sort(comparator);
+
+        List<CachedFile> victims = new ArrayList<>();
+        for (CachedFile file : candidates) {
+            if (size <= sizeLimit)
+                break;
+            victims.add(file);
+            size -= file.size();
+        }
+        return victims;
+    }
+}
@@ -17,7 +17,7 @@
  */
 package org.jackhuang.hmcl.util;
 
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
 import com.google.gson.annotations.SerializedName;
 import org.jackhuang.hmcl.util.function.ExceptionalSupplier;
 import org.jackhuang.hmcl.util.gson.JsonUtils;
@@ -30,17 +30,26 @@ import java.io.*;
 import java.net.URI;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiFunction;
@@ -55,33 +64,44 @@ public class CacheRepository {
     private Path commonDirectory;
     private Path cacheDirectory;
     private Path indexFile;
-    private FileTime indexFileLastModified;
-    private LinkedHashMap<URI, ETagItem> index;
+    private Path journalFile;
+    /// The ETag index, or null if it has not been loaded since the directory was changed.
+    private volatile HashMap<URI, ETagItem> index;
+    /// The generation of the journal that [#index] has been read from, or 0 if the journal has to be rewritten.
+    private long journalGeneration;
+    /// The offset of the first byte of the journal that has not been read into [#index].
+    private long journalPosition;
+    /// The number of entries in the journal, including the ones that have been superseded.
+    private int journalEntries;
     protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /// The fingerprints of the cached files whose checksums have been verified.
+    private final Map<Path, FileFingerprint> verifiedFiles = new ConcurrentHashMap<>();
+    private volatile boolean linkFiles = "true".equalsIgnoreCase(System.getProperty("hmcl.cache.link"));
+    private CacheAccessIndex accessIndex;
+    private volatile long sizeLimit;
+    private volatile EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    private volatile long lastEviction = Long.MIN_VALUE;
 
     public void changeDirectory(Path commonDir) {
         commonDirectory = commonDir;
         cacheDirectory = commonDir.resolve("cache");
         indexFile = cacheDirectory.resolve("etag.json");
+        journalFile = cacheDirectory.resolve("etag.journal");
+
+        synchronized (this) {
+            accessIndex = null;
+        }
+        lastEviction = Long.MIN_VALUE;
 
         lock.writeLock().lock();
         try {
-            if (Files.isRegularFile(indexFile)) {
-                try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ);
-                     @SuppressWarnings("unused") FileLock lock = channel.tryLock(0, Long.MAX_VALUE, true)) {
-                    FileTime lastModified = Lang.ignoringException(() -> Files.getLastModifiedTime(indexFile));
-                    ETagIndex raw = JsonUtils.GSON.fromJson(new BufferedReader(Channels.newReader(channel, UTF_8)), ETagIndex.class);
-                    index = raw != null ? joinETagIndexes(raw.eTag) : new LinkedHashMap<>();
-                    indexFileLastModified = lastModified;
-                }
-            } else {
-                index = new LinkedHashMap<>();
-                indexFileLastModified = null;
-            }
-        } catch (Exception e) {
-            LOG.warning("Unable to read index file", e);
-            index = new LinkedHashMap<>();
-            indexFileLastModified = null;
+            verifiedFiles.clear();
+            // The indexes are loaded when they are first used, so that changing the directory does not wait for them
+            index = null;
+            journalGeneration = 0;
+            journalPosition = 0;
+            journalEntries = 0;
         } finally {
             lock.writeLock().unlock();
         }
@@ -95,37 +115,111 @@ public class CacheRepository {
         return cacheDirectory;
     }
 
+    public boolean isLinkFiles() {
+        return linkFiles;
+    }
+
+    /// Sets whether files are shared between the cache and their destinations with hard links instead of being copied.
+    ///
+    /// Hard links make cache hits almost free and keep a single copy of the content on disk,
+    /// but the cached file and every other destination linked to it change together with a destination
+    /// that is written in place, for example by a mod or by a user editing it. So linking is off unless enabled here,
+    /// or with the system property `hmcl.cache.link=true`.
+    public void setLinkFiles(boolean linkFiles) {
+        this.linkFiles = linkFiles;
+    }
+
+    /// Places the content of `source` at `target`, replacing `target` if it exists.
+    ///
+    /// A hard link is created if [#isLinkFiles()] and the file system allows it, otherwise the file is copied.
+    public void materialize(Path source, Path target) throws IOException {
+        if (linkFiles && FileUtils.tryLinkFile(source, target))
+            return;
+        FileUtils.copyFile(source, target);
+    }
+
     protected Path getFile(String algorithm, String hash) {
         hash = hash.toLowerCase(Locale.ROOT);
         return getCacheDirectory().resolve(algorithm).resolve(hash.substring(0, 2)).resolve(hash);
     }
 
+    /// Checks whether the cached file with the given hash exists and has not been changed.
+    ///
+    /// The file is only hashed if it has not been verified before with the same size and modification time.
     protected boolean fileExists(String algorithm, String hash) {
         if (hash == null) return false;
         Path file = getFile(algorithm, hash);
-        if (Files.exists(file)) {
-            try {
-                return DigestUtils.digestToString(algorithm, file).equalsIgnoreCase(hash);
-            } catch (IOException e) {
-                return false;
-            }
-        } else {
+        FileFingerprint fingerprint;
+        try {
+            fingerprint = FileFingerprint.of(file);
+        } catch (IOException e) {
+            verifiedFiles.remove(file);
             return false;
         }
+
+        if (fingerprint.equals(verifiedFiles.get(file))) {
+            recordAccess(file);
+            return true;
+        }
+
+        try {
+            if (DigestUtils.digestToString(algorithm, file).equalsIgnoreCase(hash)) {
+                setVerifiedFingerprint(file, fingerprint);
+                recordAccess(file);
+                return true;
+            }
+        } catch (IOException ignored) {
+        }
+        verifiedFiles.remove(file);
+        return false;
+    }
+
+    /// @return the fingerprint of the cached file when its checksum was last verified, or null if it has not been verified
+    protected @Nullable FileFingerprint getVerifiedFingerprint(Path file) {
+        return verifiedFiles.get(file);
+    }
+
+    /// Records that the cached file has the expected checksum while it has the given fingerprint.
+    protected void setVerifiedFingerprint(Path file, FileFingerprint fingerprint) {
+        verifiedFiles.put(file, fingerprint);
     }
 
     public void tryCacheFile(Path path, String algorithm, String hash) throws IOException {
         Path cache = getFile(algorithm, hash);
         if (Files.isRegularFile(cache)) return;
-        FileUtils.copyFile(path, cache);
+        store(path, cache);
+        recordAccess(cache);
+        evictLater();
     }
 
     public Path cacheFile(Path path, String algorithm, String hash) throws IOException {
         Path cache = getFile(algorithm, hash);
-        FileUtils.copyFile(path, cache);
+        store(path, cache);
+        recordAccess(cache);
+        evictLater();
         return cache;
     }
 
+    /// Places the content of `source` at the cached file `cache`.
+    ///
+    /// The content is first placed at a temporary file with a unique name, which is then renamed to `cache`,
+    /// so that concurrent calls for the same hash never write into the same file
+    /// and a cached file is never seen partially written.
+    private void store(Path source, Path cache) throws IOException {
+        Files.createDirectories(cache.getParent());
+        Path temp = cache.resolveSibling("." + cache.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            materialize(source, temp);
+            try {
+                Files.move(temp, cache, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
     public Optional<Path> checkExistentFile(@Nullable Path original, String algorithm, String hash) {
         if (fileExists(algorithm, hash))
             return Optional.of(getFile(algorithm, hash));
@@ -147,14 +241,110 @@ public class CacheRepository {
         return Optional.empty();
     }
 
+    private synchronized CacheAccessIndex getAccessIndex() {
+        if (accessIndex == null)
+            accessIndex = new CacheAccessIndex(getCacheDirectory());
+        return accessIndex;
+    }
+
+    /// Records that a file in the content store has been used, for choosing the files to evict.
+    protected void recordAccess(Path file) {
+        getAccessIndex().recordAccess(file);
+    }
+
+    public long getSizeLimit() {
+        return sizeLimit;
+    }
+
+    /// Sets the maximum number of bytes taken by the cached files that are not linked into game directories,
+    /// or 0 for no limit. The least valuable files are evicted in the background when the limit is exceeded.
+    public void setSizeLimit(long sizeLimit) {
+        this.sizeLimit = Math.max(0, sizeLimit);
+        lastEviction = Long.MIN_VALUE;
+        evictLater();
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(EvictionPolicy evictionPolicy) {
+        this.evictionPolicy = Objects.requireNonNull(evictionPolicy);
+    }
+
+    /// Scans the content store. This may take a while for a large cache, so it should not be called on the UI thread.
+    public CacheStatistics getStatistics() throws IOException {
+        if (getCacheDirectory() == null)
+            return new CacheStatistics(0, 0, 0, 0);
+        return CacheEvictor.getStatistics(CacheEvictor.scan(getCacheDirectory(), getAccessIndex()));
+    }
+
+    /// Evicts files from the content store until it is within the size limit.
+    ///
+    /// Files that are linked into game directories, or that have been used in the last few minutes, are never evicted.
+    /// Where the number of links to a file cannot be determined, nothing is evicted while [#isLinkFiles()],
+    /// as the file may be linked; otherwise the file is evicted by the eviction policy like the others.
+    ///
+    /// @return the number of bytes freed
+    public long evict() throws IOException {
+        lastEviction = System.currentTimeMillis();
+        long sizeLimit = this.sizeLimit;
+        if (sizeLimit <= 0 || getCacheDirectory() == null)
+            return 0;
+
+        CacheAccessIndex accessIndex = getAccessIndex();
+        List<CacheEvictor.CachedFile> victims = CacheEvictor.selectVictims(
+                CacheEvictor.scan(getCacheDirectory(), accessIndex), sizeLimit, evictionPolicy, isLinkFiles(), System.currentTimeMillis());
+
+        long freed = 0;
+        int count = 0;
+        for (CacheEvictor.CachedFile victim : victims) {
+            try {
+                if (Files.deleteIfExists(victim.path())) {
+                    freed += victim.size();
+                    count++;
+                }
+                accessIndex.remove(victim.path());
+                verifiedFiles.remove(victim.path());
+            } catch (IOException e) {
+                LOG.warning("Unable to evict cached file " + victim.path(), e);
+            }
+        }
+        if (count > 0) {
+            LOG.info("Evicted " + count + " cached files (" + DataSizeUnit.format(freed) + ") to stay within " + DataSizeUnit.format(sizeLimit));
+            accessIndex.save();
+        }
+        return freed;
+    }
+
+    /// Schedules an eviction in the background, unless one has run recently.
+    public void evictLater() {
+        if (sizeLimit <= 0 || getCacheDirectory() == null)
+            return;
+        long lastEviction = this.lastEviction;
+        if (lastEviction != Long.MIN_VALUE && System.currentTimeMillis() - lastEviction < MIN_EVICTION_INTERVAL)
+            return;
+
+        if (evictionScheduled.compareAndSet(false, true)) {
+            // Wait for a while, so that a burst of downloads does not trigger a scan for each file
+            CompletableFuture.runAsync(() -> {
+                evictionScheduled.set(false);
+                try {
+                    evict();
+                } catch (IOException | RuntimeException e) {
+                    LOG.warning("Unable to evict cached files", e);
+                }
+            }, CompletableFuture.delayedExecutor(EVICTION_DELAY, TimeUnit.MILLISECONDS, EVICTION_EXECUTOR));
+        }
+    }
+
     protected Path restore(Path original, ExceptionalSupplier<Path, ? extends IOException> cacheSupplier) throws IOException {
-        Path cache = cacheSupplier.get();
-        Files.delete(original);
-        Files.createLink(original, cache);
-        return cache;
+        // The supplier materializes the original file into the cache, which already shares it when hard links are used
+        return cacheSupplier.get();
     }
 
     public Path getCachedRemoteFile(URI uri, boolean checkExpires) throws IOException {
+        Map<URI, ETagItem> index = getETagIndex();
         lock.readLock().lock();
         ETagItem eTagItem;
         try {
@@ -179,7 +369,11 @@ public class CacheRepository {
     public void removeRemoteEntry(URI uri) {
         lock.writeLock().lock();
         try {
-            index.remove(NetworkUtils.dropQuery(uri));
+            uri = NetworkUtils.dropQuery(uri);
+            if (getETagIndex().remove(uri) != null)
+                appendETagItem(uri, ETagItem.removed(uri.toString()));
+        } catch (IOException e) {
+            LOG.warning("Unable to save index file", e);
         } finally {
             lock.writeLock().unlock();
         }
@@ -192,6 +386,7 @@ public class CacheRepository {
             return Map.of();
         }
 
+        Map<URI, ETagItem> index = getETagIndex();
         ETagItem eTagItem;
         lock.readLock().lock();
         try {
@@ -214,6 +409,7 @@ public class CacheRepository {
             return;
         }
 
+        Map<URI, ETagItem> index = getETagIndex();
         ETagItem eTagItem;
         lock.readLock().lock();
         try {
@@ -246,6 +442,8 @@ public class CacheRepository {
             Path cached = getFile(SHA1, hash);
             Files.createDirectories(cached.getParent());
             Files.write(cached, bytes);
+            recordAccess(cached);
+            evictLater();
             return new CacheResult(hash, cached);
         });
     }
@@ -293,8 +491,8 @@ public class CacheRepository {
                 expires);
         lock.writeLock().lock();
         try {
-            index.compute(uri, updateEntity(eTagItem, true));
-            saveETagIndex();
+            getETagIndex().compute(uri, updateEntity(eTagItem, true));
+            appendETagItem(uri, eTagItem);
         } finally {
             lock.writeLock().unlock();
         }
@@ -344,32 +542,219 @@ public class CacheRepository {
         return eTags;
     }
 
-    public void saveETagIndex() throws IOException {
-        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
-             @SuppressWarnings("unused") FileLock lock = channel.lock()) {
-            FileTime lastModified = Lang.ignoringException(() -> Files.getLastModifiedTime(indexFile));
-            if (indexFileLastModified == null || lastModified == null || indexFileLastModified.compareTo(lastModified) < 0) {
-                try {
-                    ETagIndex indexOnDisk = GSON.fromJson(
-                            // Should not be closed
-                            new BufferedReader(Channels.newReader(channel, UTF_8)),
-                            ETagIndex.class
-                    );
-                    if (indexOnDisk != null) {
-                        index = joinETagIndexes(index.values(), indexOnDisk.eTag);
-                        indexFileLastModified = lastModified;
-                    }
-                } catch (JsonSyntaxException ignored) {
+    private static final int JOURNAL_VERSION = 1;
+    /// The minimum number of entries in the journal before it is compacted.
+    private static final int COMPACT_THRESHOLD = 4096;
+
+    /// Returns the ETag index, loading it from the journal if it has not been loaded.
+    ///
+    /// Must not be called while holding the read lock.
+    private Map<URI, ETagItem> getETagIndex() {
+        HashMap<URI, ETagItem> index = this.index;
+        if (index == null) {
+            lock.writeLock().lock();
+            try {
+                index = this.index;
+                if (index == null)
+                    this.index = index = loadETagIndex();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return index;
+    }
+
+    private HashMap<URI, ETagItem> loadETagIndex() {
+        HashMap<URI, ETagItem> index = new HashMap<>();
+        try {
+            if (Files.isRegularFile(journalFile)) {
+                try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ);
+                     @SuppressWarnings("unused") FileLock lock = channel.tryLock(0, Long.MAX_VALUE, true)) {
+                    readJournal(channel, index);
+                }
+            } else if (Files.isRegularFile(indexFile)) {
+                // Import the index written by earlier versions, it is written to the journal on the next change
+                ETagIndex raw = JsonUtils.fromJsonFile(indexFile, ETagIndex.class);
+                if (raw != null)
+                    index.putAll(joinETagIndexes(raw.eTag));
+            }
+        } catch (Exception e) {
+            LOG.warning("Unable to read index file", e);
+            index.clear();
+            journalGeneration = 0;
+        }
+        return index;
+    }
+
+    /// Reads the entries that have been appended to the journal since it was last read, by this or other processes.
+    ///
+    /// If the journal has been compacted since it was last read, the index is reloaded from the beginning.
+    /// An incomplete entry at the end of the journal is left unread.
+    ///
+    /// @return `false` if the journal has no valid header and has to be rewritten
+    private boolean readJournal(FileChannel channel, Map<URI, ETagItem> index) throws IOException {
+        JournalReader reader = new JournalReader(channel, 0);
+        JournalHeader header;
+        try {
+            String line = reader.readLine();
+            header = line != null ? GSON.fromJson(line, JournalHeader.class) : null;
+        } catch (JsonParseException e) {
+            header = null;
+        }
+        if (header == null || header.version() != JOURNAL_VERSION || header.generation() == 0) {
+            journalGeneration = 0;
+            return false;
+        }
+
+        if (header.generation() != journalGeneration) {
+            index.clear();
+            journalGeneration = header.generation();
+            journalPosition = reader.getPosition();
+            journalEntries = 0;
+        } else {
+            reader = new JournalReader(channel, journalPosition);
+        }
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            journalEntries++;
+            try {
+                ETagItem item = GSON.fromJson(line, ETagItem.class);
+                if (item != null && item.url != null) {
+                    URI uri = NetworkUtils.toURI(item.url);
+                    if (item.isRemoved())
+                        index.remove(uri);
+                    else
+                        index.put(uri, item);
                 }
+            } catch (JsonParseException | IllegalArgumentException e) {
+                LOG.warning("Skipping malformed entry in " + journalFile);
+            }
+        }
+        journalPosition = reader.getPosition();
+        return true;
+    }
+
+    /// Records an entry in the journal, after merging the entries that other processes have appended.
+    ///
+    /// Must be called while holding the write lock.
+    private void appendETagItem(URI uri, ETagItem item) throws IOException {
+        Map<URI, ETagItem> index = getETagIndex();
+        Files.createDirectories(journalFile.getParent());
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             @SuppressWarnings("unused") FileLock lock = channel.lock()) {
+            boolean valid = readJournal(channel, index);
+
+            // This entry is the latest one, even if another process has recorded the same URL in the meantime
+            if (item.isRemoved())
+                index.remove(uri);
+            else
+                index.put(uri, item);
+
+            if (!valid || journalEntries >= COMPACT_THRESHOLD && journalEntries > index.size() * 2) {
+                writeJournal(channel, index);
+                return;
             }
 
-            channel.truncate(0);
-            BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, UTF_8));
-            JsonUtils.GSON.toJson(new ETagIndex(index.values()), writer);
-            writer.flush();
-            channel.force(true);
+            StringBuilder builder = new StringBuilder();
+            // Terminate the incomplete entry left by a process that crashed while appending to the journal
+            if (channel.size() > journalPosition)
+                builder.append('\n');
+            builder.append(UGLY_GSON.toJson(item)).append('\n');
 
-            this.indexFileLastModified = Lang.ignoringException(() -> Files.getLastModifiedTime(indexFile));
+            ByteBuffer buffer = UTF_8.encode(builder.toString());
+            long position = channel.size();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+            journalPosition = position;
+            journalEntries++;
+        }
+    }
+
+    /// Rewrites the journal with only the current entries, under a new generation.
+    private void writeJournal(FileChannel channel, Map<URI, ETagItem> index) throws IOException {
+        long generation;
+        do {
+            generation = ThreadLocalRandom.current().nextLong();
+        } while (generation == 0 || generation == journalGeneration);
+
+        channel.truncate(0);
+        BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, UTF_8));
+        writer.write(UGLY_GSON.toJson(new JournalHeader(JOURNAL_VERSION, generation)));
+        writer.write('\n');
+        for (ETagItem item : index.values()) {
+            writer.write(UGLY_GSON.toJson(item));
+            writer.write('\n');
+        }
+        writer.flush();
+        channel.force(true);
+
+        journalGeneration = generation;
+        journalPosition = channel.size();
+        journalEntries = index.size();
+    }
+
+    /// Compacts the journal of the ETag index.
+    public void saveETagIndex() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Map<URI, ETagItem> index = getETagIndex();
+            Files.createDirectories(journalFile.getParent());
+            try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 @SuppressWarnings("unused") FileLock lock = channel.lock()) {
+                readJournal(channel, index);
+                writeJournal(channel, index);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /// The size and modification time of a file, which are assumed to change whenever its content changes.
+    public record FileFingerprint(long size, long lastModified) {
+        public static FileFingerprint of(Path file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileFingerprint(attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+    }
+
+    private record JournalHeader(int version, long generation) {
+    }
+
+    /// Reads the complete lines of the journal from the given offset, keeping track of the offset of the next line.
+    private static final class JournalReader {
+        private final InputStream input;
+        private long position;
+        private byte[] buffer = new byte[256];
+
+        JournalReader(FileChannel channel, long position) throws IOException {
+            // The stream is not closed, as that would close the channel
+            this.input = new BufferedInputStream(Channels.newInputStream(channel.position(position)), 64 * 1024);
+            this.position = position;
+        }
+
+        long getPosition() {
+            return position;
+        }
+
+        /// @return the next line, or null if there are no more complete lines
+        @Nullable
+        String readLine() throws IOException {
+            int length = 0;
+            while (true) {
+                int b = input.read();
+                if (b < 0)
+                    return null;
+                if (b == '\n') {
+                    position += length + 1;
+                    return new String(buffer, 0, length, UTF_8);
+                }
+                if (length == buffer.length)
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                buffer[length++] = (byte) b;
+            }
         }
     }
 
@@ -402,6 +787,11 @@ public class CacheRepository {
             this(null, null, null, 0, null, 0L);
         }
 
+        /// Creates the journal entry that records the removal of the given URL.
+        static ETagItem removed(String url) {
+            return new ETagItem(url, null, null, 0, null, 0L);
+        }
+
         public ETagItem(String url, String eTag, String hash, long localLastModified, String remoteLastModified, long expires) {
             this.url = url;
             this.eTag = eTag;
@@ -415,6 +805,10 @@ public class CacheRepository {
             return expires;
         }
 
+        boolean isRemoved() {
+            return eTag == null;
+        }
+
         public int compareTo(ETagItem other) {
             if (!url.equals(other.url) && !NetworkUtils.toURI(url).equals(NetworkUtils.toURI(other.url)))
                 throw new IllegalArgumentException();
@@ -469,6 +863,25 @@ public class CacheRepository {
 
     public static final String SHA1 = "SHA-1";
 
+    private static final long EVICTION_DELAY = TimeUnit.SECONDS.toMillis(30);
+    private static final long MIN_EVICTION_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+    private static final ExecutorService EVICTION_EXECUTOR = Lang.threadPool("CacheEviction", true, 1, 10, TimeUnit.SECONDS);
+
+    /// Which cached files are evicted first when the cache exceeds its size limit.
+    public enum EvictionPolicy {
+        /// Least recently used
+        LRU,
+        /// Least frequently used, and then least recently used
+        LFU
+    }
+
+    /// @param fileCount       the number of files in the content store
+    /// @param totalSize       the total size of the files in the content store
+    /// @param linkedFileCount the number of files that are also linked into game directories
+    /// @param linkedSize      the total size of the files that are also linked into game directories
+    public record CacheStatistics(int fileCount, long totalSize, int linkedFileCount, long linkedSize) {
+    }
+
     public static class CacheExpiredException extends IOException {
         private final long expires;
 
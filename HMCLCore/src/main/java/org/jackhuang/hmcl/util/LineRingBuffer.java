@@ -0,0 +1,165 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/// A ring buffer of text lines bounded by a byte budget.
+///
+/// Lines are stored as UTF-8 in direct memory, each prefixed by its length, so they neither occupy the Java heap
+/// nor cost an object per line. When adding a line would exceed the budget, the oldest lines are dropped.
+/// A line longer than the budget is truncated to whole characters.
+///
+/// The buffer starts small and grows up to the budget. This class is not thread-safe.
+public final class LineRingBuffer {
+
+    private static final int HEADER_SIZE = Integer.BYTES;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final int budget;
+    private ByteBuffer buffer;
+
+    /// Offset of the oldest record.
+    private int head = 0;
+    /// Number of bytes used by records.
+    private int used = 0;
+    /// Number of lines in the buffer.
+    private int size = 0;
+    /// Number of lines dropped to stay within the budget.
+    private long droppedLines = 0;
+
+    /// @param budget the maximum number of bytes the buffer may use
+    public LineRingBuffer(int budget) {
+        if (budget <= HEADER_SIZE)
+            throw new IllegalArgumentException("Budget too small: " + budget);
+        this.budget = budget;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getDroppedLines() {
+        return droppedLines;
+    }
+
+    public void add(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, budget - HEADER_SIZE);
+        // Truncates before the character spanning the limit rather than in the middle of its encoding
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80)
+            length--;
+        int recordSize = HEADER_SIZE + length;
+
+        ensureCapacity(recordSize);
+        while (buffer.capacity() - used < recordSize) {
+            removeFirst();
+            droppedLines++;
+        }
+
+        int tail = wrap(head + used);
+        putInt(tail, length);
+        write(wrap(tail + HEADER_SIZE), bytes, length);
+        used += recordSize;
+        size++;
+    }
+
+    /// Performs the action for each line, from the oldest to the newest.
+    public void forEach(Consumer<? super String> action) {
+        byte[] bytes = null;
+        int offset = head;
+        for (int i = 0; i < size; i++) {
+            int length = getInt(offset);
+            if (bytes == null || bytes.length < length)
+                bytes = new byte[Math.max(length, 256)];
+            read(wrap(offset + HEADER_SIZE), bytes, length);
+            action.accept(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            offset = wrap(offset + HEADER_SIZE + length);
+        }
+    }
+
+    public void clear() {
+        buffer = null;
+        head = 0;
+        used = 0;
+        size = 0;
+    }
+
+    private void removeFirst() {
+        int recordSize = HEADER_SIZE + getInt(head);
+        head = wrap(head + recordSize);
+        used -= recordSize;
+        size--;
+    }
+
+    private void ensureCapacity(int recordSize) {
+        int capacity = buffer == null ? 0 : buffer.capacity();
+        if (capacity - used >= recordSize || capacity >= budget)
+            return;
+
+        int newCapacity = (int) Math.min(budget, Math.max(Math.max((long) capacity * 2, INITIAL_CAPACITY), (long) used + recordSize));
+        ByteBuffer newBuffer = ByteBuffer.allocateDirect(newCapacity);
+        if (used > 0) {
+            int first = Math.min(used, capacity - head);
+            newBuffer.put(0, buffer, head, first);
+            if (first < used)
+                newBuffer.put(first, buffer, 0, used - first);
+        }
+        buffer = newBuffer;
+        head = 0;
+    }
+
+    private int wrap(int offset) {
+        int capacity = buffer.capacity();
+        return offset >= capacity ? offset - capacity : offset;
+    }
+
+    private void putInt(int offset, int value) {
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            buffer.put(wrap(offset + i), (byte) (value >>> (8 * (HEADER_SIZE - 1 - i))));
+        }
+    }
+
+    private int getInt(int offset) {
+        int value = 0;
+        for (int i = 0; i < HEADER_SIZE; i++) {
+            value = (value << 8) | (buffer.get(wrap(offset + i)) & 0xff);
+        }
+        return value;
+    }
+
+    private void write(int offset, byte[] src, int length) {
+        int first = Math.min(length, buffer.capacity() - offset);
+        buffer.put(offset, src, 0, first);
+        if (first < length)
+            buffer.put(0, src, first, length - first);
+    }
+
+    private void read(int offset, byte[] dst, int length) {
+        int first = Math.min(length, buffer.capacity() - offset);
+        buffer.get(offset, dst, 0, first);
+        if (first < length)
+            buffer.get(0, dst, first, length - first);
+    }
+}
@@ -17,7 +17,6 @@
  */
 package org.jackhuang.hmcl.util;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -53,45 +52,23 @@ public enum Log4jLevel {
 
     public static Log4jLevel guessLevel(String line) {
         Log4jLevel level = null;
-        Matcher m = MINECRAFT_LOGGER.matcher(line);
-        if (m.find()) {
+        int loggerStart = findLogger(line, 0);
+        if (loggerStart >= 0) {
             // New style logs from log4j
-            String levelStr = m.group("level");
-            if (null != levelStr)
-                switch (levelStr) {
-                    case "INFO":
+            int levelStart = getLevelStart(line, loggerStart);
+            level = parseLevel(line, levelStart, line.indexOf(']', levelStart));
+
+            for (int i = loggerStart; i >= 0; i = findLogger(line, i + 1)) {
+                int levelEnd = line.indexOf(']', getLevelStart(line, i));
+                int categoryStart = levelEnd + 3;
+                int categoryEnd;
+                if (line.startsWith(" [", levelEnd + 1) && (categoryEnd = line.indexOf(']', categoryStart)) > categoryStart) {
+                    if (regionEquals(line, categoryStart, categoryEnd, "STDOUT"))
                         level = INFO;
-                        break;
-                    case "WARN":
-                        level = WARN;
-                        break;
-                    case "ERROR":
+                    else if (regionEquals(line, categoryStart, categoryEnd, "STDERR"))
                         level = ERROR;
-                        break;
-                    case "FATAL":
-                        level = FATAL;
-                        break;
-                    case "TRACE":
-                        level = TRACE;
-                        break;
-                    case "DEBUG":
-                        level = DEBUG;
-                        break;
-                    default:
-                        break;
+                    break;
                 }
-            Matcher m2 = MINECRAFT_LOGGER_CATEGORY.matcher(line);
-            if (m2.find()) {
-                String level2Str = m2.group("category");
-                if (null != level2Str)
-                    switch (level2Str) {
-                        case "STDOUT":
-                            level = INFO;
-                            break;
-                        case "STDERR":
-                            level = ERROR;
-                            break;
-                    }
             }
 
             if (line.contains("STDERR]") || line.contains("[STDERR/]")) {
@@ -120,6 +97,66 @@ public enum Log4jLevel {
         return level;
     }
 
+    /// Finds the first match of [#MINECRAFT_LOGGER] starting at or after `from` without running a regex,
+    /// as this is done for every line of the game output.
+    ///
+    /// @return the start index of the match, or -1 if not found
+    private static int findLogger(String line, int from) {
+        for (int i = line.indexOf('[', from); i >= 0; i = line.indexOf('[', i + 1)) {
+            // \[[0-9:]+]
+            int j = i + 1;
+            while (j < line.length() && isTimestampChar(line.charAt(j)))
+                j++;
+            if (j == i + 1 || !line.startsWith("] [", j))
+                continue;
+
+            // \[[^/]+/
+            int threadStart = j + 3;
+            int slash = line.indexOf('/', threadStart);
+            if (slash <= threadStart)
+                continue;
+
+            // [^]]+]
+            if (line.indexOf(']', slash + 1) <= slash + 1)
+                continue;
+
+            return i;
+        }
+        return -1;
+    }
+
+    /// @return the start index of the level group of the match of [#MINECRAFT_LOGGER] starting at `loggerStart`
+    private static int getLevelStart(String line, int loggerStart) {
+        int j = loggerStart + 1;
+        while (isTimestampChar(line.charAt(j)))
+            j++;
+        return line.indexOf('/', j + 3) + 1;
+    }
+
+    private static boolean isTimestampChar(char ch) {
+        return ch >= '0' && ch <= '9' || ch == ':';
+    }
+
+    private static boolean regionEquals(String line, int start, int end, String expected) {
+        return end - start == expected.length() && line.startsWith(expected, start);
+    }
+
+    private static Log4jLevel parseLevel(String line, int start, int end) {
+        switch (end - start) {
+            case 4:
+                if (line.startsWith("INFO", start)) return INFO;
+                if (line.startsWith("WARN", start)) return WARN;
+                break;
+            case 5:
+                if (line.startsWith("ERROR", start)) return ERROR;
+                if (line.startsWith("FATAL", start)) return FATAL;
+                if (line.startsWith("TRACE", start)) return TRACE;
+                if (line.startsWith("DEBUG", start)) return DEBUG;
+                break;
+        }
+        return null;
+    }
+
     public static boolean isError(Log4jLevel a) {
         return a != null && a.lessOrEqual(Log4jLevel.ERROR);
     }
@@ -175,6 +175,89 @@ public final class MurmurHash2 {
         return hash32(text.substring(from, from + length));
     }
 
+    /**
+     * An incremental variant of {@link #hash32(byte[], int, int)}, which allows data to be hashed
+     * chunk by chunk without holding it in memory.
+     *
+     * <p>MurmurHash2 mixes the total length into the initial state, so it must be known in advance.
+     * The result is identical to calling {@link #hash32(byte[], int, int)} on the concatenated data.</p>
+     */
+    public static final class Hash32 {
+        private final int length;
+        private int h;
+        private long processed;
+
+        // Up to 3 pending bytes, packed in little-endian order
+        private int tail;
+        private int tailLength;
+
+        /**
+         * @param length The total length of the data to be hashed
+         * @param seed   The initial seed value
+         */
+        public Hash32(final int length, final int seed) {
+            if (length < 0)
+                throw new IllegalArgumentException("length must not be negative");
+            this.length = length;
+            this.h = seed ^ length;
+        }
+
+        private void mix(int k) {
+            k *= M32;
+            k ^= k >>> R32;
+            k *= M32;
+            h *= M32;
+            h ^= k;
+        }
+
+        public void update(final byte b) {
+            tail |= (b & 0xff) << (tailLength << 3);
+            if (++tailLength == 4) {
+                mix(tail);
+                tail = 0;
+                tailLength = 0;
+            }
+            processed++;
+        }
+
+        public void update(final byte[] data, int offset, int len) {
+            while (tailLength != 0 && len > 0) {
+                update(data[offset++]);
+                len--;
+            }
+
+            final int end = offset + (len & ~3);
+            for (; offset < end; offset += 4) {
+                mix(ByteArray.getIntLE(data, offset));
+            }
+            processed += len & ~3;
+
+            for (int i = 0, remaining = len & 3; i < remaining; i++) {
+                update(data[offset++]);
+            }
+        }
+
+        /**
+         * @return The 32-bit hash
+         * @throws IllegalStateException if the number of bytes hashed differs from the declared length
+         */
+        public int finish() {
+            if (processed != length)
+                throw new IllegalStateException("Expected " + length + " bytes, but " + processed + " bytes were hashed");
+
+            if (tailLength > 0) {
+                h ^= tail;
+                h *= M32;
+            }
+
+            h ^= h >>> 13;
+            h *= M32;
+            h ^= h >>> 15;
+
+            return h;
+        }
+    }
+
     /**
      * Generates a 64-bit hash from byte array of the given length and seed.
      *
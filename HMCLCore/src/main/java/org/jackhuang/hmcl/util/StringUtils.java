@@ -254,6 +254,17 @@ public final class StringUtils {
         return false;
     }
 
+    /**
+     * Check if the string contains the target ignoring case, without allocating a lower case copy of the string.
+     */
+    public static boolean containsIgnoreCase(String str, String target) {
+        for (int i = 0, last = str.length() - target.length(); i <= last; i++) {
+            if (str.regionMatches(true, i, target, 0, target.length()))
+                return true;
+        }
+        return false;
+    }
+
     public static boolean containsChinese(String str) {
         for (int i = 0; i < str.length(); i++) {
             char ch = str.charAt(i);
@@ -18,11 +18,15 @@
 package org.jackhuang.hmcl.util.io;
 
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import com.sun.jna.WString;
 import org.glavo.chardet.DetectedCharset;
 import org.glavo.chardet.UniversalDetector;
 import org.jackhuang.hmcl.util.StringUtils;
 import org.jackhuang.hmcl.util.function.ExceptionalConsumer;
 import org.jackhuang.hmcl.util.platform.OperatingSystem;
+import org.jackhuang.hmcl.util.platform.windows.Kernel32;
+import org.jackhuang.hmcl.util.platform.windows.WinConstants;
+import org.jackhuang.hmcl.util.platform.windows.WinTypes;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -468,6 +472,69 @@ public final class FileUtils {
         Files.copy(srcFile, destFile, StandardCopyOption.COPY_ATTRIBUTES, StandardCopyOption.REPLACE_EXISTING);
     }
 
+    /// Makes `destFile` a hard link to `srcFile`, replacing `destFile` if it exists.
+    ///
+    /// The link is created beside `destFile` and then moved over it, so `destFile` is never missing while it is replaced.
+    /// Both files share their content afterward, so writing into one of them in place changes the other as well.
+    ///
+    /// @return `true` if the link has been created, or `false` if hard links are not supported by the file system
+    ///         or between the two files, for example when they are on different volumes
+    public static boolean tryLinkFile(Path srcFile, Path destFile) throws IOException {
+        Objects.requireNonNull(srcFile, "Source must not be null");
+        Objects.requireNonNull(destFile, "Destination must not be null");
+        if (!Files.isRegularFile(srcFile))
+            throw new FileNotFoundException("Source '" + srcFile + "' does not exist or is not a regular file");
+        Files.createDirectories(destFile.toAbsolutePath().getParent());
+
+        // Renaming a file onto another link of itself does nothing, which would leave the temporary link behind
+        if (Files.exists(destFile) && Files.isSameFile(srcFile, destFile))
+            return true;
+
+        Path tmpFile = destFile.toAbsolutePath().resolveSibling("." + destFile.getFileName() + ".link");
+        try {
+            Files.deleteIfExists(tmpFile);
+            Files.createLink(tmpFile, srcFile);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOG.trace("Unable to create hard link " + destFile + " to " + srcFile, e);
+            return false;
+        }
+
+        try {
+            Files.move(tmpFile, destFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(tmpFile);
+            throw e;
+        }
+        return true;
+    }
+
+    /// Returns the number of hard links to the file, or -1 if it cannot be determined on this platform.
+    public static int getLinkCount(Path file) {
+        try {
+            if (Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS) instanceof Integer count)
+                return count;
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException ignored) {
+        }
+
+        Kernel32 kernel32 = Kernel32.INSTANCE;
+        if (kernel32 != null && file.getFileSystem() == FileSystems.getDefault()) {
+            WinTypes.HANDLE handle = kernel32.CreateFileW(new WString(file.toAbsolutePath().toString()),
+                    WinConstants.FILE_READ_ATTRIBUTES,
+                    WinConstants.FILE_SHARE_READ | WinConstants.FILE_SHARE_WRITE | WinConstants.FILE_SHARE_DELETE,
+                    null, WinConstants.OPEN_EXISTING, 0, null);
+            if (handle == null || WinTypes.HANDLE.INVALID.equals(handle))
+                return -1;
+            try {
+                WinTypes.BY_HANDLE_FILE_INFORMATION info = new WinTypes.BY_HANDLE_FILE_INFORMATION();
+                if (kernel32.GetFileInformationByHandle(handle, info))
+                    return info.nNumberOfLinks;
+            } finally {
+                kernel32.CloseHandle(handle);
+            }
+        }
+        return -1;
+    }
+
     public static List<Path> listFilesByExtension(Path file, String extension) {
         try (Stream<Path> list = Files.list(file)) {
             return list.filter(it -> Files.isRegularFile(it) && extension.equals(getExtension(it)))
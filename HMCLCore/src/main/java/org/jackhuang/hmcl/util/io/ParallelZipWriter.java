@@ -0,0 +1,612 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util.io;
+
+import org.jackhuang.hmcl.util.Lang;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/// Writes a zip file, deflating the entries concurrently.
+///
+/// The content of each entry is split into chunks, which are deflated into independent deflate streams on a pool
+/// bounded by the number of processors, and their CRC-32 checksums are computed along the way. The chunks are written
+/// to the file in order as soon as they are ready. Every chunk but the last one ends with a sync flush,
+/// so that they form a single valid deflate stream, and the checksum of the entry is combined from those of the chunks.
+/// The local header of an entry with several chunks is written before its size is known, and patched afterwards.
+///
+/// The number of chunks waiting to be written is bounded, so the memory used does not depend on the size of the entries.
+/// Files are read by the pool, so they must not be changed or deleted until [#close()] returns.
+///
+/// Non thread-safe.
+final class ParallelZipWriter implements Closeable {
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int MAX_PENDING_CHUNKS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    /// Files at least this large reserve a zip64 extra field in their local headers,
+    /// since their compressed size may be above [#ZIP64_MAGIC].
+    private static final long ZIP64_THRESHOLD = 0xF0000000L;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final int EXTRA_ZIP64 = 0x0001;
+    private static final int EXTRA_TIMESTAMP = 0x5455;
+
+    private static final ExecutorService POOL = Lang.threadPool("Zipper", true,
+            Runtime.getRuntime().availableProcessors(), 10, TimeUnit.SECONDS);
+
+    private final FileChannel channel;
+    private final OutputStream output;
+    private final Charset encoding;
+    private long position = 0;
+
+    private final Set<String> names = new HashSet<>();
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private int pendingChunks = 0;
+    private @Nullable OutputStream openStream;
+    private boolean failed = false;
+    private boolean closed = false;
+
+    ParallelZipWriter(Path zipFile, Charset encoding) throws IOException {
+        this.channel = FileChannel.open(zipFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.output = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+        this.encoding = encoding;
+    }
+
+    private Entry newEntry(String name, boolean directory, @Nullable BasicFileAttributes attrs, boolean zip64) throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        // Like ZipOutputStream, starting a new entry finishes the current one
+        if (openStream != null)
+            openStream.close();
+        if (!names.add(name))
+            throw new ZipException("duplicate entry: " + name);
+        return new Entry(name.getBytes(encoding), directory, attrs, zip64);
+    }
+
+    void putDirectory(String name, @Nullable BasicFileAttributes attrs) throws IOException {
+        Entry entry = newEntry(name, true, attrs, false);
+        entry.complete = true;
+        pending.add(entry);
+        drain(MAX_PENDING_CHUNKS);
+    }
+
+    void putFile(String name, Path file, BasicFileAttributes attrs) throws IOException {
+        long size = attrs.size();
+        Entry entry = newEntry(name, false, attrs, size >= ZIP64_THRESHOLD);
+        pending.add(entry);
+
+        long chunks = Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        for (long i = 0; i < chunks; i++) {
+            long start = i * CHUNK_SIZE;
+            int length = (int) Math.min(CHUNK_SIZE, size - start);
+            boolean last = i == chunks - 1;
+            submit(entry, () -> {
+                byte[] input = new byte[length];
+                int read = 0;
+                try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(input);
+                    // The file may have been truncated since its size was read
+                    while (buffer.hasRemaining() && fileChannel.read(buffer, start + buffer.position()) >= 0) {
+                    }
+                    read = buffer.position();
+                }
+                return deflate(input, read, last);
+            }, last);
+        }
+    }
+
+    /// @return the stream to write the content of the entry to, the entry is finished when the stream is closed
+    OutputStream putStream(String name) throws IOException {
+        Entry entry = newEntry(name, false, null, false);
+        pending.add(entry);
+
+        return openStream = new OutputStream() {
+            private byte[] buffer = new byte[CHUNK_SIZE];
+            private int count = 0;
+            private boolean streamClosed = false;
+
+            private void submitBuffer(boolean last) throws IOException {
+                byte[] input = buffer;
+                int length = count;
+                buffer = last ? null : new byte[CHUNK_SIZE];
+                count = 0;
+                submit(entry, () -> deflate(input, length, last), last);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                if (streamClosed)
+                    throw new IOException("Stream closed");
+                if (count == buffer.length)
+                    submitBuffer(false);
+                buffer[count++] = (byte) b;
+            }
+
+            @Override
+            public void write(byte @NotNull [] b, int off, int len) throws IOException {
+                Objects.checkFromIndexSize(off, len, b.length);
+                if (streamClosed)
+                    throw new IOException("Stream closed");
+                while (len > 0) {
+                    if (count == buffer.length)
+                        submitBuffer(false);
+                    int n = Math.min(len, buffer.length - count);
+                    System.arraycopy(b, off, buffer, count, n);
+                    count += n;
+                    off += n;
+                    len -= n;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!streamClosed) {
+                    streamClosed = true;
+                    if (openStream == this)
+                        openStream = null;
+                    submitBuffer(true);
+                }
+            }
+        };
+    }
+
+    private void submit(Entry entry, Callable<Chunk> task, boolean last) throws IOException {
+        entry.chunks.add(POOL.submit(task));
+        entry.complete = last;
+        pendingChunks++;
+        drain(MAX_PENDING_CHUNKS);
+    }
+
+    /// Writes the entries whose chunks are ready, and waits for the chunks until at most `maxPendingChunks` are left.
+    private void drain(int maxPendingChunks) throws IOException {
+        try {
+            while (!pending.isEmpty()) {
+                Entry entry = pending.getFirst();
+                while (!entry.chunks.isEmpty()) {
+                    Future<Chunk> future = entry.chunks.getFirst();
+                    if (!future.isDone() && pendingChunks <= maxPendingChunks)
+                        return;
+
+                    Chunk chunk = await(future);
+                    entry.chunks.removeFirst();
+                    pendingChunks--;
+
+                    if (entry.chunkCount == 0) {
+                        entry.offset = position;
+                        entry.crc = chunk.crc();
+                    } else {
+                        entry.crc = combineCrc(entry.crc, chunk.crc(), chunk.size());
+                    }
+                    entry.size += chunk.size();
+                    entry.compressedSize += chunk.length();
+                    entry.chunkCount++;
+
+                    if (!entry.headerWritten) {
+                        // Entries with a single chunk are written with the final header at once
+                        entry.headerPatched = !(entry.complete && entry.chunks.isEmpty());
+                        writeLocalHeader(entry);
+                    }
+                    write(chunk.data(), 0, chunk.length());
+                }
+
+                if (!entry.complete)
+                    return;
+
+                if (!entry.headerWritten) {
+                    entry.offset = position;
+                    writeLocalHeader(entry);
+                } else if (entry.headerPatched) {
+                    patchLocalHeader(entry);
+                }
+                pending.removeFirst();
+                entries.add(entry);
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compressing was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException)
+                throw ioException;
+            if (cause instanceof Error error)
+                throw error;
+            if (cause instanceof RuntimeException runtimeException)
+                throw runtimeException;
+            throw new IOException(cause);
+        }
+    }
+
+    private static Chunk deflate(byte[] input, int length, boolean last) {
+        CRC32 crc = new CRC32();
+        crc.update(input, 0, length);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(input, 0, length);
+            if (last)
+                deflater.finish();
+
+            // Enough for incompressible input in most cases, see deflateBound in zlib
+            byte[] output = new byte[length + (length >> 12) + (length >> 14) + 64];
+            int count = 0;
+            while (true) {
+                if (count == output.length)
+                    output = Arrays.copyOf(output, output.length * 2);
+                int n = last
+                        ? deflater.deflate(output, count, output.length - count)
+                        : deflater.deflate(output, count, output.length - count, Deflater.SYNC_FLUSH);
+                count += n;
+                if (last ? deflater.finished() : count < output.length)
+                    break;
+            }
+            return new Chunk(output, count, (int) crc.getValue(), length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /// Combines the CRC-32 checksums of two consecutive parts, see crc32_combine in zlib.
+    static int combineCrc(int crc1, int crc2, long length2) {
+        if (length2 <= 0)
+            return crc1;
+
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        // The operator for one zero bit
+        odd[0] = 0xEDB88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        // The operators for two and four zero bits
+        gf2MatrixSquare(even, odd);
+        gf2MatrixSquare(odd, even);
+
+        // Apply length2 zero bytes to crc1
+        long crc = crc1 & 0xFFFFFFFFL;
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0)
+                crc = gf2MatrixTimes(even, crc);
+            length2 >>= 1;
+            if (length2 == 0)
+                break;
+
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0)
+                crc = gf2MatrixTimes(odd, crc);
+            length2 >>= 1;
+        } while (length2 != 0);
+
+        return (int) (crc ^ (crc2 & 0xFFFFFFFFL));
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0)
+                sum ^= matrix[i];
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++)
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        output.write(bytes, offset, length);
+        position += length;
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        write(buffer.array(), 0, buffer.position());
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private int getFlags() {
+        return encoding.equals(StandardCharsets.UTF_8) ? FLAG_UTF8 : 0;
+    }
+
+    private static int getVersion(boolean zip64) {
+        return zip64 ? 45 : 20;
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        byte[] timestamp = entry.getTimestampExtra(true);
+        int extraLength = (entry.zip64 ? 20 : 0) + timestamp.length;
+
+        ByteBuffer buffer = allocate(30 + entry.name.length + extraLength);
+        buffer.putInt(LOCAL_HEADER_SIGNATURE);
+        buffer.putShort((short) getVersion(entry.zip64));
+        buffer.putShort((short) getFlags());
+        buffer.putShort((short) (entry.directory ? METHOD_STORED : METHOD_DEFLATED));
+        buffer.putInt((int) entry.dosTime);
+        putSizes(buffer, entry);
+        buffer.putShort((short) entry.name.length);
+        buffer.putShort((short) extraLength);
+        buffer.put(entry.name);
+        if (entry.zip64) {
+            buffer.putShort((short) EXTRA_ZIP64);
+            buffer.putShort((short) 16);
+            buffer.putLong(entry.size);
+            buffer.putLong(entry.compressedSize);
+        }
+        buffer.put(timestamp);
+
+        write(buffer);
+        entry.headerWritten = true;
+    }
+
+    /// Puts the checksum and the sizes of the entry, from offset 14 in the local header.
+    private static void putSizes(ByteBuffer buffer, Entry entry) throws ZipException {
+        buffer.putInt(entry.crc);
+        if (entry.zip64) {
+            buffer.putInt((int) ZIP64_MAGIC);
+            buffer.putInt((int) ZIP64_MAGIC);
+        } else if (entry.compressedSize >= ZIP64_MAGIC || entry.size >= ZIP64_MAGIC) {
+            throw new ZipException("Entry is too large: " + new String(entry.name, StandardCharsets.UTF_8));
+        } else {
+            buffer.putInt((int) entry.compressedSize);
+            buffer.putInt((int) entry.size);
+        }
+    }
+
+    private void patchLocalHeader(Entry entry) throws IOException {
+        ByteBuffer sizes = allocate(12);
+        putSizes(sizes, entry);
+        patch(sizes.flip(), entry.offset + 14);
+
+        if (entry.zip64) {
+            ByteBuffer extra = allocate(16);
+            extra.putLong(entry.size);
+            extra.putLong(entry.compressedSize);
+            patch(extra.flip(), entry.offset + 30 + entry.name.length + 4);
+        }
+    }
+
+    private void patch(ByteBuffer buffer, long offset) throws IOException {
+        output.flush();
+        while (buffer.hasRemaining())
+            offset += channel.write(buffer, offset);
+    }
+
+    private void writeCentralHeader(Entry entry) throws IOException {
+        boolean sizeZip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+        boolean offsetZip64 = entry.offset >= ZIP64_MAGIC;
+        boolean zip64 = entry.zip64 || sizeZip64 || offsetZip64;
+        int zip64Length = (entry.zip64 || sizeZip64 ? 16 : 0) + (offsetZip64 ? 8 : 0);
+
+        byte[] timestamp = entry.getTimestampExtra(false);
+        int extraLength = (zip64Length > 0 ? 4 + zip64Length : 0) + timestamp.length;
+
+        ByteBuffer buffer = allocate(46 + entry.name.length + extraLength);
+        buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+        buffer.putShort((short) getVersion(zip64));
+        buffer.putShort((short) getVersion(zip64));
+        buffer.putShort((short) getFlags());
+        buffer.putShort((short) (entry.directory ? METHOD_STORED : METHOD_DEFLATED));
+        buffer.putInt((int) entry.dosTime);
+        buffer.putInt(entry.crc);
+        if (entry.zip64 || sizeZip64) {
+            buffer.putInt((int) ZIP64_MAGIC);
+            buffer.putInt((int) ZIP64_MAGIC);
+        } else {
+            buffer.putInt((int) entry.compressedSize);
+            buffer.putInt((int) entry.size);
+        }
+        buffer.putShort((short) entry.name.length);
+        buffer.putShort((short) extraLength);
+        buffer.putShort((short) 0); // comment length
+        buffer.putShort((short) 0); // disk number
+        buffer.putShort((short) 0); // internal attributes
+        buffer.putInt(0); // external attributes
+        buffer.putInt((int) (offsetZip64 ? ZIP64_MAGIC : entry.offset));
+        buffer.put(entry.name);
+        if (zip64Length > 0) {
+            buffer.putShort((short) EXTRA_ZIP64);
+            buffer.putShort((short) zip64Length);
+            if (entry.zip64 || sizeZip64) {
+                buffer.putLong(entry.size);
+                buffer.putLong(entry.compressedSize);
+            }
+            if (offsetZip64)
+                buffer.putLong(entry.offset);
+        }
+        buffer.put(timestamp);
+        write(buffer);
+    }
+
+    private void writeEnd(long centralOffset, long centralSize) throws IOException {
+        int count = entries.size();
+        if (count >= 0xFFFF || centralOffset >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC) {
+            long zip64EndOffset = position;
+            ByteBuffer buffer = allocate(56 + 20);
+            buffer.putInt(ZIP64_END_SIGNATURE);
+            buffer.putLong(44);
+            buffer.putShort((short) 45);
+            buffer.putShort((short) 45);
+            buffer.putInt(0);
+            buffer.putInt(0);
+            buffer.putLong(count);
+            buffer.putLong(count);
+            buffer.putLong(centralSize);
+            buffer.putLong(centralOffset);
+
+            buffer.putInt(ZIP64_LOCATOR_SIGNATURE);
+            buffer.putInt(0);
+            buffer.putLong(zip64EndOffset);
+            buffer.putInt(1);
+            write(buffer);
+        }
+
+        ByteBuffer buffer = allocate(22);
+        buffer.putInt(END_SIGNATURE);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) Math.min(count, 0xFFFF));
+        buffer.putShort((short) Math.min(count, 0xFFFF));
+        buffer.putInt((int) Math.min(centralSize, ZIP64_MAGIC));
+        buffer.putInt((int) Math.min(centralOffset, ZIP64_MAGIC));
+        buffer.putShort((short) 0);
+        write(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+
+        try {
+            if (!failed) {
+                if (openStream != null)
+                    openStream.close();
+                drain(0);
+
+                long centralOffset = position;
+                for (Entry entry : entries)
+                    writeCentralHeader(entry);
+                writeEnd(centralOffset, position - centralOffset);
+                output.flush();
+            }
+        } finally {
+            for (Entry entry : pending)
+                for (Future<Chunk> future : entry.chunks)
+                    future.cancel(true);
+            channel.close();
+        }
+    }
+
+    private record Chunk(byte[] data, int length, int crc, long size) {
+    }
+
+    private static final class Entry {
+        final byte[] name;
+        final boolean directory;
+        final long dosTime;
+        final @Nullable BasicFileAttributes attrs;
+        final boolean zip64;
+
+        final ArrayDeque<Future<Chunk>> chunks = new ArrayDeque<>();
+        boolean complete;
+        int chunkCount;
+        boolean headerWritten;
+        boolean headerPatched;
+
+        long offset;
+        int crc;
+        long size;
+        long compressedSize;
+
+        Entry(byte[] name, boolean directory, @Nullable BasicFileAttributes attrs, boolean zip64) {
+            this.name = name;
+            this.directory = directory;
+            this.attrs = attrs;
+            this.zip64 = zip64;
+            this.dosTime = toDosTime(attrs != null ? attrs.lastModifiedTime().toMillis() : System.currentTimeMillis());
+        }
+
+        /// The extended timestamp extra field. Only the local header has the access and creation time,
+        /// while the flags of both headers tell which times the local header has.
+        byte[] getTimestampExtra(boolean local) {
+            if (attrs == null)
+                return new byte[0];
+
+            FileTime[] times = {attrs.lastModifiedTime(), attrs.lastAccessTime(), attrs.creationTime()};
+            int flags = 0;
+            int count = 0;
+            int[] seconds = new int[times.length];
+            for (int i = 0; i < times.length; i++) {
+                long time = times[i] != null ? times[i].to(TimeUnit.SECONDS) : -1;
+                if (time >= 0 && time <= Integer.MAX_VALUE) {
+                    flags |= 1 << i;
+                    if (local || i == 0)
+                        seconds[count++] = (int) time;
+                }
+            }
+            if (flags == 0)
+                return new byte[0];
+
+            ByteBuffer buffer = allocate(5 + count * 4);
+            buffer.putShort((short) EXTRA_TIMESTAMP);
+            buffer.putShort((short) (1 + count * 4));
+            buffer.put((byte) flags);
+            for (int i = 0; i < count; i++)
+                buffer.putInt(seconds[i]);
+            return buffer.array();
+        }
+
+        private static long toDosTime(long millis) {
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+            if (time.getYear() < 1980)
+                return (1 << 21) | (1 << 16);
+            return (long) (time.getYear() - 1980) << 25
+                    | (long) time.getMonthValue() << 21
+                    | (long) time.getDayOfMonth() << 16
+                    | (long) time.getHour() << 11
+                    | (long) time.getMinute() << 5
+                    | (long) time.getSecond() >> 1;
+        }
+    }
+}
@@ -0,0 +1,665 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util.io;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.jackhuang.hmcl.task.Schedulers;
+import org.jackhuang.hmcl.util.Lang;
+import org.jackhuang.hmcl.util.ServerAddress;
+import org.jackhuang.hmcl.util.StringUtils;
+import org.jetbrains.annotations.Nullable;
+
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.jackhuang.hmcl.util.logging.Logger.LOG;
+
+/// Polls the status of Minecraft servers with the Server List Ping protocol.
+///
+/// All the servers of a poller are polled on one thread with non-blocking sockets, so that many servers can be
+/// watched at once. Each poll sends the handshake, the status request and the ping request together over one
+/// connection. SRV records and addresses are looked up on the I/O thread pool, and cached for [#ADDRESS_TTL].
+/// Servers that cannot be reached are polled less and less often, up to once every [#MAX_RETRY_DELAY].
+public final class ServerStatusPoller implements Closeable {
+
+    private static final int DEFAULT_PORT = 25565;
+    private static final int PROTOCOL_VERSION = 758;
+    private static final int MAX_PACKET_SIZE = 4 * 1024 * 1024;
+    private static final long TIMEOUT = TimeUnit.SECONDS.toNanos(3);
+    private static final long ADDRESS_TTL = TimeUnit.MINUTES.toNanos(5);
+    static final long MAX_RETRY_DELAY = TimeUnit.MINUTES.toNanos(5);
+
+    private static volatile ServerStatusPoller defaultPoller;
+
+    /// Returns the poller shared by the whole launcher, which is never closed.
+    public static ServerStatusPoller getDefault() throws IOException {
+        ServerStatusPoller poller = defaultPoller;
+        if (poller == null) {
+            synchronized (ServerStatusPoller.class) {
+                poller = defaultPoller;
+                if (poller == null) {
+                    poller = new ServerStatusPoller();
+                    defaultPoller = poller;
+                }
+            }
+        }
+        return poller;
+    }
+
+    private final Selector selector;
+    private final Queue<Runnable> actions = new ConcurrentLinkedQueue<>();
+    private final Set<CompletableFuture<Status>> queries = ConcurrentHashMap.newKeySet();
+    private volatile boolean stopped;
+
+    // Only accessed on the polling thread
+    private final List<Target> targets = new ArrayList<>();
+    private final Map<ServerAddress, ResolvedAddress> addresses = new HashMap<>();
+    private boolean closed;
+
+    public ServerStatusPoller() throws IOException {
+        this.selector = Selector.open();
+        Lang.thread(this::run, "ServerStatusPoller", true);
+    }
+
+    /// Polls the status of the server every `interval` until the watch is cancelled.
+    ///
+    /// The listener is called on the polling thread, so it must not block.
+    public Watch watch(ServerAddress address, Duration interval, Consumer<Status> listener) {
+        Target target = new Target(address, Math.max(interval.toNanos(), TIMEOUT), listener, false);
+        post(() -> targets.add(target));
+        return target;
+    }
+
+    /// Polls the status of the server once.
+    ///
+    /// The future is completed exceptionally if the poller is closed before the server has been polled.
+    public CompletableFuture<Status> query(ServerAddress address) {
+        CompletableFuture<Status> future = new CompletableFuture<>();
+        queries.add(future);
+        future.whenComplete((status, e) -> queries.remove(future));
+        Target target = new Target(address, 0, future::complete, true);
+        post(() -> targets.add(target));
+        if (stopped) {
+            future.completeExceptionally(new IOException("Server status poller is closed"));
+        }
+        return future;
+    }
+
+    private void post(Runnable action) {
+        actions.add(action);
+        selector.wakeup();
+    }
+
+    @Override
+    public void close() {
+        post(() -> closed = true);
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Runnable action;
+                while ((action = actions.poll()) != null) {
+                    action.run();
+                }
+                if (closed) {
+                    break;
+                }
+
+                long now = System.nanoTime();
+                long wait = Long.MAX_VALUE;
+                for (Target target : new ArrayList<>(targets)) {
+                    wait = Math.min(wait, target.update(now));
+                }
+
+                if (wait <= 0) {
+                    selector.selectNow();
+                } else {
+                    selector.select(wait == Long.MAX_VALUE ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait) + 1));
+                }
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    ((Target) key.attachment()).handle(key);
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (Throwable e) {
+            LOG.warning("Server status poller stopped", e);
+        } finally {
+            stopped = true;
+            for (Target target : targets) {
+                target.closeChannel();
+            }
+            targets.clear();
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+            for (CompletableFuture<Status> future : new ArrayList<>(queries)) {
+                future.completeExceptionally(new IOException("Server status poller is closed"));
+            }
+        }
+    }
+
+    /// Returns how long to wait before polling a server again after it has failed `failures` times in a row.
+    static long getRetryDelay(long interval, int failures) {
+        if (failures <= 0) {
+            return interval;
+        }
+        long delay = interval << Math.min(failures - 1, 16);
+        return Math.max(interval, delay < 0 || delay > MAX_RETRY_DELAY ? MAX_RETRY_DELAY : delay);
+    }
+
+    private static boolean isIpLiteral(String host) {
+        return host.indexOf(':') >= 0 || host.chars().allMatch(ch -> ch == '.' || ch >= '0' && ch <= '9');
+    }
+
+    /// Looks up the SRV record of the server if it has no explicit port, and the address of the host.
+    private static ResolvedAddress resolve(ServerAddress address) throws IOException {
+        String host = address.getHost();
+        int port = address.getPort() >= 0 ? address.getPort() : DEFAULT_PORT;
+        if (host.isBlank()) {
+            throw new IOException("Server address is empty");
+        }
+
+        if (port == DEFAULT_PORT && !isIpLiteral(host)) {
+            Hashtable<String, String> env = new Hashtable<>();
+            env.put("java.naming.factory.initial", "com.sun.jndi.dns.DnsContextFactory");
+            try {
+                DirContext context = new InitialDirContext(env);
+                try {
+                    Attributes attributes = context.getAttributes("_minecraft._tcp." + host, new String[]{"SRV"});
+                    Attribute attribute = attributes.get("SRV");
+                    if (attribute != null && attribute.size() > 0) {
+                        String[] parts = attribute.get().toString().split(" ");
+                        if (parts.length >= 4) {
+                            int srvPort = Integer.parseInt(parts[2]);
+                            host = StringUtils.removeSuffix(parts[3], ".");
+                            port = srvPort > 0 ? srvPort : port;
+                        }
+                    }
+                } finally {
+                    context.close();
+                }
+            } catch (NamingException | RuntimeException e) {
+                LOG.debug("Failed to resolve SRV record of " + host, e);
+            }
+        }
+
+        return new ResolvedAddress(host, new InetSocketAddress(InetAddress.getByName(host), port), System.nanoTime() + ADDRESS_TTL);
+    }
+
+    private static byte[] buildRequest(String host, int port) {
+        ByteArrayOutputStream packet = new ByteArrayOutputStream();
+        writeVarInt(packet, 0x00);
+        writeVarInt(packet, PROTOCOL_VERSION);
+        byte[] hostBytes = host.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(packet, hostBytes.length);
+        packet.writeBytes(hostBytes);
+        packet.write(port >>> 8);
+        packet.write(port);
+        writeVarInt(packet, 1);
+
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        // Handshake
+        writeVarInt(request, packet.size());
+        request.writeBytes(packet.toByteArray());
+        // Status request
+        writeVarInt(request, 1);
+        writeVarInt(request, 0x00);
+        // Ping request, with a payload of 8 bytes
+        writeVarInt(request, 9);
+        writeVarInt(request, 0x01);
+        request.writeBytes(new byte[8]);
+        return request.toByteArray();
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /// @throws BufferUnderflowException if the buffer ends before the VarInt
+    private static int readVarInt(ByteBuffer buffer) throws IOException {
+        int result = 0;
+        for (int i = 0; i < 5; i++) {
+            byte b = buffer.get();
+            result |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("VarInt too big");
+    }
+
+    /// Reads the fields of the status response, skipping everything else such as the favicon.
+    static Status parseStatus(String json, long pingMillis) throws IOException {
+        int online = -1;
+        int max = -1;
+        String description = null;
+
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "players":
+                        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                            reader.skipValue();
+                            break;
+                        }
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "online":
+                                    online = reader.nextInt();
+                                    break;
+                                case "max":
+                                    max = reader.nextInt();
+                                    break;
+                                default:
+                                    reader.skipValue();
+                                    break;
+                            }
+                        }
+                        reader.endObject();
+                        break;
+                    case "description":
+                        description = readText(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Invalid status response", e);
+        }
+
+        return new Status(true, online, max, description, pingMillis, null);
+    }
+
+    /// Flattens a text component to plain text.
+    private static @Nullable String readText(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case BEGIN_ARRAY: {
+                StringBuilder builder = new StringBuilder();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String part = readText(reader);
+                    if (part != null) {
+                        builder.append(part);
+                    }
+                }
+                reader.endArray();
+                return builder.toString();
+            }
+            case BEGIN_OBJECT: {
+                StringBuilder text = new StringBuilder();
+                StringBuilder extra = new StringBuilder();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (name.equals("text")) {
+                        String part = readText(reader);
+                        if (part != null) {
+                            text.append(part);
+                        }
+                    } else if (name.equals("extra") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                        String part = readText(reader);
+                        if (part != null) {
+                            extra.append(part);
+                        }
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return text.append(extra).toString();
+            }
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+
+    /// The status of a server.
+    ///
+    /// @param playersOnline the number of players online, or -1 if unknown
+    /// @param playersMax    the maximum number of players, or -1 if unknown
+    /// @param description   the description (MOTD) as plain text
+    /// @param pingMillis    the round trip time of the ping in milliseconds, or -1 if unknown
+    /// @param error         the reason why the server is offline
+    public record Status(boolean online, int playersOnline, int playersMax, @Nullable String description,
+                         long pingMillis, @Nullable String error) {
+        public static Status offline(@Nullable String error) {
+            return new Status(false, -1, -1, null, -1, error);
+        }
+    }
+
+    /// A server watched by a [ServerStatusPoller].
+    public interface Watch {
+        /// Polls the server as soon as possible, unless it is being polled now.
+        void refresh();
+
+        /// Stops polling the server.
+        void cancel();
+    }
+
+    private record ResolvedAddress(String host, InetSocketAddress address, long expiresAt) {
+    }
+
+    private final class Target implements Watch {
+        private final ServerAddress address;
+        private final long interval;
+        private final Consumer<Status> listener;
+        private final boolean once;
+
+        private long nextPoll = System.nanoTime();
+        private int failures;
+        private boolean cancelled;
+
+        // The state of the current poll
+        private int attempt;
+        private boolean polling;
+        private long deadline;
+        private @Nullable SocketChannel channel;
+        private ByteBuffer output;
+        private ByteBuffer input;
+        private long sentAt;
+        private @Nullable Status status;
+        private long statusReceivedAt;
+
+        Target(ServerAddress address, long interval, Consumer<Status> listener, boolean once) {
+            this.address = address;
+            this.interval = interval;
+            this.listener = listener;
+            this.once = once;
+        }
+
+        @Override
+        public void refresh() {
+            post(() -> {
+                if (!polling) {
+                    nextPoll = System.nanoTime();
+                }
+            });
+        }
+
+        @Override
+        public void cancel() {
+            post(() -> {
+                cancelled = true;
+                closeChannel();
+                targets.remove(this);
+            });
+        }
+
+        /// Starts a poll or times it out if it is due.
+        ///
+        /// @return the time to wait until this method should be called again
+        long update(long now) {
+            if (polling) {
+                if (now - deadline >= 0) {
+                    if (status != null) {
+                        complete(statusReceivedAt - sentAt);
+                    } else {
+                        fail(new SocketTimeoutException("Timed out polling " + address.getHost()));
+                    }
+                    return update(now);
+                }
+                return deadline - now;
+            }
+
+            if (cancelled) {
+                return Long.MAX_VALUE;
+            }
+            if (now - nextPoll < 0) {
+                return nextPoll - now;
+            }
+
+            polling = true;
+            status = null;
+            deadline = now + TIMEOUT;
+            int currentAttempt = ++attempt;
+
+            ResolvedAddress resolved = addresses.get(address);
+            if (resolved != null && now - resolved.expiresAt() < 0) {
+                connect(resolved);
+            } else {
+                Schedulers.io().execute(() -> {
+                    ResolvedAddress result;
+                    try {
+                        result = resolve(address);
+                    } catch (IOException | RuntimeException e) {
+                        post(() -> {
+                            if (attempt == currentAttempt && polling) {
+                                fail(e);
+                            }
+                        });
+                        return;
+                    }
+                    post(() -> {
+                        addresses.put(address, result);
+                        if (attempt == currentAttempt && polling) {
+                            connect(result);
+                        }
+                    });
+                });
+            }
+            return polling ? deadline - now : update(now);
+        }
+
+        private void connect(ResolvedAddress resolved) {
+            try {
+                SocketChannel channel = SocketChannel.open();
+                this.channel = channel;
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                output = ByteBuffer.wrap(buildRequest(resolved.host(), resolved.address().getPort()));
+                input = ByteBuffer.allocate(8192);
+
+                if (channel.connect(resolved.address())) {
+                    sentAt = System.nanoTime();
+                    channel.register(selector, SelectionKey.OP_WRITE, this);
+                } else {
+                    channel.register(selector, SelectionKey.OP_CONNECT, this);
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        void handle(SelectionKey key) {
+            try {
+                if (key.isConnectable()) {
+                    channel.finishConnect();
+                    sentAt = System.nanoTime();
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+
+                if (key.isWritable()) {
+                    channel.write(output);
+                    if (!output.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                    }
+                    return;
+                }
+
+                if (key.isReadable()) {
+                    read();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Including BufferUnderflowException from malformed packets, which must not stop the other servers
+                fail(e);
+            }
+        }
+
+        private void read() throws IOException {
+            int n = channel.read(input);
+            long now = System.nanoTime();
+            if (n < 0) {
+                // Some servers close the connection without answering the ping
+                if (status != null) {
+                    complete(statusReceivedAt - sentAt);
+                } else {
+                    throw new EOFException("Connection closed before the status response");
+                }
+                return;
+            }
+
+            input.flip();
+            int required = 0;
+            while (true) {
+                input.mark();
+                int length;
+                try {
+                    length = readVarInt(input);
+                } catch (BufferUnderflowException e) {
+                    input.reset();
+                    break;
+                }
+                if (length <= 0 || length > MAX_PACKET_SIZE) {
+                    throw new IOException("Invalid packet length: " + length);
+                }
+                if (input.remaining() < length) {
+                    int headerEnd = input.position();
+                    input.reset();
+                    // The buffer must hold the whole packet once it has been compacted
+                    required = headerEnd - input.position() + length;
+                    break;
+                }
+
+                int end = input.position() + length;
+                ByteBuffer packet = input.slice().limit(length);
+                input.position(end);
+
+                int packetId = readVarInt(packet);
+                if (packetId == 0x00 && status == null) {
+                    int jsonLength = readVarInt(packet);
+                    if (jsonLength <= 0 || jsonLength > packet.remaining()) {
+                        throw new IOException("Invalid status response length: " + jsonLength);
+                    }
+                    String json = StandardCharsets.UTF_8.decode(packet.limit(packet.position() + jsonLength)).toString();
+                    status = parseStatus(json, -1);
+                    statusReceivedAt = now;
+                } else if (packetId == 0x01 && status != null) {
+                    complete(now - sentAt);
+                    return;
+                } else {
+                    throw new IOException("Unexpected packet id: " + packetId);
+                }
+            }
+            input.compact();
+
+            if (input.capacity() < required) {
+                ByteBuffer bigger = ByteBuffer.allocate(required);
+                input.flip();
+                bigger.put(input);
+                input = bigger;
+            }
+        }
+
+        private void complete(long pingNanos) {
+            Status result = status;
+            finish();
+            failures = 0;
+            nextPoll = System.nanoTime() + interval;
+            notify(new Status(true, result.playersOnline(), result.playersMax(), result.description(),
+                    TimeUnit.NANOSECONDS.toMillis(pingNanos), null));
+        }
+
+        private void fail(Exception e) {
+            finish();
+            failures++;
+            // The address of the server may have changed
+            addresses.remove(address);
+            nextPoll = System.nanoTime() + getRetryDelay(interval, failures);
+            LOG.debug("Failed to poll the status of " + address.getHost(), e);
+            notify(Status.offline(e.getClass().getSimpleName()));
+        }
+
+        private void finish() {
+            polling = false;
+            status = null;
+            output = null;
+            input = null;
+            closeChannel();
+        }
+
+        private void notify(Status result) {
+            if (cancelled) {
+                return;
+            }
+            if (once) {
+                cancelled = true;
+                targets.remove(this);
+            }
+            try {
+                listener.accept(result);
+            } catch (Throwable e) {
+                LOG.warning("Failed to handle the status of " + address.getHost(), e);
+            }
+        }
+
+        void closeChannel() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                channel = null;
+            }
+        }
+    }
+}
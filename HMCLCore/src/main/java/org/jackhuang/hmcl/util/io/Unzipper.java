@@ -17,18 +17,48 @@
  */
 package org.jackhuang.hmcl.util.io;
 
+import kala.compress.archivers.zip.ZipArchiveEntry;
+import kala.compress.archivers.zip.ZipArchiveReader;
+import org.jackhuang.hmcl.util.Lang;
+import org.jetbrains.annotations.Nullable;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
 
+/// Decompresses a zip file to a directory.
+///
+/// The central directory is read once, the filter is called for all entries on the calling thread,
+/// and then the accepted files are inflated concurrently on a pool bounded by the number of processors.
 public final class Unzipper {
+    /// Archives smaller than this are extracted on the calling thread.
+    private static final long PARALLEL_THRESHOLD = 4 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ExecutorService POOL = Lang.threadPool("Unzipper", true,
+            Runtime.getRuntime().availableProcessors(), 10, TimeUnit.SECONDS);
+
     private final Path zipFile, dest;
     private boolean replaceExistentFile = false;
+    private boolean verifyChecksums = false;
     private boolean terminateIfSubDirectoryNotExists = false;
     private String subDirectory = "/";
     private FileFilter filter = null;
+    private EntryFilter entryFilter = null;
+    private LongConsumer progressListener = null;
     private Charset encoding = StandardCharsets.UTF_8;
 
     /**
@@ -51,12 +81,44 @@ public final class Unzipper {
         return this;
     }
 
+    /**
+     * True if the CRC-32 of every uncompressed file should be checked against the one recorded in the zip file.
+     * A mismatch fails the whole operation with a {@link ZipException}.
+     */
+    public Unzipper setVerifyChecksums(boolean verifyChecksums) {
+        this.verifyChecksums = verifyChecksums;
+        return this;
+    }
+
     /**
      * Will be called for every entry in the zip file.
      * Callback returns false if you want leave the specific file uncompressed.
+     *
+     * The zip file is also opened as a zip file system to provide the paths of the entries,
+     * prefer {@link #setEntryFilter(EntryFilter)} if the filter does not need them.
      */
     public Unzipper setFilter(FileFilter filter) {
         this.filter = filter;
+        this.entryFilter = null;
+        return this;
+    }
+
+    /**
+     * Will be called for every entry in the zip file.
+     * Callback returns false if you want leave the specific file uncompressed.
+     */
+    public Unzipper setEntryFilter(EntryFilter entryFilter) {
+        this.entryFilter = entryFilter;
+        this.filter = null;
+        return this;
+    }
+
+    /**
+     * Will be called with the number of bytes written each time a part of a file is uncompressed,
+     * possibly from several threads at once.
+     */
+    public Unzipper setProgressListener(LongConsumer progressListener) {
+        this.progressListener = progressListener;
         return this;
     }
 
@@ -89,47 +151,228 @@ public final class Unzipper {
      * @throws IOException if zip file is malformed or filesystem error.
      */
     public void unzip() throws IOException {
+        if (!subDirectory.startsWith("/") || (subDirectory.length() > 1 && subDirectory.endsWith("/")))
+            throw new IllegalArgumentException("Subdirectory for unzipper must be absolute");
+        String prefix = subDirectory.length() > 1 ? subDirectory.substring(1) + "/" : "";
+
         Files.createDirectories(dest);
-        try (FileSystem fs = CompressingUtils.readonly(zipFile).setEncoding(encoding).setAutoDetectEncoding(true).build()) {
-            Path root = fs.getPath(subDirectory);
-            if (!root.isAbsolute() || (subDirectory.length() > 1 && subDirectory.endsWith("/")))
-                throw new IllegalArgumentException("Subdirectory for unzipper must be absolute");
+        Path destRoot = dest.toAbsolutePath().normalize();
+
+        ZipArchiveReader reader = new ZipArchiveReader(zipFile, encoding);
+        FileSystem fs = null;
+        try {
+            Charset charset = encoding;
+            if (!CompressingUtils.testEncoding(reader, charset)) {
+                charset = CompressingUtils.findSuitableEncoding(reader);
+                reader.close();
+                reader = new ZipArchiveReader(zipFile, charset);
+            }
+
+            // Collect the entries under the subdirectory, and the directories they imply
+            Map<String, ZipArchiveEntry> files = new LinkedHashMap<>();
+            Map<String, ZipArchiveEntry> directories = new HashMap<>();
+            boolean rootExists = prefix.isEmpty();
+            for (ZipArchiveEntry entry : reader.getEntries()) {
+                String name = entry.getName();
+                while (name.startsWith("/"))
+                    name = name.substring(1);
+                if (!name.startsWith(prefix))
+                    continue;
+                rootExists = true;
+
+                String relativePath = name.substring(prefix.length());
+                boolean isDirectory = entry.isDirectory() || relativePath.endsWith("/");
+                while (relativePath.endsWith("/"))
+                    relativePath = relativePath.substring(0, relativePath.length() - 1);
+                if (relativePath.isEmpty())
+                    continue;
+
+                if (isDirectory)
+                    directories.put(relativePath, entry);
+                else
+                    files.putIfAbsent(relativePath, entry);
+
+                for (int i = relativePath.lastIndexOf('/'); i > 0; i = relativePath.lastIndexOf('/', i - 1))
+                    directories.putIfAbsent(relativePath.substring(0, i), null);
+            }
+
+            if (!rootExists) {
+                if (terminateIfSubDirectoryNotExists)
+                    return;
+                throw new NoSuchFileException(subDirectory, null, "No such directory in " + zipFile);
+            }
 
-            if (terminateIfSubDirectoryNotExists && Files.notExists(root))
+            EntryFilter filter = this.entryFilter;
+            if (this.filter != null) {
+                // The legacy filter takes the paths of the entries in a zip file system
+                fs = CompressingUtils.readonly(zipFile).setEncoding(charset).build();
+                Path root = fs.getPath(subDirectory);
+                FileFilter fileFilter = this.filter;
+                filter = (entry, isDirectory, destFile, entryPath) ->
+                        fileFilter.accept(root.resolve(entryPath), isDirectory, destFile, entryPath);
+            }
+
+            // Parents are filtered before their children, and rejecting a directory rejects all its contents
+            if (filter != null && !filter.accept(null, true, destRoot, ""))
                 return;
 
-            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
-                @Override
-                public FileVisitResult visitFile(Path file,
-                                                 BasicFileAttributes attrs) throws IOException {
-                    String relativePath = root.relativize(file).toString();
-                    Path destFile = dest.resolve(relativePath);
-                    if (filter != null && !filter.accept(file, false, destFile, relativePath))
-                        return FileVisitResult.CONTINUE;
-                    try {
-                        Files.copy(file, destFile, replaceExistentFile ? new CopyOption[]{StandardCopyOption.REPLACE_EXISTING} : new CopyOption[]{});
-                    } catch (FileAlreadyExistsException e) {
-                        if (replaceExistentFile)
-                            throw e;
+            List<String> sortedDirectories = new ArrayList<>(directories.keySet());
+            sortedDirectories.sort(Comparator.comparingInt(Unzipper::depth).thenComparing(Comparator.naturalOrder()));
+            Set<String> acceptedDirectories = new HashSet<>();
+            acceptedDirectories.add("");
+            for (String relativePath : sortedDirectories) {
+                if (acceptedDirectories.contains(getParent(relativePath))) {
+                    Path dirToCreate = resolve(destRoot, relativePath);
+                    if (filter == null || filter.accept(directories.get(relativePath), true, dirToCreate, relativePath)) {
+                        Files.createDirectories(dirToCreate);
+                        acceptedDirectories.add(relativePath);
                     }
-                    return FileVisitResult.CONTINUE;
                 }
+            }
+
+            List<FileEntry> accepted = new ArrayList<>();
+            long totalSize = 0;
+            for (Map.Entry<String, ZipArchiveEntry> file : files.entrySet()) {
+                String relativePath = file.getKey();
+                if (!acceptedDirectories.contains(getParent(relativePath)))
+                    continue;
+                Path destFile = resolve(destRoot, relativePath);
+                if (filter == null || filter.accept(file.getValue(), false, destFile, relativePath)) {
+                    accepted.add(new FileEntry(file.getValue(), destFile));
+                    totalSize += Math.max(file.getValue().getCompressedSize(), 0);
+                }
+            }
+
+            if (accepted.size() <= 1 || totalSize < PARALLEL_THRESHOLD) {
+                AtomicBoolean cancelled = new AtomicBoolean();
+                for (FileEntry file : accepted)
+                    extract(reader, file, cancelled);
+            } else {
+                extractConcurrently(reader, accepted);
+            }
+        } finally {
+            if (fs != null)
+                IOUtils.closeQuietly(fs);
+            reader.close();
+        }
+    }
+
+    private static int depth(String relativePath) {
+        int depth = 0;
+        for (int i = 0; i < relativePath.length(); i++)
+            if (relativePath.charAt(i) == '/')
+                depth++;
+        return depth;
+    }
+
+    private static String getParent(String relativePath) {
+        int i = relativePath.lastIndexOf('/');
+        return i < 0 ? "" : relativePath.substring(0, i);
+    }
+
+    private static Path resolve(Path destRoot, String relativePath) throws IOException {
+        Path path = destRoot.resolve(relativePath).normalize();
+        if (!path.startsWith(destRoot) || path.equals(destRoot))
+            throw new IOException("Zip entry " + relativePath + " is outside of the destination directory");
+        return path;
+    }
+
+    private void extractConcurrently(ZipArchiveReader reader, List<FileEntry> files) throws IOException {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<Future<?>> futures = new ArrayList<>(files.size());
+        for (FileEntry file : files) {
+            futures.add(POOL.submit(() -> {
+                if (!cancelled.get())
+                    extract(reader, file, cancelled);
+                return null;
+            }));
+        }
 
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir,
-                                                         BasicFileAttributes attrs) throws IOException {
-                    String relativePath = root.relativize(dir).toString();
-                    Path dirToCreate = dest.resolve(relativePath);
-                    if (filter != null && !filter.accept(dir, true, dirToCreate, relativePath))
-                        return FileVisitResult.SKIP_SUBTREE;
-                    Files.createDirectories(dirToCreate);
-                    return FileVisitResult.CONTINUE;
+        // The reader must not be closed before all the tasks have finished, so wait for them even after a failure
+        Throwable exception = null;
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (ExecutionException e) {
+                    cancelled.set(true);
+                    if (exception == null)
+                        exception = e.getCause();
+                    break;
+                } catch (InterruptedException e) {
+                    cancelled.set(true);
+                    interrupted = true;
                 }
-            });
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Decompressing " + zipFile + " was interrupted");
+        }
+        if (exception instanceof IOException e)
+            throw e;
+        if (exception instanceof RuntimeException e)
+            throw e;
+        if (exception instanceof Error e)
+            throw e;
+        if (exception != null)
+            throw new IOException(exception);
+    }
+
+    private void extract(ZipArchiveReader reader, FileEntry file, AtomicBoolean cancelled) throws IOException {
+        Path destFile = file.destFile();
+        try {
+            Files.createFile(destFile);
+        } catch (FileAlreadyExistsException e) {
+            if (!replaceExistentFile)
+                return;
+            // Replace the file instead of overwriting it, since it may be a hard link to another file
+            Files.delete(destFile);
+            Files.createFile(destFile);
+        }
+
+        long size = file.entry().getSize();
+        try (InputStream input = reader.getInputStream(file.entry());
+             RandomAccessFile output = new RandomAccessFile(destFile.toFile(), "rw")) {
+            if (size > 0)
+                output.setLength(size);
+
+            byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(size, 512))];
+            CRC32 crc32 = verifyChecksums && file.entry().getCrc() >= 0 ? new CRC32() : null;
+            long written = 0;
+            int n;
+            while ((n = input.read(buffer)) >= 0) {
+                if (cancelled.get())
+                    throw new InterruptedIOException("Decompressing " + zipFile + " was cancelled");
+                output.write(buffer, 0, n);
+                if (crc32 != null)
+                    crc32.update(buffer, 0, n);
+                written += n;
+                if (progressListener != null)
+                    progressListener.accept(n);
+            }
+
+            if (written != size)
+                output.setLength(written);
+            if (crc32 != null && crc32.getValue() != file.entry().getCrc())
+                throw new ZipException("CRC-32 mismatch of " + file.entry().getName() + " in " + zipFile);
         }
     }
 
+    private record FileEntry(ZipArchiveEntry entry, Path destFile) {
+    }
+
     public interface FileFilter {
         boolean accept(Path zipEntry, boolean isDirectory, Path destFile, String entryPath) throws IOException;
     }
+
+    public interface EntryFilter {
+        /**
+         * @param entry the entry in the zip file, or null for directories that have no entries of their own
+         */
+        boolean accept(@Nullable ZipArchiveEntry entry, boolean isDirectory, Path destFile, String entryPath) throws IOException;
+    }
 }
@@ -18,7 +18,6 @@
 package org.jackhuang.hmcl.util.io;
 
 import org.jackhuang.hmcl.util.function.ExceptionalPredicate;
-import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
 import java.nio.charset.Charset;
@@ -26,18 +25,19 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
-import java.util.zip.ZipOutputStream;
 
 /**
  * Non thread-safe
  *
+ * The entries are compressed concurrently by {@link ParallelZipWriter},
+ * so the files put into the zip file must not be changed or deleted until it is closed.
+ *
  * @author huangyuhui
  */
 public final class Zipper implements Closeable {
 
-    private final ZipOutputStream zos;
+    private final ParallelZipWriter writer;
     private final byte[] buffer = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
 
     public Zipper(Path zipFile) throws IOException {
@@ -45,7 +45,7 @@ public final class Zipper implements Closeable {
     }
 
     public Zipper(Path zipFile, Charset encoding) throws IOException {
-        this.zos = new ZipOutputStream(Files.newOutputStream(zipFile), encoding);
+        this.writer = new ParallelZipWriter(zipFile, encoding);
     }
 
     private static String normalize(String path) {
@@ -65,7 +65,7 @@ public final class Zipper implements Closeable {
 
     @Override
     public void close() throws IOException {
-        zos.close();
+        writer.close();
     }
 
     /**
@@ -108,8 +108,7 @@ public final class Zipper implements Closeable {
                     return FileVisitResult.SKIP_SUBTREE;
                 }
                 try {
-                    zos.putNextEntry(new ZipEntry(resolve(root, relativePath) + "/"));
-                    zos.closeEntry();
+                    writer.putDirectory(resolve(root, relativePath) + "/", null);
                 } catch (ZipException ignored) {
                     // Directory already exists
                 }
@@ -127,63 +126,30 @@ public final class Zipper implements Closeable {
 
         BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
 
-        ZipEntry entry = new ZipEntry(attrs.isDirectory() ? path + "/" : path);
-        entry.setCreationTime(attrs.creationTime());
-        entry.setLastAccessTime(attrs.lastAccessTime());
-        entry.setLastModifiedTime(attrs.lastModifiedTime());
-
         if (attrs.isDirectory()) {
             try {
-                zos.putNextEntry(entry);
-                zos.closeEntry();
+                writer.putDirectory(path + "/", attrs);
             } catch (ZipException ignored) {
                 // Directory already exists
             }
         } else {
-            try (InputStream input = Files.newInputStream(file)) {
-                zos.putNextEntry(entry);
-                IOUtils.copyTo(input, zos, buffer);
-                zos.closeEntry();
-            }
+            writer.putFile(path, file, attrs);
         }
     }
 
     public void putStream(InputStream in, String path) throws IOException {
-        zos.putNextEntry(new ZipEntry(normalize(path)));
-        IOUtils.copyTo(in, zos, buffer);
-        zos.closeEntry();
+        try (OutputStream out = writer.putStream(normalize(path))) {
+            IOUtils.copyTo(in, out, buffer);
+        }
     }
 
     public OutputStream putStream(String path) throws IOException {
-        zos.putNextEntry(new ZipEntry(normalize(path)));
-        return new OutputStream() {
-            public void write(int b) throws IOException {
-                zos.write(b);
-            }
-
-            public void write(@NotNull byte[] b) throws IOException {
-                zos.write(b);
-            }
-
-            public void write(@NotNull byte[] b, int off, int len) throws IOException {
-                zos.write(b, off, len);
-            }
-
-            public void flush() throws IOException {
-                zos.flush();
-            }
-
-            public void close() throws IOException {
-                zos.closeEntry();
-            }
-        };
+        return writer.putStream(normalize(path));
     }
 
     public void putLines(Stream<String> lines, String path) throws IOException {
-        zos.putNextEntry(new ZipEntry(normalize(path)));
-
-        try {
-            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(zos));
+        try (OutputStream out = writer.putStream(normalize(path))) {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out));
             lines.forEachOrdered(line -> {
                 try {
                     writer.write(line);
@@ -195,8 +161,6 @@ public final class Zipper implements Closeable {
             writer.flush();
         } catch (UncheckedIOException e) {
             throw e.getCause();
-        } finally {
-            zos.closeEntry();
         }
     }
 
@@ -205,8 +169,8 @@ public final class Zipper implements Closeable {
     }
 
     public void putTextFile(String text, Charset encoding, String path) throws IOException {
-        zos.putNextEntry(new ZipEntry(normalize(path)));
-        zos.write(text.getBytes(encoding));
-        zos.closeEntry();
+        try (OutputStream out = writer.putStream(normalize(path))) {
+            out.write(text.getBytes(encoding));
+        }
     }
 }
@@ -19,6 +19,7 @@ package org.jackhuang.hmcl.util.platform;
 
 import org.jackhuang.hmcl.launch.StreamPump;
 import org.jackhuang.hmcl.util.Lang;
+import org.jackhuang.hmcl.util.LineRingBuffer;
 
 import java.io.IOException;
 import java.util.*;
@@ -32,12 +33,15 @@ import java.util.function.Predicate;
 /// <!-- @see org.jackhuang.hmcl.launch.ExitWaiter -->
 /// @see org.jackhuang.hmcl.launch.StreamPump
 public final class ManagedProcess {
+    /// The maximum number of bytes of output lines kept for each process, the oldest lines are dropped beyond it.
+    private static final int OUTPUT_BUDGET = Math.max(1024, Integer.getInteger("hmcl.process.output_budget", 16 * 1024 * 1024));
+
     private final ReentrantLock lock = new ReentrantLock();
     private final Process process;
     private final List<String> commands;
     private final String classpath;
     private final Map<String, Object> properties = new HashMap<>();
-    private final List<String> lines = new ArrayList<>();
+    private final LineRingBuffer lines = new LineRingBuffer(OUTPUT_BUDGET);
     private final List<Thread> relatedThreads = new ArrayList<>();
 
     public ManagedProcess(ProcessBuilder processBuilder) throws IOException {
@@ -108,20 +112,19 @@ public final class ManagedProcess {
     /**
      * The (unmodifiable) standard output/error lines.
      * If you want to add lines, use {@link #addLine}
+     * <p>
+     * Only the most recent lines are kept, up to a byte budget configured by the {@code hmcl.process.output_budget} system property.
      *
      * @see #addLine
      */
     public List<String> getLines(Predicate<String> lineFilter) {
         lock.lock();
         try {
-            if (lineFilter == null)
-                return List.copyOf(lines);
-
-            ArrayList<String> res = new ArrayList<>();
-            for (String line : this.lines) {
-                if (lineFilter.test(line))
+            ArrayList<String> res = new ArrayList<>(lineFilter == null ? lines.size() : 16);
+            lines.forEach(line -> {
+                if (lineFilter == null || lineFilter.test(line))
                     res.add(line);
-            }
+            });
             return Collections.unmodifiableList(res);
         } finally {
             lock.unlock();
@@ -137,6 +140,17 @@ public final class ManagedProcess {
         }
     }
 
+    public void addLines(Collection<String> lines) {
+        lock.lock();
+        try {
+            for (String line : lines) {
+                this.lines.add(line);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * Add related thread.
      * <p>
@@ -18,6 +18,7 @@
 package org.jackhuang.hmcl.util.platform.windows;
 
 import com.sun.jna.Pointer;
+import com.sun.jna.WString;
 import com.sun.jna.ptr.IntByReference;
 import com.sun.jna.win32.StdCallLibrary;
 import org.jackhuang.hmcl.util.platform.NativeUtils;
@@ -60,4 +61,20 @@ public interface Kernel32 extends StdCallLibrary {
      * @see <a href="https://learn.microsoft.com/windows/win32/api/sysinfoapi/nf-sysinfoapi-getlogicalprocessorinformationex">GetLogicalProcessorInformationEx function</a>
      */
     boolean GetLogicalProcessorInformationEx(int relationshipType, Pointer buffer, IntByReference returnedLength);
+
+    /**
+     * @see <a href="https://learn.microsoft.com/windows/win32/api/fileapi/nf-fileapi-createfilew">CreateFileW function</a>
+     */
+    WinTypes.HANDLE CreateFileW(WString lpFileName, int dwDesiredAccess, int dwShareMode, Pointer lpSecurityAttributes,
+                                int dwCreationDisposition, int dwFlagsAndAttributes, Pointer hTemplateFile);
+
+    /**
+     * @see <a href="https://learn.microsoft.com/windows/win32/api/fileapi/nf-fileapi-getfileinformationbyhandle">GetFileInformationByHandle function</a>
+     */
+    boolean GetFileInformationByHandle(WinTypes.HANDLE hFile, WinTypes.BY_HANDLE_FILE_INFORMATION lpFileInformation);
+
+    /**
+     * @see <a href="https://learn.microsoft.com/windows/win32/api/handleapi/nf-handleapi-closehandle">CloseHandle function</a>
+     */
+    boolean CloseHandle(WinTypes.HANDLE hObject);
 }
@@ -100,4 +100,11 @@ public interface WinConstants {
     // https://learn.microsoft.com/windows/win32/api/dwmapi/ne-dwmapi-dwmwindowattribute
     int DWMWA_USE_IMMERSIVE_DARK_MODE = 20;
 
+    // https://learn.microsoft.com/windows/win32/api/fileapi/nf-fileapi-createfilew
+    int FILE_READ_ATTRIBUTES = 0x0080;
+    int FILE_SHARE_READ = 0x00000001;
+    int FILE_SHARE_WRITE = 0x00000002;
+    int FILE_SHARE_DELETE = 0x00000004;
+    int OPEN_EXISTING = 3;
+
 }
@@ -181,6 +181,38 @@ public interface WinTypes {
         }
     }
 
+    /**
+     * @see <a href="https://learn.microsoft.com/windows/win32/api/fileapi/ns-fileapi-by_handle_file_information">BY_HANDLE_FILE_INFORMATION structure</a>
+     */
+    final class BY_HANDLE_FILE_INFORMATION extends Structure {
+        public int dwFileAttributes;
+        public int ftCreationTimeLow;
+        public int ftCreationTimeHigh;
+        public int ftLastAccessTimeLow;
+        public int ftLastAccessTimeHigh;
+        public int ftLastWriteTimeLow;
+        public int ftLastWriteTimeHigh;
+        public int dwVolumeSerialNumber;
+        public int nFileSizeHigh;
+        public int nFileSizeLow;
+        public int nNumberOfLinks;
+        public int nFileIndexHigh;
+        public int nFileIndexLow;
+
+        @Override
+        protected List<String> getFieldOrder() {
+            return Arrays.asList(
+                    "dwFileAttributes",
+                    "ftCreationTimeLow", "ftCreationTimeHigh",
+                    "ftLastAccessTimeLow", "ftLastAccessTimeHigh",
+                    "ftLastWriteTimeLow", "ftLastWriteTimeHigh",
+                    "dwVolumeSerialNumber",
+                    "nFileSizeHigh", "nFileSizeLow",
+                    "nNumberOfLinks",
+                    "nFileIndexHigh", "nFileIndexLow");
+        }
+    }
+
     final class GROUP_AFFINITY extends Structure {
         public LongByReference mask;
         public short group;
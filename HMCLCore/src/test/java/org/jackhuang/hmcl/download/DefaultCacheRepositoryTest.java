@@ -0,0 +1,129 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download;
+
+import org.jackhuang.hmcl.game.Artifact;
+import org.jackhuang.hmcl.game.LibrariesDownloadInfo;
+import org.jackhuang.hmcl.game.Library;
+import org.jackhuang.hmcl.game.LibraryDownloadInfo;
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DefaultCacheRepositoryTest {
+
+    private static final String NAME = "org.example:example:1.0";
+
+    private static Library library(String sha1, List<String> checksums) {
+        LibrariesDownloadInfo downloads = new LibrariesDownloadInfo(new LibraryDownloadInfo(null, null, sha1));
+        return new Library(Artifact.fromDescriptor(NAME), null, downloads, checksums, null, null, null, null, null);
+    }
+
+    @Test
+    public void testFingerprint(@TempDir Path dir) throws Exception {
+        byte[] content = "library content".getBytes(StandardCharsets.UTF_8);
+        String sha1 = HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content));
+        Path jar = dir.resolve("example.jar");
+        Files.write(jar, content);
+
+        DefaultCacheRepository repository = new DefaultCacheRepository(dir);
+        repository.setLinkFiles(false);
+        Path cached = repository.cacheLibrary(library(sha1, null), jar, false);
+        repository.saveIndex();
+
+        // Change the content without changing the fingerprint, which is only noticed by hashing the file
+        FileTime lastModified = Files.getLastModifiedTime(cached);
+        Files.write(cached, "LIBRARY CONTENT".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(cached, lastModified);
+        assertEquals(Optional.of(cached), new DefaultCacheRepository(dir).getLibrary(library(sha1, null)),
+                "Verified files are trusted while their size and modification time are unchanged");
+
+        Files.setLastModifiedTime(cached, FileTime.fromMillis(lastModified.toMillis() + 2000));
+        assertEquals(Optional.empty(), new DefaultCacheRepository(dir).getLibrary(library(sha1, null)),
+                "Changed files are hashed again");
+    }
+
+    @Test
+    public void testForgeLibrary(@TempDir Path dir) throws Exception {
+        byte[] content = "forge library".getBytes(StandardCharsets.UTF_8);
+        String sha1 = HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content));
+        Path jar = dir.resolve("forge.jar");
+        Files.write(jar, content);
+
+        DefaultCacheRepository repository = new DefaultCacheRepository(dir);
+        Path cached = repository.cacheLibrary(library(null, List.of(sha1)), jar, true);
+        repository.cacheLibrary(library(null, List.of(sha1)), jar, true);
+        repository.saveIndex();
+
+        DefaultCacheRepository reloaded = new DefaultCacheRepository(dir);
+        assertEquals(Optional.of(cached), reloaded.getLibrary(library(null, List.of(sha1))));
+        assertEquals(Optional.empty(), reloaded.getLibrary(library(null, List.of("0000000000000000000000000000000000000000"))));
+        assertEquals(1, Files.readString(dir.resolve("cache/index.json")).split("\"name\"").length - 1,
+                "Libraries are indexed once");
+    }
+
+    @Test
+    public void testLegacyIndexFingerprint(@TempDir Path dir) throws Exception {
+        byte[] content = "legacy library".getBytes(StandardCharsets.UTF_8);
+        String sha1 = HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content));
+        Path cached = dir.resolve("cache/SHA-1").resolve(sha1.substring(0, 2)).resolve(sha1);
+        Files.createDirectories(cached.getParent());
+        Files.write(cached, content);
+        // Written by versions that did not save fingerprints
+        Files.writeString(dir.resolve("cache/index.json"),
+                "{\"libraries\":[{\"name\":\"" + NAME + "\",\"hash\":\"" + sha1 + "\",\"type\":\"jar\"}]}");
+
+        DefaultCacheRepository repository = new DefaultCacheRepository(dir);
+        assertEquals(Optional.of(cached), repository.getLibrary(library(sha1, null)));
+        repository.saveIndex();
+        assertTrue(Files.readString(dir.resolve("cache/index.json")).contains("\"lastModified\""),
+                "The fingerprint of a library verified by hashing it should be saved");
+
+        FileTime lastModified = Files.getLastModifiedTime(cached);
+        Files.write(cached, "LEGACY LIBRARY".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(cached, lastModified);
+        assertEquals(Optional.of(cached), new DefaultCacheRepository(dir).getLibrary(library(sha1, null)),
+                "The library should not be hashed again after restarting");
+    }
+
+    @Test
+    public void testSaveIndexBeforeChangingDirectory(@TempDir Path dir) throws Exception {
+        byte[] content = "library content".getBytes(StandardCharsets.UTF_8);
+        String sha1 = HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content));
+        Path jar = dir.resolve("example.jar");
+        Files.write(jar, content);
+
+        DefaultCacheRepository repository = new DefaultCacheRepository(dir.resolve("first"));
+        repository.cacheLibrary(library(sha1, null), jar, false);
+        repository.changeDirectory(dir.resolve("second"));
+
+        assertTrue(Files.readString(dir.resolve("first/cache/index.json")).contains(NAME),
+                "Pending changes should be saved to the index of the old directory");
+        assertFalse(Files.exists(dir.resolve("second/cache/index.json")));
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download.forge;
+
+import org.jackhuang.hmcl.download.forge.ForgeNewInstallProfile.Processor;
+import org.jackhuang.hmcl.game.Artifact;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ForgeNewInstallTaskTest {
+
+    private static Processor processor(String name) {
+        return new Processor(List.of("client"), Artifact.fromDescriptor("net.minecraftforge:" + name + ":1.0"),
+                List.of(), List.of(), Map.of());
+    }
+
+    private static List<List<Processor>> plan(Map<Processor, Set<Path>> processors) {
+        return ForgeNewInstallTask.planProcessorStages(new ArrayList<>(processors.keySet()), processors::get);
+    }
+
+    @Test
+    public void testIndependentProcessors() {
+        Processor a = processor("a");
+        Processor b = processor("b");
+        Processor c = processor("c");
+        Map<Processor, Set<Path>> processors = new LinkedHashMap<>();
+        processors.put(a, Set.of(Path.of("/libraries/a.jar")));
+        processors.put(b, Set.of(Path.of("/libraries/b.jar")));
+        processors.put(c, Set.of(Path.of("/libraries/c.jar"), Path.of("/libraries/c.txt")));
+
+        assertEquals(List.of(List.of(a, b, c)), plan(processors));
+    }
+
+    @Test
+    public void testDependentProcessors() {
+        Processor extract = processor("extract");
+        Processor mappings = processor("mappings");
+        Processor merge = processor("merge");
+        Processor patch = processor("patch");
+        Map<Processor, Set<Path>> processors = new LinkedHashMap<>();
+        processors.put(extract, Set.of(Path.of("/libraries/srg.jar")));
+        processors.put(mappings, Set.of(Path.of("/libraries/mappings.txt")));
+        // Reads the outputs of the first two processors
+        processors.put(merge, Set.of(Path.of("/libraries/srg.jar"), Path.of("/libraries/mappings.txt"), Path.of("/libraries/merged.jar")));
+        processors.put(patch, Set.of(Path.of("/libraries/merged.jar"), Path.of("/libraries/patched.jar")));
+
+        assertEquals(List.of(List.of(extract, mappings), List.of(merge), List.of(patch)), plan(processors));
+    }
+
+    @Test
+    public void testUnknownFiles() {
+        Processor a = processor("a");
+        Processor unknown = processor("unknown");
+        Processor b = processor("b");
+        Processor c = processor("c");
+        Map<Processor, Set<Path>> processors = new LinkedHashMap<>();
+        processors.put(a, Set.of(Path.of("/libraries/a.jar")));
+        processors.put(unknown, null);
+        processors.put(b, Set.of(Path.of("/libraries/b.jar")));
+        processors.put(c, Set.of(Path.of("/libraries/c.jar")));
+
+        // Processors with unknown files run on their own, after all the processors before them
+        assertEquals(List.of(List.of(a), List.of(unknown), List.of(b, c)), plan(processors));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download.forge;
+
+import org.jackhuang.hmcl.util.CacheRepository;
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForgeProcessorCacheTest {
+
+    @TempDir
+    private Path dir;
+
+    private ForgeProcessorCache open() {
+        CacheRepository repository = new CacheRepository();
+        repository.changeDirectory(dir.resolve("common"));
+        return new ForgeProcessorCache(repository);
+    }
+
+    private List<String> args(Path instance) {
+        return List.of("--task", "PATCH",
+                "--input", instance.resolve("libraries/client.jar").toString(),
+                "--output", instance.resolve("libraries/client-patched.jar").toString());
+    }
+
+    private ForgeProcessorCache.Key key(ForgeProcessorCache cache, Path instance, String input) throws Exception {
+        Path processor = dir.resolve("processor.jar");
+        if (!Files.exists(processor))
+            Files.writeString(processor, "processor");
+        Files.createDirectories(instance.resolve("libraries"));
+        Files.writeString(instance.resolve("libraries/client.jar"), input);
+        return cache.getKey(List.of(processor.toString()), "net.minecraftforge.Main", args(instance), Set.of());
+    }
+
+    @Test
+    public void testRestore() throws Exception {
+        ForgeProcessorCache cache = open();
+        Path first = dir.resolve("first");
+        ForgeProcessorCache.Key key = key(cache, first, "client");
+        assertNotNull(key);
+        assertEquals(List.of(5), key.outputs());
+        assertFalse(cache.restore(key, args(first)));
+
+        Files.writeString(first.resolve("libraries/client-patched.jar"), "patched client");
+        cache.store(key, args(first));
+
+        Path second = dir.resolve("second");
+        ForgeProcessorCache.Key secondKey = key(open(), second, "client");
+        assertEquals(key, secondKey, "Keys do not depend on the location of the files");
+        assertTrue(open().restore(secondKey, args(second)));
+        assertEquals("patched client", Files.readString(second.resolve("libraries/client-patched.jar")));
+
+        Path third = dir.resolve("third");
+        assertNotEquals(key, key(cache, third, "another client"), "Keys depend on the content of the inputs");
+    }
+
+    @Test
+    public void testChangedInput() throws Exception {
+        ForgeProcessorCache cache = open();
+        Path instance = dir.resolve("instance");
+        ForgeProcessorCache.Key key = key(cache, instance, "client");
+        assertEquals(key, key(cache, instance, "client"));
+
+        Path input = instance.resolve("libraries/client.jar");
+        Files.writeString(input, "CLIENT");
+        Files.setLastModifiedTime(input, FileTime.fromMillis(Files.getLastModifiedTime(input).toMillis() + 2000));
+        assertNotEquals(key, cache.getKey(List.of(dir.resolve("processor.jar").toString()), "net.minecraftforge.Main", args(instance), Set.of()),
+                "The digest of an input is computed again when it is modified");
+    }
+
+    @Test
+    public void testRestoreCopiesOutputs() throws Exception {
+        CacheRepository repository = new CacheRepository();
+        repository.changeDirectory(dir.resolve("common"));
+        repository.setLinkFiles(true);
+        ForgeProcessorCache cache = new ForgeProcessorCache(repository);
+
+        Path first = dir.resolve("first");
+        ForgeProcessorCache.Key key = key(cache, first, "client");
+        Files.writeString(first.resolve("libraries/client-patched.jar"), "patched client");
+        cache.store(key, args(first));
+
+        Path second = dir.resolve("second");
+        Path output = second.resolve("libraries/client-patched.jar");
+        assertTrue(cache.restore(key(cache, second, "client"), args(second)));
+
+        // A later processor patching the output in place must not change the cached output
+        Files.writeString(output, "patched again", StandardOpenOption.TRUNCATE_EXISTING);
+        Path third = dir.resolve("third");
+        assertTrue(cache.restore(key(cache, third, "client"), args(third)));
+        assertEquals("patched client", Files.readString(third.resolve("libraries/client-patched.jar")));
+    }
+
+    @Test
+    public void testRestoreDeclared() throws Exception {
+        byte[] content = "slim client".getBytes(StandardCharsets.UTF_8);
+        String sha1 = DigestUtils.digestToString("SHA-1", content);
+        Path first = dir.resolve("first/client-slim.jar");
+        Files.createDirectories(first.getParent());
+        Files.write(first, content);
+
+        ForgeProcessorCache cache = open();
+        Path second = dir.resolve("second/client-slim.jar");
+        assertFalse(cache.restoreDeclared(Map.of(second.toString(), sha1)));
+
+        cache.storeDeclared(Map.of(first.toString(), sha1));
+        assertTrue(cache.restoreDeclared(Map.of(second.toString(), sha1)));
+        assertArrayEquals(content, Files.readAllBytes(second));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download.forge;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForgeProcessorRunnerTest {
+
+    public static final class WriteProcessor {
+        public static void main(String[] args) throws Exception {
+            Files.writeString(Path.of(args[0]), args[1]);
+        }
+    }
+
+    public static final class ExitProcessor {
+        public static void main(String[] args) {
+            System.exit(Integer.parseInt(args[0]));
+        }
+    }
+
+    private static boolean run(Class<?> mainClass, String... args) throws Exception {
+        Path classpath = Path.of(mainClass.getProtectionDomain().getCodeSource().getLocation().toURI());
+        return ForgeProcessorRunner.run(List.of(classpath.toString()), mainClass.getName(), List.of(args), 1, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void testRun(@TempDir Path dir) throws Exception {
+        Path output = dir.resolve("output.txt");
+        assertTrue(run(WriteProcessor.class, output.toString(), "first"));
+        assertEquals("first", Files.readString(output));
+
+        assertFalse(run(ExitProcessor.class, "3"), "Processors exiting abnormally are run again in external processes");
+        assertFalse(run(WriteProcessor.class), "Processors throwing exceptions are run again in external processes");
+
+        assertTrue(run(WriteProcessor.class, output.toString(), "second"));
+        assertEquals("second", Files.readString(output));
+    }
+}
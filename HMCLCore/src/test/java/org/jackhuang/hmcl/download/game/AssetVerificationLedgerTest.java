@@ -0,0 +1,102 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AssetVerificationLedgerTest {
+
+    private static final long LAST_MODIFIED = 1_000_000_000_000L;
+
+    @TempDir
+    private Path dir;
+
+    private Path writeObject(String hash, String content) throws Exception {
+        Path file = dir.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(LAST_MODIFIED));
+        return file;
+    }
+
+    private static BasicFileAttributes attributes(Path file) throws Exception {
+        return Files.readAttributes(file, BasicFileAttributes.class);
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        Path file = writeObject("aa01", "first");
+
+        AssetVerificationLedger ledger = new AssetVerificationLedger(dir);
+        assertFalse(ledger.isVerified(file, attributes(file)));
+        ledger.markVerified(file, attributes(file));
+        assertTrue(ledger.isVerified(file, attributes(file)));
+        ledger.save();
+
+        assertTrue(new AssetVerificationLedger(dir).isVerified(file, attributes(file)));
+    }
+
+    @Test
+    public void testChangedFile() throws Exception {
+        Path file = writeObject("aa01", "first");
+        AssetVerificationLedger ledger = new AssetVerificationLedger(dir);
+        ledger.markVerified(file, attributes(file));
+
+        Files.writeString(file, "changed");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(LAST_MODIFIED));
+        assertFalse(ledger.isVerified(file, attributes(file)), "Changed size");
+
+        ledger.markVerified(file, attributes(file));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(LAST_MODIFIED + 1000));
+        assertFalse(ledger.isVerified(file, attributes(file)), "Changed modification time");
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        Path file = writeObject("aa01", "first");
+        AssetVerificationLedger ledger = new AssetVerificationLedger(dir);
+        ledger.markVerified(file, attributes(file));
+        ledger.save();
+
+        ledger.invalidate(file);
+        assertFalse(ledger.isVerified(file, attributes(file)));
+        ledger.save();
+        assertFalse(new AssetVerificationLedger(dir).isVerified(file, attributes(file)));
+    }
+
+    @Test
+    public void testCorruptedLedger() throws Exception {
+        Path file = writeObject("aa01", "first");
+        Files.createDirectories(dir.resolve("indexes"));
+        Files.writeString(dir.resolve("indexes/verified.json"), "{not json");
+
+        AssetVerificationLedger ledger = new AssetVerificationLedger(dir);
+        assertFalse(ledger.isVerified(file, attributes(file)));
+        ledger.markVerified(file, attributes(file));
+        ledger.save();
+        assertTrue(new AssetVerificationLedger(dir).isVerified(file, attributes(file)));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.download.java.mojang;
+
+import com.sun.net.httpserver.HttpServer;
+import org.jackhuang.hmcl.task.DownloadException;
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.LZMAOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LZMAFileDownloadTaskTest {
+
+    private HttpServer server;
+    private byte[] content;
+    private byte[] compressed;
+
+    @TempDir
+    private Path dir;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        // Half random, half repeated, so that it is both large and compressible
+        content = new byte[4 * 1024 * 1024];
+        new Random(0).nextBytes(content);
+        for (int i = content.length / 2; i < content.length; i++)
+            content[i] = (byte) (i % 7);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (LZMAOutputStream output = new LZMAOutputStream(buffer, new LZMA2Options(), content.length)) {
+            output.write(content);
+        }
+        compressed = buffer.toByteArray();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/file.lzma", exchange -> {
+            try (exchange) {
+                exchange.sendResponseHeaders(200, compressed.length);
+                exchange.getResponseBody().write(compressed);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void download(Path file, String sha1, String decompressedSha1) throws Exception {
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/file.lzma");
+        LZMAFileDownloadTask task = new LZMAFileDownloadTask(List.of(uri), file, sha1, decompressedSha1);
+        task.run();
+    }
+
+    private static String sha1(byte[] data) {
+        return HexFormat.of().formatHex(DigestUtils.digest("SHA-1", data));
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        Path file = dir.resolve("bin/java");
+        download(file, sha1(compressed), sha1(content));
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertEquals(1, countFiles(file.getParent()), "No temporary files are left");
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        Path file = dir.resolve("java");
+        Files.writeString(file, "old");
+
+        assertThrows(DownloadException.class, () -> download(file, sha1(content), null));
+        assertEquals("old", Files.readString(file), "The destination is only replaced by a verified file");
+        assertEquals(1, countFiles(file.getParent()), "No temporary files are left");
+
+        assertThrows(DownloadException.class, () -> download(file, sha1(compressed), sha1(compressed)));
+        assertEquals("old", Files.readString(file));
+        assertEquals(1, countFiles(file.getParent()));
+    }
+}
@@ -20,11 +20,16 @@ package org.jackhuang.hmcl.game;
 import org.jackhuang.hmcl.util.Log4jLevel;
 import org.jackhuang.hmcl.util.Pair;
 import org.jackhuang.hmcl.util.io.IOUtils;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -746,4 +751,82 @@ public class CrashReportAnalyzerTest {
                 new HashSet<>(Collections.singletonList("icycream")),
                 CrashReportAnalyzer.findKeywordsFromCrashReport(loadLog("/crash-report/mod/icycream.txt")));
     }
+
+    private static Map<CrashReportAnalyzer.Rule, String> analyzeWithoutPrefilter(String log) {
+        Map<CrashReportAnalyzer.Rule, String> results = new EnumMap<>(CrashReportAnalyzer.Rule.class);
+        for (CrashReportAnalyzer.Rule rule : CrashReportAnalyzer.Rule.values()) {
+            Matcher matcher = rule.getPattern().matcher(log);
+            if (matcher.find()) {
+                results.put(rule, matcher.start() + ":" + matcher.group());
+            }
+        }
+        return results;
+    }
+
+    private static Map<CrashReportAnalyzer.Rule, String> analyze(String log) {
+        Map<CrashReportAnalyzer.Rule, String> results = new EnumMap<>(CrashReportAnalyzer.Rule.class);
+        for (CrashReportAnalyzer.Result result : CrashReportAnalyzer.analyze(log)) {
+            results.put(result.getRule(), result.getMatcher().start() + ":" + result.getMatcher().group());
+        }
+        return results;
+    }
+
+    @Test
+    public void prefilter() throws Exception {
+        List<Path> files;
+        try (Stream<Path> stream = Stream.concat(
+                Files.walk(Path.of(CrashReportAnalyzerTest.class.getResource("/logs").toURI())),
+                Files.walk(Path.of(CrashReportAnalyzerTest.class.getResource("/crash-report").toURI())))) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+        assertFalse(files.isEmpty());
+
+        for (Path file : files) {
+            String log = Files.readString(file);
+            assertEquals(analyzeWithoutPrefilter(log), analyze(log), file.toString());
+        }
+    }
+
+    @Test
+    public void extractPrefixes() {
+        assertEquals(List.of("Open J9 is not supported", "OpenJ9 is incompatible", ".J9VMInternals."),
+                CrashReportAnalyzer.extractPrefixes(CrashReportAnalyzer.Rule.OPENJ9.getPattern().pattern()));
+        assertEquals(List.of("Maybe try a "),
+                CrashReportAnalyzer.extractPrefixes(CrashReportAnalyzer.Rule.RESOLUTION_TOO_HIGH.getPattern().pattern()));
+        assertEquals(List.of("Error occurred during initialization of VM"),
+                CrashReportAnalyzer.extractPrefixes("Error occurred during initialization of VM\\RToo small maximum heap"));
+        assertEquals(List.of("ab"), CrashReportAnalyzer.extractPrefixes("abc?d"));
+        assertEquals(List.of("abc"), CrashReportAnalyzer.extractPrefixes("abc+d"));
+        assertNull(CrashReportAnalyzer.extractPrefixes("(abc)?d"));
+        assertNull(CrashReportAnalyzer.extractPrefixes("abc|.*d"));
+        assertNull(CrashReportAnalyzer.extractPrefixes("(?=abc)abc"));
+    }
+
+    @Test
+    @Disabled("Benchmark")
+    public void benchmark() throws IOException {
+        StringBuilder builder = new StringBuilder(50 * 1024 * 1024 + 1024 * 1024);
+        String filler = loadLog("/logs/mod_resolution.txt");
+        while (builder.length() < 50 * 1024 * 1024) {
+            builder.append(filler);
+        }
+        builder.append(loadLog("/logs/too_old_java.txt"));
+        String log = builder.toString();
+
+        long naive = Long.MAX_VALUE, prefiltered = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            Map<CrashReportAnalyzer.Rule, String> expected = analyzeWithoutPrefilter(log);
+            naive = Math.min(naive, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            Map<CrashReportAnalyzer.Rule, String> actual = analyze(log);
+            prefiltered = Math.min(prefiltered, System.nanoTime() - start);
+
+            assertEquals(expected, actual);
+        }
+
+        assertTrue(prefiltered < naive,
+                "Analyzing a 50 MiB log with the prefilter took " + prefiltered / 1_000_000 + " ms, without it " + naive / 1_000_000 + " ms");
+    }
 }
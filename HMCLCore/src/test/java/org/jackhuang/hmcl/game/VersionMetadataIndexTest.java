@@ -0,0 +1,97 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.game;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionMetadataIndexTest {
+
+    private static void writeVersion(Path versionsDir, String id, String mainClass) throws Exception {
+        Path dir = versionsDir.resolve(id);
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve(id + ".json"), "{\"id\":\"" + id + "\",\"mainClass\":\"" + mainClass + "\",\"type\":\"release\"}");
+    }
+
+    @Test
+    public void testPersistence(@TempDir Path dir) {
+        Version version = new Version("1.20.1").setMainClass("net.minecraft.client.main.Main");
+
+        VersionMetadataIndex index = new VersionMetadataIndex(dir);
+        index.putVersion("1.20.1", 100, 1000, version);
+        index.putVersion("removed", 100, 1000, new Version("removed"));
+        index.putGameVersion(dir.resolve("1.20.1/1.20.1.jar"), 200, 2000, "1.20.1");
+        index.putGameVersion(dir.resolve("removed/removed.jar"), 200, 2000, "1.19");
+        index.retainAll(Set.of("1.20.1"));
+        index.save();
+
+        VersionMetadataIndex reloaded = new VersionMetadataIndex(dir);
+        Version cached = reloaded.getVersion("1.20.1", 100, 1000);
+        assertNotNull(cached);
+        assertEquals("1.20.1", cached.getId());
+        assertEquals("net.minecraft.client.main.Main", cached.getMainClass());
+        assertSame(cached, reloaded.getVersion("1.20.1", 100, 1000));
+        assertEquals("1.20.1", reloaded.getGameVersion(dir.resolve("1.20.1/1.20.1.jar"), 200, 2000));
+
+        assertNull(reloaded.getVersion("removed", 100, 1000));
+        assertNull(reloaded.getGameVersion(dir.resolve("removed/removed.jar"), 200, 2000));
+        assertNull(reloaded.getVersion("1.20.1", 101, 1000), "Changed size");
+        assertNull(reloaded.getVersion("1.20.1", 100, 1001), "Changed modification time");
+        assertNull(reloaded.getGameVersion(dir.resolve("1.20.1/1.20.1.jar"), 200, 2001), "Changed modification time");
+    }
+
+    @Test
+    public void testSaveAfterFailure(@TempDir Path dir) throws Exception {
+        Path versionsDir = dir.resolve("versions");
+        // The index cannot be written while its directory is a file
+        Files.writeString(versionsDir, "");
+
+        VersionMetadataIndex index = new VersionMetadataIndex(versionsDir);
+        index.putVersion("1.20.1", 100, 1000, new Version("1.20.1"));
+        index.save();
+
+        Files.delete(versionsDir);
+        index.save();
+        assertNotNull(new VersionMetadataIndex(versionsDir).getVersion("1.20.1", 100, 1000), "The failed save should be retried");
+    }
+
+    @Test
+    public void testRefreshVersions(@TempDir Path dir) throws Exception {
+        Path versionsDir = dir.resolve("versions");
+        writeVersion(versionsDir, "a", "first.Main");
+        writeVersion(versionsDir, "b", "second.Main");
+
+        DefaultGameRepository repository = new DefaultGameRepository(dir);
+        repository.refreshVersions();
+        assertEquals(Set.of("a", "b"), Set.copyOf(repository.versions.keySet()));
+        assertTrue(Files.isRegularFile(versionsDir.resolve(VersionMetadataIndex.FILE_NAME)));
+
+        writeVersion(versionsDir, "a", "changed.Main");
+
+        DefaultGameRepository reloaded = new DefaultGameRepository(dir);
+        reloaded.refreshVersions();
+        assertEquals("changed.Main", reloaded.getVersion("a").getMainClass());
+        assertEquals("second.Main", reloaded.getVersion("b").getMainClass());
+    }
+}
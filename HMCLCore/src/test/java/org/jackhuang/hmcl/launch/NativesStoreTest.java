@@ -0,0 +1,143 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.launch;
+
+import org.jackhuang.hmcl.util.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NativesStoreTest {
+
+    @TempDir
+    private Path dir;
+
+    private Path createJar(String name, Map<String, String> entries) throws IOException {
+        Path jar = dir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(jar);
+             ZipOutputStream zos = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zos.putNextEntry(new ZipEntry(entry.getKey()));
+                zos.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zos.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    @Test
+    public void testComputeKey() throws IOException {
+        Path jar = createJar("natives.jar", Map.of("lwjgl.so", "lwjgl"));
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(1_000_000));
+        String key = NativesStore.computeKey(jar, "glfw=false");
+
+        assertEquals(key, NativesStore.computeKey(jar, "glfw=false"));
+        assertNotEquals(key, NativesStore.computeKey(jar, "glfw=true"));
+
+        Path copy = Files.copy(jar, dir.resolve("copy.jar"));
+        Files.setLastModifiedTime(copy, FileTime.fromMillis(2_000_000));
+        assertEquals(key, NativesStore.computeKey(copy, "glfw=false"), "Identical jars should share an entry");
+
+        Files.writeString(jar, "replaced");
+        Files.setLastModifiedTime(jar, FileTime.fromMillis(3_000_000));
+        assertNotEquals(key, NativesStore.computeKey(jar, "glfw=false"), "Replaced jars should be extracted again");
+    }
+
+    @Test
+    public void testPopulate() throws IOException {
+        Path first = createJar("first.jar", Map.of("lwjgl.so", "first lwjgl", "META-INF/MANIFEST.MF", "", "glfw.so", "glfw"));
+        Path second = createJar("second.jar", Map.of("lwjgl.so", "second lwjgl", "openal.so", "openal"));
+
+        NativesStore store = new NativesStore(dir.resolve("store"));
+        String firstKey = NativesStore.computeKey(first, "");
+        String secondKey = NativesStore.computeKey(second, "");
+        Path firstEntry = store.getOrExtract(firstKey, first, (zipEntry, isDirectory, destFile, path) -> !path.startsWith("META-INF"));
+        store.getOrExtract(secondKey, second, (zipEntry, isDirectory, destFile, path) -> true);
+        assertEquals(firstEntry, store.getOrExtract(firstKey, first, (zipEntry, isDirectory, destFile, path) -> {
+            throw new AssertionError("Extracted jars should be reused");
+        }));
+
+        Path natives = dir.resolve("natives");
+        Files.createDirectories(natives);
+        Files.writeString(natives.resolve("stale.so"), "stale");
+        List<String> keys = List.of(firstKey, secondKey);
+        assertFalse(store.isUpToDate(natives, keys));
+        store.populate(natives, keys);
+
+        assertEquals("first lwjgl", Files.readString(natives.resolve("lwjgl.so")), "The first jar providing a file should win");
+        assertEquals("glfw", Files.readString(natives.resolve("glfw.so")));
+        assertEquals("openal", Files.readString(natives.resolve("openal.so")));
+        assertFalse(Files.exists(natives.resolve("META-INF")));
+        assertFalse(Files.exists(natives.resolve("stale.so")));
+        assertTrue(store.isUpToDate(natives, keys));
+        assertFalse(store.isUpToDate(natives, List.of(secondKey, firstKey)));
+
+        // The game writing to its natives directory must not modify the store
+        assertFalse(Files.isSameFile(firstEntry.resolve("lwjgl.so"), natives.resolve("lwjgl.so")));
+        Files.writeString(natives.resolve("lwjgl.so"), "modified");
+        assertEquals("first lwjgl", Files.readString(firstEntry.resolve("lwjgl.so")));
+
+        Files.delete(natives.resolve("glfw.so"));
+        assertFalse(store.isUpToDate(natives, keys));
+    }
+
+    @Test
+    public void testPrune() throws IOException {
+        Path first = createJar("first.jar", Map.of("lwjgl.so", "first"));
+        Path second = createJar("second.jar", Map.of("lwjgl.so", "second"));
+        Path third = createJar("third.jar", Map.of("lwjgl.so", "third"));
+
+        NativesStore store = new NativesStore(dir.resolve("store"));
+        String firstKey = NativesStore.computeKey(first, "");
+        String secondKey = NativesStore.computeKey(second, "");
+        String thirdKey = NativesStore.computeKey(third, "");
+        Path firstEntry = store.getOrExtract(firstKey, first, (zipEntry, isDirectory, destFile, path) -> true);
+        Path secondEntry = store.getOrExtract(secondKey, second, (zipEntry, isDirectory, destFile, path) -> true);
+        Path thirdEntry = store.getOrExtract(thirdKey, third, (zipEntry, isDirectory, destFile, path) -> true);
+
+        Path a = Files.createDirectories(dir.resolve("a/natives"));
+        Path b = Files.createDirectories(dir.resolve("b/natives"));
+        store.populate(a, List.of(firstKey));
+        store.populate(b, List.of(secondKey));
+        // Version a is updated to other natives, version b is deleted
+        store.populate(a, List.of(thirdKey));
+        FileUtils.deleteDirectory(dir.resolve("b"));
+
+        long now = System.currentTimeMillis();
+        assertEquals(0, store.prune(now), "Recently used entries should be kept");
+
+        long later = now + NativesStore.PRUNE_GRACE_PERIOD + 1;
+        assertEquals(2, store.prune(later));
+        assertFalse(Files.exists(firstEntry));
+        assertFalse(Files.exists(secondEntry));
+        assertTrue(Files.exists(thirdEntry));
+        assertTrue(store.isUpToDate(a, List.of(thirdKey)));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.launch;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StreamPumpTest {
+
+    /// Returns at most `chunkSize` bytes per read, to exercise lines and line terminators split across reads.
+    private static InputStream chunked(byte[] bytes, int chunkSize) {
+        return new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, chunkSize));
+            }
+        };
+    }
+
+    private static List<String> readLines(String text) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> pump(String text, Charset charset, int chunkSize) {
+        List<String> lines = new ArrayList<>();
+        StreamPump.batched(chunked(text.getBytes(charset), chunkSize), lines::addAll, charset).run();
+        return lines;
+    }
+
+    @Test
+    public void testSplitLines() throws IOException {
+        String text = "first\nsecond\r\nthird\rfourth\r\n\r\n\nsixth 中文\n" + "x".repeat(20000) + "\nlast";
+        for (Charset charset : List.of(StandardCharsets.UTF_8, Charset.forName("GBK"), StandardCharsets.UTF_16)) {
+            for (int chunkSize : new int[]{1, 2, 7, 8192}) {
+                assertEquals(readLines(text), pump(text, charset, chunkSize), charset + ", chunk size " + chunkSize);
+            }
+        }
+    }
+
+    @Test
+    public void testBatches() {
+        List<List<String>> batches = new ArrayList<>();
+        StreamPump.batched(new ByteArrayInputStream("a\nb\nc".getBytes(StandardCharsets.UTF_8)), batches::add, StandardCharsets.UTF_8).run();
+        assertEquals(List.of(List.of("a", "b"), List.of("c")), batches);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.mod;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModMetadataIndexTest {
+
+    private static ModMetadataIndex.Entry entry(long size, long lastModified) {
+        return new ModMetadataIndex.Entry(size, lastModified,
+                "sodium", ModLoaderType.FABRIC,
+                "Sodium", new LocalModFile.Description("A rendering engine"),
+                "JellySquid", "0.5.8", "1.20.1", "https://modrinth.com/mod/sodium", "icon.png",
+                "da39a3ee5e6b4b0d3255bfef95601890afd80709", 123456789L);
+    }
+
+    @Test
+    public void testPersistence(@TempDir Path dir) {
+        Path indexFile = dir.resolve(ModMetadataIndex.FILE_NAME);
+
+        ModMetadataIndex index = new ModMetadataIndex(indexFile, Set.of(ModLoaderType.FABRIC));
+        index.put("sodium.jar", entry(100, 1000));
+        index.put("removed.jar", entry(200, 2000));
+        index.retainAll(Set.of("sodium.jar"));
+        index.save();
+
+        ModMetadataIndex reloaded = new ModMetadataIndex(indexFile, Set.of(ModLoaderType.FABRIC));
+        ModMetadataIndex.Entry entry = reloaded.get("sodium.jar", 100, 1000);
+        assertNotNull(entry);
+        assertEquals("sodium", entry.modId());
+        assertEquals(ModLoaderType.FABRIC, entry.modLoaderType());
+        assertEquals("A rendering engine", entry.description().toString());
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", entry.sha1());
+        assertEquals(123456789L, entry.fingerprint());
+
+        assertNull(reloaded.get("removed.jar", 200, 2000));
+        assertNull(reloaded.get("sodium.jar", 101, 1000), "Changed size");
+        assertNull(reloaded.get("sodium.jar", 100, 1001), "Changed modification time");
+    }
+
+    @Test
+    public void testUnchangedEntryIsNotSaved(@TempDir Path dir) throws Exception {
+        Path indexFile = dir.resolve(ModMetadataIndex.FILE_NAME);
+
+        ModMetadataIndex index = new ModMetadataIndex(indexFile, Set.of(ModLoaderType.FABRIC));
+        index.put("sodium.jar", entry(100, 1000));
+        index.save();
+
+        ModMetadataIndex reloaded = new ModMetadataIndex(indexFile, Set.of(ModLoaderType.FABRIC));
+        Files.delete(indexFile);
+        reloaded.put("sodium.jar", entry(100, 1000));
+        reloaded.save();
+        assertFalse(Files.exists(indexFile), "An index without changes should not be written again");
+    }
+
+    @Test
+    public void testModLoadersChanged(@TempDir Path dir) {
+        Path indexFile = dir.resolve(ModMetadataIndex.FILE_NAME);
+
+        ModMetadataIndex index = new ModMetadataIndex(indexFile, Set.of(ModLoaderType.FABRIC));
+        index.put("sodium.jar", entry(100, 1000));
+        index.save();
+
+        assertNull(new ModMetadataIndex(indexFile, Set.of(ModLoaderType.FABRIC, ModLoaderType.QUILT)).get("sodium.jar", 100, 1000));
+    }
+}
@@ -20,11 +20,14 @@ package org.jackhuang.hmcl.mod.curse;
 import org.jackhuang.hmcl.util.MurmurHash2;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -51,4 +54,44 @@ public class CurseForgeRemoteModRepositoryTest {
 
         assertEquals(hash, 3333498611L);
     }
+
+    @Test
+    public void testIncrementalMurmurHash() {
+        Random random = new Random(0);
+        for (int length : new int[]{0, 1, 2, 3, 4, 5, 7, 8, 63, 64, 1000}) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+
+            for (int chunk : new int[]{1, 2, 3, 5, 16, 1024}) {
+                MurmurHash2.Hash32 hash = new MurmurHash2.Hash32(length, 1);
+                for (int offset = 0; offset < length; offset += chunk) {
+                    hash.update(data, offset, Math.min(chunk, length - offset));
+                }
+                assertEquals(MurmurHash2.hash32(data, length, 1), hash.finish(), "length=" + length + ", chunk=" + chunk);
+            }
+        }
+    }
+
+    @Test
+    public void testComputeFingerprint(@TempDir Path dir) throws Exception {
+        Random random = new Random(1);
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            // Make whitespace frequent
+            data[i] = random.nextInt(4) == 0 ? (byte) " \t\r\n".charAt(random.nextInt(4)) : (byte) random.nextInt();
+        }
+        Path file = dir.resolve("test.jar");
+        Files.write(file, data);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        for (byte b : data) {
+            if (b != 9 && b != 10 && b != 13 && b != 32) {
+                baos.write(b);
+            }
+        }
+        long expected = Integer.toUnsignedLong(MurmurHash2.hash32(baos.toByteArray(), baos.size(), 1));
+
+        assertEquals(expected, CurseForgeRemoteModRepository.computeFingerprint(file));
+        assertEquals(expected, CurseForgeRemoteModRepository.computeFingerprint(data));
+    }
 }
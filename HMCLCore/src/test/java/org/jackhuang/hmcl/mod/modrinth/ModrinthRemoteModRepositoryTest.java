@@ -0,0 +1,186 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.mod.modrinth;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jackhuang.hmcl.mod.*;
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModrinthRemoteModRepositoryTest {
+
+    private HttpServer server;
+    private ModrinthRemoteModRepository repository;
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private volatile String hashA;
+    private volatile String hashB;
+
+    @TempDir
+    private Path dir;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v2/version_files", this::handle);
+        server.createContext("/v2/project/a/version", this::handleProjectVersions);
+        server.start();
+        repository = new ModrinthRemoteModRepository("mod", "http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private static JsonObject version(String projectId, String versionNumber, String date, String hash) {
+        JsonObject file = new JsonObject();
+        JsonObject hashes = new JsonObject();
+        hashes.addProperty("sha1", hash);
+        file.add("hashes", hashes);
+        file.addProperty("url", "https://cdn.modrinth.com/" + projectId + "/" + versionNumber + ".jar");
+        file.addProperty("filename", projectId + "-" + versionNumber + ".jar");
+        file.addProperty("primary", true);
+        file.addProperty("size", 1);
+
+        JsonArray files = new JsonArray();
+        files.add(file);
+        JsonArray gameVersions = new JsonArray();
+        gameVersions.add("1.20.1");
+        JsonArray loaders = new JsonArray();
+        loaders.add("fabric");
+
+        JsonObject version = new JsonObject();
+        version.addProperty("name", versionNumber);
+        version.addProperty("version_number", versionNumber);
+        version.add("dependencies", new JsonArray());
+        version.add("game_versions", gameVersions);
+        version.addProperty("version_type", "release");
+        version.add("loaders", loaders);
+        version.addProperty("id", projectId + "-" + versionNumber);
+        version.addProperty("project_id", projectId);
+        version.addProperty("date_published", date);
+        version.add("files", files);
+        return version;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        requestCounts.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+
+        JsonObject request = JsonParser.parseString(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonObject response = new JsonObject();
+        for (var element : request.getAsJsonArray("hashes")) {
+            String hash = element.getAsString();
+            if (hash.equals(hashA)) {
+                response.add(hash, path.endsWith("/update")
+                        ? version("a", "2.0", "2024-02-01T00:00:00Z", "ffff")
+                        : version("a", "1.0", "2024-01-01T00:00:00Z", hash));
+            } else if (hash.equals(hashB)) {
+                // The latest version is the installed one
+                response.add(hash, version("b", "1.0", "2024-01-01T00:00:00Z", hash));
+            }
+        }
+
+        respond(exchange, response.toString());
+    }
+
+    private void handleProjectVersions(HttpExchange exchange) throws IOException {
+        requestCounts.computeIfAbsent(exchange.getRequestURI().getPath(), key -> new AtomicInteger()).incrementAndGet();
+
+        JsonArray response = new JsonArray();
+        response.add(version("a", "1.5", "2024-01-15T00:00:00Z", "eeee"));
+        response.add(version("a", "1.0", "2024-01-01T00:00:00Z", hashA));
+        response.add(version("a", "2.0", "2024-02-01T00:00:00Z", "ffff"));
+        respond(exchange, response.toString());
+    }
+
+    private static void respond(HttpExchange exchange, String response) throws IOException {
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private LocalModFile createMod(ModManager modManager, String name, String content) throws IOException {
+        Path file = dir.resolve(name + ".jar");
+        Files.writeString(file, content);
+        return new LocalModFile(modManager, new LocalMod(name, ModLoaderType.FABRIC), file, name, new LocalModFile.Description(""));
+    }
+
+    @Test
+    public void testBulkCheckUpdates() throws Exception {
+        ModManager modManager = new ModManager(null, "test");
+        LocalModFile a = createMod(modManager, "a", "mod a");
+        LocalModFile b = createMod(modManager, "b", "mod b");
+        LocalModFile c = createMod(modManager, "c", "mod c"); // Unknown to the repository
+        hashA = DigestUtils.digestToString("SHA-1", a.getFile());
+        hashB = DigestUtils.digestToString("SHA-1", b.getFile());
+
+        List<LocalModFile.ModUpdate> updates = repository.checkUpdates("1.20.1", List.of(a, b, c));
+
+        assertEquals(1, updates.size());
+        LocalModFile.ModUpdate update = updates.get(0);
+        assertSame(a, update.getLocalMod());
+        assertEquals("1.0", update.getCurrentVersion().getVersion());
+        assertEquals(List.of("2.0", "1.5"), update.getCandidates().stream().map(RemoteMod.Version::getVersion).toList());
+
+        // One request to resolve the current versions, one request per mod loader for the latest versions,
+        // and the versions are only listed for the projects that have an update
+        assertEquals(1, requestCounts.get("/v2/version_files").get());
+        assertEquals(1, requestCounts.get("/v2/version_files/update").get());
+        assertEquals(1, requestCounts.get("/v2/project/a/version").get());
+        assertEquals(3, requestCounts.size());
+    }
+
+    @Test
+    public void testBulkResolveLocalFiles() throws Exception {
+        ModManager modManager = new ModManager(null, "test");
+        LocalModFile a = createMod(modManager, "a", "mod a");
+        LocalModFile c = createMod(modManager, "c", "mod c");
+        hashA = DigestUtils.digestToString("SHA-1", a.getFile());
+
+        Map<Path, RemoteMod.Version> versions = repository.getRemoteVersionsByLocalFiles(List.of(a.getFile(), c.getFile()));
+
+        assertEquals(1, versions.size());
+        assertEquals("a", versions.get(a.getFile()).getModid());
+        assertEquals(1, requestCounts.get("/v2/version_files").get());
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.task;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jackhuang.hmcl.util.CacheRepository;
+import org.jackhuang.hmcl.util.DigestUtils;
+import org.jackhuang.hmcl.util.io.ChecksumMismatchException;
+import org.jackhuang.hmcl.util.io.FileUtils;
+import org.jackhuang.hmcl.util.io.ResponseCodeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileDownloadTaskTest {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)?");
+    private static final String ETAG = "\"content-v1\"";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private final List<String> ifRanges = new CopyOnWriteArrayList<>();
+    private byte[] content;
+
+    /// The current ETag of `/ranged`.
+    private volatile String eTag = ETAG;
+    /// If not null, the ETag of `/ranged` changes to it after the next full response has started.
+    private volatile String nextETag;
+    /// The number of bytes after which the next full response of `/flaky` is cut off, or -1 to send it completely.
+    private volatile int cutOffAt = -1;
+    /// The bandwidth of every connection in bytes per second, or 0 for unlimited.
+    private volatile int bytesPerSecond = 0;
+
+    @TempDir
+    private Path dir;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        content = new byte[20 * 1024 * 1024 + 12345];
+        new Random(0).nextBytes(content);
+
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/ranged", exchange -> handle(exchange, true));
+        server.createContext("/plain", exchange -> handle(exchange, false));
+        server.createContext("/flaky", this::handleFlaky);
+        server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    private void handle(HttpExchange exchange, boolean acceptRanges) throws IOException {
+        try (exchange) {
+            int start = 0;
+            int end = content.length;
+
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (acceptRanges) {
+                String currentETag = eTag;
+                exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+                exchange.getResponseHeaders().add("ETag", currentETag);
+                String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+                if (range != null && ifRange != null) {
+                    ifRanges.add(ifRange);
+                    if (!ifRange.equals(currentETag))
+                        range = null;
+                }
+                if (range != null) {
+                    Matcher matcher = RANGE.matcher(range);
+                    assertTrue(matcher.matches(), range);
+                    start = Integer.parseInt(matcher.group(1));
+                    end = matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) + 1 : content.length;
+                    ranges.add(range);
+                    exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + content.length);
+                }
+            }
+
+            exchange.sendResponseHeaders(acceptRanges && range != null ? 206 : 200, end - start);
+            if (acceptRanges && range == null && nextETag != null) {
+                eTag = nextETag;
+                nextETag = null;
+            }
+            OutputStream output = exchange.getResponseBody();
+            int chunk = 64 * 1024;
+            for (int offset = start; offset < end; offset += chunk) {
+                int length = Math.min(chunk, end - offset);
+                output.write(content, offset, length);
+                if (bytesPerSecond > 0)
+                    Thread.sleep(length * 1000L / bytesPerSecond);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // The client closed the connection
+        }
+    }
+
+    /// Serves the content without advertising range support, but continues it when asked with a matching `If-Range`.
+    private void handleFlaky(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().add("ETag", ETAG);
+
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null && ETAG.equals(exchange.getRequestHeaders().getFirst("If-Range"))) {
+                Matcher matcher = RANGE.matcher(range);
+                assertTrue(matcher.matches(), range);
+                int start = Integer.parseInt(matcher.group(1));
+                ranges.add(range);
+                exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (content.length - 1) + "/" + content.length);
+                exchange.sendResponseHeaders(206, content.length - start);
+                exchange.getResponseBody().write(content, start, content.length - start);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, content.length);
+            int cutOff = cutOffAt;
+            if (cutOff >= 0) {
+                cutOffAt = -1;
+                exchange.getResponseBody().write(content, 0, cutOff);
+                exchange.getResponseBody().flush();
+                // Closing the exchange before the whole body is written drops the connection
+                return;
+            }
+            exchange.getResponseBody().write(content);
+        } catch (IOException ignored) {
+            // The connection is closed
+        }
+    }
+
+    private void download(String path, Path file, String sha1) throws Exception {
+        download(path, file, sha1, true);
+    }
+
+    private void download(String path, Path file, String sha1, boolean linkFiles) throws Exception {
+        download(path, file, sha1, linkFiles, new MirrorScoreboard(System::nanoTime));
+    }
+
+    private void download(String path, Path file, String sha1, boolean linkFiles, MirrorScoreboard scoreboard) throws Exception {
+        CacheRepository repository = new CacheRepository();
+        repository.changeDirectory(dir.resolve("cache"));
+        repository.setLinkFiles(linkFiles);
+
+        FileDownloadTask task = new FileDownloadTask(uri(path), file, new FileDownloadTask.IntegrityCheck("SHA-1", sha1));
+        task.setCacheRepository(repository);
+        task.setCaching(true);
+        task.setMirrorScoreboard(scoreboard);
+        task.run();
+    }
+
+    @Test
+    public void testSegmentedDownload() throws Exception {
+        Path file = dir.resolve("ranged.zip");
+        download("/ranged", file, HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content)));
+
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertFalse(ranges.isEmpty(), "Segments should be requested with Range headers");
+    }
+
+    @Test
+    public void testSegmentedDownloadWhenContentChanged() throws Exception {
+        nextETag = "\"content-v2\"";
+        Path file = dir.resolve("ranged.zip");
+        download("/ranged", file, HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content)));
+
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertTrue(ifRanges.contains(ETAG), "Segments should be requested with the validator of the first response");
+        assertTrue(ifRanges.contains("\"content-v2\""), "The download should start over with the new content");
+        assertFalse(ranges.isEmpty());
+    }
+
+    @Test
+    public void testPlainDownload() throws Exception {
+        Path file = dir.resolve("plain.zip");
+        download("/plain", file, HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content)));
+
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertTrue(ranges.isEmpty());
+    }
+
+    private Path partFile(Path file) throws IOException {
+        Path directory = Files.createDirectories(dir.resolve("cache/cache/partial"));
+        String key = HexFormat.of().formatHex(DigestUtils.digest("SHA-1",
+                file.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8)));
+        return directory.resolve(key + ".part");
+    }
+
+    private Path sidecarFile(Path file) throws IOException {
+        return partFile(file).resolveSibling(partFile(file).getFileName() + ".json");
+    }
+
+    @Test
+    public void testResumeAfterDisconnection() throws Exception {
+        cutOffAt = 5 * 1024 * 1024;
+        Path file = dir.resolve("flaky.zip");
+        download("/flaky", file, HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content)));
+
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertEquals(1, ranges.size());
+        // The client may not have received everything the server wrote before the connection was closed
+        Matcher matcher = RANGE.matcher(ranges.get(0));
+        assertTrue(matcher.matches());
+        long start = Long.parseLong(matcher.group(1));
+        assertTrue(start > 0 && start <= 5 * 1024 * 1024, "Unexpected range: " + ranges.get(0));
+        assertFalse(Files.exists(partFile(file)));
+        assertFalse(Files.exists(sidecarFile(file)));
+        try (var stream = Files.list(dir)) {
+            assertTrue(stream.noneMatch(path -> path.getFileName().toString().endsWith(".part")),
+                    "Partial files should not be written next to the destination");
+        }
+    }
+
+    @Test
+    public void testResumeFromPreviousSession() throws Exception {
+        int offset = 3 * 1024 * 1024;
+        Path file = dir.resolve("flaky.zip");
+        Files.write(partFile(file), Arrays.copyOf(content, offset));
+        Files.writeString(sidecarFile(file), "{\"url\":\"" + uri("/flaky") + "\",\"validator\":\"" + ETAG.replace("\"", "\\\"") + "\",\"length\":-1}");
+
+        download("/flaky", file, HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content)));
+
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertEquals(List.of("bytes=" + offset + "-"), ranges);
+    }
+
+    @Test
+    public void testDeleteStalePartialFiles() throws Exception {
+        Path stale = partFile(dir.resolve("abandoned.zip"));
+        Files.write(stale, new byte[1024]);
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30)));
+        Path recent = partFile(dir.resolve("recent.zip"));
+        Files.write(recent, new byte[1024]);
+
+        download("/plain", dir.resolve("plain.zip"), HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content)));
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(recent));
+    }
+
+    @Test
+    public void testRestartWhenValidatorChanged() throws Exception {
+        int offset = 3 * 1024 * 1024;
+        Path file = dir.resolve("flaky.zip");
+        byte[] stale = new byte[offset];
+        Files.write(partFile(file), stale);
+        Files.writeString(sidecarFile(file), "{\"url\":\"" + uri("/flaky") + "\",\"validator\":\"\\\"content-v0\\\"\",\"length\":-1}");
+
+        download("/flaky", file, HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content)));
+
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertTrue(ranges.isEmpty());
+    }
+
+    @Test
+    public void testLinkCachedFile() throws Exception {
+        String sha1 = HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content));
+        Path first = dir.resolve("first/plain.zip");
+        Path second = dir.resolve("second/plain.zip");
+        Path copied = dir.resolve("copied/plain.zip");
+
+        download("/plain", first, sha1);
+        download("/plain", second, sha1);
+        download("/plain", copied, sha1, false);
+
+        assertArrayEquals(content, Files.readAllBytes(second));
+        assertArrayEquals(content, Files.readAllBytes(copied));
+        assertTrue(Files.isSameFile(first, second), "Cache hits should share the cached file");
+        assertFalse(Files.isSameFile(first, copied), "Cache hits should be copied when links are disabled");
+    }
+
+    @Test
+    public void testSegmentedChecksumMismatch() {
+        Path file = dir.resolve("mismatch.zip");
+        DownloadException exception = assertThrows(DownloadException.class,
+                () -> download("/ranged", file, "0000000000000000000000000000000000000000"));
+        assertInstanceOf(ChecksumMismatchException.class, exception.getCause());
+    }
+
+    @Test
+    public void testChecksumMismatchDoesNotDemoteMirror() {
+        MirrorScoreboard scoreboard = new MirrorScoreboard(System::nanoTime);
+        Path file = dir.resolve("mismatch.zip");
+        DownloadException exception = assertThrows(DownloadException.class,
+                () -> download("/plain", file, "0000000000000000000000000000000000000000", true, scoreboard));
+        assertInstanceOf(ChecksumMismatchException.class, exception.getCause());
+        assertFalse(scoreboard.isDemoted(uri("/plain")));
+    }
+
+    @Test
+    public void testMirrorFailures() {
+        assertTrue(FetchTask.isMirrorFailure(new ResponseCodeException(uri("/plain"), 503)));
+        assertTrue(FetchTask.isMirrorFailure(new HttpTimeoutException("request timed out")));
+        assertTrue(FetchTask.isMirrorFailure(new SocketTimeoutException()));
+        assertFalse(FetchTask.isMirrorFailure(new ChecksumMismatchException("SHA-1", "0", "1")));
+        assertFalse(FetchTask.isMirrorFailure(new AccessDeniedException(dir.toString())));
+        assertFalse(FetchTask.isMirrorFailure(new CancellationException()));
+    }
+
+    /// Compares a single stream with a segmented download when every connection is limited to 4 MiB/s.
+    @Test
+    @Disabled("Benchmark")
+    public void benchmark() throws Exception {
+        bytesPerSecond = 4 * 1024 * 1024;
+        String sha1 = HexFormat.of().formatHex(DigestUtils.digest("SHA-1", content));
+
+        long start = System.nanoTime();
+        download("/plain", dir.resolve("plain.zip"), sha1);
+        long plain = System.nanoTime() - start;
+        // Otherwise the second download is served from the cache
+        FileUtils.deleteDirectory(dir.resolve("cache"));
+
+        start = System.nanoTime();
+        download("/ranged", dir.resolve("ranged.zip"), sha1);
+        long segmented = System.nanoTime() - start;
+
+        assertFalse(ranges.isEmpty(), "The benchmark should download segments");
+        assertTrue(segmented * 2 < plain, "Single stream: " + plain / 1_000_000 + " ms, segmented: " + segmented / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MirrorScoreboardTest {
+
+    private static final URI MOJANG = URI.create("https://piston-data.mojang.com/v1/objects/a/client.jar");
+    private static final URI BMCLAPI = URI.create("https://bmclapi2.bangbang93.com/v1/objects/a/client.jar");
+    private static final List<URI> CANDIDATES = List.of(MOJANG, BMCLAPI);
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SECONDS = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testKeepOrderWithoutSamples() {
+        MirrorScoreboard scoreboard = new MirrorScoreboard(() -> 0L);
+        assertEquals(CANDIDATES, scoreboard.rank(CANDIDATES));
+    }
+
+    @Test
+    public void testRankByThroughput() {
+        AtomicLong clock = new AtomicLong();
+        MirrorScoreboard scoreboard = new MirrorScoreboard(clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            // 1 MiB in 4 seconds
+            scoreboard.recordSuccess(MOJANG, 100 * MILLIS, 1024 * 1024, 4 * SECONDS);
+            // 1 MiB in 0.2 seconds
+            scoreboard.recordSuccess(BMCLAPI, 100 * MILLIS, 1024 * 1024, 200 * MILLIS);
+        }
+        assertEquals(List.of(BMCLAPI, MOJANG), scoreboard.rank(CANDIDATES));
+
+        // Similar performance keeps the configured order
+        MirrorScoreboard similar = new MirrorScoreboard(clock::get);
+        for (int i = 0; i < 5; i++) {
+            similar.recordSuccess(MOJANG, 100 * MILLIS, 1024 * 1024, 300 * MILLIS);
+            similar.recordSuccess(BMCLAPI, 100 * MILLIS, 1024 * 1024, 250 * MILLIS);
+        }
+        assertEquals(CANDIDATES, similar.rank(CANDIDATES));
+    }
+
+    @Test
+    public void testDemotion() {
+        AtomicLong clock = new AtomicLong();
+        MirrorScoreboard scoreboard = new MirrorScoreboard(clock::get);
+
+        for (int i = 0; i < MirrorScoreboard.DEMOTE_THRESHOLD; i++) {
+            assertFalse(scoreboard.isDemoted(MOJANG));
+            scoreboard.recordFailure(MOJANG);
+        }
+        assertTrue(scoreboard.isDemoted(MOJANG));
+        assertEquals(List.of(BMCLAPI, MOJANG), scoreboard.rank(CANDIDATES));
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(30));
+        assertFalse(scoreboard.isDemoted(MOJANG));
+    }
+
+    @Test
+    public void testDecay() {
+        AtomicLong clock = new AtomicLong();
+        MirrorScoreboard scoreboard = new MirrorScoreboard(clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            scoreboard.recordSuccess(MOJANG, 100 * MILLIS, 1024 * 1024, 10 * SECONDS);
+            scoreboard.recordSuccess(BMCLAPI, 100 * MILLIS, 1024 * 1024, 100 * MILLIS);
+        }
+        assertEquals(List.of(BMCLAPI, MOJANG), scoreboard.rank(CANDIDATES));
+
+        // After a few hours, old samples have decayed away and the hosts are unknown again
+        clock.addAndGet(TimeUnit.HOURS.toNanos(3));
+        assertEquals(CANDIDATES, scoreboard.rank(CANDIDATES));
+    }
+}
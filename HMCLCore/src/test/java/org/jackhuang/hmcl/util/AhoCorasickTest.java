@@ -0,0 +1,46 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AhoCorasickTest {
+
+    @Test
+    public void testFindFirstOccurrences() {
+        AhoCorasick automaton = new AhoCorasick(List.of("he", "she", "his", "hers"));
+        assertArrayEquals(new int[]{2, 1, -1, 2}, automaton.findFirstOccurrences("ushers"));
+        assertArrayEquals(new int[]{-1, -1, -1, -1}, automaton.findFirstOccurrences("nothing"));
+    }
+
+    @Test
+    public void testNonAsciiPatterns() {
+        AhoCorasick automaton = new AhoCorasick(List.of("найден", "错误", "Ошибка", "e\u0301"));
+        assertArrayEquals(new int[]{14, 0, 4, -1}, automaton.findFirstOccurrences("错误: Ошибка не найден"));
+        assertArrayEquals(new int[]{-1, -1, -1, 3}, automaton.findFirstOccurrences("cafe\u0301 \u0444"));
+    }
+
+    @Test
+    public void testEmptyPattern() {
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasick(List.of("a", "")));
+    }
+}
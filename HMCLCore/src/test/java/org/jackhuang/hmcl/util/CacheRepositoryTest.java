@@ -0,0 +1,290 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheRepositoryTest {
+
+    private static final URI FIRST = URI.create("https://example.com/first.json");
+    private static final URI SECOND = URI.create("https://example.com/second.json");
+
+    @TempDir
+    private Path dir;
+
+    private CacheRepository open() {
+        CacheRepository repository = new CacheRepository();
+        repository.changeDirectory(dir);
+        return repository;
+    }
+
+    private static void cache(CacheRepository repository, URI uri, String eTag, String text) throws Exception {
+        repository.cacheText(new FakeResponse(uri, eTag), text);
+    }
+
+    private static String eTag(CacheRepository repository, URI uri) {
+        return repository.injectConnection(uri).get("if-none-match");
+    }
+
+    @Test
+    public void testMergeProcesses() throws Exception {
+        CacheRepository a = open();
+        CacheRepository b = open();
+        assertNull(eTag(b, SECOND));
+
+        cache(a, FIRST, "\"a1\"", "first");
+        cache(b, SECOND, "\"b1\"", "second");
+        assertEquals("\"a1\"", eTag(b, FIRST), "Entries of other processes are merged when appending");
+
+        CacheRepository reloaded = open();
+        assertEquals("\"a1\"", eTag(reloaded, FIRST));
+        assertEquals("\"b1\"", eTag(reloaded, SECOND));
+        assertEquals("first", Files.readString(reloaded.getCachedRemoteFile(FIRST, false)));
+
+        a.removeRemoteEntry(FIRST);
+        assertNull(eTag(open(), FIRST));
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        CacheRepository a = open();
+        CacheRepository b = open();
+        cache(a, FIRST, "\"a1\"", "first");
+        cache(a, FIRST, "\"a2\"", "first, updated");
+        assertEquals("\"a2\"", eTag(b, FIRST));
+
+        a.saveETagIndex();
+        assertEquals(2, Files.readAllLines(dir.resolve("cache/etag.journal")).size(), "Header and one entry");
+
+        // b notices the journal has been rewritten and reloads it before appending
+        cache(b, SECOND, "\"b1\"", "second");
+        CacheRepository reloaded = open();
+        assertEquals("\"a2\"", eTag(reloaded, FIRST));
+        assertEquals("\"b1\"", eTag(reloaded, SECOND));
+    }
+
+    @Test
+    public void testIncompleteEntry() throws Exception {
+        CacheRepository a = open();
+        cache(a, FIRST, "\"a1\"", "first");
+        Files.writeString(dir.resolve("cache/etag.journal"), "{\"url\":\"https://exa", StandardOpenOption.APPEND);
+
+        CacheRepository b = open();
+        assertEquals("\"a1\"", eTag(b, FIRST));
+        cache(b, SECOND, "\"b1\"", "second");
+
+        CacheRepository reloaded = open();
+        assertEquals("\"a1\"", eTag(reloaded, FIRST));
+        assertEquals("\"b1\"", eTag(reloaded, SECOND));
+    }
+
+    @Test
+    public void testImportLegacyIndex() throws Exception {
+        Files.createDirectories(dir.resolve("cache"));
+        Files.writeString(dir.resolve("cache/etag.json"),
+                "{\"eTag\":[{\"url\":\"" + FIRST + "\",\"eTag\":\"\\\"legacy\\\"\",\"hash\":\"0000\",\"local\":0,\"expires\":0}]}");
+
+        CacheRepository a = open();
+        assertEquals("\"legacy\"", eTag(a, FIRST));
+        cache(a, SECOND, "\"a1\"", "second");
+
+        CacheRepository reloaded = open();
+        assertEquals("\"legacy\"", eTag(reloaded, FIRST));
+        assertEquals("\"a1\"", eTag(reloaded, SECOND));
+    }
+
+    private Path writeCachedFile(String hash, int size, long lastModified) throws Exception {
+        Path file = dir.resolve("cache/SHA-1").resolve(hash.substring(0, 2)).resolve(hash);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[size]);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return file;
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        long now = System.currentTimeMillis();
+        long hour = TimeUnit.HOURS.toMillis(1);
+        Path oldest = writeCachedFile("aa01", 1000, now - 3 * hour);
+        Path linked = writeCachedFile("aa02", 1000, now - 3 * hour);
+        Path older = writeCachedFile("aa03", 1000, now - 2 * hour);
+        Path recent = writeCachedFile("aa04", 1000, now - hour);
+        Path fresh = writeCachedFile("aa05", 1000, now);
+        Files.createLink(dir.resolve("instance.jar"), linked);
+
+        CacheRepository repository = open();
+        CacheRepository.CacheStatistics statistics = repository.getStatistics();
+        assertEquals(5, statistics.fileCount());
+        assertEquals(5000, statistics.totalSize());
+        assertEquals(1, statistics.linkedFileCount());
+        assertEquals(1000, statistics.linkedSize());
+
+        repository.setSizeLimit(2000);
+        assertEquals(2000, repository.evict());
+        assertFalse(Files.exists(oldest));
+        assertFalse(Files.exists(older));
+        assertTrue(Files.exists(linked), "Linked files are never evicted");
+        assertTrue(Files.exists(recent));
+        assertTrue(Files.exists(fresh));
+
+        repository.setSizeLimit(0);
+        assertEquals(0, repository.evict());
+    }
+
+    @Test
+    public void testConcurrentCacheFile() throws Exception {
+        byte[] content = new byte[4 * 1024 * 1024];
+        new Random(0).nextBytes(content);
+        String hash = HexFormat.of().formatHex(DigestUtils.digest(CacheRepository.SHA1, content));
+
+        for (boolean linkFiles : new boolean[]{false, true}) {
+            CacheRepository repository = open();
+            repository.setLinkFiles(linkFiles);
+
+            int threads = 8;
+            List<Path> sources = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Path source = dir.resolve("objects-" + linkFiles + "/" + i);
+                Files.createDirectories(source.getParent());
+                Files.write(source, content);
+                sources.add(source);
+            }
+
+            Path cached = repository.getFile(CacheRepository.SHA1, hash);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (Path source : sources) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        repository.tryCacheFile(source, CacheRepository.SHA1, hash);
+                        // Another thread may have cached the file first, which must be complete by now
+                        assertArrayEquals(content, Files.readAllBytes(cached));
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            assertArrayEquals(content, Files.readAllBytes(cached));
+            try (var stream = Files.list(cached.getParent())) {
+                assertEquals(List.of(cached), stream.toList(), "Temporary files should be removed");
+            }
+            Files.delete(cached);
+        }
+    }
+
+    @Test
+    public void testEvictionPolicy() {
+        long now = System.currentTimeMillis();
+        long hour = TimeUnit.HOURS.toMillis(1);
+        CacheEvictor.CachedFile popular = new CacheEvictor.CachedFile(dir.resolve("popular"), 100, now - 3 * hour, 10, 1);
+        CacheEvictor.CachedFile once = new CacheEvictor.CachedFile(dir.resolve("once"), 100, now - hour, 1, 1);
+        CacheEvictor.CachedFile fresh = new CacheEvictor.CachedFile(dir.resolve("fresh"), 100, now, 0, 1);
+        List<CacheEvictor.CachedFile> files = List.of(popular, once, fresh);
+
+        assertEquals(List.of(popular), CacheEvictor.selectVictims(files, 200, CacheRepository.EvictionPolicy.LRU, true, now));
+        assertEquals(List.of(once), CacheEvictor.selectVictims(files, 200, CacheRepository.EvictionPolicy.LFU, true, now));
+        assertEquals(List.of(once, popular), CacheEvictor.selectVictims(files, 0, CacheRepository.EvictionPolicy.LFU, true, now),
+                "Files in the grace period are kept even above the limit");
+        assertEquals(List.of(), CacheEvictor.selectVictims(files, 300, CacheRepository.EvictionPolicy.LRU, true, now));
+    }
+
+    @Test
+    public void testEvictionWithoutLinkCounts() {
+        long now = System.currentTimeMillis();
+        long hour = TimeUnit.HOURS.toMillis(1);
+        CacheEvictor.CachedFile popular = new CacheEvictor.CachedFile(dir.resolve("popular"), 100, now - 3 * hour, 10, -1);
+        CacheEvictor.CachedFile once = new CacheEvictor.CachedFile(dir.resolve("once"), 100, now - hour, 1, -1);
+        List<CacheEvictor.CachedFile> files = List.of(popular, once);
+
+        assertEquals(List.of(), CacheEvictor.selectVictims(files, 100, CacheRepository.EvictionPolicy.LFU, true, now),
+                "Files that may be linked are not evicted");
+        assertEquals(List.of(once), CacheEvictor.selectVictims(files, 100, CacheRepository.EvictionPolicy.LFU, false, now),
+                "Files are evicted by the configured policy when they cannot be linked");
+        assertEquals(new CacheRepository.CacheStatistics(2, 200, 0, 0), CacheEvictor.getStatistics(files));
+    }
+
+    private record FakeResponse(URI uri, String eTag) implements HttpResponse<String> {
+        @Override
+        public int statusCode() {
+            return 200;
+        }
+
+        @Override
+        public HttpRequest request() {
+            return HttpRequest.newBuilder(uri).build();
+        }
+
+        @Override
+        public Optional<HttpResponse<String>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(Map.of("etag", List.of(eTag)), (name, value) -> true);
+        }
+
+        @Override
+        public String body() {
+            return null;
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineRingBufferTest {
+
+    private static List<String> toList(LineRingBuffer buffer) {
+        List<String> list = new ArrayList<>();
+        buffer.forEach(list::add);
+        return list;
+    }
+
+    @Test
+    public void testAdd() {
+        LineRingBuffer buffer = new LineRingBuffer(1024);
+        buffer.add("first");
+        buffer.add("");
+        buffer.add("第三行");
+        assertEquals(List.of("first", "", "第三行"), toList(buffer));
+        assertEquals(0, buffer.getDroppedLines());
+
+        buffer.clear();
+        assertEquals(List.of(), toList(buffer));
+    }
+
+    @Test
+    public void testBudget() {
+        Random random = new Random(0);
+        int budget = 300_000;
+        LineRingBuffer buffer = new LineRingBuffer(budget);
+        ArrayDeque<String> expected = new ArrayDeque<>();
+        int expectedBytes = 0;
+        long dropped = 0;
+
+        for (int i = 0; i < 100_000; i++) {
+            String line = i + ":" + "x".repeat(random.nextInt(200)) + (i % 7 == 0 ? "日志" : "");
+            int recordSize = Integer.BYTES + line.getBytes(StandardCharsets.UTF_8).length;
+            while (expectedBytes + recordSize > budget) {
+                expectedBytes -= Integer.BYTES + expected.removeFirst().getBytes(StandardCharsets.UTF_8).length;
+                dropped++;
+            }
+            expected.addLast(line);
+            expectedBytes += recordSize;
+            buffer.add(line);
+
+            if (i % 10_000 == 0)
+                assertEquals(new ArrayList<>(expected), toList(buffer));
+        }
+
+        assertEquals(new ArrayList<>(expected), toList(buffer));
+        assertEquals(expected.size(), buffer.size());
+        assertEquals(dropped, buffer.getDroppedLines());
+    }
+
+    @Test
+    public void testTruncateLongLine() {
+        LineRingBuffer buffer = new LineRingBuffer(16);
+        buffer.add("short");
+        buffer.add("a very long line exceeding the budget");
+        assertEquals(List.of("a very long "), toList(buffer));
+        assertEquals(1, buffer.getDroppedLines());
+    }
+
+    @Test
+    public void testTruncateAtCharacterBoundary() {
+        LineRingBuffer buffer = new LineRingBuffer(16);
+        buffer.add("aaaaaaaaaaa\u00e9");
+        assertEquals(List.of("aaaaaaaaaaa"), toList(buffer));
+
+        buffer.clear();
+        buffer.add("aaaaaaaaaa\uD83D\uDE00");
+        assertEquals(List.of("aaaaaaaaaa"), toList(buffer));
+
+        buffer.clear();
+        buffer.add("\u4e2d\u6587\u4e2d\u6587\u4e2d");
+        assertEquals(List.of("\u4e2d\u6587\u4e2d\u6587"), toList(buffer));
+    }
+}
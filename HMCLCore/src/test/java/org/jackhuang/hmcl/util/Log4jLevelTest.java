@@ -0,0 +1,114 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class Log4jLevelTest {
+
+    /// The regex based implementation that [Log4jLevel#guessLevel(String)] must agree with.
+    private static Log4jLevel guessLevelByRegex(String line) {
+        Log4jLevel level = null;
+        Matcher m = Log4jLevel.MINECRAFT_LOGGER.matcher(line);
+        if (m.find()) {
+            switch (m.group("level")) {
+                case "INFO" -> level = Log4jLevel.INFO;
+                case "WARN" -> level = Log4jLevel.WARN;
+                case "ERROR" -> level = Log4jLevel.ERROR;
+                case "FATAL" -> level = Log4jLevel.FATAL;
+                case "TRACE" -> level = Log4jLevel.TRACE;
+                case "DEBUG" -> level = Log4jLevel.DEBUG;
+                default -> {
+                }
+            }
+            Matcher m2 = Log4jLevel.MINECRAFT_LOGGER_CATEGORY.matcher(line);
+            if (m2.find()) {
+                switch (m2.group("category")) {
+                    case "STDOUT" -> level = Log4jLevel.INFO;
+                    case "STDERR" -> level = Log4jLevel.ERROR;
+                    default -> {
+                    }
+                }
+            }
+
+            if (line.contains("STDERR]") || line.contains("[STDERR/]")) {
+                level = Log4jLevel.ERROR;
+            }
+        } else {
+            if (line.contains("[INFO]") || line.contains("[CONFIG]") || line.contains("[FINE]")
+                    || line.contains("[FINER]") || line.contains("[FINEST]"))
+                level = Log4jLevel.INFO;
+            if (line.contains("[SEVERE]") || line.contains("[STDERR]"))
+                level = Log4jLevel.ERROR;
+            if (line.contains("[WARNING]"))
+                level = Log4jLevel.WARN;
+            if (line.contains("[DEBUG]"))
+                level = Log4jLevel.DEBUG;
+        }
+        if (line.contains("overwriting existing"))
+            level = Log4jLevel.FATAL;
+        return level;
+    }
+
+    private static void check(String line) {
+        assertEquals(guessLevelByRegex(line), Log4jLevel.guessLevel(line), line);
+    }
+
+    @Test
+    public void testGuessLevel() {
+        check("[12:34:56] [Render thread/INFO]: Setting user: Steve");
+        check("[12:34:56] [Render thread/WARN]: Missing sound");
+        check("[12:34:56] [main/ERROR] [STDERR]: java.lang.Exception");
+        check("[12:34:56] [main/INFO] [STDOUT]: Hello");
+        check("[12:34:56] [main/DEBUG] [mixin]: Hello");
+        check("[12:34:56] [main/UNKNOWN]: Hello");
+        check("[12:34:56] [main/]: Hello");
+        check("[12:34:56] [/INFO]: Hello");
+        check("[] [main/INFO]: Hello");
+        check("[12:34:56] [main/INFO");
+        check("[x] [12:34:56] [a[b]c/FATAL] [] [12:00] [d/INFO] [STDERR]");
+        check("[12:34:56] [main/INFO]x [12:00] [d/WARN] [STDOUT]");
+        check("[12:34:56] [main/INFO] [x/y]: overwriting existing entry");
+        check("2024-01-01 12:00:00 [SEVERE] Something failed");
+        check("2024-01-01 12:00:00 [INFO] [WARNING] both");
+        check("plain line");
+        check("");
+    }
+
+    @Test
+    public void testGuessLevelOnLogs() throws Exception {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(Path.of(Log4jLevelTest.class.getResource("/logs").toURI()))) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+
+        for (Path file : files) {
+            for (String line : Files.readAllLines(file)) {
+                check(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util.io;
+
+import org.jackhuang.hmcl.util.ServerAddress;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerStatusPollerTest {
+
+    private static final String STATUS = "{\"version\":{\"name\":\"1.18.2\",\"protocol\":758},"
+            + "\"players\":{\"max\":20,\"online\":3,\"sample\":[]},"
+            + "\"description\":{\"extra\":[{\"text\":\" World\"}],\"text\":\"Hello\"},"
+            + "\"favicon\":\"data:image/png;base64," + "A".repeat(20000) + "\"}";
+
+    private ServerSocket serverSocket;
+    private final AtomicInteger connections = new AtomicInteger();
+    /// If not null, sent instead of the status and the pong, after which the connection is kept open
+    private volatile byte[] response;
+    private ServerStatusPoller poller;
+
+    /// A status server that only answers after it has received the handshake, the status request and the ping request.
+    @BeforeEach
+    public void startServer() throws IOException {
+        serverSocket = new ServerSocket(0, 64, InetAddress.getLoopbackAddress());
+        Thread thread = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    byte[] response = this.response;
+                    Thread handler = new Thread(() -> serve(socket, response));
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        poller = new ServerStatusPoller();
+    }
+
+    @AfterEach
+    public void stopServer() throws IOException {
+        poller.close();
+        serverSocket.close();
+    }
+
+    private static void serve(Socket socket, byte[] response) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] handshake = readPacket(in);
+            assertEquals(0x00, handshake[0]);
+            assertArrayEquals(new byte[]{0x00}, readPacket(in));
+            byte[] ping = readPacket(in);
+            assertEquals(0x01, ping[0]);
+
+            if (response != null) {
+                socket.getOutputStream().write(response);
+                socket.getOutputStream().flush();
+                // Wait for the client to give up
+                while (in.read() >= 0) {
+                }
+                return;
+            }
+
+            byte[] json = STATUS.getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream status = new ByteArrayOutputStream();
+            status.write(0x00);
+            writeVarInt(status, json.length);
+            status.write(json);
+
+            OutputStream out = socket.getOutputStream();
+            writeVarInt(out, status.size());
+            status.writeTo(out);
+            writeVarInt(out, ping.length);
+            out.write(ping);
+            out.flush();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static byte[] readPacket(DataInputStream in) throws IOException {
+        byte[] packet = new byte[readVarInt(in)];
+        in.readFully(packet);
+        return packet;
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int result = 0;
+        for (int i = 0; i < 5; i++) {
+            int b = in.read();
+            if (b < 0)
+                throw new EOFException();
+            result |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0)
+                return result;
+        }
+        throw new IOException("VarInt too big");
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private ServerAddress getAddress() {
+        return new ServerAddress("127.0.0.1", serverSocket.getLocalPort());
+    }
+
+    @Test
+    public void testQuery() throws Exception {
+        ServerStatusPoller.Status status = poller.query(getAddress()).get(10, TimeUnit.SECONDS);
+        assertTrue(status.online());
+        assertEquals(3, status.playersOnline());
+        assertEquals(20, status.playersMax());
+        assertEquals("Hello World", status.description());
+        assertTrue(status.pingMillis() >= 0);
+        assertNull(status.error());
+    }
+
+    @Test
+    public void testManyServers() throws Exception {
+        List<CompletableFuture<ServerStatusPoller.Status>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(poller.query(getAddress()));
+        }
+        for (CompletableFuture<ServerStatusPoller.Status> future : futures) {
+            assertTrue(future.get(10, TimeUnit.SECONDS).online());
+        }
+        assertEquals(50, connections.get());
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        CountDownLatch latch = new CountDownLatch(3);
+        ServerStatusPoller.Watch watch = poller.watch(getAddress(), Duration.ZERO, status -> {
+            if (status.online())
+                latch.countDown();
+        });
+        try {
+            // Intervals are at least as long as the timeout, so refresh instead of waiting
+            for (int i = 0; i < 100 && latch.getCount() > 0; i++) {
+                watch.refresh();
+                Thread.sleep(50);
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            watch.cancel();
+        }
+    }
+
+    @Test
+    public void testOffline() throws Exception {
+        int port;
+        try (ServerSocket closed = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = closed.getLocalPort();
+        }
+        ServerStatusPoller.Status status = poller.query(new ServerAddress("127.0.0.1", port)).get(10, TimeUnit.SECONDS);
+        assertFalse(status.online());
+        assertNotNull(status.error());
+    }
+
+    @Test
+    public void testMalformedResponse() throws Exception {
+        // A status response of length 1 holding only the packet id
+        response = new byte[]{0x01, 0x00};
+        ServerStatusPoller.Status status = poller.query(getAddress()).get(10, TimeUnit.SECONDS);
+        assertFalse(status.online());
+        assertEquals("BufferUnderflowException", status.error());
+
+        response = new byte[]{0x05, 0x7F, (byte) 0xFF, 0x00, 0x12, 0x34};
+        status = poller.query(getAddress()).get(10, TimeUnit.SECONDS);
+        assertFalse(status.online());
+
+        // The poller keeps working
+        response = null;
+        assertTrue(poller.query(getAddress()).get(10, TimeUnit.SECONDS).online());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        // Never answer
+        response = new byte[0];
+        CompletableFuture<ServerStatusPoller.Status> future = poller.query(getAddress());
+        poller.close();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+
+        ExecutionException afterClose = assertThrows(ExecutionException.class,
+                () -> poller.query(getAddress()).get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, afterClose.getCause());
+    }
+
+    @Test
+    public void testRetryDelay() {
+        long interval = TimeUnit.SECONDS.toNanos(5);
+        assertEquals(interval, ServerStatusPoller.getRetryDelay(interval, 0));
+        assertEquals(interval, ServerStatusPoller.getRetryDelay(interval, 1));
+        assertEquals(interval * 2, ServerStatusPoller.getRetryDelay(interval, 2));
+        assertEquals(interval * 8, ServerStatusPoller.getRetryDelay(interval, 4));
+        assertEquals(ServerStatusPoller.MAX_RETRY_DELAY, ServerStatusPoller.getRetryDelay(interval, 100));
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnzipperTest {
+
+    @TempDir
+    private Path dir;
+
+    private Path createZip(Map<String, byte[]> entries) throws IOException {
+        Path zip = dir.resolve("test.zip");
+        try (OutputStream out = Files.newOutputStream(zip);
+             ZipOutputStream zos = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                zos.putNextEntry(new ZipEntry(entry.getKey()));
+                if (entry.getValue() != null)
+                    zos.write(entry.getValue());
+                zos.closeEntry();
+            }
+        }
+        return zip;
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSubDirectory() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        entries.put("manifest.json", bytes("{}"));
+        entries.put("overrides/", null);
+        entries.put("overrides/config/a.txt", bytes("a"));
+        entries.put("overrides/mods/b.jar", bytes("b"));
+        entries.put("overrides/mods/disabled/c.jar", bytes("c"));
+        Path zip = createZip(entries);
+
+        Path dest = dir.resolve("dest");
+        List<String> filtered = new ArrayList<>();
+        new Unzipper(zip, dest)
+                .setSubDirectory("/overrides")
+                .setEntryFilter((entry, isDirectory, destFile, entryPath) -> {
+                    filtered.add(entryPath);
+                    return !entryPath.equals("mods/disabled");
+                })
+                .unzip();
+
+        assertEquals("a", Files.readString(dest.resolve("config/a.txt")));
+        assertEquals("b", Files.readString(dest.resolve("mods/b.jar")));
+        assertFalse(Files.exists(dest.resolve("mods/disabled")));
+        assertFalse(Files.exists(dest.resolve("manifest.json")));
+        assertEquals(List.of("", "config", "mods", "mods/disabled", "config/a.txt", "mods/b.jar"), filtered,
+                "Directories are filtered before their contents, and the contents of rejected directories are not filtered");
+
+        assertThrows(NoSuchFileException.class, () -> new Unzipper(zip, dest).setSubDirectory("/missing").unzip());
+        new Unzipper(zip, dest).setSubDirectory("/missing").setTerminateIfSubDirectoryNotExists().unzip();
+    }
+
+    @Test
+    public void testFileFilter() throws IOException {
+        Path zip = createZip(Map.of("a.txt", bytes("new a"), "b.txt", bytes("new b")));
+        Path dest = dir.resolve("dest");
+        Files.createDirectories(dest);
+        Files.writeString(dest.resolve("a.txt"), "old a");
+        Files.writeString(dest.resolve("b.txt"), "old b");
+
+        new Unzipper(zip, dest)
+                .setFilter((zipEntry, isDirectory, destFile, entryPath) ->
+                        isDirectory || Files.readString(zipEntry).equals("new a"))
+                .setReplaceExistentFile(true)
+                .unzip();
+        assertEquals("new a", Files.readString(dest.resolve("a.txt")));
+        assertEquals("old b", Files.readString(dest.resolve("b.txt")));
+
+        new Unzipper(zip, dest).setReplaceExistentFile(false).unzip();
+        assertEquals("old b", Files.readString(dest.resolve("b.txt")), "Existing files are kept unless replacing is enabled");
+    }
+
+    @Test
+    public void testConcurrentExtraction() throws IOException {
+        Random random = new Random(0);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 64; i++) {
+            byte[] content = new byte[128 * 1024 + i];
+            random.nextBytes(content);
+            entries.put("dir" + (i % 4) + "/file" + i + ".bin", content);
+        }
+        Path zip = createZip(entries);
+
+        Path dest = dir.resolve("dest");
+        new Unzipper(zip, dest).unzip();
+        for (Map.Entry<String, byte[]> entry : entries.entrySet())
+            assertArrayEquals(entry.getValue(), Files.readAllBytes(dest.resolve(entry.getKey())));
+    }
+
+    @Test
+    public void testZipSlip() throws IOException {
+        Path zip = createZip(Map.of("../evil.txt", bytes("evil")));
+        assertThrows(IOException.class, () -> new Unzipper(zip, dir.resolve("dest")).unzip());
+        assertFalse(Files.exists(dir.resolve("evil.txt")));
+    }
+
+    @Test
+    public void testVerifyChecksums() throws IOException {
+        byte[] content = bytes("original content");
+        CRC32 crc32 = new CRC32();
+        crc32.update(content);
+
+        Path zip = dir.resolve("test.zip");
+        try (ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(zip))) {
+            ZipEntry entry = new ZipEntry("a.txt");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc32.getValue());
+            zos.putNextEntry(entry);
+            zos.write(content);
+            zos.closeEntry();
+        }
+
+        // Corrupt the stored content without updating its checksum
+        byte[] data = Files.readAllBytes(zip);
+        String text = new String(data, StandardCharsets.ISO_8859_1);
+        int offset = text.indexOf("original content");
+        data[offset] = 'O';
+        Files.write(zip, data);
+
+        new Unzipper(zip, dir.resolve("unchecked")).unzip();
+        assertEquals("Original content", Files.readString(dir.resolve("unchecked/a.txt")));
+        assertThrows(ZipException.class, () -> new Unzipper(zip, dir.resolve("checked")).setVerifyChecksums(true).unzip());
+    }
+}
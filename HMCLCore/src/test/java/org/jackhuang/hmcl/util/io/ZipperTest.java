@@ -0,0 +1,117 @@
+/*
+ * Hello Minecraft! Launcher
+ * Copyright (C) 2025  huangyuhui <huanghongxun2008@126.com> and contributors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package org.jackhuang.hmcl.util.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipperTest {
+
+    @TempDir
+    private Path dir;
+
+    private static Map<String, byte[]> readZip(Path zip) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        // ZipInputStream verifies the checksums and the sizes in the local headers
+        try (InputStream in = Files.newInputStream(zip);
+             ZipInputStream zis = new ZipInputStream(in)) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null)
+                entries.put(entry.getName(), zis.readAllBytes());
+        }
+
+        // ZipFile reads the central directory
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals(entries.keySet(), new LinkedHashSet<>(zipFile.stream().map(ZipEntry::getName).toList()));
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    assertArrayEquals(entries.get(entry.getName()), in.readAllBytes());
+                }
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    public void testZip() throws IOException {
+        Random random = new Random(0);
+        byte[] large = new byte[3 * 1024 * 1024 + 12345];
+        random.nextBytes(large);
+        Arrays.fill(large, 0, 1024 * 1024, (byte) 'a');
+
+        Path source = dir.resolve("source");
+        Files.createDirectories(source.resolve("region"));
+        Files.write(source.resolve("region/r.0.0.mca"), large);
+        Files.writeString(source.resolve("level.dat"), "level");
+        Files.createFile(source.resolve("empty.txt"));
+
+        Path zip = dir.resolve("test.zip");
+        try (Zipper zipper = new Zipper(zip)) {
+            zipper.putDirectory(source, "world");
+            zipper.putTextFile("text", "text.txt");
+            zipper.putLines(Stream.of("a", "b"), "lines.txt");
+            try (OutputStream out = zipper.putStream("stream.bin")) {
+                for (int i = 0; i < 3; i++)
+                    out.write(large, i * 1024 * 1024, 1024 * 1024);
+            }
+            assertThrows(ZipException.class, () -> zipper.putTextFile("again", "text.txt"));
+        }
+
+        Map<String, byte[]> entries = readZip(zip);
+        assertArrayEquals(large, entries.get("world/region/r.0.0.mca"));
+        assertArrayEquals("level".getBytes(StandardCharsets.UTF_8), entries.get("world/level.dat"));
+        assertArrayEquals(new byte[0], entries.get("world/empty.txt"));
+        assertTrue(entries.containsKey("world/region/"));
+        assertEquals("text", new String(entries.get("text.txt"), StandardCharsets.UTF_8));
+        assertEquals("a\nb\n", new String(entries.get("lines.txt"), StandardCharsets.UTF_8));
+        assertArrayEquals(Arrays.copyOf(large, 3 * 1024 * 1024), entries.get("stream.bin"));
+    }
+
+    @Test
+    public void testCombineCrc() {
+        byte[] data = new byte[100000];
+        new Random(1).nextBytes(data);
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        for (int split : new int[]{0, 1, 4096, 99999, 100000}) {
+            CRC32 first = new CRC32();
+            first.update(data, 0, split);
+            CRC32 second = new CRC32();
+            second.update(data, split, data.length - split);
+            assertEquals((int) crc.getValue(),
+                    ParallelZipWriter.combineCrc((int) first.getValue(), (int) second.getValue(), data.length - split));
+        }
+    }
+}